@@ -0,0 +1,201 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Benchmarks JMH des étapes de PlanExporter sur des plans synthétiques (SyntheticHomeGenerator) de 10 à 10 000 murs.
+ * Les étapes géométriques (regroupement, filtre périmètre, enveloppe convexe, ouvertures, WallConverter,
+ * extraction ExportGeometry, OBJ → Collada) ne dépendent pas d'Energy3D ; arbres/buissons et export complet (jusqu'à
+ * serializeSceneToNG3) nécessitent energy3d.jar, trouvé comme pour le plugin (voir Energy3DClassLoader).
+ * Résultats JSON : java -jar benchmarks.jar -rf json -rff resultats.json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlanExporterBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int walls;
+
+    private Home home;
+    private float extentCm;
+    private Level foundationLevel;
+    private Room foundationRoom;
+    private List<Wall> wallList;
+    private List<HomePieceOfFurniture> furniture;
+    private FurnitureIndex furnitureIndex;
+    private List<List<Wall>> wallGroups;
+    private SegmentClassification segments;
+    private float[][] wallEndpoints;
+    private Map<Wall, List<HomeDoorOrWindow>> openingsByWall;
+    private boolean[] exteriorGroups;
+    private ExportGeometry.Frame frame;
+    private File workDirectory;
+    private File objFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Sans cela, fullExportToNg3 réécrit le même plan.ng3 et ne mesure que HomeFingerprint après la 1re itération
+        System.setProperty(HomeFingerprint.CACHE_PROPERTY, "false");
+        SyntheticHomeGenerator generator = new SyntheticHomeGenerator(42).walls(walls).furnitureGroups(walls / 100);
+        home = generator.generate();
+        extentCm = generator.getExtentCm();
+        foundationLevel = home.getLevels().get(0);
+        foundationRoom = home.getRooms().get(0);
+        wallList = new ArrayList<Wall>(home.getWalls());
+        furniture = home.getFurniture();
+        furnitureIndex = FurnitureIndex.build(home);
+        wallGroups = PlanExporter.groupWallsBySegment(wallList, foundationLevel, null);
+        segments = new SegmentClassification(foundationRoom);
+        wallEndpoints = new float[wallList.size() * 2][];
+        for (int i = 0; i < wallList.size(); i++) {
+            Wall wall = wallList.get(i);
+            wallEndpoints[i * 2] = new float[] {wall.getXStart(), wall.getYStart()};
+            wallEndpoints[i * 2 + 1] = new float[] {wall.getXEnd(), wall.getYEnd()};
+        }
+        openingsByWall = OpeningWallIndex.assignOpenings(wallList, furniture, PlanExporter.DOOR_WINDOW_WALL_MARGIN_CM);
+        exteriorGroups = new boolean[wallGroups.size()];
+        // Repère d'une fondation carrée centrée sur le plan, comme createSizedFoundation
+        double half = extentCm * 0.5 * PlanExporter.SCALE_CM_TO_ENERGY3D;
+        frame = new ExportGeometry.Frame(extentCm * 0.5, extentCm * 0.5, -half, -half, -half, half, half, -half, 1.0);
+        workDirectory = Files.createTempDirectory("sweetenergy3d-bench").toFile();
+        objFile = new File(workDirectory, "boxes.obj");
+        writeBoxesObj(objFile, walls);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty(HomeFingerprint.CACHE_PROPERTY);
+        File[] files = workDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDirectory.delete();
+    }
+
+    @Benchmark
+    public List<List<Wall>> groupWallsBySegment() {
+        return PlanExporter.groupWallsBySegment(wallList, foundationLevel, null);
+    }
+
+    @Benchmark
+    public List<List<Wall>> filterToRoomBoundaryOnly() {
+        // Classement recalculé à chaque appel comme dans l'export
+        return PlanExporter.filterToRoomBoundaryOnly(wallGroups, foundationRoom,
+                new SegmentClassification(foundationRoom), null);
+    }
+
+    @Benchmark
+    public int[] convexHullIndices() {
+        return SegmentClassification.convexHullIndices(wallEndpoints);
+    }
+
+    @Benchmark
+    public SegmentKeySet wallGroupsHull() {
+        return SegmentClassification.wallGroupsHull(wallGroups);
+    }
+
+    @Benchmark
+    public Map<Wall, List<HomeDoorOrWindow>> assignDoorsAndWindows() {
+        return OpeningWallIndex.assignOpenings(wallList, furniture, PlanExporter.DOOR_WINDOW_WALL_MARGIN_CM);
+    }
+
+    @Benchmark
+    public void wallConverter(Blackhole blackhole) {
+        for (Wall wall : wallList) {
+            blackhole.consume(WallConverter.convertToEnergy3D(wall));
+        }
+    }
+
+    /** Géométrie des segments et de leurs ouvertures (ExportGeometry), sans Energy3D. */
+    @Benchmark
+    public ExportGeometry.Walls extractWalls() {
+        return ExportGeometry.extractWalls(wallGroups, exteriorGroups, openingsByWall, furnitureIndex, foundationLevel, frame);
+    }
+
+    @Benchmark
+    public FurnitureIndex furnitureIndex() {
+        return FurnitureIndex.build(home);
+    }
+
+    @Benchmark
+    public boolean convertObjToCollada() {
+        return PlanExporter.convertObjToCollada(objFile, new File(workDirectory, "boxes.dae"), null);
+    }
+
+    /**
+     * Arbres et buissons ajoutés à une scène et une fondation neuves (création incluse dans la mesure,
+     * coût fixe indépendant du nombre de murs).
+     */
+    @Benchmark
+    public Object treesAndBushes() throws Exception {
+        Energy3DHandles handles = Energy3DHandles.get(Energy3DClassLoader.getEnergy3DClassLoader(null));
+        PlanExporter.initializeHeliodonStub(null);
+        Object scene = PlanExporter.createNewSceneInstance(null);
+        Object foundation = PlanExporter.createSizedFoundation(extentCm / 100.0, extentCm / 100.0, null);
+        PlanExporter.exportTreesAndBushes(home, furnitureIndex, foundation,
+                PlanExporter.readFoundationFrame(foundation, 0, 0, handles), scene, handles, (PrintWriter) null);
+        return scene;
+    }
+
+    /** Export complet, de la lecture du plan jusqu'à serializeSceneToNG3 (cache d'export désactivé). */
+    @Benchmark
+    public boolean fullExportToNg3() {
+        return PlanExporter.exportToEnergy3D(home, new File(workDirectory, "plan.ng3"));
+    }
+
+    /** Fichier OBJ de boxCount cubes (8 sommets, 6 faces quadrangulaires chacun). */
+    private static void writeBoxesObj(File file, int boxCount) throws IOException {
+        StringBuilder obj = new StringBuilder(boxCount * 200);
+        for (int b = 0; b < boxCount; b++) {
+            double ox = (b % 100) * 2;
+            double oy = (b / 100) * 2;
+            for (int corner = 0; corner < 8; corner++) {
+                obj.append("v ").append(ox + (corner & 1)).append(' ')
+                        .append(oy + ((corner >> 1) & 1)).append(' ').append((corner >> 2) & 1).append('\n');
+            }
+            int base = b * 8 + 1;
+            int[][] faces = {{0, 1, 3, 2}, {4, 6, 7, 5}, {0, 4, 5, 1}, {2, 3, 7, 6}, {0, 2, 6, 4}, {1, 5, 7, 3}};
+            for (int[] face : faces) {
+                obj.append('f');
+                for (int corner : face) obj.append(' ').append(base + corner);
+                obj.append('\n');
+            }
+        }
+        Files.write(file.toPath(), obj.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,136 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.eteks.sweethome3d.model.Home;
+
+/**
+ * Export Energy3D asynchrone : le plan est copié sur le thread appelant (EDT) puis exporté
+ * sur un thread de travail dédié, pour que Sweet Home 3D reste utilisable pendant l'export.
+ * Scene.instance et Heliodon.instance étant globaux, un seul export s'exécute à la fois.
+ */
+public class AsyncPlanExporter {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "SweetEnergy3D-export");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Lance l'export d'une copie du plan. Le moniteur reçoit les étapes depuis le thread de travail.
+     * Les exports successifs d'un même plan sont incrémentaux (ExportSession) : seuls les éléments modifiés sont reconstruits.
+     *
+     * @param home Le Home à exporter (copié immédiatement, l'utilisateur peut continuer à l'éditer)
+     * @param outputFile Le fichier de sortie .ng3
+     * @param listener Moniteur optionnel (peut être null)
+     * @return la tâche d'export, dont le résultat est true si l'export a réussi
+     */
+    public static ExportTask exportAsync(Home home, File outputFile, ExportMonitor listener) {
+        return exportAsync(home, outputFile, listener, false);
+    }
+
+    /**
+     * Comme exportAsync(home, outputFile, listener) ; avec newLog, le .log est vidé sur le thread de travail
+     * avant l'export (export automatique : un journal par export, comme l'export manuel).
+     */
+    public static ExportTask exportAsync(Home home, File outputFile, ExportMonitor listener, boolean newLog) {
+        Home snapshot = home != null ? home.clone() : null;
+        ExportTask task = new ExportTask(listener, ExportSession.forHome(home));
+        EXECUTOR.execute(() -> task.run(snapshot, outputFile, newLog));
+        return task;
+    }
+
+    /**
+     * Export en cours : résultat sous forme de CompletableFuture et annulation coopérative
+     * (vérifiée entre les étapes et entre les groupes de murs).
+     */
+    public static class ExportTask implements ExportMonitor {
+        private final ExportMonitor listener;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        private final ExportMetrics metrics = new ExportMetrics();
+        private final ExportSession session;
+        private volatile boolean cancelled;
+
+        private ExportTask(ExportMonitor listener, ExportSession session) {
+            this.listener = listener != null ? listener : ExportMonitor.NONE;
+            this.session = session;
+        }
+
+        private void run(Home snapshot, File outputFile, boolean newLog) {
+            if (cancelled) {
+                result.completeExceptionally(new CancellationException());
+                return;
+            }
+            java.io.PrintWriter logWriter = null;
+            try {
+                if (newLog && outputFile != null) {
+                    // Gardé ouvert pendant l'export : PlanExporter partage ce journal au lieu de l'allonger
+                    File logFile = new File(outputFile.getParentFile(), outputFile.getName() + ".log");
+                    try {
+                        logWriter = ExportLogger.open(logFile, false);
+                        ExportLogger.info(logWriter, "=== EXPORT AUTOMATIQUE ===");
+                    } catch (java.io.IOException e) {
+                        System.err.println("ERREUR lors de la création du log: " + e.getMessage());
+                    }
+                }
+                // Le ClassLoader Energy3D est préparé dès le chargement du plugin : attendre qu'il soit prêt.
+                // Mesures rattachées avant l'attente, comptée dans l'étape CLASSLOADER
+                metrics.attach();
+                metrics.stage(ExportMetrics.Stage.CLASSLOADER);
+                stageStarted(Stage.CLASSLOADER);
+                try {
+                    Energy3DWarmUp.awaitReady(this);
+                } catch (CancellationException | InterruptedException e) {
+                    metrics.detach("cancelled");
+                    throw e;
+                }
+                result.complete(PlanExporter.exportToEnergy3D(snapshot, outputFile, this, metrics, session));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                if (logWriter != null) {
+                    logWriter.close();
+                }
+            }
+        }
+
+        /** Résultat de l'export (true si réussi) ; se termine en CancellationException si annulé. */
+        public CompletableFuture<Boolean> getResult() {
+            return result;
+        }
+
+        /** Mesures de l'export, complètes une fois le résultat disponible. */
+        public ExportMetrics getMetrics() {
+            return metrics;
+        }
+
+        /** Demande l'arrêt de l'export au prochain point de contrôle. */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled || listener.isCancelled();
+        }
+
+        @Override
+        public void stageStarted(Stage stage) {
+            listener.stageStarted(stage);
+        }
+
+        @Override
+        public void progress(Stage stage, int done, int total) {
+            listener.progress(stage, done, total);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import com.eteks.sweethome3d.model.CollectionEvent;
+import com.eteks.sweethome3d.model.CollectionListener;
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeFurnitureGroup;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Export automatique : tient le .ng3 à jour pendant l'édition du plan. Les modifications des murs, pièces,
+ * meubles et niveaux (ajouts, suppressions, propriétés) sont regroupées pendant un délai d'inactivité
+ * (-Dsweetenergy3d.autoexport.delayMs, 2000 ms par défaut), puis un export incrémental est lancé par
+ * AsyncPlanExporter. Un seul export à la fois : une modification pendant un export l'annule et un nouvel
+ * export, sur l'état le plus récent, part dès qu'il s'est arrêté. Le .log ne garde que le dernier export.
+ * Toutes les méthodes s'exécutent sur l'EDT, comme les événements du Home.
+ */
+public class AutoExportWatcher {
+
+    public static final String DELAY_PROPERTY = "sweetenergy3d.autoexport.delayMs";
+    private static final int DEFAULT_DELAY_MS = 2000;
+
+    /** Résultat de chaque export automatique (appelé sur l'EDT). */
+    public interface Listener {
+        /**
+         * @param error null si l'export s'est terminé (success indique alors s'il a réussi)
+         */
+        void exportFinished(File outputFile, ExportMetrics metrics, boolean success, Throwable error);
+    }
+
+    private final Home home;
+    private final File outputFile;
+    private final Listener listener;
+    private final Timer debounceTimer;
+    private final PropertyChangeListener itemListener;
+    private final CollectionListener<Wall> wallsListener;
+    private final CollectionListener<Room> roomsListener;
+    private final CollectionListener<HomePieceOfFurniture> furnitureListener;
+    private final CollectionListener<Level> levelsListener;
+    /** Export en cours, ou null. */
+    private AsyncPlanExporter.ExportTask running;
+    /** Le plan a changé depuis le lancement de l'export en cours. */
+    private boolean changedWhileRunning;
+    private boolean started;
+
+    public AutoExportWatcher(Home home, File outputFile, Listener listener) {
+        this.home = home;
+        this.outputFile = outputFile;
+        this.listener = listener;
+        this.debounceTimer = new Timer(delayMs(), new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent ev) {
+                exportNow();
+            }
+        });
+        this.debounceTimer.setRepeats(false);
+        this.itemListener = new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent ev) {
+                planChanged();
+            }
+        };
+        this.wallsListener = new ItemsListener<Wall>() {
+            @Override
+            void itemAdded(Wall wall) {
+                wall.addPropertyChangeListener(itemListener);
+            }
+
+            @Override
+            void itemDeleted(Wall wall) {
+                wall.removePropertyChangeListener(itemListener);
+            }
+        };
+        this.roomsListener = new ItemsListener<Room>() {
+            @Override
+            void itemAdded(Room room) {
+                room.addPropertyChangeListener(itemListener);
+            }
+
+            @Override
+            void itemDeleted(Room room) {
+                room.removePropertyChangeListener(itemListener);
+            }
+        };
+        this.furnitureListener = new ItemsListener<HomePieceOfFurniture>() {
+            @Override
+            void itemAdded(HomePieceOfFurniture piece) {
+                addPieceListener(piece);
+            }
+
+            @Override
+            void itemDeleted(HomePieceOfFurniture piece) {
+                removePieceListener(piece);
+            }
+        };
+        this.levelsListener = new ItemsListener<Level>() {
+            @Override
+            void itemAdded(Level level) {
+                level.addPropertyChangeListener(itemListener);
+            }
+
+            @Override
+            void itemDeleted(Level level) {
+                level.removePropertyChangeListener(itemListener);
+            }
+        };
+    }
+
+    private static int delayMs() {
+        try {
+            return Math.max(100, Integer.parseInt(System.getProperty(DELAY_PROPERTY, String.valueOf(DEFAULT_DELAY_MS)).trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_DELAY_MS;
+        }
+    }
+
+    /** Abonne l'export aux modifications du plan et lance un premier export. */
+    public void start() {
+        if (started) return;
+        started = true;
+        for (Wall wall : home.getWalls()) {
+            wall.addPropertyChangeListener(itemListener);
+        }
+        for (Room room : home.getRooms()) {
+            room.addPropertyChangeListener(itemListener);
+        }
+        for (HomePieceOfFurniture piece : home.getFurniture()) {
+            addPieceListener(piece);
+        }
+        for (Level level : home.getLevels()) {
+            level.addPropertyChangeListener(itemListener);
+        }
+        home.addWallsListener(wallsListener);
+        home.addRoomsListener(roomsListener);
+        home.addFurnitureListener(furnitureListener);
+        home.addLevelsListener(levelsListener);
+        exportNow();
+    }
+
+    /** Désabonne l'export et annule l'export en cours. */
+    public void stop() {
+        if (!started) return;
+        started = false;
+        debounceTimer.stop();
+        home.removeWallsListener(wallsListener);
+        home.removeRoomsListener(roomsListener);
+        home.removeFurnitureListener(furnitureListener);
+        home.removeLevelsListener(levelsListener);
+        for (Wall wall : home.getWalls()) {
+            wall.removePropertyChangeListener(itemListener);
+        }
+        for (Room room : home.getRooms()) {
+            room.removePropertyChangeListener(itemListener);
+        }
+        for (HomePieceOfFurniture piece : home.getFurniture()) {
+            removePieceListener(piece);
+        }
+        for (Level level : home.getLevels()) {
+            level.removePropertyChangeListener(itemListener);
+        }
+        if (running != null) {
+            running.cancel();
+        }
+        changedWhileRunning = false;
+    }
+
+    /** Suit le meuble et, pour un groupe, tous ses meubles (l'export lit les meubles des groupes un par un). */
+    private void addPieceListener(HomePieceOfFurniture piece) {
+        piece.addPropertyChangeListener(itemListener);
+        if (piece instanceof HomeFurnitureGroup) {
+            for (HomePieceOfFurniture child : ((HomeFurnitureGroup) piece).getFurniture()) {
+                addPieceListener(child);
+            }
+        }
+    }
+
+    private void removePieceListener(HomePieceOfFurniture piece) {
+        piece.removePropertyChangeListener(itemListener);
+        if (piece instanceof HomeFurnitureGroup) {
+            for (HomePieceOfFurniture child : ((HomeFurnitureGroup) piece).getFurniture()) {
+                removePieceListener(child);
+            }
+        }
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    /** Une modification relance le délai ; pendant un export, elle l'annule (son résultat serait déjà périmé). */
+    private void planChanged() {
+        if (!started) return;
+        if (running != null) {
+            changedWhileRunning = true;
+            running.cancel();
+        }
+        debounceTimer.restart();
+    }
+
+    /** Lance l'export, ou le reporte à la fin de l'export en cours. */
+    private void exportNow() {
+        if (!started) return;
+        if (running != null) {
+            changedWhileRunning = true;
+            return;
+        }
+        if (PlanExporter.getExportValidationError(home) != null) {
+            // Plan pas encore exportable (pas de terrain) : attendre la prochaine modification
+            return;
+        }
+        changedWhileRunning = false;
+        // Journal vidé à chaque export, comme pour l'export manuel : il ne grossit pas au fil des modifications
+        final AsyncPlanExporter.ExportTask task = AsyncPlanExporter.exportAsync(home, outputFile, ExportMonitor.NONE, true);
+        running = task;
+        task.getResult().whenComplete((success, error) -> SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                exportDone(task, success, error);
+            }
+        }));
+    }
+
+    private void exportDone(AsyncPlanExporter.ExportTask task, Boolean success, Throwable error) {
+        if (running == task) {
+            running = null;
+        }
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (!(cause instanceof CancellationException)) {
+            listener.exportFinished(outputFile, task.getMetrics(), Boolean.TRUE.equals(success), cause);
+        }
+        if (started && changedWhileRunning && !debounceTimer.isRunning()) {
+            // Modifié pendant l'export et délai déjà écoulé : réexporter l'état le plus récent
+            exportNow();
+        }
+    }
+
+    /** Suit les éléments ajoutés/supprimés d'une collection du Home ; chaque changement compte comme une modification. */
+    private abstract class ItemsListener<T> implements CollectionListener<T> {
+        public void collectionChanged(CollectionEvent<T> ev) {
+            if (ev.getType() == CollectionEvent.Type.ADD) {
+                itemAdded(ev.getItem());
+            } else if (ev.getType() == CollectionEvent.Type.DELETE) {
+                itemDeleted(ev.getItem());
+            }
+            planChanged();
+        }
+
+        abstract void itemAdded(T item);
+
+        abstract void itemDeleted(T item);
+    }
+}
@@ -0,0 +1,361 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.eteks.sweethome3d.model.Home;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Export en lot de fichiers .sh3d vers .ng3, en ligne de commande.
+ * Chaque fichier est exporté dans une JVM de travail séparée (Scene.instance et Heliodon.instance
+ * sont des statiques globales), avec au plus N JVM simultanées. Une ligne JSON est écrite par fichier.
+ * <pre>
+ * java -cp sweetenergy3d.jar:SweetHome3D.jar com.eteks.sweethome3d.plugin.BatchExporter
+ *      [--jobs N] [--out DIR] [--manifest FICHIER] [--report FICHIER] [--timeout SECONDES]
+ *      [--jvm-arg ARG]... (fichier.sh3d | dossier | glob)...
+ * </pre>
+ */
+public class BatchExporter {
+
+    /** Option interne : exécute un seul export dans la JVM courante. */
+    private static final String WORKER_OPTION = "--worker";
+    /** Préfixe de la ligne de résultat écrite par une JVM de travail. */
+    private static final String WORKER_RESULT_PREFIX = "SWEETENERGY3D-RESULT ";
+    /** Délai maximal par fichier, en secondes (--timeout). */
+    private static final long DEFAULT_TIMEOUT_SECONDS = 600;
+
+    /** Un fichier à exporter. */
+    private static class Job {
+        final File input;
+        final File output;
+
+        Job(File input, File output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && WORKER_OPTION.equals(args[0])) {
+            System.exit(runWorker(new File(args[1]), new File(args[2])));
+            return;
+        }
+
+        int jobs = Runtime.getRuntime().availableProcessors();
+        File outDir = null;
+        File manifest = null;
+        File report = null;
+        long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        List<String> jvmArgs = new ArrayList<String>();
+        List<String> patterns = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--jobs".equals(arg) && i + 1 < args.length) {
+                jobs = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--out".equals(arg) && i + 1 < args.length) {
+                outDir = new File(args[++i]);
+            } else if ("--manifest".equals(arg) && i + 1 < args.length) {
+                manifest = new File(args[++i]);
+            } else if ("--report".equals(arg) && i + 1 < args.length) {
+                report = new File(args[++i]);
+            } else if ("--timeout".equals(arg) && i + 1 < args.length) {
+                timeoutSeconds = Long.parseLong(args[++i]);
+            } else if ("--jvm-arg".equals(arg) && i + 1 < args.length) {
+                jvmArgs.add(args[++i]);
+            } else if (arg.startsWith("--")) {
+                printUsage();
+                System.exit(2);
+                return;
+            } else {
+                patterns.add(arg);
+            }
+        }
+
+        List<Job> jobList = new ArrayList<Job>();
+        if (manifest != null) {
+            jobList.addAll(readManifest(manifest, outDir));
+        }
+        for (String pattern : patterns) {
+            for (File input : expandPattern(pattern)) {
+                jobList.add(new Job(input, defaultOutput(input, outDir)));
+            }
+        }
+        if (jobList.isEmpty()) {
+            printUsage();
+            System.exit(2);
+            return;
+        }
+        if (outDir != null) {
+            outDir.mkdirs();
+        }
+
+        PrintStream reportStream = report != null
+                ? new PrintStream(Files.newOutputStream(report.toPath()), true, "UTF-8")
+                : new PrintStream(System.out, true, "UTF-8");
+        int failures = runJobs(jobList, jobs, timeoutSeconds, jvmArgs, reportStream);
+        if (report != null) {
+            reportStream.close();
+        }
+        System.err.println("Export en lot terminé : " + (jobList.size() - failures) + "/" + jobList.size() + " réussis");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: BatchExporter [--jobs N] [--out DIR] [--manifest FICHIER] [--report FICHIER]"
+                + " [--timeout SECONDES] [--jvm-arg ARG]... (fichier.sh3d | dossier | glob)...");
+        System.err.println("  Manifeste : une ligne par fichier, \"entree.sh3d\" ou \"entree.sh3d<TAB>sortie.ng3\", # pour commenter.");
+    }
+
+    /**
+     * Lance les exports dans au plus maxWorkers JVM simultanées et écrit une ligne JSON par fichier.
+     * @return le nombre d'exports en échec
+     */
+    private static int runJobs(List<Job> jobList, int maxWorkers, final long timeoutSeconds,
+                       final List<String> jvmArgs, final PrintStream reportStream) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(maxWorkers, jobList.size()));
+        final Gson gson = new Gson();
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (final Job job : jobList) {
+            results.add(pool.submit(() -> {
+                JsonObject result = runInWorkerJvm(job, timeoutSeconds, jvmArgs);
+                synchronized (reportStream) {
+                    reportStream.println(gson.toJson(result));
+                }
+                return result.get("ok").getAsBoolean();
+            }));
+        }
+        pool.shutdown();
+        int failures = 0;
+        for (Future<Boolean> f : results) {
+            try {
+                if (!f.get()) failures++;
+            } catch (java.util.concurrent.ExecutionException e) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /** Exporte un fichier dans une JVM séparée et retourne le résultat JSON (temps, tailles, cause d'échec). */
+    private static JsonObject runInWorkerJvm(Job job, long timeoutSeconds, List<String> jvmArgs) {
+        JsonObject result = new JsonObject();
+        result.addProperty("input", job.input.getAbsolutePath());
+        result.addProperty("output", job.output.getAbsolutePath());
+        result.addProperty("inputBytes", job.input.length());
+        long start = System.nanoTime();
+        String cause = null;
+        int exitCode = -1;
+        try {
+            List<String> command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            command.add("-Djava.awt.headless=true");
+            command.addAll(jvmArgs);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(BatchExporter.class.getName());
+            command.add(WORKER_OPTION);
+            command.add(job.input.getAbsolutePath());
+            command.add(job.output.getAbsolutePath());
+            // Sortie de la JVM de travail dans un fichier temporaire : pas de blocage sur un tube plein
+            File workerOutput = File.createTempFile("sweetenergy3d-worker", ".out");
+            try {
+                ProcessBuilder builder = new ProcessBuilder(command);
+                builder.redirectErrorStream(true);
+                builder.redirectOutput(workerOutput);
+                Process process = builder.start();
+                if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    cause = "Délai dépassé (" + timeoutSeconds + " s)";
+                } else {
+                    exitCode = process.exitValue();
+                    if (exitCode != 0) {
+                        cause = readWorkerCause(workerOutput, exitCode);
+                    }
+                }
+            } finally {
+                workerOutput.delete();
+            }
+        } catch (IOException e) {
+            cause = "Lancement de la JVM impossible: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cause = "Interrompu";
+        }
+        boolean ok = cause == null && job.output.isFile() && job.output.length() > 0;
+        if (cause == null && !ok) {
+            cause = "Fichier .ng3 non créé";
+        }
+        result.addProperty("ok", ok);
+        result.addProperty("exitCode", exitCode);
+        result.addProperty("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        result.addProperty("outputBytes", job.output.isFile() ? job.output.length() : 0L);
+        if (cause != null) {
+            result.addProperty("cause", cause);
+        }
+        return result;
+    }
+
+    /** Cause d'échec : ligne de résultat de la JVM de travail, sinon sa dernière ligne non vide. */
+    private static String readWorkerCause(File workerOutput, int exitCode) throws IOException {
+        String lastLine = null;
+        try (BufferedReader reader = Files.newBufferedReader(workerOutput.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(WORKER_RESULT_PREFIX)) {
+                    return line.substring(WORKER_RESULT_PREFIX.length());
+                } else if (!line.trim().isEmpty()) {
+                    lastLine = line;
+                }
+            }
+        } catch (java.nio.charset.MalformedInputException e) {
+            // Sortie non UTF-8 : se contenter du code de sortie
+        }
+        return lastLine != null ? lastLine : "Code de sortie " + exitCode;
+    }
+
+    /**
+     * Exécuté dans la JVM de travail : lit le .sh3d et l'exporte sans repli vers un .ng3 vide.
+     * @return le code de sortie de la JVM (0 si l'export a réussi)
+     */
+    private static int runWorker(File input, File output) {
+        try (InputStream in = new java.io.BufferedInputStream(new java.io.FileInputStream(input))) {
+            Home home = new com.eteks.sweethome3d.io.DefaultHomeInputStream(in).readHome();
+            String validationKey = PlanExporter.getExportValidationError(home);
+            if (validationKey != null) {
+                System.out.println(WORKER_RESULT_PREFIX + validationKey);
+                return 1;
+            }
+            if (!PlanExporter.exportToEnergy3D(home, output)) {
+                System.out.println(WORKER_RESULT_PREFIX + "Export échoué, voir " + output.getName() + ".log");
+                return 1;
+            }
+            return 0;
+        } catch (Throwable t) {
+            System.out.println(WORKER_RESULT_PREFIX + t.getClass().getName() + ": " + t.getMessage());
+            return 1;
+        }
+    }
+
+    /** Lit un manifeste : "entree.sh3d" ou "entree.sh3d&lt;TAB&gt;sortie.ng3" par ligne. */
+    private static List<Job> readManifest(File manifest, File outDir) throws IOException {
+        List<Job> jobs = new ArrayList<Job>();
+        File baseDir = manifest.getAbsoluteFile().getParentFile();
+        for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split("\t");
+            File input = resolve(baseDir, parts[0].trim());
+            File output = parts.length > 1 && !parts[1].trim().isEmpty()
+                    ? resolve(baseDir, parts[1].trim())
+                    : defaultOutput(input, outDir);
+            jobs.add(new Job(input, output));
+        }
+        return jobs;
+    }
+
+    private static File resolve(File baseDir, String path) {
+        File f = new File(path);
+        return f.isAbsolute() ? f : new File(baseDir, path);
+    }
+
+    /** Sortie par défaut : même nom avec l'extension .ng3, dans outDir ou à côté de l'entrée. */
+    private static File defaultOutput(File input, File outDir) {
+        String name = input.getName();
+        int dot = name.lastIndexOf('.');
+        String ng3Name = (dot > 0 ? name.substring(0, dot) : name) + ".ng3";
+        return new File(outDir != null ? outDir : input.getAbsoluteFile().getParentFile(), ng3Name);
+    }
+
+    /**
+     * Développe un argument : fichier, dossier (tous ses .sh3d) ou glob (ex. plans/**&#47;*.sh3d).
+     * Les fichiers sont triés pour que l'ordre des lignes de résultat soit stable.
+     */
+    static List<File> expandPattern(String pattern) throws IOException {
+        List<File> files = new ArrayList<File>();
+        File file = new File(pattern);
+        if (file.isFile()) {
+            files.add(file);
+            return files;
+        }
+        Path base;
+        String glob;
+        if (file.isDirectory()) {
+            base = file.toPath();
+            glob = "*.sh3d";
+        } else {
+            // Base = segments avant le premier segment contenant un caractère de glob
+            String normalized = pattern.replace('\\', '/');
+            int firstGlob = indexOfGlobChar(normalized);
+            if (firstGlob < 0) {
+                System.err.println("Fichier introuvable: " + pattern);
+                return files;
+            }
+            int slash = normalized.lastIndexOf('/', firstGlob);
+            base = Paths.get(slash < 0 ? "." : (slash == 0 ? "/" : normalized.substring(0, slash)));
+            glob = normalized.substring(slash + 1);
+        }
+        final List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+        for (String variant : zeroDirectoryVariants(glob)) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+        }
+        final Path root = base;
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(Files::isRegularFile)
+                  .filter(p -> matchesAny(matchers, root.relativize(p)))
+                  .sorted()
+                  .forEach(p -> files.add(p.toFile()));
+        }
+        return files;
+    }
+
+    /**
+     * Le glob tel quel et ses variantes sans certains segments "**&#47;" : avec PathMatcher, "**&#47;" exige au moins
+     * un dossier, alors que plans/**&#47;*.sh3d doit aussi trouver les fichiers posés directement dans plans.
+     */
+    private static List<String> zeroDirectoryVariants(String glob) {
+        List<String> variants = new ArrayList<String>();
+        variants.add(glob);
+        for (int i = 0; i < variants.size(); i++) {
+            String variant = variants.get(i);
+            for (int at = variant.indexOf("**/"); at >= 0; at = variant.indexOf("**/", at + 1)) {
+                if (at > 0 && variant.charAt(at - 1) != '/') continue;
+                String shorter = variant.substring(0, at) + variant.substring(at + 3);
+                if (!variants.contains(shorter)) variants.add(shorter);
+            }
+        }
+        return variants;
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, Path path) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) return true;
+        }
+        return false;
+    }
+
+    private static int indexOfGlobChar(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,271 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Écriture en flux d'un fichier Collada 1.4.1 à partir d'un ObjMesh : les float_array et la liste &lt;p&gt;
+ * sont formatés directement dans un tampon d'octets de taille fixe vidé vers le fichier, sans String
+ * intermédiaire (la mémoire ne dépend pas de la taille du maillage). Les flottants sont écrits avec
+ * 9 chiffres significatifs au plus (assez pour relire exactement la même valeur float), moins si possible.
+ * UV planaires (projection XY sur la boîte englobante), comme avant.
+ */
+public class ColladaWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long[] LONG_POW10 = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+
+    /** 10^-4 à 10^12 (indice = exposant + 4). */
+    private static final double[] DOUBLE_POW10 = {
+        1e-4, 1e-3, 1e-2, 1e-1, 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12
+    };
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+
+    private ColladaWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Écrit le maillage dans daeFile.
+     * @param gzip true pour compresser le fichier (.dae.gz) ; l'import Energy3D attend un .dae non compressé
+     */
+    public static void write(ObjMesh mesh, File daeFile, boolean gzip) throws IOException {
+        try (OutputStream file = new FileOutputStream(daeFile);
+             OutputStream out = gzip ? new GZIPOutputStream(file, BUFFER_SIZE) : file) {
+            ColladaWriter writer = new ColladaWriter(out);
+            writer.writeMesh(mesh);
+            writer.flushBuffer();
+        }
+    }
+
+    private void writeMesh(ObjMesh mesh) throws IOException {
+        int vertexCount = mesh.getVertexCount();
+        int triangleCount = mesh.getTriangleCount();
+        float[] positions = mesh.getPositions();
+
+        ascii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<COLLADA xmlns=\"http://www.collada.org/2005/11/COLLADASchema\" version=\"1.4.1\">\n"
+                + "  <asset><unit name=\"meter\" meter=\"1\"/><up_axis>Z_UP</up_axis></asset>\n"
+                + "  <library_geometries>\n"
+                + "    <geometry id=\"mesh\" name=\"mesh\">\n"
+                + "      <mesh>\n"
+                + "        <source id=\"mesh-positions\">\n"
+                + "          <float_array id=\"mesh-positions-array\" count=\"");
+        integer(vertexCount * 3);
+        ascii("\">");
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            float x = positions[i];
+            float y = positions[i + 1];
+            number(x);
+            number(y);
+            number(positions[i + 2]);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        ascii("</float_array>\n"
+                + "          <technique_common>\n"
+                + "            <accessor source=\"#mesh-positions-array\" count=\"");
+        integer(vertexCount);
+        ascii("\" stride=\"3\">\n"
+                + "              <param name=\"X\" type=\"float\"/>\n"
+                + "              <param name=\"Y\" type=\"float\"/>\n"
+                + "              <param name=\"Z\" type=\"float\"/>\n"
+                + "            </accessor>\n"
+                + "          </technique_common>\n"
+                + "        </source>\n"
+                + "        <source id=\"mesh-map-0\">\n"
+                + "          <float_array id=\"mesh-map-0-array\" count=\"");
+        integer(vertexCount * 2);
+        ascii("\">");
+        double dx = (double) maxX - minX;
+        double dy = (double) maxY - minY;
+        if (Math.abs(dx) < 1e-9) dx = 1.0;
+        if (Math.abs(dy) < 1e-9) dy = 1.0;
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            number((float) ((positions[i] - minX) / dx));
+            number((float) ((positions[i + 1] - minY) / dy));
+        }
+        ascii("</float_array>\n"
+                + "          <technique_common>\n"
+                + "            <accessor source=\"#mesh-map-0-array\" count=\"");
+        integer(vertexCount);
+        ascii("\" stride=\"2\">\n"
+                + "              <param name=\"S\" type=\"float\"/>\n"
+                + "              <param name=\"T\" type=\"float\"/>\n"
+                + "            </accessor>\n"
+                + "          </technique_common>\n"
+                + "        </source>\n"
+                + "        <vertices id=\"mesh-vertices\">\n"
+                + "          <input semantic=\"POSITION\" source=\"#mesh-positions\"/>\n"
+                + "        </vertices>\n"
+                + "        <triangles count=\"");
+        integer(triangleCount);
+        ascii("\">\n"
+                + "          <input semantic=\"VERTEX\" source=\"#mesh-vertices\" offset=\"0\"/>\n"
+                + "          <input semantic=\"TEXCOORD\" source=\"#mesh-map-0\" offset=\"1\" set=\"0\"/>\n"
+                + "          <p>");
+        int[] triangles = mesh.getTriangles();
+        for (int i = 0; i < triangleCount * 3; i++) {
+            // Interleave VERTEX index and TEXCOORD index
+            integer(triangles[i]);
+            space();
+            integer(triangles[i]);
+            space();
+        }
+        ascii("</p>\n"
+                + "        </triangles>\n"
+                + "      </mesh>\n"
+                + "    </geometry>\n"
+                + "  </library_geometries>\n"
+                + "  <library_visual_scenes>\n"
+                + "    <visual_scene id=\"Scene\" name=\"Scene\">\n"
+                + "      <node id=\"mesh-node\" name=\"mesh-node\">\n"
+                + "        <instance_geometry url=\"#mesh\"/>\n"
+                + "      </node>\n"
+                + "    </visual_scene>\n"
+                + "  </library_visual_scenes>\n"
+                + "  <scene><instance_visual_scene url=\"#Scene\"/></scene>\n"
+                + "</COLLADA>\n");
+    }
+
+    /** Flottant suivi d'une espace. */
+    private void number(float value) throws IOException {
+        ensure(32);
+        length = formatFloat(value, buffer, length);
+        buffer[length++] = ' ';
+    }
+
+    private void space() throws IOException {
+        ensure(1);
+        buffer[length++] = ' ';
+    }
+
+    private void integer(long value) throws IOException {
+        ensure(21);
+        length = formatLong(value, buffer, length);
+    }
+
+    private void ascii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensure(1);
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (length + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+
+    /**
+     * Écrit value en décimal (au plus 9 chiffres significatifs, le moins possible pour relire la même valeur)
+     * à partir de offset.
+     * Hors de [1e-4, 1e9[ (et pour NaN/infini), repli sur Float.toString.
+     * @return la position qui suit le dernier caractère écrit
+     */
+    static int formatFloat(float value, byte[] target, int offset) {
+        if (value == 0f) {
+            target[offset++] = '0';
+            return offset;
+        }
+        double magnitude = Math.abs((double) value);
+        if (!(magnitude >= 1e-4 && magnitude < 1e9)) {
+            String text = Float.toString(value);
+            for (int i = 0; i < text.length(); i++) {
+                target[offset++] = (byte) text.charAt(i);
+            }
+            return offset;
+        }
+        if (value < 0) {
+            target[offset++] = '-';
+        }
+        // Exposant décimal e tel que 10^e <= magnitude < 10^(e+1)
+        int exponent = 8;
+        while (exponent > -4 && magnitude < DOUBLE_POW10[exponent + 4]) {
+            exponent--;
+        }
+        // Plus courte écriture (6 à 9 chiffres significatifs) qui se relit en la même valeur float
+        long digits = 0;
+        for (int precision = 6; precision <= 9; precision++) {
+            int scale = precision - 1 - exponent;
+            double scaled = scale >= 0 ? magnitude * DOUBLE_POW10[scale + 4] : magnitude / DOUBLE_POW10[-scale + 4];
+            long candidate = Math.round(scaled);
+            double back = scale >= 0 ? candidate / DOUBLE_POW10[scale + 4] : candidate * DOUBLE_POW10[-scale + 4];
+            if (precision == 9 || (float) back == (float) magnitude) {
+                digits = candidate * LONG_POW10[9 - precision];
+                break;
+            }
+        }
+        if (digits >= 1000000000L) {
+            // Arrondi vers la puissance de 10 suivante (ex. 9.9999999995)
+            digits /= 10;
+            exponent++;
+        }
+        // digits a 9 chiffres ; la virgule suit le (exponent + 1)-ième
+        int integerDigits = exponent + 1;
+        int fractionDigits = 9 - Math.max(integerDigits, 0);
+        long integerPart;
+        long fractionPart;
+        if (integerDigits > 0) {
+            integerPart = digits / LONG_POW10[fractionDigits];
+            fractionPart = digits % LONG_POW10[fractionDigits];
+        } else {
+            integerPart = 0;
+            fractionPart = digits;
+            fractionDigits = 9 - integerDigits;
+        }
+        offset = formatLong(integerPart, target, offset);
+        if (fractionPart == 0) {
+            return offset;
+        }
+        while (fractionPart % 10 == 0) {
+            fractionPart /= 10;
+            fractionDigits--;
+        }
+        target[offset++] = '.';
+        for (int i = fractionDigits - 1; i >= 0; i--) {
+            target[offset + i] = (byte) ('0' + fractionPart % 10);
+            fractionPart /= 10;
+        }
+        return offset + fractionDigits;
+    }
+
+    static int formatLong(long value, byte[] target, int offset) {
+        if (value < 0) {
+            target[offset++] = '-';
+            value = -value;
+        }
+        int start = offset;
+        do {
+            target[offset++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Chiffres écrits à l'envers
+        for (int i = start, j = offset - 1; i < j; i++, j--) {
+            byte b = target[i];
+            target[i] = target[j];
+            target[j] = b;
+        }
+        return offset;
+    }
+}
@@ -1,13 +1,18 @@
 package com.eteks.sweethome3d.plugin;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -17,23 +22,41 @@ import com.google.gson.JsonParser;
 /**
  * Lit le fichier config.json pour obtenir les mots-clés de configuration du plugin.
  * Cherche config.json à côté de l'exécutable (ou dans le classpath comme fallback).
+ * Le fichier est compilé une seule fois en un instantané immuable : mots-clés en minuscules
+ * et automate Aho-Corasick commun à toutes les catégories, de sorte qu'un nom de niveau ou de meuble
+ * est classé pour toutes les catégories en une passe sur ses caractères, sans allocation.
  */
 public class ConfigReader {
     
-    private static JsonObject config = null;
+    private static volatile Snapshot snapshot = null;
     private static final String KEYWORDS = "keywords";
     
+    /**
+     * Retourne l'instantané de config.json, compilé au premier appel.
+     */
+    private static Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (ConfigReader.class) {
+                current = snapshot;
+                if (current == null) {
+                    current = new Snapshot(loadConfig());
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
     /**
      * Charge config.json depuis le fichier à côté de l'exécutable ou depuis les ressources.
      */
-    private static synchronized void loadConfig() {
-        if (config != null) return;
-        
+    private static JsonObject loadConfig() {
         File configFile = new File("config.json");
         if (configFile.exists()) {
-            try (FileReader reader = new FileReader(configFile)) {
-                config = JsonParser.parseReader(reader).getAsJsonObject();
-                return;
+            // config.json est en UTF-8 (mots-clés accentués), quel que soit l'encodage de la plateforme
+            try (InputStreamReader reader = new InputStreamReader(new FileInputStream(configFile), StandardCharsets.UTF_8)) {
+                return JsonParser.parseReader(reader).getAsJsonObject();
             } catch (IOException e) {
                 System.err.println("Erreur lecture config.json: " + e.getMessage());
             }
@@ -42,15 +65,14 @@ public class ConfigReader {
         try (InputStream is = ConfigReader.class.getClassLoader().getResourceAsStream("config.json")) {
             if (is != null) {
                 try (InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-                    config = JsonParser.parseReader(reader).getAsJsonObject();
-                    return;
+                    return JsonParser.parseReader(reader).getAsJsonObject();
                 }
             }
         } catch (Exception e) {
             System.err.println("Erreur lecture config.json depuis ressources: " + e.getMessage());
         }
 
-        config = getDefaultConfig();
+        return getDefaultConfig();
     }
     
     private static JsonObject getDefaultConfig() {
@@ -77,35 +99,191 @@ public class ConfigReader {
     
     /**
      * Retourne les mots-clés pour une catégorie (exterior, interior, roof, foundation, trees, bushes).
+     * Liste non modifiable, en minuscules.
      */
     public static List<String> getKeywords(String category) {
-        loadConfig();
-        List<String> keywords = new ArrayList<>();
-        JsonElement cat = config.get(category);
-        if (cat == null || !cat.isJsonObject()) {
-            return keywords;
-        }
-        JsonElement keys = cat.getAsJsonObject().get(KEYWORDS);
-        if (keys != null && keys.isJsonArray()) {
-            for (JsonElement key : keys.getAsJsonArray()) {
-                keywords.add(key.getAsString().toLowerCase());
+        List<String> keywords = snapshot().keywordsByCategory.get(category);
+        return keywords != null ? keywords : Collections.<String>emptyList();
+    }
+    
+    /**
+     * config.json de l'instantané courant, sérialisé de façon compacte (pour l'empreinte d'export).
+     */
+    public static String getConfigJson() {
+        return snapshot().json;
+    }
+
+    /**
+     * Retourne les catégories dont au moins un mot-clé apparaît dans le nom (nom de niveau ou de meuble),
+     * dans l'ordre de config.json, en une seule passe sur le nom.
+     */
+    public static List<String> matchingCategories(String name) {
+        List<String> categories = new ArrayList<>();
+        if (name == null) return categories;
+        Snapshot current = snapshot();
+        long[] found = current.classify(name);
+        for (int i = 0; i < current.categories.length; i++) {
+            if ((found[i >>> 6] & (1L << i)) != 0) {
+                categories.add(current.categories[i]);
             }
         }
-        return keywords;
+        return categories;
     }
-    
+
     /**
-     * Vérifie si un nom de niveau correspond à une catégorie.
+     * Minuscule « repliée » d'un caractère (toUpperCase puis toLowerCase), appliquée aux mots-clés
+     * comme aux noms pour une comparaison insensible à la casse indépendante de la locale.
      */
-    public static boolean matchesCategory(String levelName, String category) {
-        if (levelName == null) return false;
-        String nameLower = levelName.toLowerCase();
-        for (String keyword : getKeywords(category)) {
-            // Les mots-clés sont déjà en minuscules depuis getKeywords()
-            if (nameLower.contains(keyword)) {
-                return true;
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static String fold(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * config.json compilé : catégories, mots-clés repliés et automate Aho-Corasick.
+     * Chaque état porte l'ensemble (bits) des catégories dont un mot-clé se termine en cet état
+     * ou dans un de ses suffixes (liens d'échec).
+     */
+    private static final class Snapshot {
+        final String json;
+        final String[] categories;
+        final Map<String, List<String>> keywordsByCategory;
+        /** Transitions de chaque état : caractères triés et états cibles correspondants. */
+        private final char[][] edgeChars;
+        private final int[][] edgeTargets;
+        private final int[] failure;
+        /** Catégories reconnues en chaque état (mots de 64 bits). */
+        private final long[][] outputs;
+        private final int maskWords;
+
+        Snapshot(JsonObject config) {
+            json = config.toString();
+            Map<String, List<String>> keywords = new LinkedHashMap<>();
+            for (Map.Entry<String, JsonElement> entry : config.entrySet()) {
+                List<String> list = new ArrayList<>();
+                JsonElement cat = entry.getValue();
+                if (cat != null && cat.isJsonObject()) {
+                    JsonElement keys = cat.getAsJsonObject().get(KEYWORDS);
+                    if (keys != null && keys.isJsonArray()) {
+                        for (JsonElement key : keys.getAsJsonArray()) {
+                            list.add(fold(key.getAsString()));
+                        }
+                    }
+                }
+                keywords.put(entry.getKey(), Collections.unmodifiableList(list));
+            }
+            this.keywordsByCategory = Collections.unmodifiableMap(keywords);
+            this.categories = keywords.keySet().toArray(new String[0]);
+            this.maskWords = Math.max(1, (categories.length + 63) >>> 6);
+
+            // Trie des mots-clés
+            List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+            List<long[]> masks = new ArrayList<>();
+            trie.add(new TreeMap<Character, Integer>());
+            masks.add(new long[maskWords]);
+            boolean matchesEverything = false;
+            for (int c = 0; c < categories.length; c++) {
+                for (String keyword : keywords.get(categories[c])) {
+                    int state = 0;
+                    for (int i = 0; i < keyword.length(); i++) {
+                        Integer next = trie.get(state).get(keyword.charAt(i));
+                        if (next == null) {
+                            next = trie.size();
+                            trie.add(new TreeMap<Character, Integer>());
+                            masks.add(new long[maskWords]);
+                            trie.get(state).put(keyword.charAt(i), next);
+                        }
+                        state = next;
+                    }
+                    // Un mot-clé vide est contenu dans tout nom (comme String.contains(""))
+                    masks.get(state)[c >>> 6] |= 1L << c;
+                    matchesEverything |= keyword.isEmpty();
+                }
+            }
+            int stateCount = trie.size();
+            this.edgeChars = new char[stateCount][];
+            this.edgeTargets = new int[stateCount][];
+            for (int state = 0; state < stateCount; state++) {
+                TreeMap<Character, Integer> edges = trie.get(state);
+                char[] chars = new char[edges.size()];
+                int[] targets = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    chars[i] = edge.getKey();
+                    targets[i++] = edge.getValue();
+                }
+                edgeChars[state] = chars;
+                edgeTargets[state] = targets;
+            }
+
+            // Liens d'échec en largeur ; les sorties des suffixes sont fusionnées dans chaque état
+            this.failure = new int[stateCount];
+            this.outputs = masks.toArray(new long[0][]);
+            int[] queue = new int[stateCount];
+            int head = 0;
+            int tail = 0;
+            for (int target : edgeTargets[0]) {
+                queue[tail++] = target;
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                for (int i = 0; i < edgeChars[state].length; i++) {
+                    char c = edgeChars[state][i];
+                    int target = edgeTargets[state][i];
+                    int fail = failure[state];
+                    int next;
+                    while ((next = step(fail, c)) < 0 && fail != 0) {
+                        fail = failure[fail];
+                    }
+                    failure[target] = next >= 0 && next != target ? next : 0;
+                    for (int w = 0; w < maskWords; w++) {
+                        outputs[target][w] |= outputs[failure[target]][w];
+                    }
+                    queue[tail++] = target;
+                }
+            }
+            if (matchesEverything) {
+                // Les catégories à mot-clé vide sont portées par la racine, donc par tous les états
+                for (int state = 1; state < stateCount; state++) {
+                    for (int w = 0; w < maskWords; w++) {
+                        outputs[state][w] |= outputs[0][w];
+                    }
+                }
+            }
+        }
+
+        /** Transition directe depuis l'état, ou -1. */
+        private int step(int state, char c) {
+            int i = Arrays.binarySearch(edgeChars[state], c);
+            return i >= 0 ? edgeTargets[state][i] : -1;
+        }
+
+        private int next(int state, char c) {
+            int next;
+            while ((next = step(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            return next >= 0 ? next : 0;
+        }
+
+        /** Catégories présentes dans le nom (bits), en une passe. */
+        long[] classify(String name) {
+            long[] found = outputs[0].clone();
+            int state = 0;
+            for (int i = 0; i < name.length(); i++) {
+                state = next(state, fold(name.charAt(i)));
+                for (int w = 0; w < maskWords; w++) {
+                    found[w] |= outputs[state][w];
+                }
             }
+            return found;
         }
-        return false;
     }
 }
@@ -25,11 +25,10 @@ public class Energy3DClassLoader {
      * @param logWriter PrintWriter pour écrire les logs (peut être null)
      * @return Le ClassLoader ou null si les JARs ne peuvent pas être chargés
      */
-    public static ClassLoader getEnergy3DClassLoader(java.io.PrintWriter logWriter) {
+    public static synchronized ClassLoader getEnergy3DClassLoader(java.io.PrintWriter logWriter) {
         if (energy3dClassLoader != null) {
             if (logWriter != null) {
-                logWriter.println("ClassLoader Energy3D déjà créé, réutilisation");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "ClassLoader Energy3D déjà créé, réutilisation");
             }
             return energy3dClassLoader;
         }
@@ -40,9 +39,8 @@ public class Energy3DClassLoader {
             File energy3dJar = null;
             
             if (logWriter != null) {
-                logWriter.println("Recherche du JAR Energy3D...");
-                logWriter.println("Répertoire de travail: " + System.getProperty("user.dir"));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "Recherche du JAR Energy3D...");
+                ExportLogger.info(logWriter, "Répertoire de travail: " + System.getProperty("user.dir"));
             }
             
             // D'abord, essayer de trouver depuis l'emplacement du plugin
@@ -53,9 +51,8 @@ public class Energy3DClassLoader {
                 File pluginDir = pluginFile.getParentFile();
                 
                 if (logWriter != null) {
-                    logWriter.println("Emplacement du plugin: " + pluginFile.getAbsolutePath());
-                    logWriter.println("Répertoire du plugin: " + (pluginDir != null ? pluginDir.getAbsolutePath() : "null"));
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "Emplacement du plugin: " + pluginFile.getAbsolutePath());
+                    ExportLogger.info(logWriter, "Répertoire du plugin: " + (pluginDir != null ? pluginDir.getAbsolutePath() : "null"));
                 }
                 
                 // Chercher energy3d.jar dans plusieurs emplacements relatifs au plugin
@@ -74,21 +71,18 @@ public class Energy3DClassLoader {
                     if (searchDir == null) continue;
                     
                     if (logWriter != null) {
-                        logWriter.println("Recherche dans: " + searchDir.getAbsolutePath());
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "Recherche dans: " + searchDir.getAbsolutePath());
                     }
                     
                     // Essayer energy3d/exe/energy3d.jar
                     File testJar = new File(searchDir, "energy3d/exe/energy3d.jar");
                     if (logWriter != null) {
-                        logWriter.println("  Test: " + testJar.getAbsolutePath() + " (existe: " + testJar.exists() + ")");
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  Test: " + testJar.getAbsolutePath() + " (existe: " + testJar.exists() + ")");
                     }
                     if (testJar.exists() && testJar.isFile()) {
                         energy3dJar = testJar;
                         if (logWriter != null) {
-                            logWriter.println("✓ JAR Energy3D trouvé: " + energy3dJar.getAbsolutePath());
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "✓ JAR Energy3D trouvé: " + energy3dJar.getAbsolutePath());
                         }
                         break;
                     }
@@ -97,14 +91,12 @@ public class Energy3DClassLoader {
                     if (searchDir.getParentFile() != null) {
                         testJar = new File(searchDir.getParentFile(), "energy3d/exe/energy3d.jar");
                         if (logWriter != null) {
-                            logWriter.println("  Test: " + testJar.getAbsolutePath() + " (existe: " + testJar.exists() + ")");
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Test: " + testJar.getAbsolutePath() + " (existe: " + testJar.exists() + ")");
                         }
                         if (testJar.exists() && testJar.isFile()) {
                             energy3dJar = testJar;
                             if (logWriter != null) {
-                                logWriter.println("✓ JAR Energy3D trouvé: " + energy3dJar.getAbsolutePath());
-                                logWriter.flush();
+                                ExportLogger.info(logWriter, "✓ JAR Energy3D trouvé: " + energy3dJar.getAbsolutePath());
                             }
                             break;
                         }
@@ -112,17 +104,15 @@ public class Energy3DClassLoader {
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("Exception lors de la recherche depuis le plugin: " + e.getMessage());
+                    ExportLogger.info(logWriter, "Exception lors de la recherche depuis le plugin: " + e.getMessage());
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
             }
             
             // Si toujours pas trouvé, essayer des chemins absolus
             if (energy3dJar == null) {
                 if (logWriter != null) {
-                    logWriter.println("Recherche dans les chemins absolus...");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "Recherche dans les chemins absolus...");
                 }
                 String[] possiblePaths = {
                     System.getProperty("user.dir") + "/energy3d/exe/energy3d.jar",
@@ -134,14 +124,12 @@ public class Energy3DClassLoader {
                 for (String path : possiblePaths) {
                     File testFile = new File(path);
                     if (logWriter != null) {
-                        logWriter.println("  Test: " + testFile.getAbsolutePath() + " (existe: " + testFile.exists() + ")");
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  Test: " + testFile.getAbsolutePath() + " (existe: " + testFile.exists() + ")");
                     }
                     if (testFile.exists() && testFile.isFile()) {
                         energy3dJar = testFile;
                         if (logWriter != null) {
-                            logWriter.println("✓ JAR Energy3D trouvé: " + energy3dJar.getAbsolutePath());
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "✓ JAR Energy3D trouvé: " + energy3dJar.getAbsolutePath());
                         }
                         break;
                     }
@@ -150,9 +138,8 @@ public class Energy3DClassLoader {
             
             if (energy3dJar == null || !energy3dJar.exists()) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: JAR Energy3D non trouvé!");
-                    logWriter.println("Vérifiez que energy3d.jar existe dans energy3d/exe/");
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: JAR Energy3D non trouvé!");
+                    ExportLogger.info(logWriter, "Vérifiez que energy3d.jar existe dans energy3d/exe/");
                 }
                 return null;
             }
@@ -160,8 +147,7 @@ public class Energy3DClassLoader {
             jarUrls.add(energy3dJar.toURI().toURL());
             
             if (logWriter != null) {
-                logWriter.println("Ajout des JARs Ardor3D (sans sources)...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "Ajout des JARs Ardor3D (sans sources)...");
             }
             
             // Ajouter les JARs Ardor3D (sans les sources)
@@ -171,30 +157,26 @@ public class Energy3DClassLoader {
             File ardor3dDir = new File(energy3dJar.getParentFile(), "lib/ardor3d");
             File chosenArdorDir = ardor3dDir.exists() && ardor3dDir.isDirectory() ? ardor3dDir : ardor3d1Dir;
             if (logWriter != null) {
-                logWriter.println("Répertoire Ardor3D choisi: " + chosenArdorDir.getAbsolutePath() + " (existe: " + chosenArdorDir.exists() + ")");
-                logWriter.println("  Politique: priorité à 'lib/ardor3d' pour compatibilité API; fallback 'lib/ardor3d1'");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "Répertoire Ardor3D choisi: " + chosenArdorDir.getAbsolutePath() + " (existe: " + chosenArdorDir.exists() + ")");
+                ExportLogger.info(logWriter, "  Politique: priorité à 'lib/ardor3d' pour compatibilité API; fallback 'lib/ardor3d1'");
             }
             if (chosenArdorDir.exists() && chosenArdorDir.isDirectory()) {
                 File[] ardorJars = chosenArdorDir.listFiles((dir, name) -> name.endsWith(".jar") && !name.contains("-sources"));
                 if (ardorJars != null) {
                     if (logWriter != null) {
-                        logWriter.println("Nombre de JARs Ardor3D trouvés (sans sources): " + ardorJars.length);
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "Nombre de JARs Ardor3D trouvés (sans sources): " + ardorJars.length);
                     }
                     java.util.Arrays.sort(ardorJars, (a, b) -> a.getName().compareTo(b.getName()));
                     for (File ardorJar : ardorJars) {
                         jarUrls.add(ardorJar.toURI().toURL());
                         if (logWriter != null) {
-                            logWriter.println("  Ajouté: " + ardorJar.getName());
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Ajouté: " + ardorJar.getName());
                         }
                     }
                 }
             } else {
                 if (logWriter != null) {
-                    logWriter.println("AVERTISSEMENT: Répertoire Ardor3D non trouvé!");
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "AVERTISSEMENT: Répertoire Ardor3D non trouvé!");
                 }
             }
             
@@ -204,8 +186,7 @@ public class Energy3DClassLoader {
                 File webstartArdorDir = new File(projectRoot, "energy3d-master\\exe\\webstart\\resources\\ardor3d");
                 if (webstartArdorDir.exists() && webstartArdorDir.isDirectory()) {
                     if (logWriter != null) {
-                        logWriter.println("Répertoire Ardor3D (WebStart): " + webstartArdorDir.getAbsolutePath());
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "Répertoire Ardor3D (WebStart): " + webstartArdorDir.getAbsolutePath());
                     }
                     File[] wsJars = webstartArdorDir.listFiles((dir, name) -> name.endsWith(".jar"));
                     if (wsJars != null && wsJars.length > 0) {
@@ -214,8 +195,7 @@ public class Energy3DClassLoader {
                         for (File f : wsJars) {
                             wsUrls.add(f.toURI().toURL());
                             if (logWriter != null) {
-                                logWriter.println("  Préférence WebStart ajoutée: " + f.getName());
-                                logWriter.flush();
+                                ExportLogger.info(logWriter, "  Préférence WebStart ajoutée: " + f.getName());
                             }
                         }
                         // Insérer en tête pour priorité de chargement
@@ -230,9 +210,8 @@ public class Energy3DClassLoader {
             // energy3dJar est dans exe/, donc libDir doit être exe/lib/
             File libDir = new File(energy3dJar.getParentFile(), "lib");
             if (logWriter != null) {
-                logWriter.println("Ajout des autres JARs de dépendances...");
-                logWriter.println("Répertoire lib: " + libDir.getAbsolutePath() + " (existe: " + libDir.exists() + ")");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "Ajout des autres JARs de dépendances...");
+                ExportLogger.info(logWriter, "Répertoire lib: " + libDir.getAbsolutePath() + " (existe: " + libDir.exists() + ")");
             }
             
             // JARs nécessaires - chercher dans lib/ directement
@@ -250,13 +229,11 @@ public class Energy3DClassLoader {
                 if (jarFile.exists() && jarFile.isFile()) {
                     jarUrls.add(jarFile.toURI().toURL());
                     if (logWriter != null) {
-                        logWriter.println("  ✓ Ajouté: " + jarName);
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  ✓ Ajouté: " + jarName);
                     }
                 } else {
                     if (logWriter != null) {
-                        logWriter.println("  ✗ Non trouvé: " + jarName + " (cherché dans: " + jarFile.getAbsolutePath() + ")");
-                        logWriter.flush();
+                        ExportLogger.error(logWriter, "  ✗ Non trouvé: " + jarName + " (cherché dans: " + jarFile.getAbsolutePath() + ")");
                     }
                 }
             }
@@ -267,371 +244,46 @@ public class Energy3DClassLoader {
                 File[] joglJars = joglDir.listFiles((dir, name) -> name.endsWith(".jar"));
                 if (joglJars != null) {
                     if (logWriter != null) {
-                        logWriter.println("Ajout des JARs JOGL (" + joglJars.length + " fichiers)...");
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "Ajout des JARs JOGL (" + joglJars.length + " fichiers)...");
                     }
                     for (File joglJar : joglJars) {
                         jarUrls.add(joglJar.toURI().toURL());
                         if (logWriter != null) {
-                            logWriter.println("  Ajouté: " + joglJar.getName());
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Ajouté: " + joglJar.getName());
                         }
                     }
                 }
             }
             
             if (logWriter != null) {
-                logWriter.println("Création du URLClassLoader avec " + jarUrls.size() + " JAR(s)...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "Création du URLClassLoader avec " + jarUrls.size() + " JAR(s)...");
             }
             
             // Créer un ClassLoader personnalisé qui étend URLClassLoader et peut définir des classes
             final ClassLoader pluginClassLoader = Energy3DClassLoader.class.getClassLoader();
             final java.util.List<URL> jarUrlsFinal = new java.util.ArrayList<>(jarUrls);
+            // Cache disque des classes patchées par ASM (clé = SHA-256 des JARs, invalidé si un JAR change)
+            final PatchedClassCache patchCache = PatchedClassCache.open(jarUrlsFinal, logWriter);
             
-            // Créer un ClassLoader personnalisé qui peut définir des stubs directement
-            final URLClassLoader jarOnlyClassLoader = new URLClassLoader(
-                jarUrls.toArray(new URL[jarUrls.size()]),
-                null  // Pas de parent pour forcer le chargement depuis les JARs Energy3D
-            ) {
-                @Override
-                protected Class<?> findClass(String name) throws ClassNotFoundException {
-                    // Pour SceneHints, forcer l'utilisation du stub avec la méthode setCastsShadows(boolean)
-                    if (name.equals("com.ardor3d.scenegraph.hint.SceneHints")) {
-                        try {
-                            String resourcePath = "com/ardor3d/scenegraph/hint/SceneHints.class";
-                            java.io.InputStream is = pluginClassLoader.getResourceAsStream(resourcePath);
-                            if (is == null) {
-                                throw new ClassNotFoundException("Stub SceneHints introuvable: " + resourcePath);
-                            }
-                            java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                            byte[] data = new byte[4096];
-                            int nRead;
-                            while ((nRead = is.read(data, 0, data.length)) != -1) {
-                                buffer.write(data, 0, nRead);
-                            }
-                            byte[] classBytes = buffer.toByteArray();
-                            is.close();
-                            Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
-                            resolveClass(c);
-                            if (logWriter != null) {
-                                logWriter.println("  SceneHints (compat) défini directement dans jarOnlyClassLoader");
-                                logWriter.flush();
-                            }
-                            return c;
-                        } catch (Exception e) {
-                            if (logWriter != null) {
-                                logWriter.println("  ✗ ERREUR lors de la définition de SceneHints (compat): " + e.getMessage());
-                                logWriter.flush();
-                            }
-                            // Si échec, continuer le flux normal
-                        }
-                    }
-                    // Stub SceneManager pour export headless (évite MainPanel/OpenGL)
-                    if (name.equals("org.concord.energy3d.scene.SceneManager")) {
-                        try {
-                            String resourcePath = "org/concord/energy3d/scene/SceneManager.class";
-                            java.io.InputStream is = pluginClassLoader.getResourceAsStream(resourcePath);
-                            if (is != null) {
-                                java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                                byte[] data = new byte[4096];
-                                int nRead;
-                                while ((nRead = is.read(data, 0, data.length)) != -1) {
-                                    buffer.write(data, 0, nRead);
-                                }
-                                byte[] classBytes = buffer.toByteArray();
-                                is.close();
-                                Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
-                                resolveClass(c);
-                                if (logWriter != null) {
-                                    logWriter.println("  SceneManager (stub headless) défini via jarOnlyClassLoader");
-                                    logWriter.flush();
-                                }
-                                return c;
-                            }
-                        } catch (Exception e) {
-                            if (logWriter != null) {
-                                logWriter.println("  ⚠ Stub SceneManager non chargé: " + e.getMessage());
-                                logWriter.flush();
-                            }
-                        }
-                    }
-                    // Pour ces classes critiques, forcer l'utilisation du stub local (plugin)
-                    // au lieu de la version des JARs, pour garantir la compatibilité (éviter VerifyError, méthodes manquantes)
-                    if (name.equals("com.ardor3d.renderer.state.MaterialState") ||
-                        name.equals("com.ardor3d.renderer.state.LightState") ||
-                        name.equals("com.ardor3d.extension.effect.bloom.BloomRenderPass") ||
-                        name.equals("com.ardor3d.image.util.ImageLoader") ||
-                        name.equals("com.ardor3d.ui.text.BMText") ||
-                        name.equals("com.ardor3d.scenegraph.hint.LightCombineMode") ||
-                        name.equals("com.ardor3d.scenegraph.hint.PickingHint") ||
-                        name.equals("com.ardor3d.scenegraph.hint.TextureCombineMode") ||
-                        name.equals("org.concord.energy3d.util.SelectUtil") ||
-                        name.equals("com.ardor3d.renderer.IndexMode")) {
-                        
-                        try {
-                            // CRITIQUE: Charger la superclasse/interface AVANT de définir le stub
-                            if (name.equals("com.ardor3d.renderer.state.MaterialState") ||
-                                name.equals("com.ardor3d.renderer.state.LightState")) {
-                                try {
-                                    loadClass("com.ardor3d.renderer.state.RenderState");
-                                } catch (ClassNotFoundException e) {
-                                    if (logWriter != null) logWriter.println("  ✗ ERREUR: RenderState non trouvé avant " + name);
-                                    throw e;
-                                }
-                            } else if (name.equals("com.ardor3d.extension.effect.bloom.BloomRenderPass")) {
-                                try {
-                                    loadClass("com.ardor3d.renderer.pass.Pass");
-                                } catch (ClassNotFoundException e) {
-                                    if (logWriter != null) logWriter.println("  ✗ ERREUR: Pass non trouvé avant BloomRenderPass");
-                                    throw e;
-                                }
-                            } else if (name.equals("com.ardor3d.image.util.ImageLoader")) {
-                                try {
-                                    loadClass("com.ardor3d.image.loader.ImageLoader");
-                                } catch (ClassNotFoundException e) {
-                                    if (logWriter != null) logWriter.println("  ✗ ERREUR: com.ardor3d.image.loader.ImageLoader non trouvé");
-                                    throw e;
-                                }
-                            } else if (name.equals("com.ardor3d.ui.text.BMText")) {
-                                try {
-                                    loadClass("com.ardor3d.scenegraph.Node");
-                                } catch (ClassNotFoundException e) {
-                                    if (logWriter != null) logWriter.println("  ✗ ERREUR: Node non trouvé avant BMText");
-                                    throw e;
-                                }
-                            }
-
-                            // Lire les bytes depuis le plugin
-                            String resourcePath = name.replace('.', '/') + ".class";
-                            java.io.InputStream is = pluginClassLoader.getResourceAsStream(resourcePath);
-                            if (is == null) {
-                                // Fallback: tenter de charger le stub depuis l'espace de noms _removed
-                                String removedResourcePath = resourcePath.replace("com/ardor3d/", "com/ardor3d_removed/");
-                                is = pluginClassLoader.getResourceAsStream(removedResourcePath);
-                            }
-                            
-                            if (is == null) {
-                                throw new ClassNotFoundException(name + ".class non trouvé dans le plugin");
-                            }
-
-                            java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                            byte[] data = new byte[4096];
-                            int nRead;
-                            while ((nRead = is.read(data, 0, data.length)) != -1) {
-                                buffer.write(data, 0, nRead);
-                            }
-                            byte[] classBytes = buffer.toByteArray();
-                            is.close();
-
-                            // Pour MaterialState et LightState : le bytecode compilé a souvent Object comme superclasse
-                            // (RenderState absent du classpath à la compilation). Corriger avec ASM pour éviter VerifyError.
-                            if (name.equals("com.ardor3d.renderer.state.MaterialState") ||
-                                name.equals("com.ardor3d.renderer.state.LightState")) {
-                                classBytes = fixStubSuperclass(classBytes, "java/lang/Object", "com/ardor3d/renderer/state/RenderState", logWriter);
-                            }
-
-                            // Définir la classe
-                            Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
-                            resolveClass(c);
-                            
-                            if (logWriter != null) {
-                                logWriter.println("  " + name + " (stub) défini explicitement via jarOnlyClassLoader");
-                                logWriter.flush();
-                            }
-                            return c;
-                        } catch (Exception e) {
-                            if (logWriter != null) {
-                                logWriter.println("  ✗ ERREUR lors de la définition forcée de " + name + ": " + e.getMessage());
-                                e.printStackTrace(logWriter);
-                                logWriter.flush();
-                            }
-                            // Si échec, on laisse tomber vers le super.findClass (comportement par défaut)
-                        }
-                    }
-
-                    // Sphere : energy3d.jar appelle setUserData(Object) alors que cette Ardor3D ne l'a plus
-                    if (name.equals("com.ardor3d.scenegraph.shape.Sphere")) {
-                        try {
-                            java.io.InputStream is = getResourceAsStream("com/ardor3d/scenegraph/shape/Sphere.class");
-                            if (is != null) {
-                                java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                                byte[] data = new byte[4096];
-                                int nRead;
-                                while ((nRead = is.read(data, 0, data.length)) != -1) {
-                                    buffer.write(data, 0, nRead);
-                                }
-                                byte[] classBytes = buffer.toByteArray();
-                                is.close();
-                                classBytes = addSetUserDataToSphere(classBytes, logWriter);
-                                Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
-                                resolveClass(c);
-                                if (logWriter != null) {
-                                    logWriter.println("  Sphere (avec setUserData) défini via jarOnlyClassLoader");
-                                    logWriter.flush();
-                                }
-                                return c;
-                            }
-                        } catch (Exception e) {
-                            if (logWriter != null) {
-                                logWriter.println("  ⚠ Sphere modifié non chargé: " + e.getMessage());
-                                logWriter.flush();
-                            }
-                        }
-                    }
-
-                    // Vector3 : energy3d.jar appelle Vector3.isValid(ReadOnlyVector3) alors que cette Ardor3D ne l'a pas
-                    if (name.equals("com.ardor3d.math.Vector3")) {
-                        try {
-                            java.io.InputStream is = getResourceAsStream("com/ardor3d/math/Vector3.class");
-                            if (is != null) {
-                                java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                                byte[] data = new byte[4096];
-                                int nRead;
-                                while ((nRead = is.read(data, 0, data.length)) != -1) {
-                                    buffer.write(data, 0, nRead);
-                                }
-                                byte[] classBytes = buffer.toByteArray();
-                                is.close();
-                                classBytes = addIsValidToVector3(classBytes, logWriter);
-                                Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
-                                resolveClass(c);
-                                if (logWriter != null) {
-                                    logWriter.println("  Vector3 (avec isValid(ReadOnlyVector3)) défini via jarOnlyClassLoader");
-                                    logWriter.flush();
-                                }
-                                return c;
-                            }
-                        } catch (Exception e) {
-                            if (logWriter != null) {
-                                logWriter.println("  ⚠ Vector3 modifié non chargé: " + e.getMessage());
-                                logWriter.flush();
-                            }
-                        }
-                    }
-
-                    // Mesh : Foundation.init() appelle setUserData(Object) alors que cette Ardor3D ne l'a plus
-                    if (name.equals("com.ardor3d.scenegraph.Mesh")) {
-                        if (logWriter != null) {
-                            logWriter.println("  Tentative interception Mesh pour setUserData...");
-                            logWriter.flush();
-                        }
-                        try {
-                            java.io.InputStream is = getResourceAsStream("com/ardor3d/scenegraph/Mesh.class");
-                            if (is == null && logWriter != null) {
-                                logWriter.println("  Mesh.class introuvable via getResourceAsStream, lecture manuelle depuis les JARs");
-                                logWriter.flush();
-                            }
-                            // Fallback: lire depuis les URLs JAR manuellement
-                            if (is == null && jarUrlsFinal != null) {
-                                String resourcePath = "com/ardor3d/scenegraph/Mesh.class";
-                                for (URL jarUrl : jarUrlsFinal) {
-                                    try {
-                                        if (!"file".equals(jarUrl.getProtocol())) continue;
-                                        java.io.File jarFile = new java.io.File(jarUrl.toURI());
-                                        if (!jarFile.getName().toLowerCase(java.util.Locale.ROOT).endsWith(".jar")) continue;
-                                        try (java.util.jar.JarFile jf = new java.util.jar.JarFile(jarFile)) {
-                                            java.util.jar.JarEntry entry = jf.getJarEntry(resourcePath);
-                                            if (entry != null) {
-                                                is = jf.getInputStream(entry);
-                                                if (logWriter != null) {
-                                                    logWriter.println("  Mesh.class lu depuis: " + jarFile.getName());
-                                                    logWriter.flush();
-                                                }
-                                                break;
-                                            }
-                                        }
-                                    } catch (Exception ignored) { }
-                                }
-                            }
-                            if (is != null) {
-                                java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                                byte[] data = new byte[4096];
-                                int nRead;
-                                while ((nRead = is.read(data, 0, data.length)) != -1) {
-                                    buffer.write(data, 0, nRead);
-                                }
-                                byte[] classBytes = buffer.toByteArray();
-                                is.close();
-                                classBytes = addSetUserDataToMesh(classBytes, logWriter);
-                                Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
-                                resolveClass(c);
-                                if (logWriter != null) {
-                                    logWriter.println("  Mesh (avec setUserData) défini via jarOnlyClassLoader");
-                                    logWriter.flush();
-                                }
-                                return c;
-                            }
-                        } catch (Exception e) {
-                            if (logWriter != null) {
-                                logWriter.println("  ⚠ Mesh modifié non chargé: " + e.getMessage());
-                                logWriter.flush();
-                            }
-                        }
-                    }
-
-                    // Essayer de charger depuis les JARs officiels
-                    try {
-                        return super.findClass(name);
-                    } catch (ClassNotFoundException notFound) {
-                        throw notFound;
-                    }
-                }
-
-            };
+            // ClassLoader des JARs seuls (sans parent) : stubs, classes patchées et index paquet → JARs
+            final Energy3DJarClassLoader jarOnlyClassLoader =
+                new Energy3DJarClassLoader(jarUrlsFinal, pluginClassLoader, patchCache, logWriter);
             
-            // Créer un ClassLoader personnalisé qui délègue d'abord au ClassLoader Energy3D
+            // ClassLoader qui délègue d'abord au ClassLoader Energy3D
             // puis au ClassLoader parent (plugin) pour les classes Java standard et les stubs
-            energy3dClassLoader = new ClassLoader(pluginClassLoader) {
-                @Override
-                protected Class<?> findClass(String name) throws ClassNotFoundException {
-                    // D'abord, essayer de charger depuis les JARs Energy3D
-                    try {
-                        return jarOnlyClassLoader.loadClass(name);
-                    } catch (ClassNotFoundException e) {
-                        // Si non trouvé, déléguer au parent (pour les classes Java standard et les stubs comme MaterialState)
-                        return super.findClass(name);
-                    }
-                }
-                
-                @Override
-                protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-                    // TOUJOURS essayer les JARs Energy3D/Ardor3D en premier
-                    // Cela garantit que RenderState est chargé depuis les JARs avant MaterialState
-                    if (name.startsWith("org.concord.energy3d.") || 
-                        name.startsWith("com.ardor3d.")) {
-                        try {
-                            Class<?> c = jarOnlyClassLoader.loadClass(name);
-                            if (resolve) {
-                                resolveClass(c);
-                            }
-                            return c;
-                        } catch (ClassNotFoundException e) {
-                            // Fallback: tenter le parent (plugin) pour les classes de compatibilité présentes dans le plugin
-                            Class<?> c = super.loadClass(name, resolve);
-                            if (resolve && c != null) {
-                                resolveClass(c);
-                            }
-                            return c;
-                        }
-                    }
-                    // Pour les autres classes, utiliser le ClassLoader parent
-                    return super.loadClass(name, resolve);
-                }
-            };
+            energy3dClassLoader = new DelegatingClassLoader(jarOnlyClassLoader, pluginClassLoader);
             
             // Vérifier que RenderState est accessible
             if (logWriter != null) {
-                logWriter.println("✓ ClassLoader Energy3D créé avec succès");
-                logWriter.println("  Type: " + energy3dClassLoader.getClass().getName());
-                logWriter.println("  Vérification de l'accessibilité de RenderState...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ ClassLoader Energy3D créé avec succès");
+                ExportLogger.info(logWriter, "  Type: " + energy3dClassLoader.getClass().getName());
+                ExportLogger.info(logWriter, "  Vérification de l'accessibilité de RenderState...");
                 
                 // Vérifier les URLs dans le ClassLoader
                 if (jarOnlyClassLoader instanceof URLClassLoader) {
                     URLClassLoader urlLoader = (URLClassLoader) jarOnlyClassLoader;
                     URL[] urls = urlLoader.getURLs();
-                    logWriter.println("  Nombre d'URLs dans le ClassLoader: " + urls.length);
+                    ExportLogger.info(logWriter, "  Nombre d'URLs dans le ClassLoader: " + urls.length);
                     int ardorCount = 0;
                     boolean ardorCoreFound = false;
                     for (URL url : urls) {
@@ -640,36 +292,37 @@ public class Energy3DClassLoader {
                             ardorCount++;
                             if (urlStr.contains("ardor3d-core")) {
                                 ardorCoreFound = true;
-                                logWriter.println("    ✓ ardor3d-core.jar trouvé: " + urlStr);
+                                if (ExportLogger.isDebugEnabled(logWriter)) {
+                                    ExportLogger.debug(logWriter, "    ✓ ardor3d-core.jar trouvé: " + urlStr);
+                                }
                             }
                         }
                     }
-                    logWriter.println("  Nombre de JARs Ardor3D: " + ardorCount);
+                    ExportLogger.info(logWriter, "  Nombre de JARs Ardor3D: " + ardorCount);
                     if (!ardorCoreFound) {
-                        logWriter.println("  ✗ ERREUR: ardor3d-core.jar non trouvé dans le ClassLoader!");
+                        ExportLogger.error(logWriter, "  ✗ ERREUR: ardor3d-core.jar non trouvé dans le ClassLoader!");
                     }
-                    logWriter.flush();
                 }
                 
                 try {
                     Class<?> renderStateTest = energy3dClassLoader.loadClass("com.ardor3d.renderer.state.RenderState");
-                    logWriter.println("  ✓ RenderState accessible: " + renderStateTest.getName());
-                    logWriter.println("  ClassLoader de RenderState: " + renderStateTest.getClassLoader().getClass().getName());
+                    ExportLogger.info(logWriter, "  ✓ RenderState accessible: " + renderStateTest.getName());
+                    ExportLogger.info(logWriter, "  ClassLoader de RenderState: " + renderStateTest.getClassLoader().getClass().getName());
                     
                     // Vérifier que c'est bien le même ClassLoader
                     if (renderStateTest.getClassLoader() == jarOnlyClassLoader) {
-                        logWriter.println("  ✓ RenderState est chargé depuis les JARs Energy3D");
+                        ExportLogger.info(logWriter, "  ✓ RenderState est chargé depuis les JARs Energy3D");
                     } else {
-                        logWriter.println("  ⚠ AVERTISSEMENT: RenderState ClassLoader différent du jarOnlyClassLoader");
-                        logWriter.println("    RenderState ClassLoader: " + renderStateTest.getClassLoader().getClass().getName());
-                        logWriter.println("    jarOnlyClassLoader: " + jarOnlyClassLoader.getClass().getName());
+                        ExportLogger.warn(logWriter, "  ⚠ AVERTISSEMENT: RenderState ClassLoader différent du jarOnlyClassLoader");
+                        ExportLogger.warn(logWriter, "    RenderState ClassLoader: " + renderStateTest.getClassLoader().getClass().getName());
+                        ExportLogger.warn(logWriter, "    jarOnlyClassLoader: " + jarOnlyClassLoader.getClass().getName());
                     }
                     
                     // Vérifier la présence de com.ardor3d.scenegraph.hint.SceneHints et de la méthode setCastsShadows(boolean)
                     try {
                         Class<?> sceneHintsClass = energy3dClassLoader.loadClass("com.ardor3d.scenegraph.hint.SceneHints");
-                        logWriter.println("  ✓ SceneHints accessible: " + sceneHintsClass.getName());
-                        logWriter.println("  ClassLoader de SceneHints: " + sceneHintsClass.getClassLoader().getClass().getName());
+                        ExportLogger.info(logWriter, "  ✓ SceneHints accessible: " + sceneHintsClass.getName());
+                        ExportLogger.info(logWriter, "  ClassLoader de SceneHints: " + sceneHintsClass.getClassLoader().getClass().getName());
                         boolean hasSetCasts = false;
                         for (java.lang.reflect.Method m : sceneHintsClass.getMethods()) {
                             if (m.getName().equals("setCastsShadows") && m.getParameterTypes().length == 1 && m.getParameterTypes()[0] == boolean.class) {
@@ -677,50 +330,96 @@ public class Energy3DClassLoader {
                                 break;
                             }
                         }
-                        logWriter.println("  Méthode SceneHints.setCastsShadows(boolean) présente: " + hasSetCasts);
+                        ExportLogger.info(logWriter, "  Méthode SceneHints.setCastsShadows(boolean) présente: " + hasSetCasts);
                         if (!hasSetCasts) {
-                            logWriter.println("  ⚠ AVERTISSEMENT: setCastsShadows(absent) — certaines versions Energy3D appellent cette méthode.");
-                            logWriter.println("    Util.disablePickShadowLight sera compatible si Energy3D.jar est compilé sans cet appel.");
+                            ExportLogger.warn(logWriter, "  ⚠ AVERTISSEMENT: setCastsShadows(absent) — certaines versions Energy3D appellent cette méthode.");
+                            ExportLogger.warn(logWriter, "    Util.disablePickShadowLight sera compatible si Energy3D.jar est compilé sans cet appel.");
                         }
                     } catch (ClassNotFoundException e2) {
-                        logWriter.println("  ✗ ERREUR: SceneHints non accessible: " + e2.getMessage());
-                        logWriter.println("  Cela peut provoquer NoSuchMethodError pendant la création de Foundation.");
+                        ExportLogger.error(logWriter, "  ✗ ERREUR: SceneHints non accessible: " + e2.getMessage());
+                        ExportLogger.info(logWriter, "  Cela peut provoquer NoSuchMethodError pendant la création de Foundation.");
                     }
                 } catch (ClassNotFoundException e) {
-                    logWriter.println("  ✗ ERREUR: RenderState non accessible: " + e.getMessage());
-                    logWriter.println("  Cela empêchera Foundation d'être créé.");
-                    logWriter.println("  Vérification manuelle de ardor3d-core.jar...");
+                    ExportLogger.error(logWriter, "  ✗ ERREUR: RenderState non accessible: " + e.getMessage());
+                    ExportLogger.info(logWriter, "  Cela empêchera Foundation d'être créé.");
+                    ExportLogger.info(logWriter, "  Vérification manuelle de ardor3d-core.jar...");
                     // Vérifier que ardor3d-core.jar existe et contient RenderState
                     File ardor3dDirCheck = new File(energy3dJar.getParentFile(), "lib/ardor3d");
                     File ardorCoreJar = new File(ardor3dDirCheck, "ardor3d-core.jar");
                     if (ardorCoreJar.exists()) {
-                        logWriter.println("  ardor3d-core.jar existe: " + ardorCoreJar.getAbsolutePath());
-                        logWriter.println("  Taille: " + ardorCoreJar.length() + " bytes");
+                        ExportLogger.info(logWriter, "  ardor3d-core.jar existe: " + ardorCoreJar.getAbsolutePath());
+                        ExportLogger.info(logWriter, "  Taille: " + ardorCoreJar.length() + " bytes");
                     } else {
-                        logWriter.println("  ✗ ardor3d-core.jar n'existe pas dans: " + ardor3dDirCheck.getAbsolutePath());
+                        ExportLogger.error(logWriter, "  ✗ ardor3d-core.jar n'existe pas dans: " + ardor3dDirCheck.getAbsolutePath());
                     }
                 }
-                logWriter.flush();
             }
             
             return energy3dClassLoader;
             
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("✗ ERREUR lors de la création du ClassLoader: " + e.getMessage());
+                ExportLogger.error(logWriter, "✗ ERREUR lors de la création du ClassLoader: " + e.getMessage());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
             }
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Essaie toujours les JARs Energy3D/Ardor3D en premier (RenderState chargé depuis les JARs avant MaterialState),
+     * puis le plugin pour les classes Java standard et les classes de compatibilité. Chargement parallèle.
+     */
+    private static final class DelegatingClassLoader extends ClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final ClassLoader jarOnlyClassLoader;
+
+        DelegatingClassLoader(ClassLoader jarOnlyClassLoader, ClassLoader pluginClassLoader) {
+            super(pluginClassLoader);
+            this.jarOnlyClassLoader = jarOnlyClassLoader;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            // D'abord, essayer de charger depuis les JARs Energy3D
+            try {
+                return jarOnlyClassLoader.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                // Si non trouvé, déléguer au parent (pour les classes Java standard et les stubs comme MaterialState)
+                return super.findClass(name);
+            }
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            // TOUJOURS essayer les JARs Energy3D/Ardor3D en premier
+            if (name.startsWith("org.concord.energy3d.") || name.startsWith("com.ardor3d.")) {
+                try {
+                    Class<?> c = jarOnlyClassLoader.loadClass(name);
+                    if (resolve) {
+                        resolveClass(c);
+                    }
+                    return c;
+                } catch (ClassNotFoundException e) {
+                    // Fallback: tenter le parent (plugin) pour les classes de compatibilité présentes dans le plugin
+                    return super.loadClass(name, resolve);
+                }
+            }
+            // Pour les autres classes, utiliser le ClassLoader parent
+            return super.loadClass(name, resolve);
+        }
+    }
+
     /**
      * Corrige la superclasse dans le bytecode d'un stub (Object → RenderState) pour éviter VerifyError.
      * Utilise ASM pour réécrire uniquement le nom de la superclasse.
      */
-    private static byte[] fixStubSuperclass(byte[] classBytes, String currentSuperName, String newSuperName,
+    static byte[] fixStubSuperclass(byte[] classBytes, String currentSuperName, String newSuperName,
             java.io.PrintWriter logWriter) {
         try {
             ClassReader cr = new ClassReader(classBytes);
@@ -735,14 +434,12 @@ public class Energy3DClassLoader {
             cr.accept(cv, 0);
             byte[] fixed = cw.toByteArray();
             if (logWriter != null) {
-                logWriter.println("  Bytecode stub corrigé: superclasse " + currentSuperName + " → " + newSuperName);
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Bytecode stub corrigé: superclasse " + currentSuperName + " → " + newSuperName);
             }
             return fixed;
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  ⚠ Correction ASM superclasse échouée: " + e.getMessage() + ", utilisation du bytecode original");
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "  ⚠ Correction ASM superclasse échouée: " + e.getMessage() + ", utilisation du bytecode original");
             }
             return classBytes;
         }
@@ -751,7 +448,7 @@ public class Energy3DClassLoader {
     /**
      * Ajoute la méthode setUserData(Object) au bytecode de Sphere si absente (API Ardor3D ancienne).
      */
-    private static byte[] addSetUserDataToSphere(byte[] classBytes, java.io.PrintWriter logWriter) {
+    static byte[] addSetUserDataToSphere(byte[] classBytes, java.io.PrintWriter logWriter) {
         try {
             final boolean[] hasSetUserData = { false };
             ClassReader cr = new ClassReader(classBytes);
@@ -774,8 +471,7 @@ public class Energy3DClassLoader {
                         mv.visitMaxs(1, 2);
                         mv.visitEnd();
                         if (logWriter != null) {
-                            logWriter.println("  Bytecode Sphere: setUserData(Object)V ajoutée");
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Bytecode Sphere: setUserData(Object)V ajoutée");
                         }
                     }
                 }
@@ -784,8 +480,7 @@ public class Energy3DClassLoader {
             return cw.toByteArray();
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  ⚠ addSetUserDataToSphere échoué: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "  ⚠ addSetUserDataToSphere échoué: " + e.getMessage());
             }
             return classBytes;
         }
@@ -795,7 +490,7 @@ public class Energy3DClassLoader {
      * Ajoute la méthode statique isValid(ReadOnlyVector3) au bytecode de Vector3 si absente.
      * HousePart.isValid() appelle Vector3.isValid(ReadOnlyVector3) dans energy3d.jar.
      */
-    private static byte[] addIsValidToVector3(byte[] classBytes, java.io.PrintWriter logWriter) {
+    static byte[] addIsValidToVector3(byte[] classBytes, java.io.PrintWriter logWriter) {
         try {
             final String desc = "(Lcom/ardor3d/math/type/ReadOnlyVector3;)Z";
             final boolean[] hasIsValid = { false };
@@ -840,8 +535,7 @@ public class Energy3DClassLoader {
                         mv.visitMaxs(0, 0); // COMPUTE_FRAMES implies maxs computed by ASM
                         mv.visitEnd();
                         if (logWriter != null) {
-                            logWriter.println("  Bytecode Vector3: isValid(ReadOnlyVector3)Z ajoutée");
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Bytecode Vector3: isValid(ReadOnlyVector3)Z ajoutée");
                         }
                     }
                 }
@@ -850,8 +544,7 @@ public class Energy3DClassLoader {
             return cw.toByteArray();
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  ⚠ addIsValidToVector3 échoué: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "  ⚠ addIsValidToVector3 échoué: " + e.getMessage());
             }
             return classBytes;
         }
@@ -861,7 +554,7 @@ public class Energy3DClassLoader {
      * Ajoute la méthode setUserData(Object) au bytecode de Mesh si absente (API Ardor3D ancienne).
      * Foundation.init() appelle Mesh.setUserData(Object).
      */
-    private static byte[] addSetUserDataToMesh(byte[] classBytes, java.io.PrintWriter logWriter) {
+    static byte[] addSetUserDataToMesh(byte[] classBytes, java.io.PrintWriter logWriter) {
         try {
             final boolean[] hasSetUserData = { false };
             ClassReader cr = new ClassReader(classBytes);
@@ -884,8 +577,7 @@ public class Energy3DClassLoader {
                         mv.visitMaxs(1, 2);
                         mv.visitEnd();
                         if (logWriter != null) {
-                            logWriter.println("  Bytecode Mesh: setUserData(Object)V ajoutée");
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Bytecode Mesh: setUserData(Object)V ajoutée");
                         }
                     }
                 }
@@ -894,8 +586,7 @@ public class Energy3DClassLoader {
             return cw.toByteArray();
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  ⚠ addSetUserDataToMesh échoué: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "  ⚠ addSetUserDataToMesh échoué: " + e.getMessage());
             }
             return classBytes;
         }
@@ -922,8 +613,7 @@ public class Energy3DClassLoader {
             throw new ClassNotFoundException("Energy3D ClassLoader non disponible pour: " + className);
         }
         if (logWriter != null) {
-            logWriter.println("Chargement de la classe: " + className);
-            logWriter.flush();
+            ExportLogger.info(logWriter, "Chargement de la classe: " + className);
         }
         
         // Pour MaterialState, s'assurer que RenderState est chargé d'abord
@@ -931,13 +621,11 @@ public class Energy3DClassLoader {
             try {
                 loader.loadClass("com.ardor3d.renderer.state.RenderState");
                 if (logWriter != null) {
-                    logWriter.println("  RenderState chargé avant MaterialState");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  RenderState chargé avant MaterialState");
                 }
             } catch (ClassNotFoundException e) {
                 if (logWriter != null) {
-                    logWriter.println("  AVERTISSEMENT: RenderState non trouvé: " + e.getMessage());
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "  AVERTISSEMENT: RenderState non trouvé: " + e.getMessage());
                 }
                 throw new ClassNotFoundException("RenderState doit être disponible pour charger MaterialState", e);
             }
@@ -947,20 +635,18 @@ public class Energy3DClassLoader {
             return loader.loadClass(className);
         } catch (ExceptionInInitializerError e) {
             if (logWriter != null) {
-                logWriter.println("  ✗ ExceptionInInitializerError lors de l'initialisation de " + className);
+                ExportLogger.error(logWriter, "  ✗ ExceptionInInitializerError lors de l'initialisation de " + className);
                 Throwable cause = e.getCause();
                 if (cause != null) {
-                    logWriter.println("  Cause: " + cause.getClass().getName() + ": " + cause.getMessage());
+                    ExportLogger.error(logWriter, "  Cause: " + cause.getClass().getName() + ": " + cause.getMessage());
                     cause.printStackTrace(new java.io.PrintWriter(logWriter, true));
                 }
-                logWriter.flush();
             }
             throw new ClassNotFoundException("Initialisation de " + className + " a échoué", e);
         } catch (NoClassDefFoundError e) {
             if (logWriter != null) {
-                logWriter.println("  ✗ NoClassDefFoundError: " + e.getMessage());
-                logWriter.println("  (La classe a probablement échoué à s'initialiser précédemment)");
-                logWriter.flush();
+                ExportLogger.error(logWriter, "  ✗ NoClassDefFoundError: " + e.getMessage());
+                ExportLogger.info(logWriter, "  (La classe a probablement échoué à s'initialiser précédemment)");
             }
             throw new ClassNotFoundException("Classe " + className + " non disponible: " + e.getMessage(), e);
         }
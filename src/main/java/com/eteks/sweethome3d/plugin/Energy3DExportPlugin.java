@@ -5,8 +5,15 @@ import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import com.eteks.sweethome3d.model.Home;
@@ -18,6 +25,17 @@ public class Energy3DExportPlugin extends Plugin {
 
     private static final String BUNDLE_BASE = "com.eteks.sweethome3d.plugin.Energy3DExportPlugin";
 
+    /** Export automatique du plan de ce plugin, ou null s'il n'a jamais été lancé. */
+    private AutoExportWatcher autoExportWatcher;
+
+    /**
+     * Lance le préchauffage d'Energy3D (ClassLoader, classes, stub Heliodon) en arrière-plan
+     * pour que le premier export n'en paie pas le coût.
+     */
+    public Energy3DExportPlugin() {
+        Energy3DWarmUp.start();
+    }
+
     /** Retourne le ResourceBundle localisé du plugin (utilise le ClassLoader du plugin). */
     private ResourceBundle getBundle() {
         ClassLoader loader = getPluginClassLoader();
@@ -45,9 +63,85 @@ public class Energy3DExportPlugin extends Plugin {
     @Override
     public PluginAction[] getActions() {
         return new PluginAction[] {
-            new ExportAction()
+            new ExportAction(),
+            new AutoExportAction()
         };
     }
+
+    /** Arrête l'export automatique à la fermeture du plan. */
+    @Override
+    public void destroy() {
+        if (autoExportWatcher != null) {
+            autoExportWatcher.stop();
+        }
+    }
+
+    /**
+     * Demande le fichier .ng3 de destination (extension ajoutée si besoin, confirmation si le fichier existe).
+     * @return le fichier choisi, ou null si l'utilisateur a annulé
+     */
+    private File chooseOutputFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle(getString("dialog.save_title"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter(
+            getString("file_filter.energy3d"), getString("file_filter.extension")));
+        fileChooser.setSelectedFile(new File(getString("file.default_name")));
+        
+        int result = fileChooser.showSaveDialog(null);
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File outputFile = fileChooser.getSelectedFile();
+        
+        // Ajouter l'extension .ng3 si nécessaire
+        if (!outputFile.getName().toLowerCase().endsWith(".ng3")) {
+            outputFile = new File(outputFile.getParent(), outputFile.getName() + ".ng3");
+        }
+        
+        // Demander confirmation si le fichier existe déjà
+        if (outputFile.exists()) {
+            int overwrite = JOptionPane.showConfirmDialog(
+                null,
+                getString("msg.file_exists", outputFile.getName()),
+                getString("msg.file_exists_title"),
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.QUESTION_MESSAGE
+            );
+            if (overwrite != JOptionPane.YES_OPTION) {
+                return null;
+            }
+        }
+        return outputFile;
+    }
+
+    /**
+     * Affiche les messages de validation du plan.
+     * @return true si le plan peut être exporté
+     */
+    private boolean checkExportable(Home home) {
+        if (home == null) {
+            JOptionPane.showMessageDialog(
+                null,
+                getString("msg.no_plan"),
+                getString("msg.no_plan_title"),
+                JOptionPane.WARNING_MESSAGE
+            );
+            return false;
+        }
+        
+        // Vérifier que le niveau "terrain" existe et contient au moins des murs ou une pièce
+        String validationKey = PlanExporter.getExportValidationError(home);
+        if (validationKey != null) {
+            JOptionPane.showMessageDialog(
+                null,
+                getString(validationKey),
+                getString("msg.export_impossible_title"),
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return false;
+        }
+        return true;
+    }
     
     /**
      * Action pour exporter le plan vers Energy3D
@@ -66,169 +160,237 @@ public class Energy3DExportPlugin extends Plugin {
             try {
                 // Obtenir le Home actuel
                 Home home = getHome();
-                if (home == null) {
-                    JOptionPane.showMessageDialog(
-                        null,
-                        getString("msg.no_plan"),
-                        getString("msg.no_plan_title"),
-                        JOptionPane.WARNING_MESSAGE
-                    );
-                    return;
-                }
-                
-                // Vérifier que le niveau "terrain" existe et contient au moins des murs ou une pièce
-                String validationKey = PlanExporter.getExportValidationError(home);
-                if (validationKey != null) {
-                    JOptionPane.showMessageDialog(
-                        null,
-                        getString(validationKey),
-                        getString("msg.export_impossible_title"),
-                        JOptionPane.INFORMATION_MESSAGE
-                    );
+                if (!checkExportable(home)) {
                     return;
                 }
                 
                 // Demander à l'utilisateur où sauvegarder le fichier
-                JFileChooser fileChooser = new JFileChooser();
-                fileChooser.setDialogTitle(getString("dialog.save_title"));
-                fileChooser.setFileFilter(new FileNameExtensionFilter(
-                    getString("file_filter.energy3d"), getString("file_filter.extension")));
-                fileChooser.setSelectedFile(new File(getString("file.default_name")));
-                
-                int result = fileChooser.showSaveDialog(null);
-                if (result == JFileChooser.APPROVE_OPTION) {
-                    File outputFile = fileChooser.getSelectedFile();
-                    
-                    // Ajouter l'extension .ng3 si nécessaire
-                    if (!outputFile.getName().toLowerCase().endsWith(".ng3")) {
-                        outputFile = new File(outputFile.getParent(), outputFile.getName() + ".ng3");
-                    }
-                    
-                    // Demander confirmation si le fichier existe déjà
-                    if (outputFile.exists()) {
-                        int overwrite = JOptionPane.showConfirmDialog(
-                            null,
-                            getString("msg.file_exists", outputFile.getName()),
-                            getString("msg.file_exists_title"),
-                            JOptionPane.YES_NO_OPTION,
-                            JOptionPane.QUESTION_MESSAGE
-                        );
-                        if (overwrite != JOptionPane.YES_OPTION) {
-                            return;
-                        }
-                    }
+                File outputFile = chooseOutputFile();
+                if (outputFile != null) {
                     
                     // Créer un fichier de log immédiatement pour le diagnostic
                     File logFile = new File(outputFile.getParentFile(), outputFile.getName() + ".log");
                     java.io.PrintWriter pluginLogWriter = null;
                     try {
-                        pluginLogWriter = new java.io.PrintWriter(new java.io.FileWriter(logFile));
-                        pluginLogWriter.println("=== PLUGIN EXECUTE ===");
-                        pluginLogWriter.println("Fichier de sortie: " + outputFile.getAbsolutePath());
-                        pluginLogWriter.println("Nombre de murs dans le plan: " + (home.getWalls() != null ? home.getWalls().size() : 0));
-                        pluginLogWriter.flush();
+                        pluginLogWriter = ExportLogger.open(logFile, false);
+                        ExportLogger.info(pluginLogWriter, "=== PLUGIN EXECUTE ===");
+                        ExportLogger.info(pluginLogWriter, "Fichier de sortie: " + outputFile.getAbsolutePath());
+                        ExportLogger.info(pluginLogWriter, "Nombre de murs dans le plan: " + (home.getWalls() != null ? home.getWalls().size() : 0));
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
                     
-                    // Exporter le plan
-                    boolean success = false;
-                    try {
-                        success = PlanExporter.exportToEnergy3D(home, outputFile);
-                        
-                        if (pluginLogWriter != null) {
-                            pluginLogWriter.println("PlanExporter.exportToEnergy3D() retourné: " + success);
-                            pluginLogWriter.println("Fichier existe: " + outputFile.exists());
-                            if (outputFile.exists()) {
-                                pluginLogWriter.println("Taille du fichier: " + outputFile.length() + " bytes");
-                            }
-                            pluginLogWriter.flush();
-                        }
-                    } catch (NoClassDefFoundError e) {
-                        if (pluginLogWriter != null) {
-                            pluginLogWriter.println("✗ ERREUR CRITIQUE: NoClassDefFoundError lors de l'appel!");
-                            pluginLogWriter.println("Message: " + e.getMessage());
-                            e.printStackTrace(pluginLogWriter);
-                            pluginLogWriter.flush();
-                        }
-                        e.printStackTrace();
-                        success = false;
-                        
-                        JOptionPane.showMessageDialog(
-                            null,
-                            getString("msg.energy3d_not_available", e.getMessage() != null ? e.getMessage() : ""),
-                            getString("msg.energy3d_not_available_title"),
-                            JOptionPane.ERROR_MESSAGE
-                        );
-                    } catch (Throwable t) {
-                        if (pluginLogWriter != null) {
-                            pluginLogWriter.println("✗ EXCEPTION/ERROR lors de l'appel à PlanExporter.exportToEnergy3D():");
-                            pluginLogWriter.println("Type: " + t.getClass().getName());
-                            pluginLogWriter.println("Message: " + t.getMessage());
-                            t.printStackTrace(pluginLogWriter);
-                            pluginLogWriter.flush();
+                    // Exporter le plan en arrière-plan (copie du Home) avec une fenêtre de progression
+                    startExport(home, outputFile, pluginLogWriter);
+                }
+                
+            } catch (Exception e) {
+                JOptionPane.showMessageDialog(
+                    null,
+                    getString("msg.generic_error", e.getMessage() != null ? e.getMessage() : ""),
+                    getString("msg.generic_error_title"),
+                    JOptionPane.ERROR_MESSAGE
+                );
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Lance l'export asynchrone et affiche une fenêtre de progression non modale avec un bouton Annuler.
+         */
+        private void startExport(final Home home, final File outputFile, final java.io.PrintWriter pluginLogWriter) {
+            final JDialog progressDialog = new JDialog((java.awt.Frame) null, getString("progress.title"), false);
+            final JLabel stageLabel = new JLabel(getString("progress.stage.START"));
+            final JProgressBar progressBar = new JProgressBar(0, ExportMonitor.Stage.values().length);
+            progressBar.setStringPainted(true);
+            progressBar.setString("");
+            JButton cancelButton = new JButton(getString("progress.cancel"));
+            JPanel panel = new JPanel(new java.awt.BorderLayout(0, 8));
+            panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+            panel.add(stageLabel, java.awt.BorderLayout.NORTH);
+            panel.add(progressBar, java.awt.BorderLayout.CENTER);
+            JPanel buttonPanel = new JPanel(new java.awt.FlowLayout(java.awt.FlowLayout.RIGHT, 0, 0));
+            buttonPanel.add(cancelButton);
+            panel.add(buttonPanel, java.awt.BorderLayout.SOUTH);
+            progressDialog.setContentPane(panel);
+            progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+            progressDialog.setSize(420, 130);
+            progressDialog.setLocationRelativeTo(null);
+
+            final AsyncPlanExporter.ExportTask task = AsyncPlanExporter.exportAsync(home, outputFile, new ExportMonitor() {
+                @Override
+                public void stageStarted(final Stage stage) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            stageLabel.setText(getString("progress.stage." + stage.name()));
+                            progressBar.setValue(stage.ordinal());
+                            progressBar.setString("");
                         }
-                        t.printStackTrace();
-                        success = false;
-                    } finally {
-                        if (pluginLogWriter != null) {
-                            pluginLogWriter.println("=== FIN APPEL PLUGIN ===");
-                            pluginLogWriter.flush();
-                            pluginLogWriter.close();
+                    });
+                }
+
+                @Override
+                public void progress(final Stage stage, final int done, final int total) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            progressBar.setString(total > 0 ? (done + 1) + " / " + total : "");
                         }
+                    });
+                }
+            });
+            cancelButton.addActionListener(new java.awt.event.ActionListener() {
+                public void actionPerformed(java.awt.event.ActionEvent ev) {
+                    task.cancel();
+                    stageLabel.setText(getString("progress.cancelling"));
+                }
+            });
+            progressDialog.setVisible(true);
+
+            task.getResult().whenComplete((success, error) -> SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    progressDialog.dispose();
+                    exportFinished(home, outputFile, pluginLogWriter, task.getMetrics(), success, error);
+                }
+            }));
+        }
+
+        /**
+         * Termine l'export sur l'EDT : complète le log du plugin et affiche le résultat.
+         */
+        private void exportFinished(Home home, File outputFile, java.io.PrintWriter pluginLogWriter,
+                                    ExportMetrics metrics, Boolean result, Throwable error) {
+            Throwable cause = error;
+            while (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            boolean success = error == null && Boolean.TRUE.equals(result);
+            if (pluginLogWriter != null) {
+                if (cause instanceof java.util.concurrent.CancellationException) {
+                    ExportLogger.info(pluginLogWriter, "Export annulé par l'utilisateur");
+                } else if (cause != null) {
+                    ExportLogger.error(pluginLogWriter, "✗ EXCEPTION/ERROR lors de l'appel à PlanExporter.exportToEnergy3D():");
+                    ExportLogger.error(pluginLogWriter, "Type: " + cause.getClass().getName());
+                    ExportLogger.error(pluginLogWriter, "Message: " + cause.getMessage());
+                    cause.printStackTrace(pluginLogWriter);
+                } else {
+                    ExportLogger.info(pluginLogWriter, "PlanExporter.exportToEnergy3D() retourné: " + success);
+                    ExportLogger.info(pluginLogWriter, "Fichier existe: " + outputFile.exists());
+                    if (outputFile.exists()) {
+                        ExportLogger.info(pluginLogWriter, "Taille du fichier: " + outputFile.length() + " bytes");
                     }
-                    
-                    if (success) {
-                        JOptionPane.showMessageDialog(
-                            null,
-                            getString("msg.export_success", outputFile.getAbsolutePath(), outputFile.length()),
-                            getString("msg.export_success_title"),
-                            JOptionPane.INFORMATION_MESSAGE
-                        );
+                }
+                ExportLogger.info(pluginLogWriter, "=== FIN APPEL PLUGIN ===");
+                pluginLogWriter.close();
+            }
+            if (cause instanceof java.util.concurrent.CancellationException) {
+                return;
+            }
+            if (cause != null) {
+                cause.printStackTrace();
+            }
+            if (cause instanceof NoClassDefFoundError) {
+                JOptionPane.showMessageDialog(
+                    null,
+                    getString("msg.energy3d_not_available", cause.getMessage() != null ? cause.getMessage() : ""),
+                    getString("msg.energy3d_not_available_title"),
+                    JOptionPane.ERROR_MESSAGE
+                );
+                return;
+            }
+            
+            if (success) {
+                JOptionPane.showMessageDialog(
+                    null,
+                    getString("msg.export_success", outputFile.getAbsolutePath(), outputFile.length())
+                        + getString("msg.export_metrics_summary", metrics.getTotalNanos() / 1e9,
+                            metrics.getLongestStage().name().toLowerCase(java.util.Locale.ROOT),
+                            metrics.getStageNanos(metrics.getLongestStage()) / 1e9,
+                            metrics.getPartsCreated(), metrics.getPartsSkipped(), outputFile.getName() + ".metrics.json"),
+                    getString("msg.export_success_title"),
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+            } else {
+                // Réafficher le message de validation si l'export a échoué pour cause de terrain
+                String validationKey = PlanExporter.getExportValidationError(home);
+                if (validationKey != null) {
+                    JOptionPane.showMessageDialog(
+                        null,
+                        getString(validationKey),
+                        getString("msg.export_impossible_title"),
+                        JOptionPane.INFORMATION_MESSAGE
+                    );
+                    return;
+                }
+                String errorMessage = getString("msg.export_error_intro");
+                
+                // Vérifier si le fichier existe
+                if (outputFile.exists()) {
+                    if (outputFile.length() == 0) {
+                        errorMessage += getString("msg.export_error_file_empty");
                     } else {
-                        // Réafficher le message de validation si l'export a échoué pour cause de terrain
-                        validationKey = PlanExporter.getExportValidationError(home);
-                        if (validationKey != null) {
-                            JOptionPane.showMessageDialog(
-                                null,
-                                getString(validationKey),
-                                getString("msg.export_impossible_title"),
-                                JOptionPane.INFORMATION_MESSAGE
-                            );
-                            return;
-                        }
-                        String errorMessage = getString("msg.export_error_intro");
-                        
-                        // Vérifier si le fichier existe
-                        if (outputFile.exists()) {
-                            if (outputFile.length() == 0) {
-                                errorMessage += getString("msg.export_error_file_empty");
-                            } else {
-                                errorMessage += getString("msg.export_error_file_corrupt");
-                            }
-                        } else {
-                            errorMessage += getString("msg.export_error_file_not_created");
-                        }
-                        
-                        // Vérifier les permissions
-                        if (outputFile.getParentFile() != null) {
-                            if (!outputFile.getParentFile().canWrite()) {
-                                errorMessage += getString("msg.export_error_no_write_permission", outputFile.getParentFile().getAbsolutePath());
-                            }
-                        }
-                        
-                        errorMessage += getString("msg.export_error_see_log",
-                            new File(outputFile.getParentFile(), outputFile.getName() + ".log").getAbsolutePath());
-                        
-                        JOptionPane.showMessageDialog(
-                            null,
-                            errorMessage,
-                            getString("msg.export_error_title"),
-                            JOptionPane.ERROR_MESSAGE
-                        );
+                        errorMessage += getString("msg.export_error_file_corrupt");
                     }
+                } else {
+                    errorMessage += getString("msg.export_error_file_not_created");
                 }
                 
+                // Vérifier les permissions
+                if (outputFile.getParentFile() != null) {
+                    if (!outputFile.getParentFile().canWrite()) {
+                        errorMessage += getString("msg.export_error_no_write_permission", outputFile.getParentFile().getAbsolutePath());
+                    }
+                }
+                
+                errorMessage += getString("msg.export_error_see_log",
+                    new File(outputFile.getParentFile(), outputFile.getName() + ".log").getAbsolutePath());
+                
+                JOptionPane.showMessageDialog(
+                    null,
+                    errorMessage,
+                    getString("msg.export_error_title"),
+                    JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    /**
+     * Action pour démarrer/arrêter l'export automatique : le .ng3 est réexporté (de façon incrémentale)
+     * après chaque série de modifications du plan.
+     */
+    private class AutoExportAction extends PluginAction {
+
+        public AutoExportAction() {
+            super("com.eteks.sweethome3d.plugin.Energy3DExportPlugin",
+                  "AUTO_EXPORT_ACTION",
+                  getPluginClassLoader(),
+                  true);
+        }
+
+        @Override
+        public void execute() {
+            try {
+                if (autoExportWatcher != null && autoExportWatcher.isStarted()) {
+                    autoExportWatcher.stop();
+                    putPropertyValue(Property.NAME, getString("AUTO_EXPORT_ACTION.NAME"));
+                    putPropertyValue(Property.SHORT_DESCRIPTION, getString("AUTO_EXPORT_ACTION.SHORT_DESCRIPTION"));
+                    return;
+                }
+                Home home = getHome();
+                if (!checkExportable(home)) {
+                    return;
+                }
+                File outputFile = chooseOutputFile();
+                if (outputFile == null) {
+                    return;
+                }
+                autoExportWatcher = new AutoExportWatcher(home, outputFile, new AutoExportWatcher.Listener() {
+                    public void exportFinished(File file, ExportMetrics metrics, boolean success, Throwable error) {
+                        autoExportFinished(file, metrics, success, error);
+                    }
+                });
+                autoExportWatcher.start();
+                putPropertyValue(Property.NAME, getString("auto_export.stop_name"));
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(
                     null,
@@ -239,6 +401,34 @@ public class Energy3DExportPlugin extends Plugin {
                 e.printStackTrace();
             }
         }
+
+        /**
+         * Résultat d'un export automatique : affiché dans l'infobulle de l'action, sans fenêtre
+         * (sauf si Energy3D n'est pas disponible, auquel cas l'export automatique s'arrête).
+         */
+        private void autoExportFinished(File outputFile, ExportMetrics metrics, boolean success, Throwable error) {
+            if (error instanceof NoClassDefFoundError) {
+                autoExportWatcher.stop();
+                putPropertyValue(Property.NAME, getString("AUTO_EXPORT_ACTION.NAME"));
+                JOptionPane.showMessageDialog(
+                    null,
+                    getString("msg.energy3d_not_available", error.getMessage() != null ? error.getMessage() : ""),
+                    getString("msg.energy3d_not_available_title"),
+                    JOptionPane.ERROR_MESSAGE
+                );
+                return;
+            }
+            if (success) {
+                putPropertyValue(Property.SHORT_DESCRIPTION,
+                    getString("auto_export.last_success", outputFile.getName(), metrics.getTotalNanos() / 1e9));
+            } else {
+                if (error != null) {
+                    error.printStackTrace();
+                }
+                putPropertyValue(Property.SHORT_DESCRIPTION, getString("auto_export.last_failure", outputFile.getName(),
+                    new File(outputFile.getParentFile(), outputFile.getName() + ".log").getAbsolutePath()));
+            }
+        }
     }
 
 }
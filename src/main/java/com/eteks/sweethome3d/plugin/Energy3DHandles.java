@@ -0,0 +1,738 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+
+/**
+ * Registre des MethodHandle utilisés pour piloter Energy3D (Scene, Foundation, HousePart, Wall,
+ * Window, Door, Tree, Vector3). Les méthodes et champs sont résolus une seule fois par ClassLoader
+ * Energy3D, puis appelés par invokeExact sans recherche, contrôle d'accès ni boxing.
+ * Les handles optionnels (absents selon la version d'Energy3D) valent null.
+ */
+public class Energy3DHandles {
+
+    /**
+     * Registres déjà résolus, portés par la classe Scene de chaque ClassLoader Energy3D : un registre
+     * (qui référence les classes de son ClassLoader) ne retient pas ce ClassLoader une fois qu'il n'est plus utilisé.
+     */
+    private static final ClassValue<Energy3DHandles> REGISTRIES = new ClassValue<Energy3DHandles>() {
+        @Override
+        protected Energy3DHandles computeValue(Class<?> sceneClass) {
+            try {
+                return new Energy3DHandles(sceneClass.getClassLoader());
+            } catch (ReflectiveOperationException e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+    };
+
+    final Class<?> sceneClass;
+    final Class<?> housePartClass;
+    final Class<?> foundationClass;
+    final Class<?> wallClass;
+    final Class<?> windowClass;
+    final Class<?> doorClass;
+    final Class<?> treeClass;
+    final Class<?> vector3Class;
+
+    // Scene
+    private final MethodHandle sceneNew;
+    private final MethodHandle sceneAdd;
+    private final MethodHandle sceneInstanceGetter;
+    private final MethodHandle sceneInstanceSetter;
+    // HousePart (méthodes)
+    private final MethodHandle getChildren;
+    private final MethodHandle setContainer;
+    private final MethodHandle complete;
+    private final MethodHandle draw;
+    private final MethodHandle getAbsPoint;
+    private final MethodHandle getHeight;
+    private final MethodHandle setColor;
+    private final MethodHandle setTextureType;
+    private final MethodHandle updateTextureAndColor;
+    // HousePart (champs)
+    private final MethodHandle pointsGetter;
+    private final MethodHandle pointsSetter;
+    private final MethodHandle firstPointInsertedSetter;
+    private final MethodHandle drawCompletedSetter;
+    private final MethodHandle heightSetter;
+    private final MethodHandle idGetter;
+    private final MethodHandle idSetter;
+    private final MethodHandle rootSetter;
+    private final MethodHandle childrenGetter;
+    private final MethodHandle childrenSetter;
+    private final MethodHandle textureTypeSetter;
+    // Foundation
+    private final MethodHandle foundationConnectWalls;
+    // Wall
+    private final MethodHandle wallNew;
+    private final MethodHandle wallSetThickness;
+    private final MethodHandle wallSetHeight;
+    private final MethodHandle wallSetInterior;
+    private final MethodHandle wallSetUValue;
+    private final MethodHandle wallSetVolumetricHeatCapacity;
+    // Window / Door
+    private final MethodHandle windowSetUValue;
+    private final MethodHandle windowSetSolarHeatGainCoefficient;
+    private final MethodHandle doorSetUValue;
+    // Tree
+    private final MethodHandle treeNew;
+    private final MethodHandle treeSetLocation;
+    private final MethodHandle treeSetPlantType;
+    // Vector3 / ColorRGBA
+    private final MethodHandle vector3New;
+    private final MethodHandle vector3NewXYZ;
+    private final MethodHandle vector3Set;
+    private final MethodHandle vector3GetX;
+    private final MethodHandle vector3GetY;
+    private final MethodHandle vector3GetZ;
+    private final MethodHandle colorNew;
+    /** Mesures de l'export qui utilise ce registre (null pour le registre partagé par ClassLoader). */
+    private final ExportMetrics metrics;
+
+    /**
+     * Retourne le registre associé au ClassLoader Energy3D, résolu au premier appel.
+     */
+    public static Energy3DHandles get(ClassLoader energy3dLoader) throws ReflectiveOperationException {
+        Class<?> sceneClass = energy3dLoader.loadClass("org.concord.energy3d.scene.Scene");
+        try {
+            return REGISTRIES.get(sceneClass);
+        } catch (UndeclaredThrowableException e) {
+            // Échec de résolution non mémorisé : le prochain appel réessaie
+            if (e.getCause() instanceof ReflectiveOperationException) {
+                throw (ReflectiveOperationException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Registre partageant les handles de celui-ci, dont les appels sont comptés dans les mesures données
+     * (une instance par export : pas de recherche de l'export courant à chaque appel).
+     */
+    public Energy3DHandles withMetrics(ExportMetrics metrics) {
+        return new Energy3DHandles(this, metrics);
+    }
+
+    private Energy3DHandles(Energy3DHandles shared, ExportMetrics metrics) {
+        this.sceneClass = shared.sceneClass;
+        this.housePartClass = shared.housePartClass;
+        this.foundationClass = shared.foundationClass;
+        this.wallClass = shared.wallClass;
+        this.windowClass = shared.windowClass;
+        this.doorClass = shared.doorClass;
+        this.treeClass = shared.treeClass;
+        this.vector3Class = shared.vector3Class;
+        this.sceneNew = shared.sceneNew;
+        this.sceneAdd = shared.sceneAdd;
+        this.sceneInstanceGetter = shared.sceneInstanceGetter;
+        this.sceneInstanceSetter = shared.sceneInstanceSetter;
+        this.getChildren = shared.getChildren;
+        this.setContainer = shared.setContainer;
+        this.complete = shared.complete;
+        this.draw = shared.draw;
+        this.getAbsPoint = shared.getAbsPoint;
+        this.getHeight = shared.getHeight;
+        this.setColor = shared.setColor;
+        this.setTextureType = shared.setTextureType;
+        this.updateTextureAndColor = shared.updateTextureAndColor;
+        this.pointsGetter = shared.pointsGetter;
+        this.pointsSetter = shared.pointsSetter;
+        this.firstPointInsertedSetter = shared.firstPointInsertedSetter;
+        this.drawCompletedSetter = shared.drawCompletedSetter;
+        this.heightSetter = shared.heightSetter;
+        this.idGetter = shared.idGetter;
+        this.idSetter = shared.idSetter;
+        this.rootSetter = shared.rootSetter;
+        this.childrenGetter = shared.childrenGetter;
+        this.childrenSetter = shared.childrenSetter;
+        this.textureTypeSetter = shared.textureTypeSetter;
+        this.foundationConnectWalls = shared.foundationConnectWalls;
+        this.wallNew = shared.wallNew;
+        this.wallSetThickness = shared.wallSetThickness;
+        this.wallSetHeight = shared.wallSetHeight;
+        this.wallSetInterior = shared.wallSetInterior;
+        this.wallSetUValue = shared.wallSetUValue;
+        this.wallSetVolumetricHeatCapacity = shared.wallSetVolumetricHeatCapacity;
+        this.windowSetUValue = shared.windowSetUValue;
+        this.windowSetSolarHeatGainCoefficient = shared.windowSetSolarHeatGainCoefficient;
+        this.doorSetUValue = shared.doorSetUValue;
+        this.treeNew = shared.treeNew;
+        this.treeSetLocation = shared.treeSetLocation;
+        this.treeSetPlantType = shared.treeSetPlantType;
+        this.vector3New = shared.vector3New;
+        this.vector3NewXYZ = shared.vector3NewXYZ;
+        this.vector3Set = shared.vector3Set;
+        this.vector3GetX = shared.vector3GetX;
+        this.vector3GetY = shared.vector3GetY;
+        this.vector3GetZ = shared.vector3GetZ;
+        this.colorNew = shared.colorNew;
+        this.metrics = metrics;
+    }
+
+    private Energy3DHandles(ClassLoader loader) throws ReflectiveOperationException {
+        metrics = null;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        sceneClass = loader.loadClass("org.concord.energy3d.scene.Scene");
+        housePartClass = loader.loadClass("org.concord.energy3d.model.HousePart");
+        foundationClass = loader.loadClass("org.concord.energy3d.model.Foundation");
+        wallClass = loader.loadClass("org.concord.energy3d.model.Wall");
+        windowClass = loader.loadClass("org.concord.energy3d.model.Window");
+        doorClass = loader.loadClass("org.concord.energy3d.model.Door");
+        treeClass = loader.loadClass("org.concord.energy3d.model.Tree");
+        vector3Class = loader.loadClass("com.ardor3d.math.Vector3");
+        Class<?> colorClass = loader.loadClass("com.ardor3d.math.ColorRGBA");
+        Class<?> readOnlyColorClass = loader.loadClass("com.ardor3d.math.type.ReadOnlyColorRGBA");
+
+        sceneNew = erase(lookup.unreflectConstructor(accessible(sceneClass.getDeclaredConstructor())));
+        sceneAdd = voidResult(virtual(lookup, sceneClass, "add", housePartClass, boolean.class));
+        Field sceneInstance = accessible(sceneClass.getDeclaredField("instance"));
+        sceneInstanceGetter = erase(lookup.unreflectGetter(sceneInstance));
+        sceneInstanceSetter = erase(lookup.unreflectSetter(sceneInstance));
+
+        getChildren = virtual(lookup, housePartClass, "getChildren");
+        setContainer = voidResult(virtual(lookup, housePartClass, "setContainer", housePartClass));
+        complete = voidResult(virtual(lookup, housePartClass, "complete"));
+        draw = voidResult(virtual(lookup, housePartClass, "draw"));
+        getAbsPoint = virtual(lookup, housePartClass, "getAbsPoint", int.class);
+        getHeight = virtual(lookup, housePartClass, "getHeight").asType(MethodType.methodType(double.class, Object.class));
+        setColor = voidResult(virtual(lookup, housePartClass, "setColor", readOnlyColorClass));
+        setTextureType = voidResult(optionalVirtual(lookup, housePartClass, "setTextureType", int.class));
+        updateTextureAndColor = voidResult(optionalVirtual(lookup, housePartClass, "updateTextureAndColor"));
+
+        pointsGetter = getter(lookup, housePartClass, "points");
+        pointsSetter = setter(lookup, housePartClass, "points");
+        firstPointInsertedSetter = setter(lookup, housePartClass, "firstPointInserted");
+        drawCompletedSetter = setter(lookup, housePartClass, "drawCompleted");
+        heightSetter = setter(lookup, housePartClass, "height");
+        idGetter = getter(lookup, housePartClass, "id");
+        idSetter = setter(lookup, housePartClass, "id");
+        rootSetter = setter(lookup, housePartClass, "root");
+        childrenGetter = getter(lookup, housePartClass, "children");
+        childrenSetter = setter(lookup, housePartClass, "children");
+        textureTypeSetter = setter(lookup, housePartClass, "textureType");
+
+        foundationConnectWalls = voidResult(optionalVirtual(lookup, foundationClass, "connectWalls"));
+
+        wallNew = erase(lookup.unreflectConstructor(accessible(wallClass.getDeclaredConstructor())));
+        wallSetThickness = voidResult(virtual(lookup, wallClass, "setThickness", double.class));
+        wallSetHeight = voidResult(virtual(lookup, wallClass, "setHeight", double.class, boolean.class));
+        wallSetInterior = voidResult(optionalVirtual(lookup, wallClass, "setInterior", boolean.class));
+        wallSetUValue = voidResult(virtual(lookup, wallClass, "setUValue", double.class));
+        wallSetVolumetricHeatCapacity = voidResult(virtual(lookup, wallClass, "setVolumetricHeatCapacity", double.class));
+
+        windowSetUValue = voidResult(optionalVirtual(lookup, windowClass, "setUValue", double.class));
+        windowSetSolarHeatGainCoefficient = voidResult(optionalVirtual(lookup, windowClass, "setSolarHeatGainCoefficient", double.class));
+        doorSetUValue = voidResult(optionalVirtual(lookup, doorClass, "setUValue", double.class));
+
+        treeNew = erase(lookup.unreflectConstructor(accessible(treeClass.getDeclaredConstructor())));
+        treeSetLocation = voidResult(virtual(lookup, treeClass, "setLocation", vector3Class));
+        treeSetPlantType = voidResult(optionalVirtual(lookup, treeClass, "setPlantType", int.class));
+
+        vector3New = erase(lookup.unreflectConstructor(vector3Class.getConstructor()));
+        vector3NewXYZ = erase(lookup.unreflectConstructor(vector3Class.getConstructor(double.class, double.class, double.class)));
+        vector3Set = voidResult(virtual(lookup, vector3Class, "set", double.class, double.class, double.class));
+        vector3GetX = virtual(lookup, vector3Class, "getX");
+        vector3GetY = virtual(lookup, vector3Class, "getY");
+        vector3GetZ = virtual(lookup, vector3Class, "getZ");
+        colorNew = erase(lookup.unreflectConstructor(colorClass.getConstructor(float.class, float.class, float.class, float.class)));
+    }
+
+    private static <T extends AccessibleObject> T accessible(T member) {
+        member.setAccessible(true);
+        return member;
+    }
+
+    /** Types référence ramenés à Object, pour des appels invokeExact génériques. */
+    private static MethodHandle erase(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+
+    /** Ignore la valeur de retour (ex. Vector3.set qui retourne this). */
+    private static MethodHandle voidResult(MethodHandle handle) {
+        return handle == null ? null : handle.asType(handle.type().changeReturnType(void.class));
+    }
+
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> owner, String name, Class<?>... parameterTypes)
+            throws ReflectiveOperationException {
+        Method method = owner.getMethod(name, parameterTypes);
+        return erase(lookup.unreflect(accessible(method)));
+    }
+
+    private static MethodHandle optionalVirtual(MethodHandles.Lookup lookup, Class<?> owner, String name, Class<?>... parameterTypes) {
+        try {
+            return virtual(lookup, owner, name, parameterTypes);
+        } catch (ReflectiveOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /** Champ déclaré dans owner ou l'une de ses superclasses, null si absent. */
+    private static Field findField(Class<?> owner, String name) {
+        for (Class<?> c = owner; c != null; c = c.getSuperclass()) {
+            try {
+                return accessible(c.getDeclaredField(name));
+            } catch (NoSuchFieldException ignored) { }
+        }
+        return null;
+    }
+
+    private static MethodHandle getter(MethodHandles.Lookup lookup, Class<?> owner, String name) {
+        Field field = findField(owner, name);
+        try {
+            return field != null ? erase(lookup.unreflectGetter(field)) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle setter(MethodHandles.Lookup lookup, Class<?> owner, String name) {
+        Field field = findField(owner, name);
+        try {
+            return field != null ? erase(lookup.unreflectSetter(field)) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /** Compte des appels vers Energy3D dans les mesures de l'export (aucun effet sans mesures). */
+    private void countCalls(int calls) {
+        if (metrics != null) metrics.countReflectiveCalls(calls);
+    }
+
+    /** Remonte l'exception levée par la cible telle quelle (pas d'InvocationTargetException). */
+    private static Exception propagate(Throwable t) {
+        if (t instanceof Error) throw (Error) t;
+        if (t instanceof Exception) return (Exception) t;
+        return new UndeclaredThrowableException(t);
+    }
+
+    // --- Scene ---
+
+    public Object newScene() throws Exception {
+        try {
+            countCalls(1);
+            return (Object) sceneNew.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void addToScene(Object scene, Object part, boolean redraw) throws Exception {
+        try {
+            countCalls(1);
+            sceneAdd.invokeExact(scene, part, redraw);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public Object getSceneInstance() throws Exception {
+        try {
+            countCalls(1);
+            return (Object) sceneInstanceGetter.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setSceneInstance(Object scene) throws Exception {
+        try {
+            countCalls(1);
+            sceneInstanceSetter.invokeExact(scene);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    // --- HousePart ---
+
+    @SuppressWarnings("unchecked")
+    public List<Object> getChildren(Object part) throws Exception {
+        try {
+            countCalls(1);
+            return (List<Object>) (Object) getChildren.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setContainer(Object part, Object container) throws Exception {
+        try {
+            countCalls(1);
+            setContainer.invokeExact(part, container);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void complete(Object part) throws Exception {
+        try {
+            countCalls(1);
+            complete.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void draw(Object part) throws Exception {
+        try {
+            countCalls(1);
+            draw.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public Object getAbsPoint(Object part, int index) throws Exception {
+        try {
+            countCalls(1);
+            return (Object) getAbsPoint.invokeExact(part, index);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public double getHeight(Object part) throws Exception {
+        try {
+            countCalls(1);
+            return (double) getHeight.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setColor(Object part, float r, float g, float b, float a) throws Exception {
+        try {
+            countCalls(2);
+            setColor.invokeExact(part, (Object) colorNew.invokeExact(r, g, b, a));
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    /**
+     * Fixe le type de texture par setTextureType(int), sinon par le champ textureType, puis appelle
+     * updateTextureAndColor() si disponible.
+     * @return false si ni la méthode ni le champ n'existent
+     */
+    public boolean setTextureType(Object part, int textureType) throws Exception {
+        try {
+            if (setTextureType != null) {
+                countCalls(1);
+                setTextureType.invokeExact(part, textureType);
+            } else if (textureTypeSetter != null) {
+                countCalls(1);
+                textureTypeSetter.invokeExact(part, textureType);
+            } else {
+                return false;
+            }
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+        if (updateTextureAndColor != null) {
+            try {
+                countCalls(1);
+                updateTextureAndColor.invokeExact(part);
+            } catch (Throwable ignored) { }
+        }
+        return true;
+    }
+
+    /** true si le type de texture est fixé par le champ (setTextureType absent du JAR). */
+    public boolean isTextureTypeSetThroughField() {
+        return setTextureType == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Object> getPoints(Object part) throws Exception {
+        if (pointsGetter == null) throw new NoSuchFieldException("points");
+        try {
+            countCalls(1);
+            return (List<Object>) (Object) pointsGetter.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setPoints(Object part, List<Object> points) throws Exception {
+        if (pointsSetter == null) throw new NoSuchFieldException("points");
+        try {
+            countCalls(1);
+            pointsSetter.invokeExact(part, (Object) points);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setFirstPointInserted(Object part, boolean value) throws Exception {
+        if (firstPointInsertedSetter == null) throw new NoSuchFieldException("firstPointInserted");
+        try {
+            countCalls(1);
+            firstPointInsertedSetter.invokeExact(part, value);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setDrawCompleted(Object part, boolean value) throws Exception {
+        if (drawCompletedSetter == null) throw new NoSuchFieldException("drawCompleted");
+        try {
+            countCalls(1);
+            drawCompletedSetter.invokeExact(part, value);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    /** Écrit le champ height (sans passer par setHeight, qui redessine). */
+    public void setHeightField(Object part, double value) throws Exception {
+        if (heightSetter == null) throw new NoSuchFieldException("height");
+        try {
+            countCalls(1);
+            heightSetter.invokeExact(part, value);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public long getId(Object part) throws Exception {
+        if (idGetter == null) throw new NoSuchFieldException("id");
+        try {
+            countCalls(1);
+            return (long) idGetter.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setId(Object part, long id) throws Exception {
+        if (idSetter == null) throw new NoSuchFieldException("id");
+        try {
+            countCalls(1);
+            idSetter.invokeExact(part, id);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setRoot(Object part, Object root) throws Exception {
+        if (rootSetter == null) throw new NoSuchFieldException("root");
+        try {
+            countCalls(1);
+            rootSetter.invokeExact(part, root);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public Object getChildrenField(Object part) throws Exception {
+        if (childrenGetter == null) throw new NoSuchFieldException("children");
+        try {
+            countCalls(1);
+            return (Object) childrenGetter.invokeExact(part);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setChildrenField(Object part, Object children) throws Exception {
+        if (childrenSetter == null) throw new NoSuchFieldException("children");
+        try {
+            countCalls(1);
+            childrenSetter.invokeExact(part, children);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    // --- Foundation ---
+
+    /** Foundation.connectWalls() ; sans effet si la méthode n'existe pas. */
+    public void connectFoundationWalls(Object foundation) throws Exception {
+        if (foundationConnectWalls == null) return;
+        try {
+            countCalls(1);
+            foundationConnectWalls.invokeExact(foundation);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    // --- Wall ---
+
+    public Object newWall() throws Exception {
+        try {
+            countCalls(1);
+            return (Object) wallNew.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setWallThickness(Object wall, double thickness) throws Exception {
+        try {
+            countCalls(1);
+            wallSetThickness.invokeExact(wall, thickness);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setWallHeight(Object wall, double height, boolean redraw) throws Exception {
+        try {
+            countCalls(1);
+            wallSetHeight.invokeExact(wall, height, redraw);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    /** Wall.setInterior(boolean) ; false si la méthode n'existe pas (ancienne version d'Energy3D). */
+    public boolean setWallInterior(Object wall, boolean interior) throws Exception {
+        if (wallSetInterior == null) return false;
+        try {
+            countCalls(1);
+            wallSetInterior.invokeExact(wall, interior);
+            return true;
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setWallUValue(Object wall, double uValue) throws Exception {
+        try {
+            countCalls(1);
+            wallSetUValue.invokeExact(wall, uValue);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setWallVolumetricHeatCapacity(Object wall, double value) throws Exception {
+        try {
+            countCalls(1);
+            wallSetVolumetricHeatCapacity.invokeExact(wall, value);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    // --- Window / Door ---
+
+    /** U-value d'une fenêtre ou d'une porte ; sans effet si la méthode n'existe pas. */
+    public void setOpeningUValue(Object opening, double uValue) throws Exception {
+        MethodHandle handle = doorClass.isInstance(opening) ? doorSetUValue : windowSetUValue;
+        if (handle == null || !(windowClass.isInstance(opening) || doorClass.isInstance(opening))) return;
+        try {
+            countCalls(1);
+            handle.invokeExact(opening, uValue);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    /** Facteur solaire d'une fenêtre ; sans effet pour une porte. */
+    public void setSolarHeatGainCoefficient(Object opening, double shgc) throws Exception {
+        if (windowSetSolarHeatGainCoefficient == null || !windowClass.isInstance(opening)) return;
+        try {
+            countCalls(1);
+            windowSetSolarHeatGainCoefficient.invokeExact(opening, shgc);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    // --- Tree ---
+
+    public Object newTree() throws Exception {
+        try {
+            countCalls(1);
+            return (Object) treeNew.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setTreeLocation(Object tree, Object location) throws Exception {
+        try {
+            countCalls(1);
+            treeSetLocation.invokeExact(tree, location);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    /** Tree.setPlantType(int) ; sans effet si la méthode n'existe pas. */
+    public void setTreePlantType(Object tree, int plantType) throws Exception {
+        if (treeSetPlantType == null) return;
+        try {
+            countCalls(1);
+            treeSetPlantType.invokeExact(tree, plantType);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    // --- Vector3 ---
+
+    public Object newVector3() throws Exception {
+        try {
+            countCalls(1);
+            return (Object) vector3New.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public Object newVector3(double x, double y, double z) throws Exception {
+        try {
+            countCalls(1);
+            return (Object) vector3NewXYZ.invokeExact(x, y, z);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void setVector3(Object vector, double x, double y, double z) throws Exception {
+        try {
+            countCalls(1);
+            vector3Set.invokeExact(vector, x, y, z);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public double getX(Object vector) throws Exception {
+        try {
+            countCalls(1);
+            return (double) vector3GetX.invokeExact(vector);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public double getY(Object vector) throws Exception {
+        try {
+            countCalls(1);
+            return (double) vector3GetY.invokeExact(vector);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public double getZ(Object vector) throws Exception {
+        try {
+            countCalls(1);
+            return (double) vector3GetZ.invokeExact(vector);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * ClassLoader des JARs Energy3D/Ardor3D (sans parent), capable de charger en parallèle
+ * (préchauffage, exports par lots) : verrou par nom de classe au lieu du verrou global.
+ * Les classes redirigées vers un stub du plugin ou patchées par ASM sont décrites une fois
+ * dans une table StubSource ; un index paquet → JARs, construit à la création, permet
+ * d'écarter immédiatement les classes absentes des JARs et de relire une classe dans le bon JAR ;
+ * les paquets de chaque JAR sont conservés dans le PatchedClassCache pour ne relire que les JARs modifiés.
+ */
+public class Energy3DJarClassLoader extends URLClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /** Traitement ASM appliqué à une classe avant sa définition. */
+    enum Patch {
+        NONE,
+        RENDER_STATE_SUPERCLASS,
+        SPHERE_SET_USER_DATA,
+        VECTOR3_IS_VALID,
+        MESH_SET_USER_DATA
+    }
+
+    /**
+     * Origine d'une classe redirigée : stub du plugin ou classe des JARs patchée, avec la classe
+     * à charger avant elle (superclasse/interface) et le libellé utilisé dans le log.
+     */
+    static final class StubSource {
+        final boolean fromPlugin;
+        final Patch patch;
+        final String prerequisite;
+        final String label;
+
+        StubSource(boolean fromPlugin, Patch patch, String prerequisite, String label) {
+            this.fromPlugin = fromPlugin;
+            this.patch = patch;
+            this.prerequisite = prerequisite;
+            this.label = label;
+        }
+    }
+
+    private static final Map<String, StubSource> STUBS;
+
+    static {
+        Map<String, StubSource> stubs = new HashMap<String, StubSource>();
+        // SceneHints avec setCastsShadows(boolean), SceneManager headless (évite MainPanel/OpenGL)
+        stubs.put("com.ardor3d.scenegraph.hint.SceneHints", new StubSource(true, Patch.NONE, null, "compat"));
+        stubs.put("org.concord.energy3d.scene.SceneManager", new StubSource(true, Patch.NONE, null, "stub headless"));
+        // Stubs locaux prioritaires sur les JARs (éviter VerifyError, méthodes manquantes) ;
+        // MaterialState/LightState compilés avec Object comme superclasse : corrigée en RenderState
+        stubs.put("com.ardor3d.renderer.state.MaterialState",
+                new StubSource(true, Patch.RENDER_STATE_SUPERCLASS, "com.ardor3d.renderer.state.RenderState", "stub"));
+        stubs.put("com.ardor3d.renderer.state.LightState",
+                new StubSource(true, Patch.RENDER_STATE_SUPERCLASS, "com.ardor3d.renderer.state.RenderState", "stub"));
+        stubs.put("com.ardor3d.extension.effect.bloom.BloomRenderPass",
+                new StubSource(true, Patch.NONE, "com.ardor3d.renderer.pass.Pass", "stub"));
+        stubs.put("com.ardor3d.image.util.ImageLoader",
+                new StubSource(true, Patch.NONE, "com.ardor3d.image.loader.ImageLoader", "stub"));
+        stubs.put("com.ardor3d.ui.text.BMText", new StubSource(true, Patch.NONE, "com.ardor3d.scenegraph.Node", "stub"));
+        stubs.put("com.ardor3d.scenegraph.hint.LightCombineMode", new StubSource(true, Patch.NONE, null, "stub"));
+        stubs.put("com.ardor3d.scenegraph.hint.PickingHint", new StubSource(true, Patch.NONE, null, "stub"));
+        stubs.put("com.ardor3d.scenegraph.hint.TextureCombineMode", new StubSource(true, Patch.NONE, null, "stub"));
+        stubs.put("org.concord.energy3d.util.SelectUtil", new StubSource(true, Patch.NONE, null, "stub"));
+        stubs.put("com.ardor3d.renderer.IndexMode", new StubSource(true, Patch.NONE, null, "stub"));
+        // energy3d.jar appelle des méthodes que cette Ardor3D n'a plus
+        stubs.put("com.ardor3d.scenegraph.shape.Sphere", new StubSource(false, Patch.SPHERE_SET_USER_DATA, null, "avec setUserData"));
+        stubs.put("com.ardor3d.math.Vector3", new StubSource(false, Patch.VECTOR3_IS_VALID, null, "avec isValid(ReadOnlyVector3)"));
+        stubs.put("com.ardor3d.scenegraph.Mesh", new StubSource(false, Patch.MESH_SET_USER_DATA, null, "avec setUserData"));
+        STUBS = Collections.unmodifiableMap(stubs);
+    }
+
+    private final ClassLoader pluginClassLoader;
+    private final PatchedClassCache patchCache;
+    private final PrintWriter logWriter;
+    /** Paquet → JARs qui en contiennent des classes (lecture seule après construction). */
+    private final Map<String, List<File>> packageJars;
+    /** true si toutes les URLs sont des JARs indexés : un paquet absent de l'index n'existe pas. */
+    private final boolean packageIndexComplete;
+
+    /**
+     * @param jarUrls JARs Energy3D, Ardor3D et dépendances, dans l'ordre de recherche
+     * @param pluginClassLoader ClassLoader du plugin, source des stubs
+     * @param patchCache cache disque des classes patchées (peut être null)
+     * @param logWriter PrintWriter pour écrire les logs (peut être null)
+     */
+    public Energy3DJarClassLoader(List<URL> jarUrls, ClassLoader pluginClassLoader,
+                                  PatchedClassCache patchCache, PrintWriter logWriter) {
+        // Pas de parent pour forcer le chargement depuis les JARs Energy3D
+        super(jarUrls.toArray(new URL[jarUrls.size()]), null);
+        this.pluginClassLoader = pluginClassLoader;
+        this.patchCache = patchCache;
+        this.logWriter = logWriter;
+        Map<String, List<File>> index = new HashMap<String, List<File>>();
+        Map<File, Collection<String>> scanned = new LinkedHashMap<File, Collection<String>>();
+        boolean complete = true;
+        for (URL url : jarUrls) {
+            try {
+                File jar = "file".equals(url.getProtocol()) ? new File(url.toURI()) : null;
+                if (jar == null || !jar.isFile()) {
+                    complete = false;
+                    continue;
+                }
+                // Paquets relus du cache tant que le JAR n'a changé ni de taille ni de date
+                Collection<String> jarPackages = patchCache != null ? patchCache.getPackages(jar) : null;
+                if (jarPackages == null) {
+                    jarPackages = readPackages(jar);
+                    scanned.put(jar, jarPackages);
+                }
+                for (String packageName : jarPackages) {
+                    List<File> jars = index.get(packageName);
+                    if (jars == null) {
+                        jars = new ArrayList<File>(1);
+                        index.put(packageName, jars);
+                    }
+                    if (jars.isEmpty() || jars.get(jars.size() - 1) != jar) jars.add(jar);
+                }
+            } catch (Exception e) {
+                complete = false;
+            }
+        }
+        if (patchCache != null) {
+            patchCache.putPackages(scanned);
+        }
+        this.packageJars = index;
+        this.packageIndexComplete = complete;
+        if (logWriter != null) {
+            ExportLogger.info(logWriter, "Index paquets → JARs: " + index.size() + " paquet(s)" + (complete ? "" : " (index partiel)")
+                    + ", " + scanned.size() + "/" + jarUrls.size() + " JAR(s) parcouru(s)");
+        }
+    }
+
+    /** Paquets contenant des classes dans le JAR, d'après son répertoire central. */
+    private static Collection<String> readPackages(File jar) throws IOException {
+        Set<String> packages = new LinkedHashSet<String>();
+        try (JarFile jf = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jf.entries();
+            while (entries.hasMoreElements()) {
+                String entryName = entries.nextElement().getName();
+                if (!entryName.endsWith(".class")) continue;
+                int slash = entryName.lastIndexOf('/');
+                packages.add(slash > 0 ? entryName.substring(0, slash).replace('/', '.') : "");
+            }
+        }
+        return packages;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        StubSource stub = STUBS.get(name);
+        if (stub != null) {
+            Class<?> c = defineStub(name, stub);
+            if (c != null) return c;
+            // Si échec, on laisse tomber vers le super.findClass (comportement par défaut)
+        }
+        if (packageIndexComplete && !packageJars.containsKey(packageOf(name))) {
+            throw new ClassNotFoundException(name);
+        }
+        return super.findClass(name);
+    }
+
+    private Class<?> defineStub(String name, StubSource stub) {
+        try {
+            // Charger la superclasse/interface AVANT de définir le stub
+            if (stub.prerequisite != null) {
+                loadClass(stub.prerequisite);
+            }
+            long patchStart = stub.patch != Patch.NONE ? ExportFlightRecorder.patchStart() : 0L;
+            if (stub.patch != Patch.NONE) {
+                Class<?> cached = defineFromPatchCache(name, stub.patch, patchStart);
+                if (cached != null) return cached;
+            }
+            byte[] classBytes = stub.fromPlugin ? readPluginStub(name) : readFromJars(name);
+            if (classBytes == null) {
+                if (logWriter != null) {
+                    ExportLogger.warn(logWriter, "  ⚠ " + name + " (" + stub.label + ") introuvable");
+                }
+                return null;
+            }
+            if (stub.patch != Patch.NONE) {
+                classBytes = applyPatch(stub.patch, classBytes);
+                if (patchCache != null) patchCache.put(name, classBytes);
+            }
+            Class<?> c = defineClass(name, classBytes, 0, classBytes.length);
+            resolveClass(c);
+            if (stub.patch != Patch.NONE) {
+                ExportFlightRecorder.classPatched(name, stub.patch.name(), false, classBytes.length, patchStart);
+            }
+            if (logWriter != null) {
+                ExportLogger.info(logWriter, "  " + name + " (" + stub.label + ") défini via jarOnlyClassLoader");
+            }
+            return c;
+        } catch (Exception e) {
+            if (logWriter != null) {
+                ExportLogger.error(logWriter, "  ✗ ERREUR lors de la définition de " + name + " (" + stub.label + "): " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private byte[] applyPatch(Patch patch, byte[] classBytes) {
+        switch (patch) {
+            case RENDER_STATE_SUPERCLASS:
+                return Energy3DClassLoader.fixStubSuperclass(classBytes, "java/lang/Object",
+                        "com/ardor3d/renderer/state/RenderState", logWriter);
+            case SPHERE_SET_USER_DATA:
+                return Energy3DClassLoader.addSetUserDataToSphere(classBytes, logWriter);
+            case VECTOR3_IS_VALID:
+                return Energy3DClassLoader.addIsValidToVector3(classBytes, logWriter);
+            case MESH_SET_USER_DATA:
+                return Energy3DClassLoader.addSetUserDataToMesh(classBytes, logWriter);
+            default:
+                return classBytes;
+        }
+    }
+
+    /** Définit la classe depuis les octets patchés en cache (mappés en mémoire), ou retourne null. */
+    private Class<?> defineFromPatchCache(String name, Patch patch, long patchStart) {
+        java.nio.ByteBuffer cached = patchCache != null ? patchCache.get(name) : null;
+        if (cached == null) return null;
+        try {
+            int classSize = cached.remaining();
+            Class<?> c = defineClass(name, cached, (java.security.ProtectionDomain) null);
+            resolveClass(c);
+            ExportFlightRecorder.classPatched(name, patch.name(), true, classSize, patchStart);
+            if (logWriter != null) {
+                ExportLogger.info(logWriter, "  " + name + " (patché) défini depuis le cache disque");
+            }
+            return c;
+        } catch (ClassFormatError e) {
+            // Fichier de cache corrompu : on repatche depuis le JAR
+            return null;
+        }
+    }
+
+    /** Octets du stub dans le plugin, avec fallback sur l'espace de noms com/ardor3d_removed. */
+    private byte[] readPluginStub(String name) throws IOException {
+        String resourcePath = name.replace('.', '/') + ".class";
+        InputStream is = pluginClassLoader.getResourceAsStream(resourcePath);
+        if (is == null) {
+            is = pluginClassLoader.getResourceAsStream(resourcePath.replace("com/ardor3d/", "com/ardor3d_removed/"));
+        }
+        return is != null ? readFully(is) : null;
+    }
+
+    /**
+     * Octets de la classe dans les JARs : ressource du ClassLoader, sinon lecture directe dans les JARs
+     * du paquet (le JAR mémorisé par le cache d'abord).
+     */
+    private byte[] readFromJars(String name) throws IOException {
+        String resourcePath = name.replace('.', '/') + ".class";
+        InputStream is = getResourceAsStream(resourcePath);
+        if (is != null) return readFully(is);
+        List<File> candidates = new ArrayList<File>();
+        List<File> jars = packageJars.get(packageOf(name));
+        if (jars != null) candidates.addAll(jars);
+        String indexedJar = patchCache != null ? patchCache.getJarFor(resourcePath) : null;
+        if (indexedJar != null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (candidates.get(i).getName().equals(indexedJar)) {
+                    candidates.add(0, candidates.remove(i));
+                    break;
+                }
+            }
+        }
+        for (File jar : candidates) {
+            try (JarFile jf = new JarFile(jar)) {
+                JarEntry entry = jf.getJarEntry(resourcePath);
+                if (entry == null) continue;
+                byte[] classBytes = readFully(jf.getInputStream(entry));
+                if (patchCache != null) patchCache.putJarFor(resourcePath, jar.getName());
+                if (logWriter != null) {
+                    ExportLogger.info(logWriter, "  " + resourcePath + " lu depuis: " + jar.getName());
+                }
+                return classBytes;
+            } catch (IOException ignored) { }
+        }
+        return null;
+    }
+
+    /** Lit tout le flux dans un tableau dimensionné d'après available() (taille de l'entrée ou du fichier). */
+    private static byte[] readFully(InputStream is) throws IOException {
+        try {
+            byte[] bytes = new byte[Math.max(is.available(), 8192)];
+            int length = 0;
+            int n;
+            while ((n = is.read(bytes, length, bytes.length - length)) != -1) {
+                length += n;
+                if (length == bytes.length) {
+                    int next = is.read();
+                    if (next == -1) break;
+                    bytes = java.util.Arrays.copyOf(bytes, bytes.length * 2);
+                    bytes[length++] = (byte) next;
+                }
+            }
+            return length == bytes.length ? bytes : java.util.Arrays.copyOf(bytes, length);
+        } finally {
+            is.close();
+        }
+    }
+
+    private static String packageOf(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot > 0 ? className.substring(0, dot) : "";
+    }
+}
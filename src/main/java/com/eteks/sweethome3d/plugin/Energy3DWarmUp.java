@@ -0,0 +1,160 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Préchauffage d'Energy3D en arrière-plan dès le chargement du plugin : création du ClassLoader
+ * (recherche des JARs, patchs ASM), préchargement des classes Ardor3D, initialisation des classes
+ * Scene, Foundation, Wall, Window, Door et Tree, résolution des handles et stub Heliodon.
+ * Le premier export n'a plus qu'à attendre la fin du préchauffage (getReadiness).
+ */
+public class Energy3DWarmUp {
+
+    /** Classes Ardor3D préchargées avant les classes Energy3D (mêmes classes que PlanExporter). */
+    private static final String[] ARDOR3D_CLASSES = {
+        "com.ardor3d.renderer.state.RenderState",
+        "com.ardor3d.renderer.state.OffsetState",
+        "com.ardor3d.renderer.state.OffsetState$OffsetType",
+        "com.ardor3d.renderer.state.BlendState",
+        "com.ardor3d.renderer.state.TextureState",
+        "com.ardor3d.renderer.state.LightState",
+        "com.ardor3d.extension.effect.bloom.BloomRenderPass",
+        "com.ardor3d.image.util.ImageLoader"
+    };
+
+    /** Classes Energy3D initialisées (blocs statiques exécutés) pendant le préchauffage. */
+    private static final String[] ENERGY3D_CLASSES = {
+        "org.concord.energy3d.scene.Scene",
+        "org.concord.energy3d.model.Foundation",
+        "org.concord.energy3d.model.Wall",
+        "org.concord.energy3d.model.Window",
+        "org.concord.energy3d.model.Door",
+        "org.concord.energy3d.model.Tree"
+    };
+
+    private static CompletableFuture<ClassLoader> readiness = null;
+    private static final StringWriter transcript = new StringWriter();
+
+    /**
+     * Lance le préchauffage sur un thread démon s'il n'est pas déjà lancé.
+     * @return le futur de disponibilité (ClassLoader Energy3D prêt)
+     */
+    public static synchronized CompletableFuture<ClassLoader> start() {
+        if (readiness == null) {
+            final CompletableFuture<ClassLoader> future = new CompletableFuture<ClassLoader>();
+            readiness = future;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(warmUp());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            }, "SweetEnergy3D-warmup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+        return readiness;
+    }
+
+    /**
+     * Futur de disponibilité, ou null si le préchauffage n'a pas été lancé (export en ligne de commande).
+     */
+    public static synchronized CompletableFuture<ClassLoader> getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Attend la fin du préchauffage s'il a été lancé. Un échec n'est pas propagé : l'export refait
+     * alors les étapes lui-même et trace l'erreur dans son log.
+     * @throws CancellationException si le moniteur demande l'annulation pendant l'attente
+     */
+    public static void awaitReady(ExportMonitor monitor) throws InterruptedException {
+        CompletableFuture<ClassLoader> future = getReadiness();
+        if (future == null) return;
+        while (true) {
+            if (monitor.isCancelled()) {
+                throw new CancellationException("Export Energy3D annulé");
+            }
+            try {
+                future.get(200, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // Vérifier l'annulation puis attendre encore
+            } catch (ExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Trace du préchauffage (vide s'il n'a pas été lancé), à recopier dans le log de l'export.
+     */
+    public static String getTranscript() {
+        synchronized (transcript) {
+            return transcript.toString();
+        }
+    }
+
+    private static ClassLoader warmUp() throws ClassNotFoundException {
+        long start = System.nanoTime();
+        PrintWriter logWriter = new PrintWriter(new SynchronizedWriter());
+        ExportLogger.info(logWriter, "=== PRECHAUFFAGE ENERGY3D ===");
+        ClassLoader energy3dLoader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
+        if (energy3dLoader == null) {
+            ExportLogger.error(logWriter, "✗ ClassLoader Energy3D non créé");
+            throw new ClassNotFoundException("ClassLoader Energy3D non disponible");
+        }
+        for (String className : ARDOR3D_CLASSES) {
+            try {
+                energy3dLoader.loadClass(className);
+            } catch (Throwable t) {
+                ExportLogger.warn(logWriter, "⚠ " + className + " non préchargé: " + t.getMessage());
+            }
+        }
+        for (String className : ENERGY3D_CLASSES) {
+            try {
+                Class.forName(className, true, energy3dLoader);
+                ExportLogger.info(logWriter, "✓ " + className + " initialisé");
+            } catch (Throwable t) {
+                ExportLogger.warn(logWriter, "⚠ " + className + " non initialisé: " + t);
+            }
+        }
+        try {
+            Energy3DHandles.get(energy3dLoader);
+            ExportLogger.info(logWriter, "✓ Handles Energy3D résolus");
+        } catch (Throwable t) {
+            ExportLogger.warn(logWriter, "⚠ Handles Energy3D non résolus: " + t);
+        }
+        PlanExporter.initializeHeliodonStub(logWriter);
+        ExportLogger.info(logWriter, "✓ Préchauffage terminé en " + (System.nanoTime() - start) / 1000000 + " ms");
+        return energy3dLoader;
+    }
+
+    /** Écrit dans la trace partagée sous verrou (lue depuis le thread d'export). */
+    private static class SynchronizedWriter extends java.io.Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            synchronized (transcript) {
+                transcript.write(cbuf, off, len);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
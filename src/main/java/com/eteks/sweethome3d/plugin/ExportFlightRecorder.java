@@ -0,0 +1,83 @@
+package com.eteks.sweethome3d.plugin;
+
+/**
+ * Événements JDK Flight Recorder de l'export : étapes, HousePart créés et classes patchées.
+ * Les événements ne sont créés que pendant un enregistrement JFR ; hors enregistrement, ou sur un JRE
+ * sans jdk.jfr, chaque appel se réduit à la lecture d'un booléen. Les types jdk.jfr restent confinés
+ * dans ExportJfrEvents, chargée seulement si jdk.jfr est présent.
+ */
+public class ExportFlightRecorder {
+
+    private static final boolean AVAILABLE = isJfrAvailable();
+    /** true tant qu'au moins un enregistrement JFR est en cours (mis à jour par ExportJfrEvents). */
+    private static volatile boolean recording;
+
+    static {
+        if (AVAILABLE) {
+            try {
+                ExportJfrEvents.watchRecordings();
+            } catch (Throwable t) {
+                // JFR présent mais inutilisable (JVM sans support, sécurité) : événements désactivés
+            }
+        }
+    }
+
+    private ExportFlightRecorder() {
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder", false, ExportFlightRecorder.class.getClassLoader());
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    static void setRecording(boolean value) {
+        recording = value;
+    }
+
+    /** true si un enregistrement JFR est en cours dans cette JVM. */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /** Démarre l'événement d'une étape d'export, ou retourne null hors enregistrement. */
+    static Object beginStage(ExportMetrics.Stage stage) {
+        return recording ? ExportJfrEvents.beginStage(stage.name()) : null;
+    }
+
+    /** Termine l'événement retourné par beginStage (null accepté). */
+    static void endStage(Object stageEvent) {
+        if (stageEvent != null) {
+            ExportJfrEvents.endStage(stageEvent);
+        }
+    }
+
+    /** Début de conversion d'un élément (System.nanoTime), ou 0 hors enregistrement. */
+    static long partStart() {
+        return recording ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Signale un HousePart Energy3D créé depuis l'objet SH3D d'identifiant sh3dId, converti depuis partStart.
+     */
+    static void partConverted(String partType, String sh3dId, long partStart) {
+        if (partStart != 0L && recording) {
+            ExportJfrEvents.partConverted(partType, sh3dId, System.nanoTime() - partStart);
+        }
+    }
+
+    /** Début d'une définition de classe patchée, ou 0 hors enregistrement. */
+    static long patchStart() {
+        return recording ? System.nanoTime() : 0L;
+    }
+
+    /** Signale une classe Energy3D/Ardor3D patchée par ASM ou relue depuis le cache disque. */
+    static void classPatched(String className, String patch, boolean fromCache, int classSize, long patchStart) {
+        if (patchStart != 0L && recording) {
+            ExportJfrEvents.classPatched(className, patch, fromCache, classSize, System.nanoTime() - patchStart);
+        }
+    }
+}
@@ -0,0 +1,748 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Représentation intermédiaire de l'export, entre le plan SH3D et les HousePart Energy3D : fondation, segments
+ * de murs (points (u, v, z) relatifs à la fondation, épaisseur, hauteur, extérieur/intérieur), ouvertures en
+ * fractions du mur, arbres et buissons, rangés dans des tableaux de primitifs qui ne changent plus une fois extraits.
+ * Les méthodes extract* ne lisent que le modèle SH3D, sans Energy3D ni journal : elles peuvent tourner hors du
+ * thread de l'export. PlanExporter assemble ensuite les HousePart en recopiant ces valeurs via Energy3DHandles.
+ * Seul le repère de la fondation (Frame) est relu sur la fondation Energy3D une fois créée, comme avant.
+ * Les murs (ouvertures comprises) et les buissons sont extraits par plages sur le ForkJoinPool commun ; les plages
+ * sont concaténées dans l'ordre des groupes, le résultat est donc identique à une extraction séquentielle.
+ * -Dsweetenergy3d.parallelExtraction=false garde toute l'extraction sur le thread de l'export.
+ */
+public final class ExportGeometry {
+
+    public static final String PARALLEL_PROPERTY = "sweetenergy3d.parallelExtraction";
+    /** Groupes de murs ou meubles par tâche : en dessous, découper coûte plus que le calcul lui-même. */
+    private static final int CHUNK_SIZE = 64;
+
+    /** Grille des extrémités de murs en unités Energy3D (~0,1 mm) : sommets partagés identiques pour connectWithOtherWalls. */
+    private static final double XY_SNAP = 1e-4;
+    /** Grille des (u, v) : absorbe les erreurs flottantes (Util.isEqual ~ 1e-7) en restant précise pour un périmètre ~80u. */
+    private static final double UV_SNAP = 1e-5;
+
+    private ExportGeometry() {
+    }
+
+    /** X absolu Energy3D (unités) d'une abscisse SH3D en cm. */
+    static double toEnergy3DX(double xCm, double originX) {
+        double x = (xCm - originX) * PlanExporter.SCALE_CM_TO_ENERGY3D;
+        return PlanExporter.MIRROR_FLIP_X ? -x : x;
+    }
+
+    /** Y absolu Energy3D (unités) d'une ordonnée SH3D en cm. */
+    static double toEnergy3DY(double yCm, double originY) {
+        double y = (yCm - originY) * PlanExporter.SCALE_CM_TO_ENERGY3D;
+        return PlanExporter.ROTATE_180_Z ? -y : y;
+    }
+
+    private static double snap(double value, double grid) {
+        return Math.round(value / grid) * grid;
+    }
+
+    /**
+     * Extraction d'une plage [from, to[ d'éléments : coupée en deux tant qu'elle dépasse CHUNK_SIZE,
+     * les résultats des deux moitiés étant concaténés dans l'ordre.
+     */
+    private abstract static class RangeTask<T> extends RecursiveTask<T> {
+        final int from;
+        final int to;
+
+        RangeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        abstract T extract(int from, int to);
+
+        abstract RangeTask<T> split(int from, int to);
+
+        /** Résultat de first suivi de celui de second. */
+        abstract T concat(T first, T second);
+
+        @Override
+        protected T compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return extract(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<T> first = split(from, middle);
+            first.fork();
+            T second = split(middle, to).compute();
+            return concat(first.join(), second);
+        }
+
+        /** Exécute la tâche sur le ForkJoinPool commun, ou directement si la plage est petite ou le parallélisme désactivé. */
+        T run() {
+            if (to - from <= CHUNK_SIZE || "false".equalsIgnoreCase(System.getProperty(PARALLEL_PROPERTY))) {
+                return extract(from, to);
+            }
+            return ForkJoinPool.commonPool().invoke(this);
+        }
+    }
+
+    /** Fondation : rectangle englobant de la pièce terrain, en unités Energy3D, centre relatif à l'origine du plan. */
+    public static final class Foundation {
+        public final double width;
+        public final double height;
+        public final double centerX;
+        public final double centerY;
+
+        Foundation(double width, double height, double centerX, double centerY) {
+            this.width = width;
+            this.height = height;
+            this.centerX = centerX;
+            this.centerY = centerY;
+        }
+    }
+
+    /**
+     * Rectangle englobant des points de la pièce.
+     * @return null si la pièce a moins de 2 points ou un rectangle vide
+     */
+    public static Foundation extractFoundation(Room room, double originX, double originY) {
+        float[][] pts = room.getPoints();
+        if (pts == null || pts.length < 2) return null;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = Double.MIN_VALUE, maxY = Double.MIN_VALUE;
+        for (int i = 0; i < pts.length; i++) {
+            double px = pts[i][0], py = pts[i][1];
+            minX = Math.min(minX, px);
+            minY = Math.min(minY, py);
+            maxX = Math.max(maxX, px);
+            maxY = Math.max(maxY, py);
+        }
+        double scale = PlanExporter.SCALE_CM_TO_ENERGY3D;
+        double x0 = (minX - originX) * scale, y0 = (minY - originY) * scale, x1 = (maxX - originX) * scale, y1 = (maxY - originY) * scale;
+        if (PlanExporter.MIRROR_FLIP_X) { x0 = -x0; x1 = -x1; double t = x0; x0 = x1; x1 = t; }
+        if (PlanExporter.ROTATE_180_Z) { y0 = -y0; y1 = -y1; double t = y0; y0 = y1; y1 = t; }
+        double width = x1 - x0, height = y1 - y0;
+        if (width <= 0 || height <= 0) return null;
+        return new Foundation(width, height, 0.5 * (x0 + x1), 0.5 * (y0 + y1));
+    }
+
+    /**
+     * Repère de la fondation Energy3D : origine du plan SH3D, points absolus 0, 1 et 2 de la fondation
+     * (HousePart.toAbsolute : p0 + u*(p2-p0) + v*(p1-p0)) et épaisseur de la fondation.
+     */
+    public static final class Frame {
+        final double originX;
+        final double originY;
+        final double p0x, p0y, p1x, p1y, p2x, p2y;
+        final double height;
+
+        public Frame(double originX, double originY, double p0x, double p0y, double p1x, double p1y,
+                double p2x, double p2y, double height) {
+            this.originX = originX;
+            this.originY = originY;
+            this.p0x = p0x;
+            this.p0y = p0y;
+            this.p1x = p1x;
+            this.p1y = p1y;
+            this.p2x = p2x;
+            this.p2y = p2y;
+            this.height = height;
+        }
+
+        double x(double xCm) {
+            return toEnergy3DX(xCm, originX);
+        }
+
+        double y(double yCm) {
+            return toEnergy3DY(yCm, originY);
+        }
+
+        /** Coordonnée u (le long de p0 → p2) d'un point absolu. */
+        double u(double x, double y) {
+            return PlanExporter.projectPointOnLineScale(x, y, p0x, p0y, p2x, p2y);
+        }
+
+        /** Coordonnée v (le long de p0 → p1) d'un point absolu. */
+        double v(double x, double y) {
+            return PlanExporter.projectPointOnLineScale(x, y, p0x, p0y, p1x, p1y);
+        }
+    }
+
+    /**
+     * Segments de murs (un par groupe de murs superposés) et leurs portes/fenêtres.
+     * Les ouvertures du segment i sont les indices openingStart[i] à openingStart[i + 1] - 1.
+     */
+    public static final class Walls {
+        public final int count;
+        /** 12 valeurs par segment : (u, v, z) des points Energy3D 0 à 3 (début bas, début haut, fin bas, fin haut). */
+        final double[] points;
+        final double[] thickness;
+        final double[] height;
+        final boolean[] exterior;
+        final double[] uValue;
+        final double[] heatCapacity;
+        /** Nombre de murs SH3D fusionnés dans le segment. */
+        final int[] merged;
+        /** Identifiant du mur SH3D représentatif. */
+        final String[] ids;
+        final int[] openingStart;
+        /** Ouvertures écartées par segment (mur SH3D de longueur nulle, mur Energy3D de hauteur nulle). */
+        final int[] openingsSkipped;
+        /** 4 valeurs par ouverture : début et fin le long du mur, bas et haut (fractions 0-1 du mur Energy3D). */
+        final double[] openingFractions;
+        /** Hauteur absolue de l'ouverture en unités. */
+        final double[] openingHeight;
+        final boolean[] door;
+        final String[] openingIds;
+
+        private Walls(WallsBuilder b) {
+            count = b.count;
+            points = Arrays.copyOf(b.points, count * 12);
+            thickness = Arrays.copyOf(b.thickness, count);
+            height = Arrays.copyOf(b.height, count);
+            exterior = Arrays.copyOf(b.exterior, count);
+            uValue = Arrays.copyOf(b.uValue, count);
+            heatCapacity = Arrays.copyOf(b.heatCapacity, count);
+            merged = Arrays.copyOf(b.merged, count);
+            ids = Arrays.copyOf(b.ids, count);
+            openingStart = Arrays.copyOf(b.openingStart, count + 1);
+            openingsSkipped = Arrays.copyOf(b.openingsSkipped, count);
+            int openings = b.openingCount;
+            openingFractions = Arrays.copyOf(b.openingFractions, openings * 4);
+            openingHeight = Arrays.copyOf(b.openingHeight, openings);
+            door = Arrays.copyOf(b.door, openings);
+            openingIds = Arrays.copyOf(b.openingIds, openings);
+        }
+
+        public int getOpeningCount() {
+            return openingStart[count];
+        }
+
+        /** Empreinte du segment i pour l'export incrémental : toutes les valeurs recopiées dans Energy3D. */
+        String key(int i) {
+            StringBuilder sb = new StringBuilder("Wall|").append(exterior[i]).append('|').append(thickness[i])
+                    .append('|').append(height[i]).append('|').append(uValue[i]).append('|').append(heatCapacity[i]);
+            for (int k = i * 12; k < i * 12 + 12; k++) {
+                sb.append('|').append(points[k]);
+            }
+            for (int j = openingStart[i]; j < openingStart[i + 1]; j++) {
+                sb.append("|o:").append(door[j]).append(',').append(openingHeight[j]);
+                for (int k = j * 4; k < j * 4 + 4; k++) {
+                    sb.append(',').append(openingFractions[k]);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Extrait les segments de murs dans l'ordre des groupes (groupes vides ignorés).
+     * @param exterior type extérieur/intérieur de chaque groupe
+     * @param openingsByWall ouvertures rattachées à chaque mur SH3D (OpeningWallIndex)
+     */
+    public static Walls extractWalls(List<List<Wall>> groups, boolean[] exterior, Map<Wall, List<HomeDoorOrWindow>> openingsByWall,
+            FurnitureIndex furnitureIndex, Level foundationLevel, Frame frame) {
+        return new Walls(new WallsTask(groups, exterior, openingsByWall, furnitureIndex, foundationLevel, frame, 0, groups.size()).run());
+    }
+
+    private static final class WallsTask extends RangeTask<WallsBuilder> {
+        private final List<List<Wall>> groups;
+        private final boolean[] exterior;
+        private final Map<Wall, List<HomeDoorOrWindow>> openingsByWall;
+        private final FurnitureIndex furnitureIndex;
+        private final Level foundationLevel;
+        private final Frame frame;
+
+        WallsTask(List<List<Wall>> groups, boolean[] exterior, Map<Wall, List<HomeDoorOrWindow>> openingsByWall,
+                FurnitureIndex furnitureIndex, Level foundationLevel, Frame frame, int from, int to) {
+            super(from, to);
+            this.groups = groups;
+            this.exterior = exterior;
+            this.openingsByWall = openingsByWall;
+            this.furnitureIndex = furnitureIndex;
+            this.foundationLevel = foundationLevel;
+            this.frame = frame;
+        }
+
+        @Override
+        WallsBuilder extract(int from, int to) {
+            WallsBuilder builder = new WallsBuilder(to - from);
+            for (int g = from; g < to; g++) {
+                List<Wall> group = groups.get(g);
+                if (!group.isEmpty()) {
+                    builder.addSegment(group, exterior[g], openingsByWall, furnitureIndex, foundationLevel, frame);
+                }
+            }
+            return builder;
+        }
+
+        @Override
+        RangeTask<WallsBuilder> split(int from, int to) {
+            return new WallsTask(groups, exterior, openingsByWall, furnitureIndex, foundationLevel, frame, from, to);
+        }
+
+        @Override
+        WallsBuilder concat(WallsBuilder first, WallsBuilder second) {
+            first.append(second);
+            return first;
+        }
+    }
+
+    /** Tableaux de Walls en construction, agrandis au besoin. */
+    private static final class WallsBuilder {
+        int count;
+        double[] points;
+        double[] thickness;
+        double[] height;
+        boolean[] exterior;
+        double[] uValue;
+        double[] heatCapacity;
+        int[] merged;
+        String[] ids;
+        int[] openingStart;
+        int[] openingsSkipped;
+        int openingCount;
+        double[] openingFractions = new double[64];
+        double[] openingHeight = new double[16];
+        boolean[] door = new boolean[16];
+        String[] openingIds = new String[16];
+
+        WallsBuilder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            points = new double[capacity * 12];
+            thickness = new double[capacity];
+            height = new double[capacity];
+            exterior = new boolean[capacity];
+            uValue = new double[capacity];
+            heatCapacity = new double[capacity];
+            merged = new int[capacity];
+            ids = new String[capacity];
+            openingStart = new int[capacity + 1];
+            openingsSkipped = new int[capacity];
+        }
+
+        private void ensureSegments(int segments) {
+            if (segments <= thickness.length) return;
+            int capacity = Math.max(segments, thickness.length * 2);
+            points = Arrays.copyOf(points, capacity * 12);
+            thickness = Arrays.copyOf(thickness, capacity);
+            height = Arrays.copyOf(height, capacity);
+            exterior = Arrays.copyOf(exterior, capacity);
+            uValue = Arrays.copyOf(uValue, capacity);
+            heatCapacity = Arrays.copyOf(heatCapacity, capacity);
+            merged = Arrays.copyOf(merged, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            openingStart = Arrays.copyOf(openingStart, capacity + 1);
+            openingsSkipped = Arrays.copyOf(openingsSkipped, capacity);
+        }
+
+        private void ensureOpenings(int openings) {
+            if (openings <= openingHeight.length) return;
+            int capacity = Math.max(openings, openingHeight.length * 2);
+            openingFractions = Arrays.copyOf(openingFractions, capacity * 4);
+            openingHeight = Arrays.copyOf(openingHeight, capacity);
+            door = Arrays.copyOf(door, capacity);
+            openingIds = Arrays.copyOf(openingIds, capacity);
+        }
+
+        /** Ajoute à la suite les segments et ouvertures de other (plage suivante). */
+        void append(WallsBuilder other) {
+            ensureSegments(count + other.count);
+            ensureOpenings(openingCount + other.openingCount);
+            System.arraycopy(other.points, 0, points, count * 12, other.count * 12);
+            System.arraycopy(other.thickness, 0, thickness, count, other.count);
+            System.arraycopy(other.height, 0, height, count, other.count);
+            System.arraycopy(other.exterior, 0, exterior, count, other.count);
+            System.arraycopy(other.uValue, 0, uValue, count, other.count);
+            System.arraycopy(other.heatCapacity, 0, heatCapacity, count, other.count);
+            System.arraycopy(other.merged, 0, merged, count, other.count);
+            System.arraycopy(other.ids, 0, ids, count, other.count);
+            System.arraycopy(other.openingsSkipped, 0, openingsSkipped, count, other.count);
+            for (int i = 1; i <= other.count; i++) {
+                openingStart[count + i] = openingCount + other.openingStart[i];
+            }
+            System.arraycopy(other.openingFractions, 0, openingFractions, openingCount * 4, other.openingCount * 4);
+            System.arraycopy(other.openingHeight, 0, openingHeight, openingCount, other.openingCount);
+            System.arraycopy(other.door, 0, door, openingCount, other.openingCount);
+            System.arraycopy(other.openingIds, 0, openingIds, openingCount, other.openingCount);
+            count += other.count;
+            openingCount += other.openingCount;
+        }
+
+        void addSegment(List<Wall> group, boolean isExterior, Map<Wall, List<HomeDoorOrWindow>> openingsByWall,
+                FurnitureIndex furnitureIndex, Level foundationLevel, Frame frame) {
+            ensureSegments(count + 1);
+            Wall wall = group.get(0);
+            double foundationHeight = frame.height;
+            double overrideBaseZ = -1;
+            double overrideHeight = -1;
+            if (group.size() > 1) {
+                // Murs superposés : hauteur cumulée, base = niveau le plus bas
+                float foundationElev = foundationLevel != null ? foundationLevel.getElevation() : 0f;
+                float minElev = Float.MAX_VALUE;
+                double totalHeightCm = 0;
+                for (Wall w : group) {
+                    Level l = w.getLevel();
+                    if (l != null) minElev = Math.min(minElev, l.getElevation());
+                    Float h = w.getHeight();
+                    totalHeightCm += (h != null ? h.doubleValue() : 250.0);
+                }
+                if (minElev == Float.MAX_VALUE) minElev = foundationElev;
+                overrideBaseZ = foundationHeight + (minElev - foundationElev) * PlanExporter.SCALE_CM_TO_ENERGY3D;
+                overrideHeight = totalHeightCm * PlanExporter.SCALE_CM_TO_ENERGY3D;
+            }
+            double wallHeight;
+            double zBottom;
+            if (overrideHeight > 0) {
+                wallHeight = overrideHeight;
+                zBottom = overrideBaseZ > 0 ? overrideBaseZ : foundationHeight;
+            } else {
+                wallHeight = wall.getHeight() != null
+                    ? wall.getHeight().doubleValue() * PlanExporter.SCALE_CM_TO_ENERGY3D
+                    : (2.5 * PlanExporter.ENERGY3D_UNITS_PER_METER_EXPORT);
+                Level level = wall.getLevel();
+                if (foundationLevel != null && level != null) {
+                    zBottom = foundationHeight + (level.getElevation() - foundationLevel.getElevation()) * PlanExporter.SCALE_CM_TO_ENERGY3D;
+                } else {
+                    zBottom = foundationHeight;
+                }
+            }
+            double zTop = zBottom + wallHeight;
+
+            double xStart = snap(frame.x(wall.getXStart()), XY_SNAP);
+            double yStart = snap(frame.y(wall.getYStart()), XY_SNAP);
+            double xEnd = snap(frame.x(wall.getXEnd()), XY_SNAP);
+            double yEnd = snap(frame.y(wall.getYEnd()), XY_SNAP);
+            double uStart = snap(frame.u(xStart, yStart), UV_SNAP);
+            double vStart = snap(frame.v(xStart, yStart), UV_SNAP);
+            double uEnd = snap(frame.u(xEnd, yEnd), UV_SNAP);
+            double vEnd = snap(frame.v(xEnd, yEnd), UV_SNAP);
+            // Points 0=début bas, 1=début haut, 2=fin bas, 3=fin haut ; avec WALL_REVERSE_ORIENTATION, début et fin
+            // sont inversés pour que la face "avant" Energy3D soit l'extérieur SH3D
+            int p = count * 12;
+            if (PlanExporter.WALL_REVERSE_ORIENTATION) {
+                setQuad(points, p, uEnd, vEnd, uStart, vStart, zBottom, zTop);
+            } else {
+                setQuad(points, p, uStart, vStart, uEnd, vEnd, zBottom, zTop);
+            }
+            // Épaisseur : SH3D en cm → m → unités Energy3D (défaut 20 cm)
+            Float sh3dThickness = wall.getThickness();
+            double thicknessCm = sh3dThickness != null ? sh3dThickness.doubleValue() : 20.0;
+            thickness[count] = thicknessCm / 100.0 * PlanExporter.ENERGY3D_UNITS_PER_METER_EXPORT;
+            height[count] = wallHeight;
+            exterior[count] = isExterior;
+            WallConverter.Energy3DWallData data = WallConverter.convertToEnergy3D(wall);
+            uValue[count] = data.uValue;
+            heatCapacity[count] = data.volumetricHeatCapacity;
+            merged[count] = group.size();
+            ids[count] = wall.getId();
+
+            int skipped = 0;
+            for (Wall w : group) {
+                List<HomeDoorOrWindow> openings = openingsByWall.get(w);
+                if (openings == null) continue;
+                for (HomeDoorOrWindow piece : openings) {
+                    if (!addOpening(piece, w, furnitureIndex.isDoor(piece), zBottom, zTop, foundationHeight)) {
+                        skipped++;
+                    }
+                }
+            }
+            openingsSkipped[count] = skipped;
+            count++;
+            openingStart[count] = openingCount;
+        }
+
+        /**
+         * Ouverture sur le mur SH3D donné, en fractions du segment Energy3D (bas zBottom, haut zTop).
+         * @return false si le mur est de longueur ou de hauteur nulle
+         */
+        private boolean addOpening(HomeDoorOrWindow piece, Wall wall, boolean isDoor, double zBottom, double zTop, double foundationHeight) {
+            double xStartCm = wall.getXStart();
+            double yStartCm = wall.getYStart();
+            double xEndCm = wall.getXEnd();
+            double yEndCm = wall.getYEnd();
+            double wallLengthCm = Math.hypot(xEndCm - xStartCm, yEndCm - yStartCm);
+            if (wallLengthCm < 1e-6) return false;
+            double wallHeight = zTop - zBottom;
+            if (wallHeight < 1e-6) return false;
+
+            // Centre de l'ouverture projeté sur le mur SH3D → t ∈ [0,1]
+            double tCenter = PlanExporter.projectPointOnLineScale(piece.getX(), piece.getY(), xStartCm, yStartCm, xEndCm, yEndCm);
+            tCenter = Math.max(0, Math.min(1, tCenter));
+
+            // Dimensions (SH3D : getWidth/getHeight en cm ; getWallWidth/getWallHeight = fraction 0–1)
+            double wallHeightCm = wall.getHeight() != null ? wall.getHeight().doubleValue() : 250.0;
+            float ww = piece.getWallWidth();
+            float wh = piece.getWallHeight();
+            if (ww <= 0) ww = 1f;
+            if (wh <= 0) wh = 1f;
+            if (ww > 1f) ww = ww / 100f;
+            if (wh > 1f) wh = wh / 100f;
+            // Largeur plafonnée à 80 % du mur, hauteur à 85 % (évite les fenêtres démesurées)
+            double openingWidthCm = ww * piece.getWidth();
+            if (openingWidthCm > wallLengthCm * 0.8) openingWidthCm = wallLengthCm * 0.8;
+            if (openingWidthCm < 20 && piece.getWidth() > 20) openingWidthCm = Math.min(piece.getWidth(), wallLengthCm * 0.8);
+            double openingHeightCm = wh * piece.getHeight();
+            if (openingHeightCm > wallHeightCm * 0.85) openingHeightCm = wallHeightCm * 0.85;
+            if (openingHeightCm < 40 && piece.getHeight() > 40) openingHeightCm = Math.min(piece.getHeight(), wallHeightCm * 0.85);
+            double halfWidthParam = (openingWidthCm / 2.0) / wallLengthCm;
+            double tLeft = Math.max(0, tCenter - halfWidthParam);
+            double tRight = Math.min(1, tCenter + halfWidthParam);
+            // Energy3D attend des coordonnées relatives au mur (HousePart.toAbsolute), dans le sens de ses points
+            double sLeft = PlanExporter.WALL_REVERSE_ORIENTATION ? (1 - tRight) : tLeft;
+            double sRight = PlanExporter.WALL_REVERSE_ORIENTATION ? (1 - tLeft) : tRight;
+
+            double zBottomAbs = foundationHeight + piece.getGroundElevation() * PlanExporter.SCALE_CM_TO_ENERGY3D;
+            double zTopAbs = zBottomAbs + openingHeightCm * PlanExporter.SCALE_CM_TO_ENERGY3D;
+
+            ensureOpenings(openingCount + 1);
+            int f = openingCount * 4;
+            openingFractions[f] = sLeft;
+            openingFractions[f + 1] = sRight;
+            openingFractions[f + 2] = Math.max(0, Math.min(1, (zBottomAbs - zBottom) / wallHeight));
+            openingFractions[f + 3] = Math.max(0, Math.min(1, (zTopAbs - zBottom) / wallHeight));
+            openingHeight[openingCount] = zTopAbs - zBottomAbs;
+            door[openingCount] = isDoor;
+            openingIds[openingCount] = piece.getId();
+            openingCount++;
+            return true;
+        }
+    }
+
+    /** Points 0 à 3 d'un mur Energy3D (début bas, début haut, fin bas, fin haut) à partir de l'indice offset. */
+    private static void setQuad(double[] points, int offset, double uStart, double vStart, double uEnd, double vEnd,
+            double zBottom, double zTop) {
+        points[offset] = uStart;
+        points[offset + 1] = vStart;
+        points[offset + 2] = zBottom;
+        points[offset + 3] = uStart;
+        points[offset + 4] = vStart;
+        points[offset + 5] = zTop;
+        points[offset + 6] = uEnd;
+        points[offset + 7] = vEnd;
+        points[offset + 8] = zBottom;
+        points[offset + 9] = uEnd;
+        points[offset + 10] = vEnd;
+        points[offset + 11] = zTop;
+    }
+
+    /** Buissons d'un niveau, exportés en murs Energy3D à texture buisson. */
+    public static final class Hedges {
+        public final int count;
+        /** 12 valeurs par buisson : (u, v, z) des points Energy3D 0 à 3, comme Walls. */
+        final double[] points;
+        final double[] height;
+        final double[] thickness;
+        final String[] ids;
+        /** Meubles du niveau ignorés (portes/fenêtres et meubles qui ne sont pas des buissons). */
+        public final int ignored;
+        /** Noms des buissons écartés car hors fondation (entièrement ou en partie). */
+        final String[] outside;
+        final boolean[] partlyOutside;
+
+        private Hedges(int count, double[] points, double[] height, double[] thickness, String[] ids,
+                int ignored, String[] outside, boolean[] partlyOutside) {
+            this.count = count;
+            this.points = points;
+            this.height = height;
+            this.thickness = thickness;
+            this.ids = ids;
+            this.ignored = ignored;
+            this.outside = outside;
+            this.partlyOutside = partlyOutside;
+        }
+
+        /** Empreinte du buisson i pour l'export incrémental. */
+        String key(int i) {
+            StringBuilder sb = new StringBuilder("Bush|").append(height[i]).append('|').append(thickness[i]);
+            for (int k = i * 12; k < i * 12 + 12; k++) {
+                sb.append('|').append(points[k]);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Buissons parmi les meubles donnés (ceux d'un niveau) : segment de la longueur du meuble dans son orientation,
+     * dimensions bornées aux valeurs acceptées par Energy3D. Un buisson qui sort de la fondation est écarté, pas recalé.
+     */
+    public static Hedges extractHedges(List<HomePieceOfFurniture> furniture, FurnitureIndex furnitureIndex, Frame frame) {
+        return new HedgesTask(furniture, furnitureIndex, frame, 0, furniture.size()).run();
+    }
+
+    private static final class HedgesTask extends RangeTask<Hedges> {
+        private final List<HomePieceOfFurniture> furniture;
+        private final FurnitureIndex furnitureIndex;
+        private final Frame frame;
+
+        HedgesTask(List<HomePieceOfFurniture> furniture, FurnitureIndex furnitureIndex, Frame frame, int from, int to) {
+            super(from, to);
+            this.furniture = furniture;
+            this.furnitureIndex = furnitureIndex;
+            this.frame = frame;
+        }
+
+        @Override
+        Hedges extract(int from, int to) {
+            return extractHedgeRange(furniture.subList(from, to), furnitureIndex, frame);
+        }
+
+        @Override
+        RangeTask<Hedges> split(int from, int to) {
+            return new HedgesTask(furniture, furnitureIndex, frame, from, to);
+        }
+
+        @Override
+        Hedges concat(Hedges first, Hedges second) {
+            return new Hedges(first.count + second.count, concat(first.points, second.points), concat(first.height, second.height),
+                    concat(first.thickness, second.thickness), concat(first.ids, second.ids), first.ignored + second.ignored,
+                    concat(first.outside, second.outside), concat(first.partlyOutside, second.partlyOutside));
+        }
+
+        private static double[] concat(double[] first, double[] second) {
+            double[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+
+        private static boolean[] concat(boolean[] first, boolean[] second) {
+            boolean[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+
+        private static String[] concat(String[] first, String[] second) {
+            String[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+    }
+
+    private static Hedges extractHedgeRange(List<HomePieceOfFurniture> furniture, FurnitureIndex furnitureIndex, Frame frame) {
+        int capacity = Math.max(furniture.size(), 1);
+        double[] points = new double[capacity * 12];
+        double[] heights = new double[capacity];
+        double[] thicknesses = new double[capacity];
+        String[] ids = new String[capacity];
+        String[] outside = new String[capacity];
+        boolean[] partlyOutside = new boolean[capacity];
+        int count = 0;
+        int outsideCount = 0;
+        int ignored = 0;
+        double scale = PlanExporter.SCALE_CM_TO_ENERGY3D;
+        for (HomePieceOfFurniture piece : furniture) {
+            if (piece.isDoorOrWindow() || furnitureIndex.getKind(piece) != FurnitureIndex.Kind.BUSH) {
+                ignored++;
+                continue;
+            }
+            Float pieceHeight = piece.getHeight();
+            Float pieceWidth = piece.getWidth();
+            Float pieceDepth = piece.getDepth();
+            double heightCm = pieceHeight != null ? pieceHeight.doubleValue() : 100.0;
+            double widthCm = pieceWidth != null ? pieceWidth.doubleValue() : 50.0;
+            double depthCm = pieceDepth != null ? pieceDepth.doubleValue() : 50.0;
+
+            double heightUnits = heightCm * scale;
+            boolean lengthUsesWidthAxis = widthCm >= depthCm;
+            double lengthUnits = Math.max(widthCm, depthCm) * scale;
+            double thicknessUnits = Math.min(widthCm, depthCm) / 100.0 * PlanExporter.ENERGY3D_UNITS_PER_METER_EXPORT;
+            if (heightUnits < 2.5) heightUnits = 2.5;
+            if (lengthUnits < 2.5) lengthUnits = 2.5;
+            if (thicknessUnits < 0.75) thicknessUnits = 0.75;
+            if (heightUnits > 15.0) heightUnits = 15.0;
+            if (lengthUnits > 25.0) lengthUnits = 25.0;
+            if (thicknessUnits > 5.0) thicknessUnits = 5.0;
+
+            double xCm = piece.getX();
+            double yCm = piece.getY();
+            double xAbs = frame.x(xCm);
+            double yAbs = frame.y(yCm);
+            double uCenter = frame.u(xAbs, yAbs);
+            double vCenter = frame.v(xAbs, yAbs);
+            boolean centerOutside = uCenter < 0 || uCenter > 1 || vCenter < 0 || vCenter > 1;
+
+            // Si la longueur provient de depth (et non width), l'axe principal est perpendiculaire à l'angle du meuble
+            double orientedAngle = lengthUsesWidthAxis ? piece.getAngle() : (piece.getAngle() + Math.PI / 2.0);
+            double halfLenCm = (lengthUnits / scale) * 0.5;
+            double dxCm = Math.cos(orientedAngle) * halfLenCm;
+            double dyCm = Math.sin(orientedAngle) * halfLenCm;
+            double xStartAbs = frame.x(xCm - dxCm);
+            double yStartAbs = frame.y(yCm - dyCm);
+            double xEndAbs = frame.x(xCm + dxCm);
+            double yEndAbs = frame.y(yCm + dyCm);
+            double uStart = frame.u(xStartAbs, yStartAbs);
+            double vStart = frame.v(xStartAbs, yStartAbs);
+            double uEnd = frame.u(xEndAbs, yEndAbs);
+            double vEnd = frame.v(xEndAbs, yEndAbs);
+            if (centerOutside || uStart < 0 || uStart > 1 || vStart < 0 || vStart > 1
+                    || uEnd < 0 || uEnd > 1 || vEnd < 0 || vEnd > 1) {
+                outside[outsideCount] = piece.getName() != null ? piece.getName() : "(sans nom)";
+                partlyOutside[outsideCount] = !centerOutside;
+                outsideCount++;
+                continue;
+            }
+            setQuad(points, count * 12, snap(uStart, UV_SNAP), snap(vStart, UV_SNAP), snap(uEnd, UV_SNAP), snap(vEnd, UV_SNAP),
+                    frame.height, frame.height + heightUnits);
+            heights[count] = heightUnits;
+            thicknesses[count] = thicknessUnits;
+            ids[count] = piece.getId();
+            count++;
+        }
+        return new Hedges(count, Arrays.copyOf(points, count * 12), Arrays.copyOf(heights, count),
+                Arrays.copyOf(thicknesses, count), Arrays.copyOf(ids, count), ignored,
+                Arrays.copyOf(outside, outsideCount), Arrays.copyOf(partlyOutside, outsideCount));
+    }
+
+    /** Arbres : position absolue en unités Energy3D et type de plante. */
+    public static final class Plants {
+        public final int count;
+        /** 3 valeurs par arbre : (x, y, z) absolus. */
+        final double[] positions;
+        /** Type de plante Energy3D, ou -1 pour garder celui par défaut. */
+        final int[] plantType;
+        final String[] ids;
+
+        private Plants(int count, double[] positions, int[] plantType, String[] ids) {
+            this.count = count;
+            this.positions = positions;
+            this.plantType = plantType;
+            this.ids = ids;
+        }
+
+        /** Empreinte de l'arbre i pour l'export incrémental. */
+        String key(int i) {
+            return "Tree|" + positions[i * 3] + '|' + positions[i * 3 + 1] + '|' + positions[i * 3 + 2] + '|' + plantType[i];
+        }
+    }
+
+    /**
+     * Arbres aux emplacements des meubles donnés (déjà filtrés par l'appelant).
+     * @param level niveau des meubles, ou null pour prendre le niveau de chaque meuble (meubles sans niveau ignorés)
+     */
+    public static Plants extractPlants(List<HomePieceOfFurniture> trees, FurnitureIndex furnitureIndex, Level level,
+            double originX, double originY) {
+        int capacity = trees.size();
+        double[] positions = new double[capacity * 3];
+        int[] plantTypes = new int[capacity];
+        String[] ids = new String[capacity];
+        int count = 0;
+        for (HomePieceOfFurniture piece : trees) {
+            Level pieceLevel = level != null ? level : piece.getLevel();
+            if (pieceLevel == null) continue;
+            positions[count * 3] = toEnergy3DX(piece.getX(), originX);
+            positions[count * 3 + 1] = toEnergy3DY(piece.getY(), originY);
+            positions[count * 3 + 2] = (pieceLevel.getElevation() + piece.getElevation()) * PlanExporter.SCALE_CM_TO_ENERGY3D;
+            plantTypes[count] = furnitureIndex.getPlantType(piece);
+            ids[count] = piece.getId();
+            count++;
+        }
+        return new Plants(count, Arrays.copyOf(positions, count * 3), Arrays.copyOf(plantTypes, count), Arrays.copyOf(ids, count));
+    }
+}
@@ -0,0 +1,134 @@
+package com.eteks.sweethome3d.plugin;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Types d'événements JFR de SweetEnergy3D (catégorie "SweetEnergy3D" dans JDK Mission Control).
+ * Seul ExportFlightRecorder utilise cette classe, après avoir vérifié que jdk.jfr est disponible.
+ */
+final class ExportJfrEvents {
+
+    private ExportJfrEvents() {
+    }
+
+    @Name("com.eteks.sweethome3d.plugin.ExportStage")
+    @Label("Export Stage")
+    @Category({"SweetEnergy3D", "Export"})
+    @Description("Étape d'un export Energy3D (PlanExporter)")
+    static final class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+    }
+
+    @Name("com.eteks.sweethome3d.plugin.HousePartConverted")
+    @Label("HousePart Converted")
+    @Category({"SweetEnergy3D", "Export"})
+    @Description("HousePart Energy3D créé depuis un objet Sweet Home 3D")
+    static final class HousePartEvent extends Event {
+        @Label("Part Type")
+        String partType;
+        @Label("SH3D Id")
+        String sh3dId;
+        @Label("Conversion Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long conversionNanos;
+    }
+
+    @Name("com.eteks.sweethome3d.plugin.ClassPatched")
+    @Label("Class Patched")
+    @Category({"SweetEnergy3D", "Class Loading"})
+    @Description("Classe Energy3D/Ardor3D patchée par ASM ou relue depuis le cache disque")
+    @StackTrace(false)
+    static final class ClassPatchEvent extends Event {
+        @Label("Class Name")
+        String className;
+        @Label("Patch")
+        String patch;
+        @Label("From Cache")
+        boolean fromCache;
+        @Label("Class Size")
+        int classSize;
+        @Label("Define Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long defineNanos;
+    }
+
+    /**
+     * Suit le démarrage et l'arrêt des enregistrements sans initialiser JFR
+     * (un enregistrement lancé par -XX:StartFlightRecording est déjà en cours).
+     */
+    static void watchRecordings() {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                updateRecording(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                updateRecording(FlightRecorder.getFlightRecorder());
+            }
+        });
+        if (FlightRecorder.isInitialized()) {
+            updateRecording(FlightRecorder.getFlightRecorder());
+        }
+    }
+
+    private static void updateRecording(FlightRecorder recorder) {
+        boolean running = false;
+        for (Recording r : recorder.getRecordings()) {
+            if (r.getState() == RecordingState.RUNNING) {
+                running = true;
+                break;
+            }
+        }
+        ExportFlightRecorder.setRecording(running);
+    }
+
+    static Object beginStage(String stage) {
+        StageEvent event = new StageEvent();
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+
+    static void endStage(Object stageEvent) {
+        StageEvent event = (StageEvent) stageEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    static void partConverted(String partType, String sh3dId, long conversionNanos) {
+        HousePartEvent event = new HousePartEvent();
+        if (event.shouldCommit()) {
+            event.partType = partType;
+            event.sh3dId = sh3dId;
+            event.conversionNanos = conversionNanos;
+            event.commit();
+        }
+    }
+
+    static void classPatched(String className, String patch, boolean fromCache, int classSize, long defineNanos) {
+        ClassPatchEvent event = new ClassPatchEvent();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.patch = patch;
+            event.fromCache = fromCache;
+            event.classSize = classSize;
+            event.defineNanos = defineNanos;
+            event.commit();
+        }
+    }
+}
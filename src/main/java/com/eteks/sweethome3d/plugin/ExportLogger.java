@@ -0,0 +1,393 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Journal d'export asynchrone à niveaux : les lignes sont déposées dans un anneau sans verrou
+ * et écrites par lots par un thread dédié, si bien que le thread de l'export ne fait aucune entrée/sortie
+ * par ligne (flush() ne force plus d'écriture). Un seul descripteur de fichier par .log, partagé par
+ * les PrintWriter ouverts sur le même fichier (plugin et PlanExporter) et fermé avec le dernier.
+ * Les appels error/warn/info/debug donnent le niveau explicitement ; les messages DEBUG sont construits
+ * derrière isDebugEnabled, pour ne rien concaténer quand ce niveau est désactivé.
+ * Niveau par défaut INFO, modifiable par -Dsweetenergy3d.log.level=ERROR|WARN|INFO|DEBUG|TRACE.
+ */
+public class ExportLogger {
+
+    public enum Level {
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG,
+        TRACE
+    }
+
+    public static final String LEVEL_PROPERTY = "sweetenergy3d.log.level";
+
+    /** Taille de l'anneau (puissance de 2) ; un producteur attend si le thread d'écriture a ce retard. */
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+    /** Attente maximale du thread d'écriture quand l'anneau est vide. */
+    private static final long IDLE_PARK_NANOS = 20000000L;
+    /** Attente maximale de l'écriture des dernières lignes d'un journal fermé (aucune attente sur l'EDT). */
+    private static final long CLOSE_TIMEOUT_MS = 2000L;
+
+    /** Journaux ouverts ou en cours de fermeture, par fichier (un seul descripteur par fichier). */
+    private static final Map<File, ExportLogger> OPEN_LOGGERS = new HashMap<File, ExportLogger>();
+
+    private final File file;
+    private final Level threshold;
+    private final Writer out;
+    private final AtomicReferenceArray<String> ring = new AtomicReferenceArray<String>(CAPACITY);
+    /** Prochaine position réservée par un producteur. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Prochaine position lue par le thread d'écriture (seul à l'incrémenter). */
+    private volatile long head;
+    private volatile boolean closing;
+    private final Thread drainThread;
+    /** Références des PrintWriter ouverts (sous le verrou de OPEN_LOGGERS). */
+    private int references;
+
+    private ExportLogger(File file, boolean append, Level threshold) throws IOException {
+        this.file = file;
+        this.threshold = threshold;
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8), 65536);
+        this.drainThread = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "SweetEnergy3D-log");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    /**
+     * Ouvre un PrintWriter sur le journal du fichier donné (ouvert s'il ne l'est pas encore, sinon partagé).
+     * Les lignes sont classées par niveau d'après les conventions du log (voir LogLineWriter) ;
+     * close() libère la référence et, pour la dernière, écrit les lignes en attente et ferme le fichier.
+     *
+     * @param append false pour vider le fichier s'il n'est pas déjà ouvert
+     */
+    public static PrintWriter open(File logFile, boolean append) throws IOException {
+        return new LogPrintWriter(acquire(logFile, append));
+    }
+
+    private static ExportLogger acquire(File logFile, boolean append) throws IOException {
+        File key = logFile.getAbsoluteFile();
+        while (true) {
+            ExportLogger closingLogger;
+            synchronized (OPEN_LOGGERS) {
+                ExportLogger logger = OPEN_LOGGERS.get(key);
+                if (logger == null || !logger.closing) {
+                    if (logger == null) {
+                        logger = new ExportLogger(key, append, defaultLevel());
+                        OPEN_LOGGERS.put(key, logger);
+                    }
+                    logger.references++;
+                    return logger;
+                }
+                closingLogger = logger;
+            }
+            // Journal précédent encore en cours d'écriture : ne pas rouvrir le fichier avant qu'il soit fermé
+            closingLogger.awaitClosed(CLOSE_TIMEOUT_MS);
+            closingLogger.unregister();
+        }
+    }
+
+    private void unregister() {
+        synchronized (OPEN_LOGGERS) {
+            if (OPEN_LOGGERS.get(file) == this) {
+                OPEN_LOGGERS.remove(file);
+            }
+        }
+    }
+
+    /**
+     * Libère une référence ; la dernière demande au thread d'écriture de vider l'anneau et de fermer le fichier.
+     * Sur l'EDT, rien n'est attendu ; ailleurs, l'attente est bornée par CLOSE_TIMEOUT_MS.
+     */
+    private void release() {
+        synchronized (OPEN_LOGGERS) {
+            if (--references > 0) return;
+            closing = true;
+        }
+        LockSupport.unpark(drainThread);
+        if (!SwingUtilities.isEventDispatchThread()) {
+            awaitClosed(CLOSE_TIMEOUT_MS);
+        }
+    }
+
+    private void awaitClosed(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        boolean interrupted = false;
+        long remaining;
+        while (drainThread.isAlive() && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            try {
+                drainThread.join(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Level defaultLevel() {
+        String value = System.getProperty(LEVEL_PROPERTY);
+        if (value != null) {
+            try {
+                return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) { }
+        }
+        return Level.INFO;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(threshold) <= 0;
+    }
+
+    /**
+     * true si une ligne de ce niveau écrite sur writer serait journalisée (writer non null et, pour un journal
+     * ouvert par open, niveau actif). Un autre PrintWriter reçoit tous les niveaux.
+     */
+    public static boolean isEnabled(PrintWriter writer, Level level) {
+        if (writer instanceof LogPrintWriter) {
+            return ((LogPrintWriter) writer).logger.isEnabled(level);
+        }
+        return writer != null;
+    }
+
+    /** Garde des messages DEBUG : à tester avant de construire le message. */
+    public static boolean isDebugEnabled(PrintWriter writer) {
+        return isEnabled(writer, Level.DEBUG);
+    }
+
+    public static void error(PrintWriter writer, String message) {
+        log(writer, Level.ERROR, message);
+    }
+
+    public static void warn(PrintWriter writer, String message) {
+        log(writer, Level.WARN, message);
+    }
+
+    public static void info(PrintWriter writer, String message) {
+        log(writer, Level.INFO, message);
+    }
+
+    public static void debug(PrintWriter writer, String message) {
+        log(writer, Level.DEBUG, message);
+    }
+
+    /** Écrit le message (une ou plusieurs lignes) au niveau donné ; sans effet si writer est null. */
+    public static void log(PrintWriter writer, Level level, String message) {
+        if (writer instanceof LogPrintWriter) {
+            ((LogPrintWriter) writer).log(level, message);
+        } else if (writer != null) {
+            writer.println(message);
+        }
+    }
+
+    /**
+     * Dépose une ligne dans l'anneau (sans entrée/sortie) si son niveau est actif.
+     * Une ligne écrite sur un journal fermé ou en cours de fermeture est ignorée.
+     */
+    public void log(Level level, String line) {
+        if (!isEnabled(level) || closing) return;
+        long seq = tail.getAndIncrement();
+        while (seq - head >= CAPACITY) {
+            // Anneau plein : laisser le thread d'écriture rattraper son retard, sauf s'il est arrêté
+            if (!drainThread.isAlive()) return;
+            LockSupport.unpark(drainThread);
+            LockSupport.parkNanos(100000L);
+        }
+        ring.lazySet((int) (seq & MASK), line);
+    }
+
+    /** Thread d'écriture : vide l'anneau par lots et n'appelle flush() que lorsqu'il est vide. */
+    private void drain() {
+        boolean dirty = false;
+        try {
+            while (true) {
+                long position = head;
+                int index = (int) (position & MASK);
+                String line = ring.get(index);
+                if (line == null) {
+                    if (dirty) {
+                        out.flush();
+                        dirty = false;
+                    }
+                    // Position réservée mais pas encore publiée : attendre le producteur
+                    if (closing && position == tail.get()) break;
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                ring.lazySet(index, null);
+                head = position + 1;
+                out.write(line);
+                out.write(System.lineSeparator());
+                dirty = true;
+            }
+        } catch (IOException e) {
+            System.err.println("ERREUR écriture du log " + file + ": " + e.getMessage());
+            // Continuer à consommer pour ne pas bloquer les producteurs
+            while (!closing || head != tail.get()) {
+                int index = (int) (head & MASK);
+                if (ring.get(index) != null) {
+                    ring.lazySet(index, null);
+                    head = head + 1;
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) { }
+            unregister();
+        }
+    }
+
+    /** PrintWriter dont close() libère sa référence sur le journal (une seule fois). */
+    private static final class LogPrintWriter extends PrintWriter {
+        private final ExportLogger logger;
+        private final LogLineWriter lines;
+        private boolean released;
+
+        LogPrintWriter(ExportLogger logger) {
+            this(logger, new LogLineWriter(logger));
+        }
+
+        private LogPrintWriter(ExportLogger logger, LogLineWriter lines) {
+            super(lines, false);
+            this.logger = logger;
+            this.lines = lines;
+        }
+
+        /** Sans effet après close(), comme print/println. */
+        void log(Level level, String message) {
+            synchronized (lock) {
+                if (released) return;
+                lines.log(level, message);
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (lock) {
+                super.close();
+                if (released) return;
+                released = true;
+            }
+            logger.release();
+        }
+    }
+
+    /**
+     * Découpe le texte écrit par print/println en lignes et les classe selon les conventions du log de l'export
+     * (piles d'appels, transcriptions, messages sans niveau explicite) :
+     * ✗ / ERREUR / EXCEPTION → ERROR ; ⚠ / AVERTISSEMENT → WARN ; détail par élément (indentation d'au moins
+     * 4 espaces) → DEBUG ; le reste → INFO. Les lignes de pile d'appels gardent le niveau de la ligne qui les précède.
+     */
+    private static final class LogLineWriter extends Writer {
+        private final ExportLogger logger;
+        private final StringBuilder line = new StringBuilder(160);
+        private Level lastLevel = Level.INFO;
+
+        LogLineWriter(ExportLogger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    emitLine();
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    emitLine();
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+
+        /** Message de niveau explicite, après la ligne en cours éventuelle (pas de classement). */
+        void log(Level level, String message) {
+            if (line.length() > 0) {
+                emitLine();
+            }
+            lastLevel = level;
+            if (!logger.isEnabled(level)) return;
+            if (message.indexOf('\n') < 0) {
+                logger.log(level, message);
+            } else {
+                for (String part : message.split("\r?\n", -1)) {
+                    logger.log(level, part);
+                }
+            }
+        }
+
+        private void emitLine() {
+            String text = line.toString();
+            line.setLength(0);
+            Level level = classify(text);
+            lastLevel = level;
+            logger.log(level, text);
+        }
+
+        private Level classify(String text) {
+            int indent = 0;
+            while (indent < text.length() && text.charAt(indent) == ' ') indent++;
+            if (text.startsWith("\t") || text.startsWith("Caused by:", indent) || text.startsWith("...", indent)) {
+                return lastLevel;
+            }
+            if (text.contains("✗") || text.startsWith("ERREUR", indent) || text.startsWith("ERROR", indent)
+                    || text.contains("EXCEPTION")) {
+                return Level.ERROR;
+            }
+            if (text.contains("⚠") || text.startsWith("AVERTISSEMENT", indent)) {
+                return Level.WARN;
+            }
+            return indent >= 4 ? Level.DEBUG : Level.INFO;
+        }
+
+        /** Rien à forcer : l'écriture est faite par le thread du journal. */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (line.length() > 0) {
+                emitLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+/**
+ * Mesures d'un export Energy3D : durée de chaque étape (horloge monotone System.nanoTime),
+ * éléments Energy3D créés/ignorés par étape, appels réflexifs vers Energy3D et octets écrits.
+ * Écrites à côté du fichier exporté (plan.ng3.metrics.json) pour comparer les exports entre versions.
+ * Une instance est rattachée au thread de l'export : les fonctions internes de PlanExporter comptent
+ * via les méthodes statiques sans que les signatures changent ; les appels vers Energy3D sont comptés
+ * par l'Energy3DHandles de l'export (withMetrics), sans passer par le thread.
+ * Chaque étape est aussi un événement JFR pendant un enregistrement (ExportFlightRecorder).
+ */
+public class ExportMetrics {
+
+    /** Étapes mesurées, plus fines que celles d'ExportMonitor. */
+    public enum Stage {
+        VALIDATION,
+        CLASSLOADER,
+        FOUNDATION,
+        WALL_GROUPING,
+        WALL_CONVERSION,
+        OPENINGS,
+        TREES,
+        BUSHES,
+        TERRAIN3D,
+        CONNECT_WALLS,
+        /** Dessin de la fondation, ajout à la Scene et Scene.connectWalls. */
+        SCENE,
+        SERIALIZE,
+        VERIFY
+    }
+
+    private static final ThreadLocal<ExportMetrics> CURRENT = new ThreadLocal<ExportMetrics>();
+
+    private final long[] stageNanos = new long[Stage.values().length];
+    private final int[] partsCreated = new int[Stage.values().length];
+    private final int[] partsSkipped = new int[Stage.values().length];
+    private long reflectiveCalls;
+    private long bytesWritten;
+    private Stage currentStage;
+    private long stageStartNanos;
+    /** Événement JFR de l'étape en cours (null hors enregistrement). */
+    private Object stageEvent;
+    private long startNanos;
+    private long totalNanos;
+    private String status = "running";
+
+    /**
+     * Rattache les mesures au thread courant et démarre le chronomètre global
+     * (sans effet si elles y sont déjà rattachées, par exemple pendant l'attente du préchauffage).
+     */
+    void attach() {
+        if (CURRENT.get() == this) return;
+        startNanos = System.nanoTime();
+        CURRENT.set(this);
+    }
+
+    /** Termine l'étape en cours, fige la durée totale et détache les mesures du thread. */
+    void detach(String status) {
+        long now = System.nanoTime();
+        closeStage(now);
+        totalNanos = now - startNanos;
+        this.status = status;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /** Commence une étape (la précédente est close ; une étape reprise cumule ses durées). */
+    public void stage(Stage stage) {
+        long now = System.nanoTime();
+        closeStage(now);
+        currentStage = stage;
+        stageStartNanos = now;
+        stageEvent = ExportFlightRecorder.beginStage(stage);
+    }
+
+    private void closeStage(long now) {
+        if (currentStage != null) {
+            stageNanos[currentStage.ordinal()] += now - stageStartNanos;
+            currentStage = null;
+            ExportFlightRecorder.endStage(stageEvent);
+            stageEvent = null;
+        }
+    }
+
+    /** Appels (MethodHandle ou réflexion) effectués vers Energy3D, comptés par l'Energy3DHandles de l'export. */
+    void countReflectiveCalls(int calls) {
+        reflectiveCalls += calls;
+    }
+
+    public void addBytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public int getPartsCreated() {
+        int total = 0;
+        for (int n : partsCreated) total += n;
+        return total;
+    }
+
+    public int getPartsSkipped() {
+        int total = 0;
+        for (int n : partsSkipped) total += n;
+        return total;
+    }
+
+    public long getReflectiveCalls() {
+        return reflectiveCalls;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * "ok", "failed", "cancelled", "unchanged" (plan identique au dernier export, .ng3 conservé sans être réécrit)
+     * ou "running" tant que l'export n'est pas terminé.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    // --- Comptage depuis le thread de l'export (sans effet hors export) ---
+
+    /** Passe l'export du thread courant à l'étape donnée. */
+    static void enterStage(Stage stage) {
+        ExportMetrics metrics = CURRENT.get();
+        if (metrics != null) metrics.stage(stage);
+    }
+
+    /** Un élément Energy3D a été créé dans l'étape courante. */
+    static void countPartCreated() {
+        ExportMetrics metrics = CURRENT.get();
+        if (metrics != null && metrics.currentStage != null) metrics.partsCreated[metrics.currentStage.ordinal()]++;
+    }
+
+    /** Un élément SH3D n'a pas pu être converti (erreur, hors fondation...) dans l'étape courante. */
+    static void countPartSkipped() {
+        ExportMetrics metrics = CURRENT.get();
+        if (metrics != null && metrics.currentStage != null) metrics.partsSkipped[metrics.currentStage.ordinal()]++;
+    }
+
+
+    // --- Rapport ---
+
+    /** Rapport JSON : statut, durées et compteurs par étape, totaux. */
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("status", status);
+        json.addProperty("totalMs", toMillis(totalNanos));
+        JsonObject stages = new JsonObject();
+        for (Stage stage : Stage.values()) {
+            int i = stage.ordinal();
+            JsonObject stageJson = new JsonObject();
+            stageJson.addProperty("ms", toMillis(stageNanos[i]));
+            stageJson.addProperty("partsCreated", partsCreated[i]);
+            stageJson.addProperty("partsSkipped", partsSkipped[i]);
+            stages.add(stage.name().toLowerCase(java.util.Locale.ROOT), stageJson);
+        }
+        json.add("stages", stages);
+        json.addProperty("partsCreated", getPartsCreated());
+        json.addProperty("partsSkipped", getPartsSkipped());
+        json.addProperty("reflectiveCalls", reflectiveCalls);
+        json.addProperty("bytesWritten", bytesWritten);
+        return json;
+    }
+
+    /**
+     * Écrit le rapport à côté du fichier exporté (outputFile + ".metrics.json"), par fichier temporaire puis renommage.
+     * @return le fichier écrit, ou null en cas d'erreur
+     */
+    public File writeSidecar(File outputFile) {
+        File metricsFile = new File(outputFile.getParentFile(), outputFile.getName() + ".metrics.json");
+        try {
+            String json = new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+            File temp = File.createTempFile(metricsFile.getName(), ".tmp", metricsFile.getAbsoluteFile().getParentFile());
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(temp.toPath(), metricsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return metricsFile;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Étape la plus longue de l'export (pour la ligne de résumé affichée à l'utilisateur). */
+    public Stage getLongestStage() {
+        Stage longest = Stage.VALIDATION;
+        for (Stage stage : Stage.values()) {
+            if (stageNanos[stage.ordinal()] > stageNanos[longest.ordinal()]) longest = stage;
+        }
+        return longest;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+}
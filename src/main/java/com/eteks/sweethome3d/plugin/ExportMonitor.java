@@ -0,0 +1,34 @@
+package com.eteks.sweethome3d.plugin;
+
+/**
+ * Suivi d'un export Energy3D : étapes, avancement et annulation coopérative.
+ * Les méthodes sont appelées depuis le thread qui exécute l'export (pas forcément l'EDT).
+ */
+public interface ExportMonitor {
+
+    /** Étapes d'un export, dans l'ordre où PlanExporter les traverse. */
+    enum Stage {
+        CLASSLOADER,
+        FOUNDATION,
+        WALLS,
+        OPENINGS,
+        PLANTS,
+        SERIALIZE
+    }
+
+    /** Moniteur neutre (aucun suivi, jamais annulé). */
+    ExportMonitor NONE = new ExportMonitor() { };
+
+    /** Appelée au début de chaque étape. */
+    default void stageStarted(Stage stage) {
+    }
+
+    /** Avancement dans l'étape courante (done sur total éléments). */
+    default void progress(Stage stage, int done, int total) {
+    }
+
+    /** true si l'export doit s'arrêter au prochain point de contrôle. */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.eteks.sweethome3d.model.Home;
+
+/**
+ * Session d'export incrémental d'un plan : garde les HousePart Energy3D du dernier export réussi (murs avec
+ * leurs portes/fenêtres, arbres, buissons) indexés par l'empreinte des données SH3D qui les ont produits.
+ * À l'export suivant, une pièce dont l'empreinte n'a pas changé est rattachée telle quelle à la nouvelle
+ * fondation au lieu d'être reconstruite : le temps d'un nouvel export dépend de la modification, pas du plan.
+ * Toute la session est invalidée si la fondation (pièce, origine, niveau) ou le ClassLoader Energy3D change,
+ * ou si un export échoue ; un export annulé rend les pièces reprises et garde la session.
+ * Comme ExportMetrics, la session est rattachée au thread de l'export.
+ * Désactivable par -Dsweetenergy3d.incremental=false.
+ */
+public class ExportSession {
+
+    public static final String INCREMENTAL_PROPERTY = "sweetenergy3d.incremental";
+
+    private static final Map<Home, ExportSession> SESSIONS = new WeakHashMap<Home, ExportSession>();
+    private static final ThreadLocal<ExportSession> CURRENT = new ThreadLocal<ExportSession>();
+
+    private ClassLoader energy3dLoader;
+    private String foundationKey;
+    /** Pièces du dernier export réussi, par empreinte (plusieurs pièces peuvent partager une empreinte). */
+    private Map<String, List<Object>> previous = new HashMap<String, List<Object>>();
+    /** Pièces de l'export en cours, qui remplaceront previous s'il réussit. */
+    private Map<String, List<Object>> next;
+    /** Pièces reprises de previous par l'export en cours, rendues s'il est annulé. */
+    private Map<String, List<Object>> taken;
+    private int reused;
+    private int rebuilt;
+
+    private ExportSession() {
+    }
+
+    /**
+     * Session du plan donné (créée au premier export), ou null si l'export incrémental est désactivé.
+     * Le plan est celui de l'utilisateur, pas la copie exportée.
+     */
+    public static ExportSession forHome(Home home) {
+        if (home == null || "false".equalsIgnoreCase(System.getProperty(INCREMENTAL_PROPERTY))) {
+            return null;
+        }
+        synchronized (SESSIONS) {
+            ExportSession session = SESSIONS.get(home);
+            if (session == null) {
+                session = new ExportSession();
+                SESSIONS.put(home, session);
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Rattache la session au thread courant pour un export sur la fondation donnée.
+     * Les pièces gardées sont oubliées si la fondation ou le ClassLoader ont changé.
+     */
+    synchronized void attach(ClassLoader loader, String foundationKey) {
+        if (loader != energy3dLoader || !foundationKey.equals(this.foundationKey)) {
+            previous.clear();
+        }
+        energy3dLoader = loader;
+        this.foundationKey = foundationKey;
+        next = new HashMap<String, List<Object>>();
+        taken = new HashMap<String, List<Object>>();
+        reused = 0;
+        rebuilt = 0;
+        CURRENT.set(this);
+    }
+
+    /**
+     * Détache la session du thread : les pièces de cet export sont gardées s'il a réussi ("ok"),
+     * celles du dernier export réussi sont conservées s'il a été annulé ("cancelled") ou évité parce que le plan
+     * n'a pas changé ("unchanged"), sinon tout est oublié.
+     */
+    synchronized void detach(String status) {
+        if ("ok".equals(status) && next != null) {
+            previous = next;
+        } else if ("cancelled".equals(status) || "unchanged".equals(status)) {
+            // Pièces neuves peut-être incomplètes (ouvertures non posées) : seules les pièces reprises sont rendues
+            if (taken != null) {
+                for (Map.Entry<String, List<Object>> entry : taken.entrySet()) {
+                    for (Object part : entry.getValue()) {
+                        add(previous, entry.getKey(), part);
+                    }
+                }
+            }
+        } else {
+            previous = new HashMap<String, List<Object>>();
+            foundationKey = null;
+        }
+        next = null;
+        taken = null;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    public synchronized int getReusedCount() {
+        return reused;
+    }
+
+    public synchronized int getRebuiltCount() {
+        return rebuilt;
+    }
+
+    /** true si un export incrémental est en cours sur ce thread (les empreintes sont alors utiles). */
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Pièce Energy3D du dernier export pour cette empreinte (retirée de la session), ou null s'il faut la reconstruire.
+     */
+    static Object reuse(String fingerprint) {
+        ExportSession session = CURRENT.get();
+        if (session == null || fingerprint == null) return null;
+        synchronized (session) {
+            List<Object> parts = session.previous.get(fingerprint);
+            if (parts == null || parts.isEmpty()) {
+                session.rebuilt++;
+                return null;
+            }
+            session.reused++;
+            Object part = parts.remove(parts.size() - 1);
+            add(session.taken, fingerprint, part);
+            return part;
+        }
+    }
+
+    /** Garde la pièce (créée ou réutilisée) pour le prochain export. */
+    static void keep(String fingerprint, Object part) {
+        ExportSession session = CURRENT.get();
+        if (session == null || fingerprint == null || part == null) return;
+        synchronized (session) {
+            add(session.next, fingerprint, part);
+        }
+    }
+
+    private static void add(Map<String, List<Object>> parts, String fingerprint, Object part) {
+        List<Object> list = parts.get(fingerprint);
+        if (list == null) {
+            list = new ArrayList<Object>(1);
+            parts.put(fingerprint, list);
+        }
+        list.add(part);
+    }
+
+    /** Empreinte textuelle des valeurs données (type de pièce en tête), null hors export incrémental. */
+    static String fingerprint(String kind, Object... values) {
+        if (!isActive()) return null;
+        StringBuilder sb = new StringBuilder(kind);
+        for (Object value : values) {
+            sb.append('|').append(value);
+        }
+        return sb.toString();
+    }
+}
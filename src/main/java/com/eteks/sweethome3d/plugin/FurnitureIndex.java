@@ -0,0 +1,247 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomeFurnitureGroup;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+
+/**
+ * Index des meubles d'un plan construit en une passe pour un export : groupes aplatis,
+ * répartition par niveau et par type (porte, fenêtre, arbre, buisson, autre).
+ * La classification par nom (minuscules, mots-clés config.json via ConfigReader) est mémorisée par nom de meuble.
+ */
+public class FurnitureIndex {
+
+    /** Type d'un meuble pour l'export Energy3D. Un nom de buisson l'emporte sur un nom d'arbre. */
+    public enum Kind {
+        DOOR,
+        WINDOW,
+        TREE,
+        BUSH,
+        OTHER
+    }
+
+    /** Noms des plantes Energy3D (Tree.PLANTS) pour correspondance avec les meubles SH3D. */
+    private static final String[] ENERGY3D_PLANT_NAMES = new String[]{
+            "dogwood", "elm", "maple", "pine", "oak", "linden", "cottonwood"
+    };
+
+    /** Classement d'un nom de meuble, partagé par tous les meubles de même nom. */
+    private static final class NameClass {
+        final boolean door;
+        final boolean tree;
+        final boolean bush;
+        final int plantType;
+
+        NameClass(boolean door, boolean tree, boolean bush, int plantType) {
+            this.door = door;
+            this.tree = tree;
+            this.bush = bush;
+            this.plantType = plantType;
+        }
+    }
+
+    private static final NameClass UNNAMED = new NameClass(false, false, false, -1);
+
+    private final List<HomePieceOfFurniture> allFurniture;
+    private final List<HomeDoorOrWindow> doorsAndWindows = new ArrayList<HomeDoorOrWindow>();
+    private final Map<HomePieceOfFurniture, NameClass> classes = new IdentityHashMap<HomePieceOfFurniture, NameClass>();
+    private final Map<HomePieceOfFurniture, Kind> kinds = new IdentityHashMap<HomePieceOfFurniture, Kind>();
+    private final Map<Level, List<HomePieceOfFurniture>> byLevel = new HashMap<Level, List<HomePieceOfFurniture>>();
+    private final Map<Level, Map<Kind, List<HomePieceOfFurniture>>> byLevelAndKind = new HashMap<Level, Map<Kind, List<HomePieceOfFurniture>>>();
+    private final Map<Kind, List<HomePieceOfFurniture>> byKind = new EnumMap<Kind, List<HomePieceOfFurniture>>(Kind.class);
+
+    private FurnitureIndex(List<HomePieceOfFurniture> allFurniture) {
+        this.allFurniture = Collections.unmodifiableList(allFurniture);
+        Map<String, NameClass> classByName = new HashMap<String, NameClass>();
+        for (HomePieceOfFurniture piece : allFurniture) {
+            String name = piece.getName();
+            NameClass nameClass = UNNAMED;
+            if (name != null) {
+                nameClass = classByName.get(name);
+                if (nameClass == null) {
+                    nameClass = classifyName(name);
+                    classByName.put(name, nameClass);
+                }
+            }
+            classes.put(piece, nameClass);
+            Kind kind;
+            if (piece.isDoorOrWindow()) {
+                kind = piece instanceof HomeDoorOrWindow && nameClass.door ? Kind.DOOR : Kind.WINDOW;
+                if (piece instanceof HomeDoorOrWindow) doorsAndWindows.add((HomeDoorOrWindow) piece);
+            } else if (nameClass.bush) {
+                kind = Kind.BUSH;
+            } else if (nameClass.tree) {
+                kind = Kind.TREE;
+            } else {
+                kind = Kind.OTHER;
+            }
+            kinds.put(piece, kind);
+            Level level = piece.getLevel();
+            List<HomePieceOfFurniture> levelPieces = byLevel.get(level);
+            if (levelPieces == null) {
+                levelPieces = new ArrayList<HomePieceOfFurniture>();
+                byLevel.put(level, levelPieces);
+            }
+            levelPieces.add(piece);
+            Map<Kind, List<HomePieceOfFurniture>> levelKinds = byLevelAndKind.get(level);
+            if (levelKinds == null) {
+                levelKinds = new EnumMap<Kind, List<HomePieceOfFurniture>>(Kind.class);
+                byLevelAndKind.put(level, levelKinds);
+            }
+            addTo(levelKinds, kind, piece);
+            addTo(byKind, kind, piece);
+        }
+    }
+
+    /**
+     * Construit l'index des meubles du plan, y compris ceux à l'intérieur des groupes.
+     */
+    public static FurnitureIndex build(Home home) {
+        List<HomePieceOfFurniture> out = new ArrayList<HomePieceOfFurniture>();
+        List<HomePieceOfFurniture> furniture = home != null ? home.getFurniture() : null;
+        if (furniture != null) {
+            for (HomePieceOfFurniture piece : furniture) {
+                if (piece instanceof HomeFurnitureGroup) {
+                    out.addAll(((HomeFurnitureGroup) piece).getAllFurniture());
+                } else {
+                    out.add(piece);
+                }
+            }
+        }
+        return new FurnitureIndex(out);
+    }
+
+    private static void addTo(Map<Kind, List<HomePieceOfFurniture>> map, Kind kind, HomePieceOfFurniture piece) {
+        List<HomePieceOfFurniture> list = map.get(kind);
+        if (list == null) {
+            list = new ArrayList<HomePieceOfFurniture>();
+            map.put(kind, list);
+        }
+        list.add(piece);
+    }
+
+    /** Tous les meubles du plan (groupes aplatis), dans l'ordre du plan. */
+    public List<HomePieceOfFurniture> getAllFurniture() {
+        return allFurniture;
+    }
+
+    /** Nombre total de meubles (groupes aplatis). */
+    public int size() {
+        return allFurniture.size();
+    }
+
+    /** Portes et fenêtres (HomeDoorOrWindow) de tous les niveaux, dans l'ordre du plan. */
+    public List<HomeDoorOrWindow> getDoorsAndWindows() {
+        return Collections.unmodifiableList(doorsAndWindows);
+    }
+
+    /** Meubles du niveau donné, tous types confondus. */
+    public List<HomePieceOfFurniture> getFurniture(Level level) {
+        List<HomePieceOfFurniture> pieces = byLevel.get(level);
+        return pieces != null ? Collections.unmodifiableList(pieces) : Collections.<HomePieceOfFurniture>emptyList();
+    }
+
+    /** Meubles du niveau donné et du type donné. */
+    public List<HomePieceOfFurniture> getFurniture(Level level, Kind kind) {
+        Map<Kind, List<HomePieceOfFurniture>> levelKinds = byLevelAndKind.get(level);
+        List<HomePieceOfFurniture> pieces = levelKinds != null ? levelKinds.get(kind) : null;
+        return pieces != null ? Collections.unmodifiableList(pieces) : Collections.<HomePieceOfFurniture>emptyList();
+    }
+
+    /** Meubles du type donné, tous niveaux confondus. */
+    public List<HomePieceOfFurniture> getFurniture(Kind kind) {
+        List<HomePieceOfFurniture> pieces = byKind.get(kind);
+        return pieces != null ? Collections.unmodifiableList(pieces) : Collections.<HomePieceOfFurniture>emptyList();
+    }
+
+    /**
+     * Meubles du niveau exportables en objets 3D (terrain3d) : hors portes/fenêtres, avec un modèle.
+     */
+    public List<HomePieceOfFurniture> getTerrain3DCandidates(Level level) {
+        List<HomePieceOfFurniture> candidates = new ArrayList<HomePieceOfFurniture>();
+        for (HomePieceOfFurniture piece : getFurniture(level)) {
+            if (!piece.isDoorOrWindow() && piece.getModel() != null) candidates.add(piece);
+        }
+        return candidates;
+    }
+
+    /** Type du meuble (OTHER s'il n'appartient pas au plan indexé). */
+    public Kind getKind(HomePieceOfFurniture piece) {
+        Kind kind = kinds.get(piece);
+        return kind != null ? kind : Kind.OTHER;
+    }
+
+    /** true si le nom évoque un arbre (même s'il évoque aussi un buisson). */
+    public boolean isLikelyTree(HomePieceOfFurniture piece) {
+        NameClass nameClass = classes.get(piece);
+        return nameClass != null && nameClass.tree && !piece.isDoorOrWindow();
+    }
+
+    /** true si le nom correspond à un mot-clé buisson de config.json. */
+    public boolean isLikelyBush(HomePieceOfFurniture piece) {
+        NameClass nameClass = classes.get(piece);
+        return nameClass != null && nameClass.bush && !piece.isDoorOrWindow();
+    }
+
+    /** true si la porte/fenêtre est considérée comme une porte (voir classifyName). */
+    public boolean isDoor(HomeDoorOrWindow piece) {
+        return getKind(piece) == Kind.DOOR;
+    }
+
+    /**
+     * Retourne l'index du type de plante Energy3D (0–6) si le nom du meuble SH3D correspond à une plante, sinon -1.
+     */
+    public int getPlantType(HomePieceOfFurniture piece) {
+        NameClass nameClass = classes.get(piece);
+        return nameClass != null ? nameClass.plantType : -1;
+    }
+
+    /**
+     * Classe un nom de meuble une fois pour toutes.
+     * Porte : nom contenant "door", "porte", "porta", "puerta"... sauf si un mot évoque aussi la fenêtre
+     * (ex. "porte-fenêtre", traitée comme fenêtre transparente dans Energy3D — le mot fenêtre domine).
+     * Arbre : mots-clés arbre ou nom de plante Energy3D. Buisson : mots-clés "bushes" de config.json.
+     */
+    private static NameClass classifyName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        boolean hasDoor = lower.contains("door") || lower.contains("porte") || lower.contains("porta")
+                || lower.contains("puerta") || lower.contains("tür") || lower.contains("deur");
+        boolean door = hasDoor && !nameSuggestsWindow(lower);
+        String trimmed = lower.trim();
+        boolean tree = false;
+        boolean bush = false;
+        int plantType = -1;
+        if (!trimmed.isEmpty()) {
+            tree = trimmed.contains("tree") || trimmed.contains("arbre") || trimmed.contains("baum")
+                    || trimmed.contains("arbor") || trimmed.contains("albero");
+            for (int i = 0; i < ENERGY3D_PLANT_NAMES.length; i++) {
+                if (trimmed.contains(ENERGY3D_PLANT_NAMES[i])) {
+                    tree = true;
+                    if (plantType < 0) plantType = i;
+                }
+            }
+            bush = ConfigReader.matchingCategories(trimmed).contains("bushes");
+        }
+        return new NameClass(door, tree, bush, plantType);
+    }
+
+    /**
+     * Retourne true si le nom (en minuscules) évoque une fenêtre (fenêtre, window, etc.).
+     */
+    private static boolean nameSuggestsWindow(String lower) {
+        return lower.contains("fenêtre") || lower.contains("fenetre") || lower.contains("window")
+                || lower.contains("finestra") || lower.contains("ventana") || lower.contains("janela")
+                || lower.contains("fenster") || lower.contains("raam");
+    }
+}
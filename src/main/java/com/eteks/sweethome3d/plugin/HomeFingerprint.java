@@ -0,0 +1,334 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import com.eteks.sweethome3d.model.Content;
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomeFurnitureGroup;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.HomeTexture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+import com.eteks.sweethome3d.tools.URLContent;
+
+/**
+ * Empreinte structurelle d'un plan pour l'export : SHA-256 de tout ce que lisent PlanExporter et ses convertisseurs
+ * (niveaux et noms, pièces et leurs points, murs avec couleurs et textures de chaque côté, meubles dont
+ * portes/fenêtres, arbres, buissons et modèles terrain3d, identifiants), de config.json, de la version du plugin
+ * et de celle du format d'export.
+ * Calculée en une passe : les valeurs primitives sont écrites directement dans un tampon d'octets haché
+ * au fil de l'eau, sans objet intermédiaire.
+ * La clé est gardée à côté du .ng3 (plan.ng3.key) avec la taille et la date du .ng3 écrit : si la clé est identique
+ * et que le .ng3 n'a pas été modifié depuis (par Energy3D par exemple), il correspond déjà au plan et l'export
+ * se termine tout de suite. Désactivable par -Dsweetenergy3d.exportCache=false.
+ */
+public class HomeFingerprint {
+
+    public static final String CACHE_PROPERTY = "sweetenergy3d.exportCache";
+
+    /** À incrémenter quand PlanExporter produit un autre .ng3 pour un même plan (invalide toutes les clés). */
+    private static final int EXPORT_FORMAT_VERSION = 1;
+    private static final String KEY_SUFFIX = ".key";
+
+    private static String pluginVersion;
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[8192];
+    private int length;
+    /** Niveaux du plan : un élément est rattaché à son niveau par son rang (-1 sans niveau). */
+    private Level[] levels = new Level[0];
+
+    private HomeFingerprint() throws java.security.NoSuchAlgorithmException {
+        digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    /** true sauf si -Dsweetenergy3d.exportCache=false. */
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(CACHE_PROPERTY));
+    }
+
+    /**
+     * Empreinte du plan (64 chiffres hexadécimaux).
+     * @return null si elle ne peut pas être calculée (l'export se fait alors normalement)
+     */
+    public static String compute(Home home) {
+        if (home == null) return null;
+        try {
+            HomeFingerprint fingerprint = new HomeFingerprint();
+            fingerprint.putHome(home);
+            return fingerprint.finish();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Fichier de clé du .ng3 donné. */
+    public static File getKeyFile(File ng3File) {
+        return new File(ng3File.getParentFile(), ng3File.getName() + KEY_SUFFIX);
+    }
+
+    /**
+     * true si le .ng3 a été produit pour la clé donnée et n'a pas changé depuis (même taille, même date) :
+     * un .ng3 retouché hors du plugin (toit ajouté dans Energy3D...) est toujours réexporté.
+     */
+    public static boolean matches(File ng3File, String key) {
+        File keyFile = getKeyFile(ng3File);
+        if (key == null || !ng3File.isFile() || !keyFile.isFile()) return false;
+        try {
+            String[] lines = new String(Files.readAllBytes(keyFile.toPath()), StandardCharsets.US_ASCII).split("\n");
+            return lines.length >= 3
+                    && key.equals(lines[0].trim())
+                    && Long.parseLong(lines[1].trim()) == ng3File.length()
+                    && Long.parseLong(lines[2].trim()) == ng3File.lastModified();
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** Associe la clé au .ng3 qui vient d'être écrit (clé, taille puis date du .ng3, une valeur par ligne). */
+    public static void writeKey(File ng3File, String key) {
+        File keyFile = getKeyFile(ng3File);
+        File temp = new File(keyFile.getParentFile(), keyFile.getName() + ".tmp");
+        String content = key + "\n" + ng3File.length() + "\n" + ng3File.lastModified() + "\n";
+        try {
+            Files.write(temp.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+            try {
+                Files.move(temp.toPath(), keyFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), keyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            temp.delete();
+        }
+    }
+
+    /** Supprime la clé avant de réécrire le .ng3 : une clé ne survit jamais au fichier qu'elle décrit. */
+    public static void deleteKey(File ng3File) {
+        getKeyFile(ng3File).delete();
+    }
+
+    private void putHome(Home home) {
+        putInt(EXPORT_FORMAT_VERSION);
+        putString(getPluginVersion());
+        putString(ConfigReader.getConfigJson());
+
+        List<Level> homeLevels = home.getLevels();
+        if (homeLevels != null) {
+            levels = homeLevels.toArray(new Level[homeLevels.size()]);
+        }
+        putInt(levels.length);
+        for (Level level : levels) {
+            putString(level.getName());
+            putFloat(level.getElevation());
+            putFloat(level.getFloorThickness());
+            putFloat(level.getHeight());
+        }
+
+        List<Room> rooms = home.getRooms();
+        putInt(rooms != null ? rooms.size() : -1);
+        if (rooms != null) {
+            for (Room room : rooms) {
+                putString(room.getId());
+                putString(room.getName());
+                putLevel(room.getLevel());
+                float[][] points = room.getPoints();
+                putInt(points != null ? points.length : -1);
+                if (points != null) {
+                    for (float[] point : points) {
+                        putFloat(point[0]);
+                        putFloat(point[1]);
+                    }
+                }
+            }
+        }
+
+        Collection<Wall> walls = home.getWalls();
+        putInt(walls != null ? walls.size() : -1);
+        if (walls != null) {
+            for (Wall wall : walls) {
+                putString(wall.getId());
+                putFloat(wall.getXStart());
+                putFloat(wall.getYStart());
+                putFloat(wall.getXEnd());
+                putFloat(wall.getYEnd());
+                putFloat(wall.getThickness());
+                putNullableFloat(wall.getHeight());
+                putLevel(wall.getLevel());
+                // Lus par WallConverter (couleur et type de texture du mur Energy3D)
+                putNullableInt(wall.getLeftSideColor());
+                putNullableInt(wall.getRightSideColor());
+                putTexture(wall.getLeftSideTexture());
+                putTexture(wall.getRightSideTexture());
+            }
+        }
+
+        List<HomePieceOfFurniture> furniture = home.getFurniture();
+        putFurniture(furniture);
+    }
+
+    /** Meubles dans l'ordre du plan, groupes parcourus récursivement. */
+    private void putFurniture(List<HomePieceOfFurniture> furniture) {
+        putInt(furniture != null ? furniture.size() : -1);
+        if (furniture == null) return;
+        for (HomePieceOfFurniture piece : furniture) {
+            if (piece instanceof HomeFurnitureGroup) {
+                putByte((byte) 'G');
+                putString(piece.getName());
+                putFurniture(((HomeFurnitureGroup) piece).getFurniture());
+                continue;
+            }
+            putByte((byte) (piece.isDoorOrWindow() ? 'D' : 'P'));
+            putString(piece.getId());
+            putString(piece.getName());
+            putString(piece.getCatalogId());
+            putFloat(piece.getX());
+            putFloat(piece.getY());
+            putFloat(piece.getElevation());
+            putFloat(piece.getAngle());
+            putFloat(piece.getWidth());
+            putFloat(piece.getDepth());
+            putFloat(piece.getHeight());
+            putByte((byte) (piece.isModelMirrored() ? 1 : 0));
+            putLevel(piece.getLevel());
+            if (piece instanceof HomeDoorOrWindow) {
+                HomeDoorOrWindow doorOrWindow = (HomeDoorOrWindow) piece;
+                putFloat(doorOrWindow.getWallWidth());
+                putFloat(doorOrWindow.getWallHeight());
+            }
+            putModel(piece.getModel());
+        }
+    }
+
+    /**
+     * Modèle 3D (terrain3d) : URL pour un URLContent, sinon identité de l'objet (le plan n'est alors
+     * reconnu que dans la même session, ce qui ne peut que refaire un export inutile).
+     */
+    private void putModel(Content model) {
+        if (model == null) {
+            putByte((byte) 0);
+        } else if (model instanceof URLContent && ((URLContent) model).getURL() != null) {
+            putByte((byte) 1);
+            putString(((URLContent) model).getURL().toString());
+        } else {
+            putByte((byte) 2);
+            putString(model.getClass().getName());
+            putInt(System.identityHashCode(model));
+        }
+    }
+
+    private void putLevel(Level level) {
+        int index = -1;
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == level) {
+                index = i;
+                break;
+            }
+        }
+        putInt(index);
+    }
+
+    /** Texture d'un côté de mur : WallConverter n'en lit que le nom. */
+    private void putTexture(HomeTexture texture) {
+        if (texture == null) {
+            putByte((byte) 0);
+        } else {
+            putByte((byte) 1);
+            putString(texture.getName());
+        }
+    }
+
+    private void putNullableInt(Integer value) {
+        if (value == null) {
+            putByte((byte) 0);
+        } else {
+            putByte((byte) 1);
+            putInt(value.intValue());
+        }
+    }
+
+    private void putNullableFloat(Float value) {
+        if (value == null) {
+            putByte((byte) 0);
+        } else {
+            putByte((byte) 1);
+            putFloat(value.floatValue());
+        }
+    }
+
+    private void putFloat(float value) {
+        putInt(Float.floatToIntBits(value));
+    }
+
+    private void putInt(int value) {
+        ensure(4);
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void putByte(byte value) {
+        ensure(1);
+        buffer[length++] = value;
+    }
+
+    /** Longueur puis caractères UTF-16 (-1 pour null). */
+    private void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        putInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            ensure(2);
+            char c = value.charAt(i);
+            buffer[length++] = (byte) (c >>> 8);
+            buffer[length++] = (byte) c;
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > buffer.length) {
+            digest.update(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    private String finish() {
+        digest.update(buffer, 0, length);
+        length = 0;
+        byte[] hash = digest.digest();
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /** Version du plugin (ApplicationPlugin.properties), chaîne vide si introuvable. */
+    static synchronized String getPluginVersion() {
+        if (pluginVersion == null) {
+            pluginVersion = "";
+            try (InputStream in = HomeFingerprint.class.getClassLoader().getResourceAsStream("ApplicationPlugin.properties")) {
+                if (in != null) {
+                    Properties properties = new Properties();
+                    properties.load(in);
+                    pluginVersion = properties.getProperty("version", "");
+                }
+            } catch (IOException ignored) { }
+        }
+        return pluginVersion;
+    }
+}
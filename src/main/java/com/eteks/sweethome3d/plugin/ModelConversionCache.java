@@ -0,0 +1,310 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.eteks.sweethome3d.model.Content;
+
+/**
+ * Cache disque des modèles 3D convertis en Collada pour l'import terrain3d, dans ~/.sweetenergy3d/model-cache.
+ * Un fichier &lt;sha256&gt;.dae par modèle, la clé couvrant le contenu du modèle, son format et la version
+ * de la conversion : un même modèle de catalogue n'est converti qu'une fois, et un nouvel export du même plan
+ * ne refait aucune conversion OBJ → DAE. Éviction LRU (date de dernier accès = date de modification du fichier)
+ * au-delà de -Dsweetenergy3d.modelcache.maxMB (256 Mo par défaut).
+ * Les entrées obtenues par un export restent épinglées par son Lease jusqu'à la fin des imports : une conversion
+ * concurrente qui déclenche l'éviction ne peut pas supprimer un .dae qu'un export va importer.
+ */
+public class ModelConversionCache {
+
+    public static final String MAX_SIZE_PROPERTY = "sweetenergy3d.modelcache.maxMB";
+
+    /** À incrémenter quand ObjMesh ou ColladaWriter change la sortie (invalide toutes les entrées). */
+    private static final int CONVERSION_FORMAT_VERSION = 1;
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String ENTRY_SUFFIX = ".dae";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Âge au-delà duquel un fichier temporaire du cache est considéré comme abandonné. */
+    private static final long STALE_TEMP_MS = 60L * 60 * 1000;
+
+    private static ModelConversionCache instance;
+
+    private final File directory;
+    private final long maxBytes;
+    /** Clés déjà calculées pour ce processus (les meubles d'un même modèle partagent le même Content). */
+    private final Map<Content, String> keys = new WeakHashMap<Content, String>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger conversions = new AtomicInteger();
+    /** Nombre de Lease ouverts qui retiennent chaque entrée (jamais évincée tant qu'elle y figure). */
+    private final Map<File, Integer> pinned = new HashMap<File, Integer>();
+
+    ModelConversionCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cache partagé par les exports du processus (créé au premier appel).
+     * @return le cache, ou null si le répertoire ne peut pas être créé
+     */
+    public static synchronized ModelConversionCache open(PrintWriter logWriter) {
+        if (instance == null) {
+            File directory = new File(System.getProperty("user.home"), ".sweetenergy3d" + File.separator + "model-cache");
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                if (logWriter != null) {
+                    ExportLogger.warn(logWriter, "⚠ Cache des modèles convertis indisponible: " + directory.getAbsolutePath());
+                }
+                return null;
+            }
+            long maxBytes = DEFAULT_MAX_BYTES;
+            String value = System.getProperty(MAX_SIZE_PROPERTY);
+            if (value != null) {
+                try {
+                    maxBytes = Long.parseLong(value.trim()) * 1024 * 1024;
+                } catch (NumberFormatException ignored) { }
+            }
+            instance = new ModelConversionCache(directory, maxBytes);
+            if (logWriter != null) {
+                ExportLogger.info(logWriter, "Cache des modèles convertis: " + directory.getAbsolutePath() + " (max " + (maxBytes / (1024 * 1024)) + " Mo)");
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Cache jetable dans un répertoire temporaire, pour un seul export quand open() échoue
+     * (taille maximale nulle : les entrées sont supprimées à la fermeture du Lease ; appeler ensuite delete()).
+     * @return le cache, ou null si le répertoire temporaire ne peut pas non plus être créé
+     */
+    public static ModelConversionCache openTemporary(PrintWriter logWriter) {
+        try {
+            File directory = Files.createTempDirectory("sweetenergy3d-models").toFile();
+            ExportLogger.info(logWriter, "Modèles convertis dans un répertoire temporaire: " + directory.getAbsolutePath());
+            return new ModelConversionCache(directory, 0);
+        } catch (IOException e) {
+            ExportLogger.error(logWriter, "✗ ERREUR répertoire temporaire des modèles convertis: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Supprime le répertoire du cache et son contenu (cache obtenu par openTemporary, après close() du Lease). */
+    public synchronized void delete() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Entrées utilisées par un export : épinglées jusqu'à close(), à appeler quand tous les imports sont faits
+     * (les entrées ajoutées après close() ne sont pas épinglées).
+     */
+    public final class Lease implements AutoCloseable {
+        private final List<File> entries = new ArrayList<File>();
+        private boolean closed;
+
+        /** Libère les entrées de l'export puis réduit le cache à sa taille maximale. */
+        @Override
+        public void close() {
+            synchronized (ModelConversionCache.this) {
+                if (closed) return;
+                closed = true;
+                for (File entry : entries) {
+                    Integer count = pinned.get(entry);
+                    if (count == null || count <= 1) {
+                        pinned.remove(entry);
+                    } else {
+                        pinned.put(entry, count - 1);
+                    }
+                }
+                entries.clear();
+                evict();
+            }
+        }
+    }
+
+    /** Nouveau Lease pour un export. */
+    public Lease lease() {
+        return new Lease();
+    }
+
+    /**
+     * Fichier Collada du modèle, converti au premier appel puis relu depuis le cache.
+     * L'entrée est épinglée par le Lease donné et ne peut pas être évincée avant sa fermeture.
+     *
+     * @param format "dae" (copie) ou "obj" (conversion ObjMesh → ColladaWriter)
+     * @return le fichier .dae, ou null si la conversion échoue
+     */
+    public File getCollada(Content model, String format, Lease lease, PrintWriter logWriter) throws IOException {
+        String key = key(model, format);
+        File entry = new File(directory, key + ENTRY_SUFFIX);
+        synchronized (this) {
+            // Vérification et épinglage sous le même verrou que l'éviction
+            if (entry.isFile()) {
+                entry.setLastModified(System.currentTimeMillis());
+                pin(entry, lease);
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+        File temp = File.createTempFile(key + ".", TEMP_SUFFIX, directory);
+        boolean moved = false;
+        try {
+            if ("dae".equals(format)) {
+                try (InputStream in = model.openStream()) {
+                    Files.copy(in, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                // OBJ lu en mémoire depuis le modèle : pas de fichier source mappé (qui ne pourrait pas être
+                // supprimé sous Windows tant que le mapping vit)
+                if (!PlanExporter.convertObjToCollada(readAll(model), key + ".obj", temp, logWriter)) {
+                    return null;
+                }
+            }
+            synchronized (this) {
+                try {
+                    Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                pin(entry, lease);
+                moved = true;
+            }
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+        }
+        conversions.incrementAndGet();
+        synchronized (this) {
+            evict();
+        }
+        return entry;
+    }
+
+    /** Appelé sous le verrou du cache. */
+    private void pin(File entry, Lease lease) {
+        if (lease == null || lease.closed) return;
+        Integer count = pinned.get(entry);
+        pinned.put(entry, count == null ? 1 : count + 1);
+        lease.entries.add(entry);
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getConversions() {
+        return conversions.get();
+    }
+
+    /** SHA-256 de la version de conversion, du format et des octets du modèle (mémorisé par Content). */
+    private String key(Content model, String format) throws IOException {
+        synchronized (keys) {
+            String known = keys.get(model);
+            if (known != null) {
+                return known;
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("conversion-format:" + CONVERSION_FORMAT_VERSION + "\nformat:" + format + "\n").getBytes("UTF-8"));
+            try (InputStream in = model.openStream()) {
+                byte[] buffer = new byte[65536];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+            String key = toHex(digest.digest());
+            synchronized (keys) {
+                keys.put(model, key);
+            }
+            return key;
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Supprime les entrées les moins récemment utilisées tant que le cache dépasse maxBytes (sauf les entrées épinglées).
+     * Appelé sous le verrou du cache.
+     */
+    private void evict() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        // Seules les entrées .dae comptent ; les fichiers temporaires abandonnés (processus interrompu,
+        // anciennes versions) sont supprimés quand ils ne peuvent plus appartenir à une conversion en cours
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MS;
+        List<File> entryList = new ArrayList<File>(files.length);
+        long total = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(ENTRY_SUFFIX)) {
+                entryList.add(file);
+                total += file.length();
+            } else if ((name.endsWith(TEMP_SUFFIX) || name.endsWith(".obj")) && file.lastModified() < staleBefore) {
+                file.delete();
+            }
+        }
+        if (total <= maxBytes) return;
+        File[] entries = entryList.toArray(new File[entryList.size()]);
+        final long[] lastModified = new long[entries.length];
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            lastModified[i] = entries[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(lastModified[a], lastModified[b]);
+            }
+        });
+        for (Integer i : order) {
+            if (total <= maxBytes) break;
+            File entry = entries[i];
+            if (pinned.containsKey(entry)) continue;
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private static byte[] readAll(Content model) throws IOException {
+        try (InputStream in = model.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(65536);
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
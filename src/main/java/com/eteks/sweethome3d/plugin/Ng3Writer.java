@@ -0,0 +1,155 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Écriture d'un fichier .ng3 : la Scene est sérialisée comme dans Energy3D (Scene.realSave,
+ * ObjectOutputStream.writeObject) mais en mémoire, dans des blocs directs ; l'en-tête et la taille sont
+ * vérifiés sur ces octets, puis écrits d'un seul write groupé (FileChannel) dans un fichier temporaire
+ * du même répertoire, renommé atomiquement sur la cible. Un export qui échoue laisse l'ancien .ng3 intact.
+ * fsync seulement si -Dsweetenergy3d.ng3.fsync=true.
+ */
+public class Ng3Writer {
+
+    public static final String FSYNC_PROPERTY = "sweetenergy3d.ng3.fsync";
+
+    /** Taille d'un bloc de sérialisation (les blocs s'ajoutent sans recopie des précédents). */
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    private Ng3Writer() {
+    }
+
+    /**
+     * Sérialise la scène et remplace atomiquement outputFile.
+     *
+     * @return le nombre d'octets écrits
+     * @throws IOException si la sérialisation, la vérification ou l'écriture échoue (outputFile inchangé)
+     */
+    public static long write(Object scene, File outputFile, PrintWriter logWriter) throws IOException {
+        ChunkedOutputStream bytes = new ChunkedOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(scene);
+        }
+        ExportMetrics.enterStage(ExportMetrics.Stage.VERIFY);
+        ByteBuffer[] chunks = bytes.toBuffers();
+        verify(chunks, bytes.size());
+        if (logWriter != null) {
+            ExportLogger.info(logWriter, "✓ Scene sérialisée en mémoire: " + bytes.size() + " bytes, header " + header(chunks[0]));
+        }
+        ExportMetrics.enterStage(ExportMetrics.Stage.SERIALIZE);
+        // La clé du plan précédent ne doit pas survivre au remplacement (PlanExporter l'écrit après succès)
+        HomeFingerprint.deleteKey(outputFile);
+        replace(outputFile, chunks, Boolean.getBoolean(FSYNC_PROPERTY));
+        if (logWriter != null) {
+            ExportLogger.info(logWriter, "✓ " + outputFile.getName() + " remplacé atomiquement");
+        }
+        return bytes.size();
+    }
+
+    /** En-tête de sérialisation Java (AC ED) et taille non nulle. */
+    private static void verify(ByteBuffer[] chunks, long size) throws IOException {
+        if (size < 4) {
+            throw new IOException("Sérialisation vide ou tronquée (" + size + " bytes)");
+        }
+        ByteBuffer first = chunks[0];
+        if (first.get(0) != (byte) 0xAC || first.get(1) != (byte) 0xED) {
+            throw new IOException("Header de sérialisation invalide: " + header(first));
+        }
+    }
+
+    private static String header(ByteBuffer first) {
+        return String.format("%02X %02X %02X %02X", first.get(0), first.get(1), first.get(2), first.get(3));
+    }
+
+    private static void replace(File outputFile, ByteBuffer[] chunks, boolean fsync) throws IOException {
+        File directory = outputFile.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(outputFile.getName() + ".", ".tmp", directory);
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long remaining = 0;
+                for (ByteBuffer chunk : chunks) remaining += chunk.remaining();
+                while (remaining > 0) {
+                    remaining -= channel.write(chunks);
+                }
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+            try {
+                Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    /** Flux mémoire en blocs directs de CHUNK_SIZE octets, sans recopie à l'agrandissement. */
+    private static final class ChunkedOutputStream extends OutputStream {
+        private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        private ByteBuffer current;
+        private long size;
+
+        @Override
+        public void write(int b) {
+            if (current == null || !current.hasRemaining()) {
+                addChunk();
+            }
+            current.put((byte) b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            while (length > 0) {
+                if (current == null || !current.hasRemaining()) {
+                    addChunk();
+                }
+                int n = Math.min(length, current.remaining());
+                current.put(buffer, offset, n);
+                offset += n;
+                length -= n;
+                size += n;
+            }
+        }
+
+        private void addChunk() {
+            current = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            chunks.add(current);
+        }
+
+        long size() {
+            return size;
+        }
+
+        /** Blocs prêts à être écrits (position 0, limite = octets écrits). */
+        ByteBuffer[] toBuffers() {
+            ByteBuffer[] buffers = new ByteBuffer[chunks.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                ByteBuffer chunk = chunks.get(i).duplicate();
+                // Via Buffer : ByteBuffer.flip() n'existe pas sur un JRE 8
+                ((Buffer) chunk).flip();
+                buffers[i] = chunk;
+            }
+            return buffers;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Maillage lu d'un fichier OBJ (v, vt, vn, f), en tableaux primitifs.
+ * Le fichier est mappé en mémoire et découpé octet par octet, sans String par ligne ni expression régulière :
+ * la mémoire est proportionnelle au maillage, pas au texte. Les faces sont triangulées en éventail ;
+ * les indices négatifs (relatifs) sont résolus ; une face dont un sommet est invalide est ignorée,
+ * un vt/vn invalide est simplement absent (-1).
+ */
+public class ObjMesh {
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private float[] positions = new float[3 * 1024];
+    private int vertexCount;
+    private float[] texCoords = new float[2 * 256];
+    private int texCoordCount;
+    private float[] normals = new float[3 * 256];
+    private int normalCount;
+    private int[] triangles = new int[3 * 1024];
+    private int[] triangleTexCoords = new int[3 * 1024];
+    private int[] triangleNormals = new int[3 * 1024];
+    private int triangleCount;
+
+    // Curseur de lecture (seulement pendant read)
+    private ByteBuffer buffer;
+    private int position;
+    private int end;
+    // Sommets de la face en cours, réutilisés d'une face à l'autre
+    private int[] faceV = new int[8];
+    private int[] faceT = new int[8];
+    private int[] faceN = new int[8];
+    private final float[] numbers = new float[3];
+
+    private ObjMesh() {
+    }
+
+    /** Lit un fichier OBJ (les lignes autres que v, vt, vn et f sont ignorées). */
+    public static ObjMesh read(File objFile) throws IOException {
+        ObjMesh mesh = new ObjMesh();
+        try (FileChannel channel = FileChannel.open(objFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fichier OBJ trop volumineux: " + size + " bytes");
+            }
+            mesh.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+        return mesh;
+    }
+
+    /** Lit un OBJ déjà en mémoire (position à limite du buffer). */
+    public static ObjMesh read(ByteBuffer objBytes) {
+        ObjMesh mesh = new ObjMesh();
+        mesh.parse(objBytes);
+        return mesh;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /** Positions x, y, z (tableau interne, valide jusqu'à 3 × getVertexCount()). */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public int getTexCoordCount() {
+        return texCoordCount;
+    }
+
+    /** Coordonnées u, v (tableau interne, valide jusqu'à 2 × getTexCoordCount()). */
+    public float[] getTexCoords() {
+        return texCoords;
+    }
+
+    public int getNormalCount() {
+        return normalCount;
+    }
+
+    /** Normales x, y, z (tableau interne, valide jusqu'à 3 × getNormalCount()). */
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /** Indices de positions (base 0), 3 par triangle (tableau interne, valide jusqu'à 3 × getTriangleCount()). */
+    public int[] getTriangles() {
+        return triangles;
+    }
+
+    /** Indices de coordonnées de texture par sommet de triangle, -1 si absent. */
+    public int[] getTriangleTexCoords() {
+        return triangleTexCoords;
+    }
+
+    /** Indices de normales par sommet de triangle, -1 si absent. */
+    public int[] getTriangleNormals() {
+        return triangleNormals;
+    }
+
+    private void parse(ByteBuffer bytes) {
+        buffer = bytes;
+        position = bytes.position();
+        end = bytes.limit();
+        while (position < end) {
+            skipBlanks();
+            if (position >= end) break;
+            byte c = buffer.get(position);
+            byte next = position + 1 < end ? buffer.get(position + 1) : (byte) '\n';
+            if (c == 'v' && isBlank(next)) {
+                position++;
+                if (readNumbers(3) == 3) {
+                    positions = ensure(positions, vertexCount * 3 + 3);
+                    System.arraycopy(numbers, 0, positions, vertexCount * 3, 3);
+                    vertexCount++;
+                }
+            } else if (c == 'v' && next == 't' && isBlankAt(position + 2)) {
+                position += 2;
+                // vt u [v [w]] : v vaut 0 s'il est absent (l'entrée compte quand même pour les indices)
+                if (readNumbers(2) >= 1) {
+                    texCoords = ensure(texCoords, texCoordCount * 2 + 2);
+                    texCoords[texCoordCount * 2] = numbers[0];
+                    texCoords[texCoordCount * 2 + 1] = numbers[1];
+                    texCoordCount++;
+                }
+            } else if (c == 'v' && next == 'n' && isBlankAt(position + 2)) {
+                position += 2;
+                if (readNumbers(3) == 3) {
+                    normals = ensure(normals, normalCount * 3 + 3);
+                    System.arraycopy(numbers, 0, normals, normalCount * 3, 3);
+                    normalCount++;
+                }
+            } else if (c == 'f' && isBlank(next)) {
+                position++;
+                readFace();
+            }
+            skipLine();
+        }
+        buffer = null;
+        faceV = faceT = faceN = null;
+    }
+
+    /** Lit une face (v, v/vt, v//vn ou v/vt/vn par sommet) et l'ajoute en triangles. */
+    private void readFace() {
+        int count = 0;
+        while (true) {
+            skipBlanks();
+            if (position >= end || isEndOfLine(buffer.get(position)) || buffer.get(position) == '#') break;
+            long v = readInt();
+            if (v == Long.MIN_VALUE) return;
+            long t = Long.MIN_VALUE;
+            long n = Long.MIN_VALUE;
+            if (position < end && buffer.get(position) == '/') {
+                position++;
+                if (position < end && buffer.get(position) != '/') {
+                    t = readInt();
+                }
+                if (position < end && buffer.get(position) == '/') {
+                    position++;
+                    n = readInt();
+                }
+            }
+            int vertex = resolve(v, vertexCount);
+            if (vertex < 0) return;
+            if (count == faceV.length) {
+                faceV = Arrays.copyOf(faceV, count * 2);
+                faceT = Arrays.copyOf(faceT, count * 2);
+                faceN = Arrays.copyOf(faceN, count * 2);
+            }
+            faceV[count] = vertex;
+            faceT[count] = resolve(t, texCoordCount);
+            faceN[count] = resolve(n, normalCount);
+            count++;
+            // Jeton mal formé (ex. 1.5) : face ignorée
+            if (position < end && !isBlank(buffer.get(position)) && !isEndOfLine(buffer.get(position))) return;
+        }
+        if (count < 3) return;
+        int added = count - 2;
+        int required = (triangleCount + added) * 3;
+        triangles = ensure(triangles, required);
+        triangleTexCoords = ensure(triangleTexCoords, required);
+        triangleNormals = ensure(triangleNormals, required);
+        for (int i = 1; i < count - 1; i++) {
+            int base = triangleCount * 3;
+            triangles[base] = faceV[0];
+            triangles[base + 1] = faceV[i];
+            triangles[base + 2] = faceV[i + 1];
+            triangleTexCoords[base] = faceT[0];
+            triangleTexCoords[base + 1] = faceT[i];
+            triangleTexCoords[base + 2] = faceT[i + 1];
+            triangleNormals[base] = faceN[0];
+            triangleNormals[base + 1] = faceN[i];
+            triangleNormals[base + 2] = faceN[i + 1];
+            triangleCount++;
+        }
+    }
+
+    /** Indice OBJ (1-based, ou négatif relatif à count) → indice 0-based, -1 si absent ou hors bornes. */
+    private static int resolve(long index, int count) {
+        if (index == Long.MIN_VALUE || index == 0) return -1;
+        long resolved = index > 0 ? index - 1 : count + index;
+        return resolved >= 0 && resolved < count ? (int) resolved : -1;
+    }
+
+    /** Entier signé à la position courante, ou Long.MIN_VALUE s'il n'y a pas de chiffre. */
+    private long readInt() {
+        boolean negative = false;
+        if (position < end) {
+            byte c = buffer.get(position);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                position++;
+            }
+        }
+        int start = position;
+        long value = 0;
+        while (position < end) {
+            int d = buffer.get(position) - '0';
+            if (d < 0 || d > 9) break;
+            if (value < Integer.MAX_VALUE) value = value * 10 + d;
+            position++;
+        }
+        if (position == start) return Long.MIN_VALUE;
+        return negative ? -value : value;
+    }
+
+    /** Lit jusqu'à max nombres de la ligne dans numbers (les manquants à 0) ; retourne le nombre lu. */
+    private int readNumbers(int max) {
+        Arrays.fill(numbers, 0f);
+        for (int i = 0; i < max; i++) {
+            skipBlanks();
+            if (position >= end || isEndOfLine(buffer.get(position)) || buffer.get(position) == '#') return i;
+            double value = readDouble();
+            if (Double.isNaN(value)) return i;
+            numbers[i] = (float) value;
+        }
+        return max;
+    }
+
+    /**
+     * Nombre décimal ([signe]chiffres[.chiffres][e[signe]chiffres]) lu sans allocation ;
+     * les autres formes (1e, Infinity...) passent par Double.parseDouble. NaN si le jeton est invalide.
+     */
+    private double readDouble() {
+        int start = position;
+        boolean negative = false;
+        byte c = buffer.get(position);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        while (position < end) {
+            int d = buffer.get(position) - '0';
+            if (d < 0 || d > 9) break;
+            any = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) digits++;
+            } else {
+                exponent++;
+            }
+            position++;
+        }
+        if (position < end && buffer.get(position) == '.') {
+            position++;
+            while (position < end) {
+                int d = buffer.get(position) - '0';
+                if (d < 0 || d > 9) break;
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + d;
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                }
+                position++;
+            }
+        }
+        if (any && position < end && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            long e = readInt();
+            if (e == Long.MIN_VALUE) return slowDouble(start);
+            exponent += (int) Math.max(-1000, Math.min(1000, e));
+        }
+        if (!any || (position < end && !isBlank(buffer.get(position)) && !isEndOfLine(buffer.get(position)))) {
+            return slowDouble(start);
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= 0 && exponent < POW10.length) {
+            value = mantissa * POW10[exponent];
+        } else if (exponent < 0 && -exponent < POW10.length) {
+            value = mantissa / POW10[-exponent];
+        } else {
+            value = mantissa * Math.pow(10, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    /** Repli pour les jetons atypiques : relit le jeton entier avec Double.parseDouble. */
+    private double slowDouble(int start) {
+        position = start;
+        StringBuilder token = new StringBuilder();
+        while (position < end && !isBlank(buffer.get(position)) && !isEndOfLine(buffer.get(position))) {
+            token.append((char) buffer.get(position));
+            position++;
+        }
+        try {
+            return Double.parseDouble(token.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private void skipBlanks() {
+        while (position < end && isBlank(buffer.get(position))) position++;
+    }
+
+    private void skipLine() {
+        while (position < end && buffer.get(position) != '\n') position++;
+        position++;
+    }
+
+    private boolean isBlankAt(int index) {
+        return index >= end || isBlank(buffer.get(index)) || isEndOfLine(buffer.get(index));
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isEndOfLine(byte c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static float[] ensure(float[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+
+    private static int[] ensure(int[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+}
@@ -0,0 +1,147 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Index spatial des murs pour rattacher les portes/fenêtres à leur mur en une passe.
+ * Grille uniforme par niveau sur les emprises des murs (élargies de la marge de containsPoint) :
+ * seuls les murs de la cellule du point sont testés. Le mur retenu est le même qu'avec un parcours
+ * linéaire de home.getWalls() (premier mur dans l'ordre du plan qui contient le point).
+ */
+public class OpeningWallIndex {
+
+    /** Taille d'une cellule de la grille (cm). */
+    private static final float CELL_SIZE_CM = 200f;
+
+    private final List<Wall> walls;
+    private final float margin;
+    /** Grilles construites à la demande, une par niveau (clé null = pièce sans niveau, tous les murs). */
+    private final Map<Level, Map<Long, List<Wall>>> gridsByLevel = new HashMap<Level, Map<Long, List<Wall>>>();
+
+    /**
+     * @param walls murs du plan, dans l'ordre de home.getWalls()
+     * @param margin marge (cm) passée à Wall.containsPoint
+     */
+    public OpeningWallIndex(Collection<Wall> walls, float margin) {
+        this.walls = walls != null ? new ArrayList<Wall>(walls) : new ArrayList<Wall>();
+        this.margin = margin;
+    }
+
+    /**
+     * Rattache chaque porte/fenêtre de la liste au mur qui la contient.
+     * Les ouvertures de chaque mur gardent l'ordre de la liste des meubles.
+     */
+    public static Map<Wall, List<HomeDoorOrWindow>> assignOpenings(Collection<Wall> walls,
+            List<HomePieceOfFurniture> furniture, float margin) {
+        Map<Wall, List<HomeDoorOrWindow>> openingsByWall = new IdentityHashMap<Wall, List<HomeDoorOrWindow>>();
+        if (furniture == null) return openingsByWall;
+        OpeningWallIndex index = new OpeningWallIndex(walls, margin);
+        for (HomePieceOfFurniture piece : furniture) {
+            if (!piece.isDoorOrWindow() || !(piece instanceof HomeDoorOrWindow)) continue;
+            Wall wall = index.findWall((HomeDoorOrWindow) piece);
+            if (wall == null) continue;
+            List<HomeDoorOrWindow> openings = openingsByWall.get(wall);
+            if (openings == null) {
+                openings = new ArrayList<HomeDoorOrWindow>();
+                openingsByWall.put(wall, openings);
+            }
+            openings.add((HomeDoorOrWindow) piece);
+        }
+        return openingsByWall;
+    }
+
+    /**
+     * Retourne le mur contenant le centre de la porte/fenêtre (au niveau de la pièce), ou null.
+     * Pas de fallback "mur le plus proche" pour éviter les ouvertures fantômes.
+     */
+    public Wall findWall(HomeDoorOrWindow piece) {
+        float x = piece.getX();
+        float y = piece.getY();
+        List<Wall> candidates = gridFor(piece.getLevel()).get(cellKey(cellOf(x), cellOf(y)));
+        if (candidates == null) return null;
+        for (Wall wall : candidates) {
+            try {
+                if (wall.containsPoint(x, y, false, margin))
+                    return wall;
+            } catch (Exception ignored) { }
+        }
+        return null;
+    }
+
+    private Map<Long, List<Wall>> gridFor(Level level) {
+        Map<Long, List<Wall>> grid = gridsByLevel.get(level);
+        if (grid == null) {
+            grid = new HashMap<Long, List<Wall>>();
+            // Murs insérés dans l'ordre du plan : chaque cellule reste triée comme home.getWalls()
+            for (Wall wall : walls) {
+                if (level != null && !wall.isAtLevel(level)) continue;
+                float[] bounds = footprintBounds(wall);
+                if (bounds == null) continue;
+                int minCellX = cellOf(bounds[0] - margin);
+                int minCellY = cellOf(bounds[1] - margin);
+                int maxCellX = cellOf(bounds[2] + margin);
+                int maxCellY = cellOf(bounds[3] + margin);
+                for (int cx = minCellX; cx <= maxCellX; cx++) {
+                    for (int cy = minCellY; cy <= maxCellY; cy++) {
+                        Long key = cellKey(cx, cy);
+                        List<Wall> cell = grid.get(key);
+                        if (cell == null) {
+                            cell = new ArrayList<Wall>(2);
+                            grid.put(key, cell);
+                        }
+                        cell.add(wall);
+                    }
+                }
+            }
+            gridsByLevel.put(level, grid);
+        }
+        return grid;
+    }
+
+    /**
+     * Emprise {minX, minY, maxX, maxY} du mur : polygone SH3D (murs arrondis compris),
+     * sinon segment élargi de l'épaisseur.
+     */
+    private static float[] footprintBounds(Wall wall) {
+        float[][] points = null;
+        try {
+            points = wall.getPoints();
+        } catch (Exception ignored) { }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        if (points != null && points.length > 0) {
+            for (float[] p : points) {
+                minX = Math.min(minX, p[0]);
+                minY = Math.min(minY, p[1]);
+                maxX = Math.max(maxX, p[0]);
+                maxY = Math.max(maxY, p[1]);
+            }
+        } else {
+            float halfThickness = wall.getThickness() / 2f;
+            minX = Math.min(wall.getXStart(), wall.getXEnd()) - halfThickness;
+            minY = Math.min(wall.getYStart(), wall.getYEnd()) - halfThickness;
+            maxX = Math.max(wall.getXStart(), wall.getXEnd()) + halfThickness;
+            maxY = Math.max(wall.getYStart(), wall.getYEnd()) + halfThickness;
+        }
+        if (Float.isNaN(minX) || Float.isNaN(minY) || Float.isNaN(maxX) || Float.isNaN(maxY)) return null;
+        return new float[] {minX, minY, maxX, maxY};
+    }
+
+    private static int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE_CM);
+    }
+
+    private static Long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+}
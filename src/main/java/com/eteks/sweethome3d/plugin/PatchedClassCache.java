@@ -0,0 +1,241 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cache disque des classes Energy3D/Ardor3D patchées par ASM (Sphere, Vector3, Mesh, stubs MaterialState/LightState).
+ * Le répertoire est adressé par le SHA-256 de energy3d.jar, des JARs Ardor3D/dépendances et du plugin :
+ * si un JAR change, la clé change et l'ancien répertoire est supprimé. Les octets sont relus par mappage mémoire
+ * et passés tels quels à defineClass(ByteBuffer), sans repasser par ASM ni par le parcours des JARs.
+ * Un index classe → JAR (index.properties) évite de rouvrir tous les JARs pour retrouver une classe, et la liste
+ * des paquets de chaque JAR (packages.properties, par chemin, taille et date) évite d'en relire le répertoire central.
+ */
+public class PatchedClassCache {
+
+    /** À incrémenter quand un patch ASM change (invalide tous les caches existants). */
+    private static final int PATCH_FORMAT_VERSION = 1;
+    private static final String INDEX_FILE = "index.properties";
+    /** Empreintes déjà calculées (chemin → taille:date:sha256) pour ne pas relire les JARs inchangés. */
+    private static final String DIGESTS_FILE = "digests.properties";
+    /** Paquets de chaque JAR (chemin → taille:date:paquet,paquet,...). */
+    private static final String PACKAGES_FILE = "packages.properties";
+    /** Nom du paquet par défaut dans PACKAGES_FILE ("/" ne peut pas apparaître dans un nom de paquet). */
+    private static final String DEFAULT_PACKAGE = "/";
+
+    private final File directory;
+    private final Properties index = new Properties();
+    private final Properties packages = new Properties();
+
+    private PatchedClassCache(File directory) {
+        this.directory = directory;
+        load(new File(directory, INDEX_FILE), index);
+        load(new File(directory, PACKAGES_FILE), packages);
+    }
+
+    private static void load(File file, Properties properties) {
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException ignored) { }
+        }
+    }
+
+    /**
+     * Ouvre (ou crée) le cache correspondant aux JARs donnés, dans ~/.sweetenergy3d/class-cache.
+     * @return le cache, ou null s'il ne peut pas être utilisé (le ClassLoader patche alors à chaque démarrage)
+     */
+    public static PatchedClassCache open(List<URL> jarUrls, PrintWriter logWriter) {
+        File root = new File(System.getProperty("user.home"), ".sweetenergy3d" + File.separator + "class-cache");
+        try {
+            if (!root.isDirectory() && !root.mkdirs()) return null;
+            Properties digests = new Properties();
+            File digestsFile = new File(root, DIGESTS_FILE);
+            if (digestsFile.isFile()) {
+                try (InputStream in = new FileInputStream(digestsFile)) {
+                    digests.load(in);
+                }
+            }
+            int knownDigests = digests.size();
+            MessageDigest key = MessageDigest.getInstance("SHA-256");
+            key.update(("patch-format:" + PATCH_FORMAT_VERSION + "\n").getBytes("UTF-8"));
+            for (URL url : jarUrls) {
+                File jar = "file".equals(url.getProtocol()) ? new File(url.toURI()) : null;
+                key.update((url.toString() + "=" + (jar != null ? jarDigest(jar, digests) : "") + "\n").getBytes("UTF-8"));
+            }
+            // Les stubs patchés viennent du plugin lui-même
+            URL pluginUrl = PatchedClassCache.class.getProtectionDomain().getCodeSource().getLocation();
+            File pluginFile = pluginUrl != null && "file".equals(pluginUrl.getProtocol()) ? new File(pluginUrl.toURI()) : null;
+            if (pluginFile != null && pluginFile.isFile()) {
+                key.update(("plugin=" + jarDigest(pluginFile, digests) + "\n").getBytes("UTF-8"));
+            } else {
+                // Plugin non packagé (classes en répertoire) : pas de cache, les stubs peuvent changer à tout moment
+                return null;
+            }
+            if (digests.size() != knownDigests) {
+                writeAtomically(digestsFile, digests);
+            }
+            String hash = toHex(key.digest());
+            File directory = new File(root, hash);
+            // Invalidation : les caches des autres jeux de JARs sont supprimés
+            File[] siblings = root.listFiles();
+            if (siblings != null) {
+                for (File sibling : siblings) {
+                    if (sibling.isDirectory() && !sibling.getName().equals(hash)) {
+                        deleteRecursively(sibling);
+                    }
+                }
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) return null;
+            if (logWriter != null) {
+                ExportLogger.info(logWriter, "Cache des classes patchées: " + directory.getAbsolutePath());
+            }
+            return new PatchedClassCache(directory);
+        } catch (Exception e) {
+            if (logWriter != null) {
+                ExportLogger.warn(logWriter, "⚠ Cache des classes patchées indisponible: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Octets patchés de la classe (mappés en mémoire, lecture seule), ou null s'ils ne sont pas en cache.
+     */
+    public ByteBuffer get(String className) {
+        File file = new File(directory, className + ".class");
+        if (!file.isFile()) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre les octets patchés de la classe (écriture atomique, erreurs ignorées).
+     */
+    public void put(String className, byte[] classBytes) {
+        File file = new File(directory, className + ".class");
+        try {
+            File temp = File.createTempFile(className, ".tmp", directory);
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(classBytes);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) { }
+    }
+
+    /** Nom du fichier JAR contenant la ressource, d'après l'index, ou null. */
+    public synchronized String getJarFor(String resourcePath) {
+        return index.getProperty(resourcePath);
+    }
+
+    /** Mémorise le JAR contenant la ressource. */
+    public synchronized void putJarFor(String resourcePath, String jarName) {
+        if (jarName.equals(index.getProperty(resourcePath))) return;
+        index.setProperty(resourcePath, jarName);
+        try {
+            writeAtomically(new File(directory, INDEX_FILE), index);
+        } catch (IOException ignored) { }
+    }
+
+    /**
+     * Paquets contenant des classes dans le JAR, tels qu'enregistrés pour sa taille et sa date actuelles,
+     * ou null s'ils ne sont pas en cache ou si le JAR a changé.
+     */
+    public synchronized List<String> getPackages(File jar) {
+        String known = packages.getProperty(jar.getAbsolutePath());
+        String stamp = jar.length() + ":" + jar.lastModified() + ":";
+        if (known == null || !known.startsWith(stamp)) return null;
+        List<String> names = new ArrayList<String>();
+        if (known.length() > stamp.length()) {
+            for (String name : known.substring(stamp.length()).split(",")) {
+                names.add(DEFAULT_PACKAGE.equals(name) ? "" : name);
+            }
+        }
+        return names;
+    }
+
+    /** Mémorise les paquets des JARs donnés (une seule écriture pour tous les JARs). */
+    public synchronized void putPackages(Map<File, ? extends Collection<String>> jarPackages) {
+        if (jarPackages.isEmpty()) return;
+        for (Map.Entry<File, ? extends Collection<String>> entry : jarPackages.entrySet()) {
+            File jar = entry.getKey();
+            StringBuilder value = new StringBuilder().append(jar.length()).append(':').append(jar.lastModified()).append(':');
+            boolean first = true;
+            for (String name : entry.getValue()) {
+                if (!first) value.append(',');
+                value.append(name.isEmpty() ? DEFAULT_PACKAGE : name);
+                first = false;
+            }
+            packages.setProperty(jar.getAbsolutePath(), value.toString());
+        }
+        try {
+            writeAtomically(new File(directory, PACKAGES_FILE), packages);
+        } catch (IOException ignored) { }
+    }
+
+    private static String jarDigest(File jar, Properties digests) throws Exception {
+        if (!jar.isFile()) return "absent";
+        String stamp = jar.length() + ":" + jar.lastModified() + ":";
+        String known = digests.getProperty(jar.getAbsolutePath());
+        if (known != null && known.startsWith(stamp)) {
+            return known.substring(stamp.length());
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new FileInputStream(jar)) {
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        String hash = toHex(digest.digest());
+        digests.setProperty(jar.getAbsolutePath(), stamp + hash);
+        return hash;
+    }
+
+    private static void writeAtomically(File file, Properties properties) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try (OutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
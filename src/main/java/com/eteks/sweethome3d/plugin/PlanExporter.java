@@ -3,20 +3,23 @@ package com.eteks.sweethome3d.plugin;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import com.eteks.sweethome3d.model.Content;
 import com.eteks.sweethome3d.tools.URLContent;
@@ -24,7 +27,6 @@ import com.eteks.sweethome3d.tools.TemporaryURLContent;
 
 import com.eteks.sweethome3d.model.Home;
 import com.eteks.sweethome3d.model.HomeDoorOrWindow;
-import com.eteks.sweethome3d.model.HomeFurnitureGroup;
 import com.eteks.sweethome3d.model.HomePieceOfFurniture;
 import com.eteks.sweethome3d.model.Level;
 import com.eteks.sweethome3d.model.Room;
@@ -73,9 +75,57 @@ public class PlanExporter {
      * @return true si l'export a réussi, false sinon
      */
     public static boolean exportToEnergy3D(Home home, File outputFile) {
+        return exportToEnergy3D(home, outputFile, ExportMonitor.NONE);
+    }
+
+    /**
+     * Exporte un plan complet vers un fichier .ng3 en signalant les étapes au moniteur.
+     * L'annulation est vérifiée entre les étapes et entre les groupes de murs.
+     *
+     * @param home Le Home à exporter
+     * @param outputFile Le fichier de sortie .ng3
+     * @param monitor Moniteur d'avancement et d'annulation (non null)
+     * @return true si l'export a réussi, false sinon
+     * @throws java.util.concurrent.CancellationException si l'export a été annulé
+     */
+    public static boolean exportToEnergy3D(Home home, File outputFile, ExportMonitor monitor) {
+        return exportToEnergy3D(home, outputFile, monitor, new ExportMetrics());
+    }
+
+    /**
+     * Exporte un plan complet vers un fichier .ng3 en mesurant chaque étape.
+     * Les mesures sont écrites à côté du fichier exporté (plan.ng3.metrics.json), que l'export réussisse ou non.
+     *
+     * @param home Le Home à exporter
+     * @param outputFile Le fichier de sortie .ng3
+     * @param monitor Moniteur d'avancement et d'annulation (non null)
+     * @param metrics Mesures de l'export, remplies pendant l'appel (non null)
+     * @return true si l'export a réussi, false sinon
+     * @throws java.util.concurrent.CancellationException si l'export a été annulé
+     */
+    public static boolean exportToEnergy3D(Home home, File outputFile, ExportMonitor monitor, ExportMetrics metrics) {
+        return exportToEnergy3D(home, outputFile, monitor, metrics, null);
+    }
+
+    /**
+     * Exporte un plan complet vers un fichier .ng3 en réutilisant, si une session est donnée, les murs,
+     * ouvertures, arbres et buissons Energy3D du dernier export dont les données SH3D n'ont pas changé.
+     *
+     * @param home Le Home à exporter
+     * @param outputFile Le fichier de sortie .ng3
+     * @param monitor Moniteur d'avancement et d'annulation (non null)
+     * @param metrics Mesures de l'export, remplies pendant l'appel (non null)
+     * @param session Session incrémentale du plan (ExportSession.forHome), ou null pour tout reconstruire
+     * @return true si l'export a réussi, false sinon
+     * @throws java.util.concurrent.CancellationException si l'export a été annulé
+     */
+    public static boolean exportToEnergy3D(Home home, File outputFile, ExportMonitor monitor, ExportMetrics metrics,
+            ExportSession session) {
         // Créer un fichier de log pour le diagnostic
         File logFile = new File(outputFile.getParentFile(), outputFile.getName() + ".log");
         PrintWriter logWriter = null;
+        String metricsStatus = "failed";
+        metrics.attach();
         
         try {
             // Créer le répertoire parent si nécessaire
@@ -88,38 +138,54 @@ public class PlanExporter {
             
             // Ouvrir le log
             try {
-                logWriter = new PrintWriter(new java.io.FileWriter(logFile, true));
-                logWriter.println("\n=== DEBUT EXPORT ENERGY3D (PlanExporter) ===");
-                logWriter.println("Fichier de sortie: " + outputFile.getAbsolutePath());
-                logWriter.println("Timestamp: " + new java.util.Date());
-                logWriter.flush();
+                logWriter = ExportLogger.open(logFile, true);
+                ExportLogger.info(logWriter, "\n=== DEBUT EXPORT ENERGY3D (PlanExporter) ===");
+                ExportLogger.info(logWriter, "Fichier de sortie: " + outputFile.getAbsolutePath());
+                ExportLogger.info(logWriter, "Timestamp: " + new java.util.Date());
             } catch (Exception e) {
                 System.err.println("ERREUR lors de la création du log: " + e.getMessage());
                 e.printStackTrace();
                 // Continuer sans log
             }
+
+            // Plan inchangé depuis le dernier export vers ce fichier : le .ng3 existant est déjà le résultat
+            String exportKey = HomeFingerprint.isEnabled() ? HomeFingerprint.compute(home) : null;
+            if (exportKey != null && HomeFingerprint.matches(outputFile, exportKey)) {
+                if (logWriter != null) {
+                    ExportLogger.info(logWriter, "✓ Plan inchangé depuis le dernier export (clé " + exportKey.substring(0, 12) + "…), .ng3 conservé");
+                    ExportLogger.info(logWriter, "=== EXPORT REUSSI ===");
+                }
+                metricsStatus = "unchanged";
+                return true;
+            }
             
             // Vérifier que le niveau "terrain" existe et contient au moins des murs ou une pièce (pas de fondation 10x10 par défaut)
+            metrics.stage(ExportMetrics.Stage.VALIDATION);
             String validationError = getExportValidationError(home);
             if (validationError != null) {
                 if (logWriter != null) {
-                    logWriter.println("Export impossible: " + validationError.replace("\n\n", " "));
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "Export impossible: " + validationError.replace("\n\n", " "));
                 }
                 return false;
             }
             
             // Vérifier les classes Energy3D
-            logWriter.println("Vérification des classes Energy3D...");
-            logWriter.flush();
+            monitor.stageStarted(ExportMonitor.Stage.CLASSLOADER);
+            metrics.stage(ExportMetrics.Stage.CLASSLOADER);
+            ExportLogger.info(logWriter, "Vérification des classes Energy3D...");
             
+            // Trace du préchauffage lancé au chargement du plugin (vide en ligne de commande)
+            String warmUpTranscript = Energy3DWarmUp.getTranscript();
+            if (!warmUpTranscript.isEmpty()) {
+                logWriter.print(warmUpTranscript);
+            }
+
             // Forcer l'écriture du log immédiatement
             System.out.println("DEBUG: Création du ClassLoader Energy3D...");
             
             ClassLoader energy3dLoader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
             if (energy3dLoader == null) {
-                logWriter.println("✗ ERREUR: Impossible de créer le ClassLoader Energy3D!");
-                logWriter.flush();
+                ExportLogger.error(logWriter, "✗ ERREUR: Impossible de créer le ClassLoader Energy3D!");
                 System.err.println("ERREUR: ClassLoader Energy3D non créé!");
                 return false;
             }
@@ -129,100 +195,82 @@ public class PlanExporter {
             // Précharger toutes les classes Ardor3D nécessaires AVANT de charger Foundation
             // HousePart a un champ statique offsetState = new OffsetState() qui doit être résolu
             // Foundation et HousePart utilisent RenderState.StateType comme import statique
-            logWriter.println("Préchargement des classes Ardor3D nécessaires...");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "Préchargement des classes Ardor3D nécessaires...");
             System.out.println("DEBUG: Tentative de chargement des classes Ardor3D...");
             
             // 1. RenderState (utilisé par RenderState.StateType)
             Class<?> renderStateClass = null;
             try {
                 renderStateClass = energy3dLoader.loadClass("com.ardor3d.renderer.state.RenderState");
-                logWriter.println("✓ RenderState préchargé: " + renderStateClass.getName());
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ RenderState préchargé: " + renderStateClass.getName());
             } catch (Exception e) {
-                logWriter.println("✗ ERREUR: Impossible de précharger RenderState: " + e.getMessage());
+                ExportLogger.error(logWriter, "✗ ERREUR: Impossible de précharger RenderState: " + e.getMessage());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
                 return false;
             }
             
             // 2. OffsetState (utilisé par HousePart.offsetState = new OffsetState())
             try {
                 Class<?> offsetStateClass = energy3dLoader.loadClass("com.ardor3d.renderer.state.OffsetState");
-                logWriter.println("✓ OffsetState préchargé: " + offsetStateClass.getName());
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ OffsetState préchargé: " + offsetStateClass.getName());
             } catch (Exception e) {
-                logWriter.println("✗ ERREUR: Impossible de précharger OffsetState: " + e.getMessage());
+                ExportLogger.error(logWriter, "✗ ERREUR: Impossible de précharger OffsetState: " + e.getMessage());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
                 return false;
             }
             
             // 3. OffsetType (utilisé par HousePart static block: offsetState.setTypeEnabled(OffsetType.Fill, true))
             try {
                 Class<?> offsetTypeClass = energy3dLoader.loadClass("com.ardor3d.renderer.state.OffsetState$OffsetType");
-                logWriter.println("✓ OffsetType préchargé: " + offsetTypeClass.getName());
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ OffsetType préchargé: " + offsetTypeClass.getName());
             } catch (Exception e) {
-                logWriter.println("✗ ERREUR: Impossible de précharger OffsetType: " + e.getMessage());
+                ExportLogger.error(logWriter, "✗ ERREUR: Impossible de précharger OffsetType: " + e.getMessage());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
                 return false;
             }
             
             // 4. MaterialState (stub dans le plugin, utilisé par Window et peut-être Foundation)
-            logWriter.println("MaterialState sera chargé à la demande si nécessaire");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "MaterialState sera chargé à la demande si nécessaire");
             
             // 5. BlendState et TextureState (utilisés par Foundation)
             try {
                 energy3dLoader.loadClass("com.ardor3d.renderer.state.BlendState");
-                logWriter.println("✓ BlendState préchargé");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ BlendState préchargé");
             } catch (Exception e) {
-                logWriter.println("⚠ AVERTISSEMENT: BlendState non préchargé: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: BlendState non préchargé: " + e.getMessage());
             }
             
             try {
                 energy3dLoader.loadClass("com.ardor3d.renderer.state.TextureState");
-                logWriter.println("✓ TextureState préchargé");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ TextureState préchargé");
             } catch (Exception e) {
-                logWriter.println("⚠ AVERTISSEMENT: TextureState non préchargé: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: TextureState non préchargé: " + e.getMessage());
             }
 
             // 6. LightState (stub pour compatibilité)
             try {
                 energy3dLoader.loadClass("com.ardor3d.renderer.state.LightState");
-                logWriter.println("✓ LightState préchargé");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ LightState préchargé");
             } catch (Exception e) {
-                logWriter.println("⚠ AVERTISSEMENT: LightState non préchargé: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: LightState non préchargé: " + e.getMessage());
             }
             
             // Précharger BloomRenderPass (utilisé par Foundation, même si commenté dans le code)
             try {
                 energy3dLoader.loadClass("com.ardor3d.extension.effect.bloom.BloomRenderPass");
-                logWriter.println("✓ BloomRenderPass préchargé");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ BloomRenderPass préchargé");
             } catch (Exception e) {
-                logWriter.println("⚠ AVERTISSEMENT: BloomRenderPass non préchargé: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: BloomRenderPass non préchargé: " + e.getMessage());
             }
 
             // Précharger ImageLoader compat (utilisé indirectement par Scene.openNow)
             try {
                 Class<?> imageLoaderClass = energy3dLoader.loadClass("com.ardor3d.image.util.ImageLoader");
-                logWriter.println("✓ ImageLoader (compat) préchargé: " + imageLoaderClass.getName());
-                logWriter.println("  ClassLoader: " + imageLoaderClass.getClassLoader().getClass().getName());
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ ImageLoader (compat) préchargé: " + imageLoaderClass.getName());
+                ExportLogger.info(logWriter, "  ClassLoader: " + imageLoaderClass.getClassLoader().getClass().getName());
             } catch (Exception e) {
-                logWriter.println("⚠ AVERTISSEMENT: ImageLoader (compat) non préchargé: " + e.getMessage());
-                logWriter.println("  Type: " + e.getClass().getName());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: ImageLoader (compat) non préchargé: " + e.getMessage());
+                ExportLogger.warn(logWriter, "  Type: " + e.getClass().getName());
             }
 
             // Vérifier la hiérarchie MaterialState -> RenderState (debug compatibilité)
@@ -236,31 +284,28 @@ public class PlanExporter {
                 String superLoader = (superClass != null && superClass.getClassLoader() != null)
                     ? superClass.getClassLoader().getClass().getName()
                     : "bootstrap";
-                logWriter.println("✓ MaterialState chargé: " + materialStateClass.getName());
-                logWriter.println("  ClassLoader: " + materialLoader);
-                logWriter.println("  Superclass: " + (superClass != null ? superClass.getName() : "null"));
-                logWriter.println("  SuperClassLoader: " + superLoader);
-                logWriter.println("  RenderState == Superclass: " + (renderStateCheck == superClass));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ MaterialState chargé: " + materialStateClass.getName());
+                ExportLogger.info(logWriter, "  ClassLoader: " + materialLoader);
+                ExportLogger.info(logWriter, "  Superclass: " + (superClass != null ? superClass.getName() : "null"));
+                ExportLogger.info(logWriter, "  SuperClassLoader: " + superLoader);
+                ExportLogger.info(logWriter, "  RenderState == Superclass: " + (renderStateCheck == superClass));
             } catch (Exception e) {
-                logWriter.println("⚠ AVERTISSEMENT: Impossible de vérifier MaterialState/RenderState: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: Impossible de vérifier MaterialState/RenderState: " + e.getMessage());
             }
             
-            logWriter.println("✓ Toutes les classes Ardor3D critiques préchargées");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "✓ Toutes les classes Ardor3D critiques préchargées");
             System.out.println("DEBUG: Classes Ardor3D chargées avec succès");
             
-            logWriter.println("Chargement des classes Energy3D (Scene, Foundation, Wall)...");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "Chargement des classes Energy3D (Scene, Foundation, Wall)...");
             
             // Charger les classes nécessaires
             Class<?> sceneClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.scene.Scene", logWriter);
             Class<?> foundationClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Foundation", logWriter);
             
-            logWriter.println("✓ Classes Energy3D chargées");
-            logWriter.println("  Foundation ClassLoader: " + foundationClass.getClassLoader().getClass().getName());
-            logWriter.flush();
+            ExportLogger.info(logWriter, "✓ Classes Energy3D chargées");
+            ExportLogger.info(logWriter, "  Foundation ClassLoader: " + foundationClass.getClassLoader().getClass().getName());
+            // Méthodes et champs Energy3D résolus une fois pour tout l'export
+            Energy3DHandles handles = Energy3DHandles.get(energy3dLoader).withMetrics(metrics);
             
             // Obtenir les murs
             Collection<Wall> sh3dWalls = home.getWalls();
@@ -268,40 +313,34 @@ public class PlanExporter {
                 sh3dWalls = new java.util.ArrayList<Wall>();
             }
             
-            logWriter.println("Nombre de murs à exporter: " + sh3dWalls.size());
-            logWriter.flush();
-            
-            // Supprimer le fichier existant s'il existe
-            if (outputFile.exists()) {
-                outputFile.delete();
-            }
+            ExportLogger.info(logWriter, "Nombre de murs à exporter: " + sh3dWalls.size());
             
+            checkCancelled(monitor);
+            monitor.stageStarted(ExportMonitor.Stage.FOUNDATION);
+            metrics.stage(ExportMetrics.Stage.FOUNDATION);
+
             // Créer une nouvelle instance de Scene (comme Energy3D le fait)
-            logWriter.println("Création d'une nouvelle instance de Scene...");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "Création d'une nouvelle instance de Scene...");
             
             java.lang.reflect.Constructor<?> sceneConstructor = sceneClass.getDeclaredConstructor();
             sceneConstructor.setAccessible(true);
             Object scene = sceneConstructor.newInstance();
             
-            logWriter.println("✓ Scene créée");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "✓ Scene créée");
            
             // En mode export sans UI, on évite Scene.openNow/SceneManager.
             // On force Scene.instance pour que HousePart.init n'appelle pas openNow().
             ensureSceneInstance(sceneClass, scene, logWriter);
 
             // Initialiser la Scene (optionnel en mode headless) : désactivé pour éviter SceneManager
-            logWriter.println("INFO: Initialisation Scene ignorée (mode headless export)");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "INFO: Initialisation Scene ignorée (mode headless export)");
             
             // Fondation = pièce sur le niveau "foundation" (déjà validé : foundation + au moins une pièce)
             double originX = 0.0, originY = 0.0;
             Level foundationLevel = findLevelByCategory(home, "foundation", logWriter);
             Room foundationRoom = findRoomOnLevel(home, foundationLevel, logWriter);
             if (foundationRoom == null) {
-                logWriter.println("✗ ERREUR: Aucune pièce sur le niveau 'foundation' (validation incohérente)");
-                logWriter.flush();
+                ExportLogger.error(logWriter, "✗ ERREUR: Aucune pièce sur le niveau 'foundation' (validation incohérente)");
                 return false;
             }
             float[][] rpts = foundationRoom.getPoints();
@@ -317,150 +356,157 @@ public class PlanExporter {
                 originY = 0.5 * (rminY + rmaxY);
             }
             if (logWriter != null) {
-                logWriter.println("Origine = centre pièce terrain: " + originX + ", " + originY + " cm");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "Origine = centre pièce terrain: " + originX + ", " + originY + " cm");
             }
-            Object foundation = createFoundationFromRoom(foundationRoom, foundationClass, originX, originY, logWriter);
+            long foundationStart = ExportFlightRecorder.partStart();
+            ExportGeometry.Foundation foundationGeometry = ExportGeometry.extractFoundation(foundationRoom, originX, originY);
+            Object foundation = foundationGeometry != null ? createFoundationFromRoom(foundationGeometry, foundationClass, logWriter) : null;
             if (foundation == null) {
-                logWriter.println("✗ ERREUR: Impossible de créer la fondation à partir de la pièce terrain");
-                logWriter.flush();
+                ExportLogger.error(logWriter, "✗ ERREUR: Impossible de créer la fondation à partir de la pièce terrain");
                 return false;
             }
-            Class<?> housePartClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.HousePart", logWriter);
-            java.lang.reflect.Method addMethod = sceneClass.getMethod("add", housePartClass, boolean.class);
-            logWriter.println("✓ Fondation créée");
-            logWriter.flush();
-            
-            logWriter.println("Conversion des murs SH3D → Energy3D (tous les niveaux)...");
-            logWriter.flush();
-            List<HomePieceOfFurniture> allFurniture = getAllFurnitureIncludingGroups(home);
-            int doorsWindowsCount = 0;
-            for (HomePieceOfFurniture p : allFurniture) {
-                if (p.isDoorOrWindow() && p instanceof HomeDoorOrWindow) doorsWindowsCount++;
+            ExportMetrics.countPartCreated();
+            ExportFlightRecorder.partConverted("Foundation", foundationRoom.getId(), foundationStart);
+            ExportLogger.info(logWriter, "✓ Fondation créée");
+            if (session != null) {
+                // Les pièces gardées sont relatives à la fondation : elles ne servent que si elle est identique
+                session.attach(energy3dLoader, foundationFingerprint(foundationRoom, foundationLevel, originX, originY));
             }
+            
+            metrics.stage(ExportMetrics.Stage.WALL_GROUPING);
+            ExportLogger.info(logWriter, "Conversion des murs SH3D → Energy3D (tous les niveaux)...");
+            // Meubles indexés une fois (groupes aplatis, par niveau et par type) pour tous les exports ci-dessous
+            FurnitureIndex furnitureIndex = FurnitureIndex.build(home);
+            List<HomePieceOfFurniture> allFurniture = furnitureIndex.getAllFurniture();
+            int doorsWindowsCount = furnitureIndex.getDoorsAndWindows().size();
             if (logWriter != null) {
-                logWriter.println("  Portes/fenêtres dans le plan (tous niveaux, dont groupes): " + doorsWindowsCount);
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Portes/fenêtres dans le plan (tous niveaux, dont groupes): " + doorsWindowsCount);
             }
             // Regrouper les murs par segment 2D (même trace au plan) pour fusionner les murs superposés sur plusieurs niveaux
             List<List<Wall>> wallGroups = groupWallsBySegment(sh3dWalls, foundationLevel, logWriter);
             // Ne garder que les murs du périmètre de la pièce fondation si ce filtre laisse au moins un segment (sinon garder tous les murs)
-            List<List<Wall>> boundaryFiltered = filterToRoomBoundaryOnly(wallGroups, foundationRoom, logWriter);
+            // Périmètre et enveloppes convexes calculés une seule fois pour tout l'export
+            SegmentClassification segments = new SegmentClassification(foundationRoom);
+            List<List<Wall>> boundaryFiltered = filterToRoomBoundaryOnly(wallGroups, foundationRoom, segments, logWriter);
             boolean usedBoundaryFallback = boundaryFiltered.isEmpty();
             if (!boundaryFiltered.isEmpty()) {
                 wallGroups = boundaryFiltered;
             } else if (logWriter != null) {
-                logWriter.println("  Périmètre pièce fondation ne matche aucun segment (niveaux différents ?), export de tous les segments.");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Périmètre pièce fondation ne matche aucun segment (niveaux différents ?), export de tous les segments.");
             }
             if (WALLS_TRAVERSE_REVERSE_ORDER) {
                 Collections.reverse(wallGroups);
-                if (logWriter != null) logWriter.println("  Ordre des segments: inversé (sens périmètre Energy3D)");
-            }
-            double foundationHeightUnits = ((Number) foundationClass.getMethod("getHeight").invoke(foundation)).doubleValue();
+                if (logWriter != null) ExportLogger.info(logWriter, "  Ordre des segments: inversé (sens périmètre Energy3D)");
+            }
+            // Repère de la fondation Energy3D créée : seule donnée relue sur Energy3D pour extraire la géométrie
+            ExportGeometry.Frame frame = readFoundationFrame(foundation, originX, originY, handles);
+            // Rattachement ouverture → mur en une passe (grille spatiale), au lieu d'un balayage des meubles par mur
+            java.util.Map<Wall, List<HomeDoorOrWindow>> openingsByWall = OpeningWallIndex.assignOpenings(
+                    home.getWalls(), allFurniture, DOOR_WINDOW_WALL_MARGIN_CM);
+            checkCancelled(monitor);
+            monitor.stageStarted(ExportMonitor.Stage.WALLS);
+            metrics.stage(ExportMetrics.Stage.WALL_CONVERSION);
+            // Géométrie des segments et de leurs ouvertures (sans Energy3D), puis assemblage des Wall Energy3D
+            boolean[] exteriorGroups = classifyExteriorGroups(wallGroups, segments, usedBoundaryFallback);
+            ExportGeometry.Walls walls = ExportGeometry.extractWalls(wallGroups, exteriorGroups, openingsByWall,
+                    furnitureIndex, foundationLevel, frame);
             int wallCount = 0;
-            int groupIndex = 0;
-            for (List<Wall> group : wallGroups) {
-                groupIndex++;
-                if (group.isEmpty()) continue;
-                Wall representativeWall = group.get(0);
-                double overrideBaseZ = -1;
-                double overrideHeight = -1;
-                if (group.size() > 1) {
-                    // Murs superposés : hauteur cumulée, base = niveau le plus bas
-                    float foundationElev = foundationLevel != null ? foundationLevel.getElevation() : 0f;
-                    float minElev = Float.MAX_VALUE;
-                    double totalHeightCm = 0;
-                    for (Wall w : group) {
-                        Level l = w.getLevel();
-                        if (l != null) minElev = Math.min(minElev, l.getElevation());
-                        Float h = w.getHeight();
-                        totalHeightCm += (h != null ? h.doubleValue() : 250.0);
-                    }
-                    if (minElev == Float.MAX_VALUE) minElev = foundationElev;
-                    overrideBaseZ = foundationHeightUnits + (minElev - foundationElev) * SCALE_CM_TO_ENERGY3D;
-                    overrideHeight = totalHeightCm * SCALE_CM_TO_ENERGY3D;
-                }
+            // Murs Energy3D créés par segment (null si la conversion a échoué) ; les ouvertures sont posées ensuite
+            Object[] convertedWalls = new Object[walls.count];
+            // Segments repris tels quels du dernier export (ouvertures comprises)
+            boolean[] reusedWalls = new boolean[walls.count];
+            for (int i = 0; i < walls.count; i++) {
+                long partStart = ExportFlightRecorder.partStart();
+                checkCancelled(monitor);
+                monitor.progress(ExportMonitor.Stage.WALLS, i, walls.count);
                 try {
-                    // Déterminer si le mur est extérieur ou intérieur selon son niveau (config.json)
-                    Level wallLevel = representativeWall.getLevel();
-                    boolean isExterior = false;
-                    if (wallLevel != null) {
-                        String levelName = wallLevel.getName();
-                        if (ConfigReader.matchesCategory(levelName, "external_wall")) {
-                            isExterior = true;
-                        } else if (ConfigReader.matchesCategory(levelName, "internal_wall")) {
-                            isExterior = false;
-                        } else {
-                            // Fallback: utiliser l'enveloppe convexe si le niveau n'est pas reconnu
-                            java.util.Set<String> convexHullKeys = usedBoundaryFallback
-                                    ? convexHullSegmentKeysFromWallGroups(wallGroups)
-                                    : convexHullSegmentKeys(foundationRoom);
-                            isExterior = convexHullKeys.contains(segmentKey(representativeWall));
-                        }
-                    }
                     if (logWriter != null) {
-                        logWriter.println("  Segment " + groupIndex + "/" + wallGroups.size() + (group.size() > 1 ? " (" + group.size() + " murs fusionnés)" : "") + " (" + (isExterior ? "extérieur" : "intérieur") + ")...");
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  Segment " + (i + 1) + "/" + walls.count + (walls.merged[i] > 1 ? " (" + walls.merged[i] + " murs fusionnés)" : "") + " (" + (walls.exterior[i] ? "extérieur" : "intérieur") + ")...");
+                    }
+                    String wallFingerprint = ExportSession.isActive() ? walls.key(i) : null;
+                    Object energy3dWall = ExportSession.reuse(wallFingerprint);
+                    boolean reused = energy3dWall != null;
+                    if (reused) {
+                        handles.setContainer(energy3dWall, foundation);
+                    } else {
+                        energy3dWall = assembleWall(walls, i, foundation, handles, logWriter);
                     }
-                    Object energy3dWall = convertWallToEnergy3D(representativeWall, foundation, originX, originY,
-                            foundationLevel, overrideBaseZ, overrideHeight, isExterior, logWriter);
                     if (energy3dWall != null) {
-                        for (Wall sh3dWallInGroup : group) {
-                            convertWindowsOnWall(home, sh3dWallInGroup, energy3dWall, foundation, originX, originY, foundationClass, logWriter);
-                        }
-                        java.lang.reflect.Method getChildrenMethod = foundationClass.getMethod("getChildren");
-                        @SuppressWarnings("unchecked")
-                        java.util.List<Object> children = (java.util.List<Object>) getChildrenMethod.invoke(foundation);
-                        children.add(energy3dWall);
+                        convertedWalls[i] = energy3dWall;
+                        reusedWalls[i] = reused;
+                        ExportSession.keep(wallFingerprint, energy3dWall);
+                        handles.getChildren(foundation).add(energy3dWall);
                         wallCount++;
-                        if (logWriter != null) { logWriter.println("  ✓ Segment " + groupIndex + " converti"); logWriter.flush(); }
+                        ExportMetrics.countPartCreated();
+                        ExportFlightRecorder.partConverted("Wall", walls.ids[i], partStart);
+                        if (logWriter != null) { ExportLogger.info(logWriter, "  ✓ Segment " + (i + 1) + (reused ? " inchangé, repris du dernier export" : " converti")); }
+                    } else {
+                        ExportMetrics.countPartSkipped();
                     }
                 } catch (Throwable t) {
-                    logWriter.println("  ✗ ERREUR segment " + groupIndex + ": " + t.getMessage());
+                    ExportMetrics.countPartSkipped();
+                    ExportLogger.error(logWriter, "  ✗ ERREUR segment " + (i + 1) + ": " + t.getMessage());
                     t.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
             }
-            logWriter.println("✓ " + wallCount + " murs convertis");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "✓ " + wallCount + " murs convertis");
+
+            // Portes et fenêtres, segment par segment (enfants des murs Energy3D déjà créés)
+            monitor.stageStarted(ExportMonitor.Stage.OPENINGS);
+            metrics.stage(ExportMetrics.Stage.OPENINGS);
+            for (int i = 0; i < walls.count; i++) {
+                checkCancelled(monitor);
+                monitor.progress(ExportMonitor.Stage.OPENINGS, i, walls.count);
+                if (convertedWalls[i] == null || reusedWalls[i]) continue; // ouvertures déjà enfants du mur repris
+                try {
+                    assembleOpenings(walls, i, convertedWalls[i], handles, logWriter);
+                } catch (Throwable t) {
+                    ExportLogger.error(logWriter, "  ✗ ERREUR ouvertures segment " + (i + 1) + ": " + t.getMessage());
+                    t.printStackTrace(logWriter);
+                }
+            }
+            metrics.stage(ExportMetrics.Stage.CONNECT_WALLS);
             try {
-                foundationClass.getMethod("connectWalls").invoke(foundation);
+                handles.connectFoundationWalls(foundation);
             } catch (Exception ignored) { }
 
+            metrics.stage(ExportMetrics.Stage.SCENE);
             try {
-                foundationClass.getMethod("draw").invoke(foundation);
+                handles.draw(foundation);
             } catch (Exception e) {
-                logWriter.println("AVERTISSEMENT dessin fondation: " + e.getMessage());
+                ExportLogger.warn(logWriter, "AVERTISSEMENT dessin fondation: " + e.getMessage());
             }
 
             // Export des arbres et buissons depuis les niveaux correspondants
-            exportTreesAndBushes(home, foundation, foundationClass, originX, originY, scene, logWriter);
+            checkCancelled(monitor);
+            monitor.stageStarted(ExportMonitor.Stage.PLANTS);
+            exportTreesAndBushes(home, furnitureIndex, foundation, frame, scene, handles, logWriter);
             
+            metrics.stage(ExportMetrics.Stage.TERRAIN3D);
             if (ENABLE_TERRAIN3D_EXPORT) {
-                export3DTerrainObjects(home, foundation, foundationClass, originX, originY, scene, logWriter);
+                export3DTerrainObjects(home, furnitureIndex, foundation, foundationClass, originX, originY, scene, logWriter);
             } else {
-                logWriter.println("INFO: export terrain3d désactivé temporairement (TODO).");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "INFO: export terrain3d désactivé temporairement (TODO).");
             }
             
-            logWriter.println("Ajout de la fondation à la Scene...");
-            logWriter.flush();
-            addMethod.invoke(scene, foundation, true);
-            logWriter.println("✓ Fondation ajoutée à la Scene");
-            logWriter.flush();
+            metrics.stage(ExportMetrics.Stage.SCENE);
+            ExportLogger.info(logWriter, "Ajout de la fondation à la Scene...");
+            handles.addToScene(scene, foundation, true);
+            ExportLogger.info(logWriter, "✓ Fondation ajoutée à la Scene");
 
-            // Connecter les murs (visitNeighbors)
+            // Connecter les murs de la Scene (visitNeighbors), compté avec l'ajout à la Scene
             try {
                 java.lang.reflect.Method connectWallsMethod = sceneClass.getDeclaredMethod("connectWalls");
                 connectWallsMethod.setAccessible(true);
+                metrics.countReflectiveCalls(1);
                 connectWallsMethod.invoke(scene);
-                if (logWriter != null) logWriter.println("  connectWalls() exécuté.");
+                if (logWriter != null) ExportLogger.info(logWriter, "  connectWalls() exécuté.");
             } catch (Throwable t) {
-                if (logWriter != null) logWriter.println("  connectWalls(): " + t.getMessage());
+                if (logWriter != null) ExportLogger.info(logWriter, "  connectWalls(): " + t.getMessage());
             }
 
-            addTreesFromHome(home, scene, originX, originY, sceneClass, logWriter);
+            metrics.stage(ExportMetrics.Stage.TREES);
+            addTreesFromHome(home, furnitureIndex, scene, originX, originY, handles, logWriter);
 
             ensureSceneAnnotationScale(sceneClass, scene, ENERGY3D_DEFAULT_SCALE, logWriter);
             
@@ -469,123 +515,48 @@ public class PlanExporter {
             setSceneCameraFieldsByReflection(sceneClass, scene, 14.69, -139.37, 41.82, logWriter);
             
             // Sérialiser la Scene exactement comme Energy3D le fait
-            logWriter.println("Sérialisation de la Scene vers: " + outputFile.getAbsolutePath());
-            logWriter.println("Vérifications pré-sérialisation:");
-            logWriter.println("  Fichier existe: " + outputFile.exists());
-            logWriter.println("  Répertoire parent existe: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().exists() : "N/A"));
-            logWriter.println("  Répertoire parent peut écrire: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().canWrite() : "N/A"));
-            logWriter.flush();
-            
-            // Supprimer le fichier existant s'il existe
-            if (outputFile.exists()) {
-                logWriter.println("Suppression du fichier existant...");
-                logWriter.flush();
-                boolean deleted = outputFile.delete();
-                logWriter.println("  Fichier supprimé: " + deleted);
-                logWriter.flush();
-            }
+            checkCancelled(monitor);
+            monitor.stageStarted(ExportMonitor.Stage.SERIALIZE);
+            metrics.stage(ExportMetrics.Stage.SERIALIZE);
+            ExportLogger.info(logWriter, "Sérialisation de la Scene vers: " + outputFile.getAbsolutePath());
+            ExportLogger.info(logWriter, "Vérifications pré-sérialisation:");
+            ExportLogger.info(logWriter, "  Fichier existe: " + outputFile.exists());
+            ExportLogger.info(logWriter, "  Répertoire parent existe: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().exists() : "N/A"));
+            ExportLogger.info(logWriter, "  Répertoire parent peut écrire: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().canWrite() : "N/A"));
             
             // Même méthode d'enregistrement qu'Energy3D (Scene.realSave) : ObjectOutputStream.writeObject(instance).
             // On ne peut pas appeler Scene.save(url) depuis le plugin car nous sommes dans Sweet Home 3D, pas Energy3D :
             // realSave() utilise SceneManager.getCamera(), EnergyPanel.getInstance(), etc. qui n'existent pas ici.
-            FileOutputStream fos = null;
-            ObjectOutputStream out = null;
+            // Sérialisation en mémoire, vérification de l'en-tête puis remplacement atomique : l'ancien .ng3 reste intact en cas d'échec.
+            long bytesWritten;
             try {
-                logWriter.println("Création du FileOutputStream...");
-                logWriter.flush();
-                fos = new FileOutputStream(outputFile, false);
-                logWriter.println("✓ FileOutputStream créé");
-                logWriter.flush();
-                
-                logWriter.println("Création de l'ObjectOutputStream...");
-                logWriter.flush();
-                out = new ObjectOutputStream(fos);
-                logWriter.println("✓ ObjectOutputStream créé");
-                logWriter.flush();
-                
-                logWriter.println("Écriture de la Scene...");
-                logWriter.flush();
-                out.writeObject(scene);
-                logWriter.println("✓ Scene écrite");
-                logWriter.flush();
-                
-                logWriter.println("Flush des streams...");
-                logWriter.flush();
-                out.flush();
-                fos.getFD().sync();
-                logWriter.println("✓ Streams flushed");
-                logWriter.flush();
-                
-                logWriter.println("Fermeture des streams...");
-                logWriter.flush();
-                out.close();
-                fos.close();
-                logWriter.println("✓ Streams fermés");
-                logWriter.flush();
-                
-                logWriter.println("✓ Sérialisation terminée");
-                logWriter.flush();
+                bytesWritten = Ng3Writer.write(scene, outputFile, logWriter);
             } catch (Exception e) {
-                logWriter.println("✗ ERREUR lors de la sérialisation: " + e.getMessage());
-                logWriter.println("Type d'exception: " + e.getClass().getName());
+                ExportLogger.error(logWriter, "✗ ERREUR lors de la sérialisation: " + e.getMessage());
+                ExportLogger.error(logWriter, "Type d'exception: " + e.getClass().getName());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
-                if (out != null) {
-                    try { out.close(); } catch (Exception ex) {}
-                }
-                if (fos != null) {
-                    try { fos.close(); } catch (Exception ex) {}
-                }
+                ExportLogger.info(logWriter, "=== EXPORT ECHOUE ===");
                 return false;
             }
-            
-            // Vérifier le fichier
-            logWriter.println("Vérification du fichier créé...");
-            logWriter.println("  Fichier existe: " + outputFile.exists());
-            if (outputFile.exists()) {
-                logWriter.println("  Taille: " + outputFile.length() + " bytes");
-            }
-            logWriter.flush();
-            
-            if (outputFile.exists() && outputFile.length() > 0) {
-                // Vérifier le header binaire Java (AC ED = magic number)
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(outputFile)) {
-                    byte[] header = new byte[4];
-                    int read = fis.read(header);
-                    if (read == 4 && header[0] == (byte)0xAC && header[1] == (byte)0xED) {
-                        String headerStr = String.format("%02X %02X %02X %02X", header[0], header[1], header[2], header[3]);
-                        logWriter.println("✓ Fichier .ng3 valide créé: " + outputFile.length() + " bytes");
-                        logWriter.println("Header: " + headerStr);
-                        logWriter.println("=== EXPORT REUSSI ===");
-                        logWriter.flush();
-                        return true;
-                    } else {
-                        String headerStr = read >= 1 ? String.format("%02X", header[0]) : "vide";
-                        logWriter.println("✗ ERREUR: Fichier créé mais header invalide");
-                        logWriter.println("  Bytes lus: " + read);
-                        logWriter.println("  Premier byte: " + headerStr);
-                        logWriter.println("=== EXPORT ECHOUE ===");
-                        logWriter.flush();
-                        return false;
-                    }
-                } catch (Exception e) {
-                    logWriter.println("✗ ERREUR lors de la vérification du fichier: " + e.getMessage());
-                    e.printStackTrace(logWriter);
-                    logWriter.println("=== EXPORT ECHOUE ===");
-                    logWriter.flush();
-                    return false;
-                }
-            } else {
-                logWriter.println("✗ ERREUR: Fichier non créé ou vide");
-                logWriter.println("  Existe: " + outputFile.exists());
-                if (outputFile.exists()) {
-                    logWriter.println("  Taille: " + outputFile.length() + " bytes");
-                }
-                logWriter.println("=== EXPORT ECHOUE ===");
-                logWriter.flush();
-                return false;
+            metrics.addBytesWritten(bytesWritten);
+            if (exportKey != null) {
+                HomeFingerprint.writeKey(outputFile, exportKey);
+            }
+            if (session != null) {
+                ExportLogger.info(logWriter, "Export incrémental: " + session.getReusedCount() + " élément(s) repris, "
+                        + session.getRebuiltCount() + " reconstruit(s)");
             }
+            ExportLogger.info(logWriter, "✓ Fichier .ng3 valide créé: " + bytesWritten + " bytes");
+            ExportLogger.info(logWriter, "=== EXPORT REUSSI ===");
+            metricsStatus = "ok";
+            return true;
             
+        } catch (java.util.concurrent.CancellationException e) {
+            metricsStatus = "cancelled";
+            if (logWriter != null) {
+                ExportLogger.info(logWriter, "=== EXPORT ANNULE ===");
+            }
+            throw e;
         } catch (Throwable t) {
             // Créer le log même en cas d'exception ou Error (LinkageError, NoSuchMethodError, etc.)
             if (logWriter == null) {
@@ -593,24 +564,28 @@ public class PlanExporter {
                     if (logFile.getParentFile() != null) {
                         logFile.getParentFile().mkdirs();
                     }
-                    logWriter = new PrintWriter(new java.io.FileWriter(logFile, true));
+                    logWriter = ExportLogger.open(logFile, true);
                 } catch (Exception logEx) {
                     t.printStackTrace();
                     return false;
                 }
             }
             
-            logWriter.println("\n=== EXCEPTION/ERROR LORS DE L'EXPORT ===");
-            logWriter.println("Type: " + t.getClass().getName());
-            logWriter.println("Message: " + t.getMessage());
+            ExportLogger.error(logWriter, "\n=== EXCEPTION/ERROR LORS DE L'EXPORT ===");
+            ExportLogger.error(logWriter, "Type: " + t.getClass().getName());
+            ExportLogger.error(logWriter, "Message: " + t.getMessage());
             t.printStackTrace(logWriter);
-            logWriter.flush();
-            logWriter.close();
             
             t.printStackTrace();
             return false;
         } finally {
+            if (session != null) {
+                session.detach(metricsStatus);
+            }
+            metrics.detach(metricsStatus);
+            File metricsFile = metrics.writeSidecar(outputFile);
             if (logWriter != null) {
+                ExportLogger.info(logWriter, "Mesures de l'export: " + (metricsFile != null ? metricsFile.getAbsolutePath() : "non écrites"));
                 try {
                     logWriter.close();
                 } catch (Exception e) {
@@ -620,6 +595,82 @@ public class PlanExporter {
         }
     }
     
+    /** Empreinte de la fondation : contour de la pièce, origine et niveau (null hors export incrémental). */
+    private static String foundationFingerprint(Room foundationRoom, Level foundationLevel, double originX, double originY) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(originX).append(',').append(originY);
+        if (foundationLevel != null) {
+            sb.append('|').append(foundationLevel.getElevation()).append(',').append(foundationLevel.getHeight());
+        }
+        float[][] points = foundationRoom.getPoints();
+        if (points != null) {
+            for (float[] point : points) {
+                sb.append('|').append(point[0]).append(',').append(point[1]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Repère de la fondation Energy3D (points absolus 0, 1, 2 et épaisseur) pour ExportGeometry. */
+    static ExportGeometry.Frame readFoundationFrame(Object foundation, double originX, double originY,
+            Energy3DHandles handles) throws Exception {
+        Object p0 = handles.getAbsPoint(foundation, 0);
+        Object p1 = handles.getAbsPoint(foundation, 1);
+        Object p2 = handles.getAbsPoint(foundation, 2);
+        return new ExportGeometry.Frame(originX, originY, handles.getX(p0), handles.getY(p0), handles.getX(p1), handles.getY(p1),
+                handles.getX(p2), handles.getY(p2), handles.getHeight(foundation));
+    }
+
+    /**
+     * Type de chaque groupe de murs selon le niveau de son premier mur (config.json) : extérieur, intérieur,
+     * ou, pour un niveau non reconnu, extérieur s'il est sur l'enveloppe convexe.
+     * Les mots-clés sont comparés une fois par niveau, il ne reste qu'une recherche par groupe.
+     */
+    private static boolean[] classifyExteriorGroups(List<List<Wall>> wallGroups, SegmentClassification segments,
+            boolean usedBoundaryFallback) {
+        boolean[] exterior = new boolean[wallGroups.size()];
+        // Catégorie par niveau : TRUE extérieur, FALSE intérieur, null non reconnu
+        java.util.Map<Level, Boolean> levelCategories = new java.util.IdentityHashMap<Level, Boolean>();
+        // Enveloppe convexe pour les niveaux non reconnus, calculée au premier besoin
+        SegmentKeySet convexHullKeys = null;
+        for (int i = 0; i < exterior.length; i++) {
+            List<Wall> group = wallGroups.get(i);
+            if (group.isEmpty()) continue;
+            Wall representativeWall = group.get(0);
+            Level wallLevel = representativeWall.getLevel();
+            if (wallLevel == null) continue;
+            Boolean category = levelCategories.get(wallLevel);
+            if (category == null && !levelCategories.containsKey(wallLevel)) {
+                // Une seule passe sur le nom pour les deux catégories
+                List<String> levelMatches = ConfigReader.matchingCategories(wallLevel.getName());
+                if (levelMatches.contains("external_wall")) {
+                    category = Boolean.TRUE;
+                } else if (levelMatches.contains("internal_wall")) {
+                    category = Boolean.FALSE;
+                }
+                levelCategories.put(wallLevel, category);
+            }
+            if (category != null) {
+                exterior[i] = category;
+            } else {
+                if (convexHullKeys == null) {
+                    convexHullKeys = usedBoundaryFallback
+                            ? SegmentClassification.wallGroupsHull(wallGroups)
+                            : segments.getRoomHull();
+                }
+                exterior[i] = convexHullKeys.contains(representativeWall);
+            }
+        }
+        return exterior;
+    }
+
+    /** Lève CancellationException si le moniteur demande l'arrêt de l'export. */
+    private static void checkCancelled(ExportMonitor monitor) {
+        if (monitor.isCancelled()) {
+            throw new java.util.concurrent.CancellationException("Export Energy3D annulé");
+        }
+    }
+
     public static boolean exportSh3dFileToNg3(File sh3dFile, File outputFile) {
         java.io.InputStream in = null;
         try {
@@ -629,9 +680,8 @@ public class PlanExporter {
             boolean ok = exportToEnergy3D(home, outputFile);
             if (!ok) {
                 File logFile = new File(outputFile.getParentFile(), outputFile.getName() + ".log");
-                try (java.io.PrintWriter logWriter = new java.io.PrintWriter(new java.io.FileWriter(logFile, true))) {
-                    logWriter.println("INFO: exportToEnergy3D a échoué, création d'un .ng3 vide en repli");
-                    logWriter.flush();
+                try (java.io.PrintWriter logWriter = ExportLogger.open(logFile, true)) {
+                    ExportLogger.info(logWriter, "INFO: exportToEnergy3D a échoué, création d'un .ng3 vide en repli");
                 } catch (Exception ignore) {}
                 return exportEmptyNg3(outputFile);
             }
@@ -639,12 +689,11 @@ public class PlanExporter {
         } catch (Throwable e) {
             try {
                 File logFile = new File(outputFile.getParentFile(), outputFile.getName() + ".log");
-                java.io.PrintWriter logWriter = new java.io.PrintWriter(new java.io.FileWriter(logFile, true));
-                logWriter.println("✗ ERREUR export complet: " + e.getMessage());
-                logWriter.println("Type: " + e.getClass().getName());
+                java.io.PrintWriter logWriter = ExportLogger.open(logFile, true);
+                ExportLogger.error(logWriter, "✗ ERREUR export complet: " + e.getMessage());
+                ExportLogger.error(logWriter, "Type: " + e.getClass().getName());
                 e.printStackTrace(logWriter);
-                logWriter.println("→ Bascule vers création d'un projet .ng3 vide");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "→ Bascule vers création d'un projet .ng3 vide");
                 logWriter.close();
             } catch (Exception ignore) {}
             return exportEmptyNg3(outputFile);
@@ -666,19 +715,17 @@ public class PlanExporter {
                 logFile.getParentFile().mkdirs();
             }
             try {
-                logWriter = new PrintWriter(new java.io.FileWriter(logFile, true));
-                logWriter.println("\n=== DEBUT EXPORT NG3 AVEC SOL ===");
-                logWriter.println("Dimensions: " + widthMeters + "m x " + heightMeters + "m");
-                logWriter.println("Fichier: " + outputFile.getAbsolutePath());
-                logWriter.flush();
+                logWriter = ExportLogger.open(logFile, true);
+                ExportLogger.info(logWriter, "\n=== DEBUT EXPORT NG3 AVEC SOL ===");
+                ExportLogger.info(logWriter, "Dimensions: " + widthMeters + "m x " + heightMeters + "m");
+                ExportLogger.info(logWriter, "Fichier: " + outputFile.getAbsolutePath());
             } catch (Exception e) {
             }
             
             ClassLoader energy3dLoader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
             if (energy3dLoader == null) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: ClassLoader Energy3D non disponible");
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: ClassLoader Energy3D non disponible");
                 }
                 return false;
             }
@@ -687,8 +734,7 @@ public class PlanExporter {
             Object scene = createNewSceneInstance(logWriter);
             if (scene == null) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: Scene non créée, repli vers ng3 vide");
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: Scene non créée, repli vers ng3 vide");
                 }
                 return exportEmptyNg3(outputFile);
             }
@@ -697,8 +743,7 @@ public class PlanExporter {
             Object foundation = createSizedFoundation(widthMeters, heightMeters, logWriter);
             if (foundation == null) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: Foundation non créée, repli vers ng3 vide");
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: Foundation non créée, repli vers ng3 vide");
                 }
                 return exportEmptyNg3(outputFile);
             }
@@ -715,12 +760,12 @@ public class PlanExporter {
             //             foundation.getClass().getMethod("connectWalls").invoke(foundation);
             //         } catch (Exception ignored) { }
             //         if (logWriter != null) {
-            //             logWriter.println("✓ Mur 5m x 2m ajouté à la fondation (origine)");
+            //             ExportLogger.info(logWriter, "✓ Mur 5m x 2m ajouté à la fondation (origine)");
             //             logWriter.flush();
             //         }
             //     } catch (Exception e) {
             //         if (logWriter != null) {
-            //             logWriter.println("⚠ Mur non ajouté aux enfants: " + e.getMessage());
+            //             ExportLogger.warn(logWriter, "⚠ Mur non ajouté aux enfants: " + e.getMessage());
             //             logWriter.flush();
             //         }
             //     }
@@ -731,20 +776,17 @@ public class PlanExporter {
                 java.lang.reflect.Method addMethod = sceneClass.getMethod("add", housePartClass, boolean.class);
                 addMethod.invoke(scene, foundation, Boolean.FALSE);
                 if (logWriter != null) {
-                    logWriter.println("✓ Foundation ajoutée via Scene.add(..., false)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "✓ Foundation ajoutée via Scene.add(..., false)");
                 }
                 java.lang.reflect.Method getPartsMethod = sceneClass.getMethod("getParts");
                 @SuppressWarnings("unchecked")
                 java.util.List<Object> parts = (java.util.List<Object>) getPartsMethod.invoke(scene);
                 if (logWriter != null) {
-                    logWriter.println("✓ Vérification parts avant sérialisation: " + (parts != null ? parts.size() : -1));
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "✓ Vérification parts avant sérialisation: " + (parts != null ? parts.size() : -1));
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: ajout Foundation à Scene: " + e.getMessage());
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: ajout Foundation à Scene: " + e.getMessage());
                 }
                 return exportEmptyNg3(outputFile);
             }
@@ -756,20 +798,18 @@ public class PlanExporter {
             
             boolean ok = serializeSceneToNG3(scene, outputFile, logWriter);
             if (logWriter != null) {
-                logWriter.println(ok ? "=== EXPORT SOL REUSSI ===" : "=== EXPORT SOL ECHOUE ===");
-                logWriter.flush();
+                ExportLogger.info(logWriter, ok ? "=== EXPORT SOL REUSSI ===" : "=== EXPORT SOL ECHOUE ===");
             }
             return ok;
         } catch (Throwable t) {
             if (logWriter != null) {
-                logWriter.println("✗ ERREUR: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
+                ExportLogger.error(logWriter, "✗ ERREUR: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
                 Throwable cause = t.getCause();
                 if (cause != null) {
-                    logWriter.println("  Cause: " + cause.getClass().getName() + ": " + cause.getMessage());
+                    ExportLogger.error(logWriter, "  Cause: " + cause.getClass().getName() + ": " + cause.getMessage());
                     cause.printStackTrace(new java.io.PrintWriter(logWriter, true));
                 }
                 t.printStackTrace(new java.io.PrintWriter(logWriter, true));
-                logWriter.flush();
             }
             return exportEmptyNg3(outputFile);
         } finally {
@@ -796,13 +836,11 @@ public class PlanExporter {
                 Object human = humanCtor.newInstance(0, 1.0);
                 addMethod.invoke(scene, human, Boolean.FALSE);
                 if (logWriter != null) {
-                    logWriter.println("✓ Human(0, 1) ajouté (scène de départ Energy3D)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "✓ Human(0, 1) ajouté (scène de départ Energy3D)");
                 }
             } catch (Throwable t) {
                 if (logWriter != null) {
-                    logWriter.println("⚠ Human non ajouté (optionnel): " + (t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName()));
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "⚠ Human non ajouté (optionnel): " + (t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName()));
                 }
             }
 
@@ -818,21 +856,18 @@ public class PlanExporter {
                 foundationClass.getMethod("setColor", loader.loadClass("com.ardor3d.math.type.ReadOnlyColorRGBA")).invoke(foundation, defaultColor);
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("⚠ Foundation.setColor non appliqué: " + e.getMessage());
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "⚠ Foundation.setColor non appliqué: " + e.getMessage());
                 }
             }
             addMethod.invoke(scene, foundation, Boolean.FALSE);
             if (logWriter != null) {
-                logWriter.println("✓ Foundation(80, 60) ajoutée (16 m x 12 m, scale 0.2)");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ Foundation(80, 60) ajoutée (16 m x 12 m, scale 0.2)");
             }
             return true;
         } catch (Throwable t) {
             if (logWriter != null) {
-                logWriter.println("✗ populateSceneAsEnergy3DDefault: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
+                ExportLogger.error(logWriter, "✗ populateSceneAsEnergy3DDefault: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
                 t.printStackTrace(logWriter);
-                logWriter.flush();
             }
             return false;
         }
@@ -849,26 +884,23 @@ public class PlanExporter {
                 logFile.getParentFile().mkdirs();
             }
             try {
-                logWriter = new PrintWriter(new java.io.FileWriter(logFile, true));
-                logWriter.println("\n=== DEBUT EXPORT NG3 VIDE (scène de départ Energy3D) ===");
-                logWriter.println("Fichier de sortie: " + outputFile.getAbsolutePath());
-                logWriter.println("Timestamp: " + new java.util.Date());
-                logWriter.flush();
+                logWriter = ExportLogger.open(logFile, true);
+                ExportLogger.info(logWriter, "\n=== DEBUT EXPORT NG3 VIDE (scène de départ Energy3D) ===");
+                ExportLogger.info(logWriter, "Fichier de sortie: " + outputFile.getAbsolutePath());
+                ExportLogger.info(logWriter, "Timestamp: " + new java.util.Date());
             } catch (Exception e) {
             }
             ClassLoader energy3dLoader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
             if (energy3dLoader == null) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: ClassLoader Energy3D non disponible");
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: ClassLoader Energy3D non disponible");
                 }
                 return false;
             }
             Class<?> sceneClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.scene.Scene", logWriter);
             if (sceneClass == null) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR: Classe Scene non trouvée");
-                    logWriter.flush();
+                    ExportLogger.error(logWriter, "✗ ERREUR: Classe Scene non trouvée");
                 }
                 return false;
             }
@@ -888,68 +920,30 @@ public class PlanExporter {
             // Caméra pour 16 m x 12 m (scale 0.2) : camY=-40, camZ=10 unités ≈ 8 m derrière, 2 m hauteur
             setExportedSceneCamera(sceneClass, scene, logWriter, -40, 10);
             setSceneCameraFieldsByReflection(sceneClass, scene, 0, -40, 10, logWriter);
-            if (outputFile.exists()) {
-                outputFile.delete();
-            }
-            FileOutputStream fos = null;
-            ObjectOutputStream out = null;
             try {
-                fos = new FileOutputStream(outputFile, false);
-                out = new ObjectOutputStream(fos);
-                out.writeObject(scene);
-                out.flush();
-                fos.getFD().sync();
-                out.close();
-                fos.close();
+                long bytesWritten = Ng3Writer.write(scene, outputFile, logWriter);
+                if (logWriter != null) {
+                    ExportLogger.info(logWriter, "✓ Fichier .ng3 vide valide: " + bytesWritten + " bytes");
+                    ExportLogger.info(logWriter, "=== EXPORT VIDE REUSSI ===");
+                }
+                return true;
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("✗ ERREUR sérialisation: " + e.getMessage());
-                    logWriter.println("Type: " + e.getClass().getName());
+                    ExportLogger.error(logWriter, "✗ ERREUR sérialisation: " + e.getMessage());
+                    ExportLogger.error(logWriter, "Type: " + e.getClass().getName());
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
-                try { if (out != null) out.close(); } catch (Exception ex) {}
-                try { if (fos != null) fos.close(); } catch (Exception ex) {}
                 return false;
             }
-            if (logWriter != null) {
-                logWriter.println("Vérification du fichier créé...");
-                logWriter.println("  Fichier existe: " + outputFile.exists());
-                if (outputFile.exists()) {
-                    logWriter.println("  Taille: " + outputFile.length() + " bytes");
-                }
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(outputFile)) {
-                    byte[] header = new byte[4];
-                    int read = fis.read(header);
-                    if (read == 4 && header[0] == (byte)0xAC && header[1] == (byte)0xED) {
-                        String headerStr = String.format("%02X %02X %02X %02X", header[0], header[1], header[2], header[3]);
-                        logWriter.println("✓ Fichier .ng3 vide valide");
-                        logWriter.println("Header: " + headerStr);
-                        logWriter.println("=== EXPORT VIDE REUSSI ===");
-                        logWriter.flush();
-                        return true;
-                    } else {
-                        logWriter.println("✗ Header invalide");
-                        logWriter.flush();
-                        return false;
-                    }
-                } catch (Exception e) {
-                    logWriter.println("✗ ERREUR vérification: " + e.getMessage());
-                    logWriter.flush();
-                    return false;
-                }
-            }
-            return outputFile.exists() && outputFile.length() > 0;
         } catch (Throwable t) {
             if (logWriter != null) {
-                logWriter.println("✗ ERREUR: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
+                ExportLogger.error(logWriter, "✗ ERREUR: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
                 Throwable cause = t.getCause();
                 if (cause != null) {
-                    logWriter.println("  Cause: " + cause.getClass().getName() + ": " + cause.getMessage());
+                    ExportLogger.error(logWriter, "  Cause: " + cause.getClass().getName() + ": " + cause.getMessage());
                     cause.printStackTrace(new java.io.PrintWriter(logWriter, true));
                 }
                 t.printStackTrace(new java.io.PrintWriter(logWriter, true));
-                logWriter.flush();
             }
             return false;
         } finally {
@@ -967,12 +961,10 @@ public class PlanExporter {
             if (existing == null) {
                 instanceField.set(null, sceneInstance);
                 if (logWriter != null) {
-                    logWriter.println("✓ Scene.instance initialisée (mode headless)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "✓ Scene.instance initialisée (mode headless)");
                 }
             } else if (logWriter != null) {
-                logWriter.println("INFO: Scene.instance déjà défini: " + existing.getClass().getName());
-                logWriter.flush();
+                ExportLogger.info(logWriter, "INFO: Scene.instance déjà défini: " + existing.getClass().getName());
             }
             // Grille 1×1×0,2 m : garder annotationScale = 0,2 (défaut Energy3D)
             try {
@@ -980,19 +972,16 @@ public class PlanExporter {
                 scaleField.setAccessible(true);
                 scaleField.set(sceneInstance, ENERGY3D_DEFAULT_SCALE);
                 if (logWriter != null) {
-                    logWriter.println("✓ Scene.annotationScale = " + ENERGY3D_DEFAULT_SCALE + " (grille 1×1×0,2 m)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "✓ Scene.annotationScale = " + ENERGY3D_DEFAULT_SCALE + " (grille 1×1×0,2 m)");
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("⚠ annotationScale non défini: " + e.getMessage());
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "⚠ annotationScale non défini: " + e.getMessage());
                 }
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("⚠ AVERTISSEMENT: Impossible de forcer Scene.instance: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ AVERTISSEMENT: Impossible de forcer Scene.instance: " + e.getMessage());
             }
         }
     }
@@ -1007,13 +996,11 @@ public class PlanExporter {
             scaleField.setAccessible(true);
             scaleField.set(scene, scale);
             if (logWriter != null) {
-                logWriter.println("✓ Scene.annotationScale réappliqué = " + scale + " avant sérialisation");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ Scene.annotationScale réappliqué = " + scale + " avant sérialisation");
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("⚠ ensureSceneAnnotationScale: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ ensureSceneAnnotationScale: " + e.getMessage());
             }
         }
     }
@@ -1039,13 +1026,11 @@ public class PlanExporter {
             sceneClass.getMethod("setCameraLocation", loader.loadClass("com.ardor3d.math.ReadOnlyVector3")).invoke(scene, loc);
             sceneClass.getMethod("setCameraDirection", loader.loadClass("com.ardor3d.math.ReadOnlyVector3")).invoke(scene, dir);
             if (logWriter != null) {
-                logWriter.println("✓ Scene: caméra position (" + camX + ", " + camY + ", " + camZ + "), direction vers centre");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ Scene: caméra position (" + camX + ", " + camY + ", " + camZ + "), direction vers centre");
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("⚠ Caméra non définie (zoom par défaut à l'ouverture): " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ Caméra non définie (zoom par défaut à l'ouverture): " + e.getMessage());
             }
         }
     }
@@ -1075,25 +1060,22 @@ public class PlanExporter {
             locField.set(scene, loc);
             dirField.set(scene, dir);
             if (logWriter != null) {
-                logWriter.println("✓ Scene.cameraLocation / cameraDirection fixés par réflexion (sérialisation)");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "✓ Scene.cameraLocation / cameraDirection fixés par réflexion (sérialisation)");
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("⚠ setSceneCameraFieldsByReflection: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "⚠ setSceneCameraFieldsByReflection: " + e.getMessage());
             }
         }
     }
 
-    private static Object createSizedFoundation(double widthMeters, double heightMeters, PrintWriter logWriter) {
+    static Object createSizedFoundation(double widthMeters, double heightMeters, PrintWriter logWriter) {
         try {
             ClassLoader energy3dLoader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
             
             // Précharger les classes Ardor3D critiques avant Foundation (évite NoClassDefFoundError dans les initialisations statiques)
             if (logWriter != null) {
-                logWriter.println("  Préchargement des classes Ardor3D nécessaires pour Foundation (RenderState/OffsetState/OffsetType/LightState/ImageLoader/MaterialState)...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Préchargement des classes Ardor3D nécessaires pour Foundation (RenderState/OffsetState/OffsetType/LightState/ImageLoader/MaterialState)...");
             }
             try {
                 energy3dLoader.loadClass("com.ardor3d.renderer.state.RenderState");
@@ -1101,32 +1083,28 @@ public class PlanExporter {
                 energy3dLoader.loadClass("com.ardor3d.renderer.state.OffsetState$OffsetType");
                 try {
                     energy3dLoader.loadClass("com.ardor3d.renderer.state.LightState");
-                    if (logWriter != null) {
-                        logWriter.println("    ✓ LightState préchargé");
-                        logWriter.flush();
+                    if (ExportLogger.isDebugEnabled(logWriter)) {
+                        ExportLogger.debug(logWriter, "    ✓ LightState préchargé");
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("    ⚠ AVERTISSEMENT: LightState non préchargé: " + e.getMessage());
-                        logWriter.flush();
+                        ExportLogger.warn(logWriter, "    ⚠ AVERTISSEMENT: LightState non préchargé: " + e.getMessage());
                     }
                 }
                 try {
                     Class<?> imageLoaderClass = energy3dLoader.loadClass("com.ardor3d.image.util.ImageLoader");
-                    if (logWriter != null) {
-                        logWriter.println("    ✓ ImageLoader (compat) préchargé: " + imageLoaderClass.getName());
-                        logWriter.println("      ClassLoader: " + imageLoaderClass.getClassLoader().getClass().getName());
-                        logWriter.flush();
+                    if (ExportLogger.isDebugEnabled(logWriter)) {
+                        ExportLogger.debug(logWriter, "    ✓ ImageLoader (compat) préchargé: " + imageLoaderClass.getName());
+                        ExportLogger.debug(logWriter, "      ClassLoader: " + imageLoaderClass.getClassLoader().getClass().getName());
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("    ⚠ AVERTISSEMENT: ImageLoader (compat) non préchargé: " + e.getMessage());
-                        logWriter.flush();
+                        ExportLogger.warn(logWriter, "    ⚠ AVERTISSEMENT: ImageLoader (compat) non préchargé: " + e.getMessage());
                     }
                 }
                 try {
                     Class<?> materialStateClass = energy3dLoader.loadClass("com.ardor3d.renderer.state.MaterialState");
-                    if (logWriter != null) {
+                    if (ExportLogger.isDebugEnabled(logWriter)) {
                         Class<?> superClass = materialStateClass.getSuperclass();
                         String materialLoader = materialStateClass.getClassLoader() != null
                             ? materialStateClass.getClassLoader().getClass().getName()
@@ -1135,28 +1113,24 @@ public class PlanExporter {
                             ? superClass.getClassLoader().getClass().getName()
                             : "bootstrap";
                         Class<?> renderStateCheck = energy3dLoader.loadClass("com.ardor3d.renderer.state.RenderState");
-                        logWriter.println("    ✓ MaterialState préchargé");
-                        logWriter.println("      MaterialState ClassLoader: " + materialLoader);
-                        logWriter.println("      Superclass: " + (superClass != null ? superClass.getName() : "null"));
-                        logWriter.println("      SuperClassLoader: " + superLoader);
-                        logWriter.println("      RenderState == Superclass: " + (renderStateCheck == superClass));
-                        logWriter.flush();
+                        ExportLogger.debug(logWriter, "    ✓ MaterialState préchargé");
+                        ExportLogger.debug(logWriter, "      MaterialState ClassLoader: " + materialLoader);
+                        ExportLogger.debug(logWriter, "      Superclass: " + (superClass != null ? superClass.getName() : "null"));
+                        ExportLogger.debug(logWriter, "      SuperClassLoader: " + superLoader);
+                        ExportLogger.debug(logWriter, "      RenderState == Superclass: " + (renderStateCheck == superClass));
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("    ⚠ AVERTISSEMENT: MaterialState non préchargé: " + e.getMessage());
-                        logWriter.flush();
+                        ExportLogger.warn(logWriter, "    ⚠ AVERTISSEMENT: MaterialState non préchargé: " + e.getMessage());
                     }
                 }
                 if (logWriter != null) {
-                    logWriter.println("  ✓ Préchargement Ardor3D terminé");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ Préchargement Ardor3D terminé");
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("  ✗ ERREUR: Préchargement Ardor3D échoué: " + e.getMessage());
+                    ExportLogger.error(logWriter, "  ✗ ERREUR: Préchargement Ardor3D échoué: " + e.getMessage());
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
                 // Continuer quand même; Foundation peut réussir si les dépendances ne sont pas strictes
             }
@@ -1176,25 +1150,21 @@ public class PlanExporter {
                     heightField.setAccessible(true);
                     heightField.setDouble(foundation, FOUNDATION_HEIGHT_UNITS);
                     if (logWriter != null) {
-                        logWriter.println("  Foundation.height = " + FOUNDATION_HEIGHT_UNITS + " u (0,2 m affiché)");
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  Foundation.height = " + FOUNDATION_HEIGHT_UNITS + " u (0,2 m affiché)");
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("  ⚠ Foundation.height non modifié: " + e.getMessage());
-                        logWriter.flush();
+                        ExportLogger.warn(logWriter, "  ⚠ Foundation.height non modifié: " + e.getMessage());
                     }
                 }
                 setFoundationChildGridSize(foundationClass, foundation, 5.0, logWriter);
                 if (logWriter != null) {
-                    logWriter.println("✓ Foundation créée via constructeur: " + widthMeters + "m x " + heightMeters + "m → " + widthUnits + " x " + heightUnits + " unités");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "✓ Foundation créée via constructeur: " + widthMeters + "m x " + heightMeters + "m → " + widthUnits + " x " + heightUnits + " unités");
                 }
                 return foundation;
             } catch (NoSuchMethodException nsme) {
                 if (logWriter != null) {
-                    logWriter.println("⚠ Constructeur Foundation(double,double) introuvable, bascule vers addPoint/complete");
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "⚠ Constructeur Foundation(double,double) introuvable, bascule vers addPoint/complete");
                 }
                 Object foundation = foundationClass.newInstance();
                 int halfWidthCm = (int)Math.round((widthMeters * 100.0) / 2.0);
@@ -1211,9 +1181,8 @@ public class PlanExporter {
             }
         } catch (Throwable e) {
             if (logWriter != null) {
-                logWriter.println("✗ ERREUR: createSizedFoundation " + e.getClass().getName() + ": " + e.getMessage());
+                ExportLogger.error(logWriter, "✗ ERREUR: createSizedFoundation " + e.getClass().getName() + ": " + e.getMessage());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
             }
             return null;
         }
@@ -1266,38 +1235,34 @@ public class PlanExporter {
                 try {
                     energy3dLoader.loadClass("com.ardor3d.renderer.state.LightState");
                     if (logWriter != null) {
-                        logWriter.println("  ✓ LightState préchargé");
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  ✓ LightState préchargé");
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("  ⚠ AVERTISSEMENT: LightState non préchargé: " + e.getMessage());
-                        logWriter.flush();
+                        ExportLogger.warn(logWriter, "  ⚠ AVERTISSEMENT: LightState non préchargé: " + e.getMessage());
                     }
                 }
                 // Précharger ImageLoader compat (appelé pendant Scene.openNow)
                 try {
                     Class<?> imageLoaderClass = energy3dLoader.loadClass("com.ardor3d.image.util.ImageLoader");
                     if (logWriter != null) {
-                        logWriter.println("  ✓ ImageLoader (compat) préchargé: " + imageLoaderClass.getName());
-                        logWriter.println("    ClassLoader: " + imageLoaderClass.getClassLoader().getClass().getName());
-                        logWriter.flush();
+                        ExportLogger.info(logWriter, "  ✓ ImageLoader (compat) préchargé: " + imageLoaderClass.getName());
+                        if (ExportLogger.isDebugEnabled(logWriter)) {
+                            ExportLogger.debug(logWriter, "    ClassLoader: " + imageLoaderClass.getClassLoader().getClass().getName());
+                        }
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("  ⚠ AVERTISSEMENT: ImageLoader (compat) non préchargé: " + e.getMessage());
-                        logWriter.flush();
+                        ExportLogger.warn(logWriter, "  ⚠ AVERTISSEMENT: ImageLoader (compat) non préchargé: " + e.getMessage());
                     }
                 }
                 if (logWriter != null) {
-                    logWriter.println("  ✓ Classes Ardor3D critiques préchargées (RenderState, OffsetState, OffsetType)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ Classes Ardor3D critiques préchargées (RenderState, OffsetState, OffsetType)");
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("  ✗ ERREUR: Classes Ardor3D non préchargées: " + e.getMessage());
+                    ExportLogger.error(logWriter, "  ✗ ERREUR: Classes Ardor3D non préchargées: " + e.getMessage());
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
                 return null;
             }
@@ -1305,33 +1270,32 @@ public class PlanExporter {
             // PRÉCHARGER MaterialState AVANT de charger Foundation
             // Foundation peut avoir besoin de MaterialState lors de son chargement
             if (logWriter != null) {
-                logWriter.println("  Préchargement de MaterialState avant Foundation...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Préchargement de MaterialState avant Foundation...");
             }
             try {
                 Class<?> materialStateClass = energy3dLoader.loadClass("com.ardor3d.renderer.state.MaterialState");
                 if (logWriter != null) {
-                    logWriter.println("  ✓ MaterialState préchargé avec succès");
-                    Class<?> superClass = materialStateClass.getSuperclass();
-                    String materialLoader = materialStateClass.getClassLoader() != null
-                        ? materialStateClass.getClassLoader().getClass().getName()
-                        : "bootstrap";
-                    String superLoader = (superClass != null && superClass.getClassLoader() != null)
-                        ? superClass.getClassLoader().getClass().getName()
-                        : "bootstrap";
-                    Class<?> renderStateCheck = energy3dLoader.loadClass("com.ardor3d.renderer.state.RenderState");
-                    logWriter.println("    MaterialState ClassLoader: " + materialLoader);
-                    logWriter.println("    Superclass: " + (superClass != null ? superClass.getName() : "null"));
-                    logWriter.println("    SuperClassLoader: " + superLoader);
-                    logWriter.println("    RenderState == Superclass: " + (renderStateCheck == superClass));
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ MaterialState préchargé avec succès");
+                    if (ExportLogger.isDebugEnabled(logWriter)) {
+                        Class<?> superClass = materialStateClass.getSuperclass();
+                        String materialLoader = materialStateClass.getClassLoader() != null
+                            ? materialStateClass.getClassLoader().getClass().getName()
+                            : "bootstrap";
+                        String superLoader = (superClass != null && superClass.getClassLoader() != null)
+                            ? superClass.getClassLoader().getClass().getName()
+                            : "bootstrap";
+                        Class<?> renderStateCheck = energy3dLoader.loadClass("com.ardor3d.renderer.state.RenderState");
+                        ExportLogger.debug(logWriter, "    MaterialState ClassLoader: " + materialLoader);
+                        ExportLogger.debug(logWriter, "    Superclass: " + (superClass != null ? superClass.getName() : "null"));
+                        ExportLogger.debug(logWriter, "    SuperClassLoader: " + superLoader);
+                        ExportLogger.debug(logWriter, "    RenderState == Superclass: " + (renderStateCheck == superClass));
+                    }
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("  ⚠ AVERTISSEMENT: MaterialState non préchargé: " + e.getMessage());
-                    logWriter.println("    Type: " + e.getClass().getName());
+                    ExportLogger.warn(logWriter, "  ⚠ AVERTISSEMENT: MaterialState non préchargé: " + e.getMessage());
+                    ExportLogger.warn(logWriter, "    Type: " + e.getClass().getName());
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
             }
             
@@ -1339,13 +1303,11 @@ public class PlanExporter {
             try {
                 energy3dLoader.loadClass("com.ardor3d.scenegraph.Mesh");
                 if (logWriter != null) {
-                    logWriter.println("  ✓ Mesh préchargé (avec setUserData si nécessaire)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ Mesh préchargé (avec setUserData si nécessaire)");
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("  ⚠ AVERTISSEMENT: Mesh non préchargé: " + e.getMessage());
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "  ⚠ AVERTISSEMENT: Mesh non préchargé: " + e.getMessage());
                 }
             }
             
@@ -1380,61 +1342,54 @@ public class PlanExporter {
                 }
                 foundationClass.getMethod("draw").invoke(foundation);
                 if (logWriter != null) {
-                    logWriter.println("  ✓ Foundation créée via Foundation(largeur, hauteur) + translation (visible, comme projet vide)");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ Foundation créée via Foundation(largeur, hauteur) + translation (visible, comme projet vide)");
                 }
                 return foundation;
             } catch (NoSuchMethodException nsme) {
                 if (logWriter != null) {
-                    logWriter.println("  Constructeur Foundation(double,double) introuvable, bascule vers newInstance + points + complete");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  Constructeur Foundation(double,double) introuvable, bascule vers newInstance + points + complete");
                 }
             } catch (Throwable e) {
                 if (logWriter != null) {
-                    logWriter.println("  ⚠ Foundation(double,double) échoué: " + e.getMessage() + ", bascule vers newInstance");
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "  ⚠ Foundation(double,double) échoué: " + e.getMessage() + ", bascule vers newInstance");
                 }
             }
             
             try {
                 foundation = foundationClass.newInstance();
                 if (logWriter != null) {
-                    logWriter.println("  ✓ Foundation instanciée avec succès");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ Foundation instanciée avec succès");
                 }
                 System.out.println("DEBUG: Foundation instanciée avec succès");
             } catch (NoClassDefFoundError e) {
                 if (logWriter != null) {
-                    logWriter.println("  ✗ ERREUR NoClassDefFoundError lors de l'instanciation!");
-                    logWriter.println("  Message: " + e.getMessage());
-                    logWriter.println("  Cause: " + (e.getCause() != null ? e.getCause().getMessage() : "null"));
-                    logWriter.println("  Stack trace complète:");
+                    ExportLogger.error(logWriter, "  ✗ ERREUR NoClassDefFoundError lors de l'instanciation!");
+                    ExportLogger.error(logWriter, "  Message: " + e.getMessage());
+                    ExportLogger.error(logWriter, "  Cause: " + (e.getCause() != null ? e.getCause().getMessage() : "null"));
+                    ExportLogger.error(logWriter, "  Stack trace complète:");
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
                 System.err.println("ERREUR NoClassDefFoundError: " + e.getMessage());
                 e.printStackTrace();
                 return null;
             } catch (LinkageError e) {
                 if (logWriter != null) {
-                    logWriter.println("  ✗ ERREUR LinkageError lors de l'instanciation!");
-                    logWriter.println("  Message: " + e.getMessage());
-                    logWriter.println("  Type: " + e.getClass().getName());
-                    logWriter.println("  Stack trace complète:");
+                    ExportLogger.error(logWriter, "  ✗ ERREUR LinkageError lors de l'instanciation!");
+                    ExportLogger.error(logWriter, "  Message: " + e.getMessage());
+                    ExportLogger.error(logWriter, "  Type: " + e.getClass().getName());
+                    ExportLogger.error(logWriter, "  Stack trace complète:");
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
                 System.err.println("ERREUR LinkageError: " + e.getMessage());
                 e.printStackTrace();
                 return null;
             } catch (Throwable e) {
                 if (logWriter != null) {
-                    logWriter.println("  ✗ ERREUR lors de l'instanciation!");
-                    logWriter.println("  Type: " + e.getClass().getName());
-                    logWriter.println("  Message: " + e.getMessage());
-                    logWriter.println("  Stack trace complète:");
+                    ExportLogger.error(logWriter, "  ✗ ERREUR lors de l'instanciation!");
+                    ExportLogger.error(logWriter, "  Type: " + e.getClass().getName());
+                    ExportLogger.error(logWriter, "  Message: " + e.getMessage());
+                    ExportLogger.error(logWriter, "  Stack trace complète:");
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
                 System.err.println("ERREUR: " + e.getClass().getName() + ": " + e.getMessage());
                 e.printStackTrace();
@@ -1452,7 +1407,7 @@ public class PlanExporter {
                     } catch (NoSuchFieldException ignored) { }
                 }
                 if (pointsField == null) {
-                    if (logWriter != null) { logWriter.println("  ✗ Champ 'points' introuvable sur Foundation"); logWriter.flush(); }
+                    if (logWriter != null) { ExportLogger.error(logWriter, "  ✗ Champ 'points' introuvable sur Foundation"); }
                     return null;
                 }
                 pointsField.setAccessible(true);
@@ -1481,14 +1436,12 @@ public class PlanExporter {
                 java.lang.reflect.Method completeMethod = foundationClass.getMethod("complete");
                 completeMethod.invoke(foundation);
                 if (logWriter != null) {
-                    logWriter.println("  ✓ Foundation configurée avec succès");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ Foundation configurée avec succès");
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("  ✗ ERREUR lors de la configuration de Foundation: " + e.getMessage());
+                    ExportLogger.error(logWriter, "  ✗ ERREUR lors de la configuration de Foundation: " + e.getMessage());
                     e.printStackTrace(logWriter);
-                    logWriter.flush();
                 }
                 return null;
             }
@@ -1496,7 +1449,7 @@ public class PlanExporter {
             return foundation;
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("Exception lors de la création de la Foundation: " + e.getMessage());
+                ExportLogger.info(logWriter, "Exception lors de la création de la Foundation: " + e.getMessage());
                 e.printStackTrace(logWriter);
             }
             e.printStackTrace();
@@ -1513,32 +1466,27 @@ public class PlanExporter {
         java.util.List<Level> levels = home.getLevels();
         if (levels == null || levels.isEmpty()) {
             if (logWriter != null) {
-                logWriter.println("  Aucun niveau dans le plan (getLevels() vide ou null)");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Aucun niveau dans le plan (getLevels() vide ou null)");
             }
             return null;
         }
         if (logWriter != null) {
-            logWriter.println("  Niveaux du plan : " + levels.size());
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Niveaux du plan : " + levels.size());
         }
         for (Level level : levels) {
             String name = level.getName();
-            if (logWriter != null) {
-                logWriter.println("    - \"" + (name != null ? name : "") + "\"");
-                logWriter.flush();
+            if (ExportLogger.isDebugEnabled(logWriter)) {
+                ExportLogger.debug(logWriter, "    - \"" + (name != null ? name : "") + "\"");
             }
-            if (ConfigReader.matchesCategory(name, category)) {
+            if (ConfigReader.matchingCategories(name).contains(category)) {
                     if (logWriter != null) {
-                    logWriter.println("  Niveau " + category + " trouvé (\"" + name + "\").");
-                        logWriter.flush();
+                    ExportLogger.info(logWriter, "  Niveau " + category + " trouvé (\"" + name + "\").");
                     }
                     return level;
             }
         }
         if (logWriter != null) {
-            logWriter.println("  Aucun niveau correspondant à la catégorie \"" + category + "\".");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Aucun niveau correspondant à la catégorie \"" + category + "\".");
         }
         return null;
     }
@@ -1552,8 +1500,7 @@ public class PlanExporter {
         java.util.List<Room> sorted = getAllRoomsOnLevelSortedByArea(home, level);
         if (sorted == null || sorted.isEmpty()) {
             if (logWriter != null) {
-                logWriter.println("  Aucune pièce sur ce niveau.");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Aucune pièce sur ce niveau.");
             }
             return null;
         }
@@ -1597,42 +1544,24 @@ public class PlanExporter {
             childGridSizeField.setAccessible(true);
             childGridSizeField.setDouble(foundation, gridSize);
             if (logWriter != null) {
-                logWriter.println("  Fondation childGridSize = " + gridSize + " (pas tracé 1 m avec scale 0,2)");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Fondation childGridSize = " + gridSize + " (pas tracé 1 m avec scale 0,2)");
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  ⚠ Foundation.childGridSize non modifié: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "  ⚠ Foundation.childGridSize non modifié: " + e.getMessage());
             }
         }
     }
 
     /**
-     * Crée une fondation Energy3D à partir du sol d'une pièce SH3D (bounding box des points de la pièce).
+     * Crée une fondation Energy3D à partir du sol d'une pièce SH3D (bounding box des points de la pièce, ExportGeometry).
      * Utilise le constructeur Foundation(largeur, hauteur) comme Energy3D pour "nouveau projet avec contenu",
      * afin d'éviter CullHint.Always (réservé au constructeur sans argument). Puis translate le root au centre de la pièce.
      */
-    private static Object createFoundationFromRoom(Room room, Class<?> foundationClass, double originX, double originY, PrintWriter logWriter) {
+    private static Object createFoundationFromRoom(ExportGeometry.Foundation geometry, Class<?> foundationClass, PrintWriter logWriter) {
         try {
-            float[][] pts = room.getPoints();
-            if (pts == null || pts.length < 2) return null;
-            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = Double.MIN_VALUE, maxY = Double.MIN_VALUE;
-            for (int i = 0; i < pts.length; i++) {
-                double px = pts[i][0], py = pts[i][1];
-                minX = Math.min(minX, px);
-                minY = Math.min(minY, py);
-                maxX = Math.max(maxX, px);
-                maxY = Math.max(maxY, py);
-            }
-            double relMinX = minX - originX, relMinY = minY - originY, relMaxX = maxX - originX, relMaxY = maxY - originY;
-            double scale = SCALE_CM_TO_ENERGY3D;
-            double x0 = relMinX * scale, y0 = relMinY * scale, x1 = relMaxX * scale, y1 = relMaxY * scale;
-            if (MIRROR_FLIP_X) { x0 = -x0; x1 = -x1; double t = x0; x0 = x1; x1 = t; }
-            if (ROTATE_180_Z) { y0 = -y0; y1 = -y1; double t = y0; y0 = y1; y1 = t; }
-            double widthUnits = x1 - x0, heightUnits = y1 - y0;
-            double centerX = 0.5 * (x0 + x1), centerY = 0.5 * (y0 + y1);
-            if (widthUnits <= 0 || heightUnits <= 0) return null;
+            double widthUnits = geometry.width, heightUnits = geometry.height;
+            double centerX = geometry.centerX, centerY = geometry.centerY;
 
             // Comme Scene.newFile(true) : Foundation(80, 60) — constructeur (double, double) sans CullHint.Always
             Object foundation = foundationClass.getDeclaredConstructor(double.class, double.class).newInstance(widthUnits, heightUnits);
@@ -1642,11 +1571,10 @@ public class PlanExporter {
                 java.lang.reflect.Field heightField = foundationClass.getSuperclass().getDeclaredField("height");
                 heightField.setAccessible(true);
                 heightField.setDouble(foundation, FOUNDATION_HEIGHT_UNITS);
-                if (logWriter != null) logWriter.println("  Fondation height = " + FOUNDATION_HEIGHT_UNITS + " u (0,2 m affiché)");
+                if (logWriter != null) ExportLogger.info(logWriter, "  Fondation height = " + FOUNDATION_HEIGHT_UNITS + " u (0,2 m affiché)");
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("  ⚠ Foundation.height non modifié: " + e.getMessage());
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "  ⚠ Foundation.height non modifié: " + e.getMessage());
                 }
             }
             setFoundationChildGridSize(foundationClass, foundation, 5.0, logWriter);
@@ -1668,19 +1596,18 @@ public class PlanExporter {
                     Object sceneHints = root.getClass().getMethod("getSceneHints").invoke(root);
                     sceneHints.getClass().getMethod("setCullHint", cullHintClass).invoke(sceneHints, cullInherit);
                 } catch (Throwable ignored) { }
-                if (logWriter != null) logWriter.println("  Sol pièce: " + (widthUnits) + "x" + (heightUnits) + " u, centre (" + centerX + "," + centerY + ")");
+                if (logWriter != null) ExportLogger.info(logWriter, "  Sol pièce: " + (widthUnits) + "x" + (heightUnits) + " u, centre (" + centerX + "," + centerY + ")");
             }
             foundationClass.getMethod("draw").invoke(foundation);
             return foundation;
         } catch (Throwable t) {
             if (logWriter != null) {
-                logWriter.println("  createFoundationFromRoom: " + t.getClass().getSimpleName() + ": " + t.getMessage());
+                ExportLogger.info(logWriter, "  createFoundationFromRoom: " + t.getClass().getSimpleName() + ": " + t.getMessage());
                 Throwable cause = t.getCause();
-                if (cause != null) {
-                    logWriter.println("    Cause: " + cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                if (cause != null && ExportLogger.isDebugEnabled(logWriter)) {
+                    ExportLogger.debug(logWriter, "    Cause: " + cause.getClass().getSimpleName() + ": " + cause.getMessage());
                 }
                 t.printStackTrace(logWriter);
-                logWriter.flush();
             }
             return null;
         }
@@ -1693,185 +1620,41 @@ public class PlanExporter {
      */
     private static final double ENERGY3D_DEFAULT_SCALE = 0.2;
     /** 100 cm SH3D = 5 unités Energy3D → 1 m affiché (avec scale 0,2). */
-    private static final double SCALE_CM_TO_ENERGY3D = 0.05;
+    static final double SCALE_CM_TO_ENERGY3D = 0.05;
     /** 1 m = 5 unités (avec scale 0,2 : 5 × 0,2 = 1 m affiché). */
-    private static final double ENERGY3D_UNITS_PER_METER_EXPORT = 5.0;
+    static final double ENERGY3D_UNITS_PER_METER_EXPORT = 5.0;
     /** Hauteur fondation / épaisseur en unités Energy3D : 1 unité = 0,2 m affiché. */
     private static final double FOUNDATION_HEIGHT_UNITS = 1.0;
     /** Épaisseur des murs affichée dans Energy3D : 0,2 m. (en unités : 0,2 m / scale 0,2 = 1 unité) */
     /** Albédo des murs exportés pour obtenir une absorptance de 0,09 (Energy3D : absorptance = 1 - albedo). */
     private static final float DEFAULT_WALL_ALBEDO = 0.91f;
     /** Miroir X (symétrie axe Y) : à ajuster selon orientation SH3D vs Energy3D. */
-    private static final boolean MIRROR_FLIP_X = false;
+    static final boolean MIRROR_FLIP_X = false;
     /** Rotation 180° plan (inversion Y) : à ajuster pour aligner avec la vue 3D SH3D. */
-    private static final boolean ROTATE_180_Z = true;
+    static final boolean ROTATE_180_Z = true;
     /** Inverser l'orientation des murs (start/end) pour que la face extérieure en Energy3D corresponde à SH3D (évite les murs "à l'envers"). */
-    private static final boolean WALL_REVERSE_ORIENTATION = true;
+    static final boolean WALL_REVERSE_ORIENTATION = true;
     /** Parcourir les murs dans l'ordre inverse (sens du périmètre attendu par Energy3D pour connectWalls / rendu). */
     private static final boolean WALLS_TRAVERSE_REVERSE_ORDER = true;
-    /** Tolérance (cm) pour considérer deux segments comme le même mur (arrondi pour clé de regroupement). */
-    private static final double SEGMENT_KEY_TOLERANCE_CM = 1.0;
     /** Code terrain3d conservé pour reprise ultérieure ; appel désactivé temporairement. */
     private static final boolean ENABLE_TERRAIN3D_EXPORT = false;
 
-    /**
-     * Clé canonique pour un segment 2D (mur) : même clé = même trace au plan, tous niveaux confondus.
-     * Les extrémités sont ordonnées pour que (x1,y1) <= (x2,y2) lexicographiquement, puis arrondies à 1 cm.
-     */
-    private static String segmentKey(Wall w) {
-        if (w == null) return "";
-        double x1 = Math.round(w.getXStart() / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-        double y1 = Math.round(w.getYStart() / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-        double x2 = Math.round(w.getXEnd()   / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-        double y2 = Math.round(w.getYEnd()   / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-        if (x1 > x2 || (x1 == x2 && y1 > y2)) {
-            double t = x1; x1 = x2; x2 = t;
-            t = y1; y1 = y2; y2 = t;
-        }
-        return x1 + "," + y1 + "," + x2 + "," + y2;
-    }
-
-    /**
-     * Retourne l'ensemble des clés de segments qui forment le périmètre de la pièce (bord extérieur).
-     * Permet de ne garder que les murs extérieurs pour la fondation et le toit Energy3D.
-     */
-    private static java.util.Set<String> roomBoundarySegmentKeys(Room room) {
-        java.util.Set<String> keys = new java.util.HashSet<>();
-        if (room == null) return keys;
-        float[][] rpts = room.getPoints();
-        if (rpts == null || rpts.length < 2) return keys;
-        for (int i = 0; i < rpts.length; i++) {
-            double x1 = Math.round(rpts[i][0] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            double y1 = Math.round(rpts[i][1] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            int next = (i + 1) % rpts.length;
-            double x2 = Math.round(rpts[next][0] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            double y2 = Math.round(rpts[next][1] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            if (x1 > x2 || (x1 == x2 && y1 > y2)) {
-                double t = x1; x1 = x2; x2 = t;
-                t = y1; y1 = y2; y2 = t;
-            }
-            keys.add(x1 + "," + y1 + "," + x2 + "," + y2);
-        }
-        return keys;
-    }
-
-    /**
-     * Enveloppe convexe 2D (Jarvis / gift wrapping). Retourne les indices des points du contour extérieur.
-     * Permet de ne garder que les murs du contour extérieur pour une boucle fermée (toit Energy3D).
-     */
-    private static java.util.List<Integer> convexHullIndices(float[][] pts) {
-        java.util.List<Integer> hull = new ArrayList<>();
-        if (pts == null || pts.length < 3) return hull;
-        int n = pts.length;
-        int left = 0;
-        for (int i = 1; i < n; i++) {
-            if (pts[i][0] < pts[left][0] || (pts[i][0] == pts[left][0] && pts[i][1] < pts[left][1]))
-                left = i;
-        }
-        int current = left;
-        do {
-            hull.add(current);
-            int next = 0;
-            for (int i = 1; i < n; i++) {
-                if (next == current) {
-                    next = i;
-                    continue;
-                }
-                double cross = (pts[next][0] - pts[current][0]) * (pts[i][1] - pts[current][1])
-                            - (pts[next][1] - pts[current][1]) * (pts[i][0] - pts[current][0]);
-                if (cross < 0) next = i;
-                else if (cross == 0) {
-                    double dNext = (pts[next][0] - pts[current][0]) * (pts[next][0] - pts[current][0])
-                                + (pts[next][1] - pts[current][1]) * (pts[next][1] - pts[current][1]);
-                    double dI = (pts[i][0] - pts[current][0]) * (pts[i][0] - pts[current][0])
-                              + (pts[i][1] - pts[current][1]) * (pts[i][1] - pts[current][1]);
-                    if (dI > dNext) next = i;
-                }
-            }
-            current = next;
-        } while (current != left && hull.size() <= n);
-        return hull;
-    }
-
-    /** Segments de l'enveloppe convexe de la pièce (clés normalisées), pour ne garder que le contour extérieur. */
-    private static java.util.Set<String> convexHullSegmentKeys(Room room) {
-        java.util.Set<String> keys = new java.util.HashSet<>();
-        if (room == null) return keys;
-        float[][] rpts = room.getPoints();
-        if (rpts == null || rpts.length < 3) return keys;
-        java.util.List<Integer> hull = convexHullIndices(rpts);
-        for (int i = 0; i < hull.size(); i++) {
-            int i1 = hull.get(i);
-            int i2 = hull.get((i + 1) % hull.size());
-            double x1 = Math.round(rpts[i1][0] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            double y1 = Math.round(rpts[i1][1] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            double x2 = Math.round(rpts[i2][0] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            double y2 = Math.round(rpts[i2][1] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-            if (x1 > x2 || (x1 == x2 && y1 > y2)) {
-                double t = x1; x1 = x2; x2 = t;
-                t = y1; y1 = y2; y2 = t;
-            }
-            keys.add(x1 + "," + y1 + "," + x2 + "," + y2);
-        }
-        return keys;
-    }
-
-    /**
-     * Enveloppe convexe des segments de murs : clés des arêtes du convexe construit à partir des extrémités des murs.
-     * Utilisé en fallback quand le périmètre de la pièce terrain ne matche aucun segment (niveaux différents) :
-     * on tague extérieur/intérieur à partir du convexe des murs exportés pour que le toit puisse se créer.
-     */
-    private static java.util.Set<String> convexHullSegmentKeysFromWallGroups(List<List<Wall>> wallGroups) {
-        java.util.Set<String> keys = new java.util.HashSet<>();
-        if (wallGroups == null || wallGroups.isEmpty()) return keys;
-        java.util.Map<String, float[]> pointByKey = new java.util.LinkedHashMap<>();
-        for (List<Wall> group : wallGroups) {
-            if (group.isEmpty()) continue;
-            Wall w = group.get(0);
-            double xa = w.getXStart(); double ya = w.getYStart();
-            double xb = w.getXEnd();   double yb = w.getYEnd();
-            for (double[] p : new double[][] {{ xa, ya }, { xb, yb }}) {
-                double rx = Math.round(p[0] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-                double ry = Math.round(p[1] / SEGMENT_KEY_TOLERANCE_CM) * SEGMENT_KEY_TOLERANCE_CM;
-                String pk = rx + "," + ry;
-                if (!pointByKey.containsKey(pk)) pointByKey.put(pk, new float[] { (float) rx, (float) ry });
-            }
-        }
-        float[][] pts = pointByKey.values().toArray(new float[0][]);
-        if (pts.length < 3) return keys;
-        java.util.List<Integer> hull = convexHullIndices(pts);
-        for (int i = 0; i < hull.size(); i++) {
-            int i1 = hull.get(i);
-            int i2 = hull.get((i + 1) % hull.size());
-            double x1 = pts[i1][0]; double y1 = pts[i1][1];
-            double x2 = pts[i2][0]; double y2 = pts[i2][1];
-            if (x1 > x2 || (x1 == x2 && y1 > y2)) {
-                double t = x1; x1 = x2; x2 = t;
-                t = y1; y1 = y2; y2 = t;
-            }
-            keys.add(x1 + "," + y1 + "," + x2 + "," + y2);
-        }
-        return keys;
-    }
-
     /**
      * Filtre les groupes de murs pour ne garder que ceux dont le segment appartient au périmètre de la pièce (murs extérieurs).
      * Évite d'ajouter les murs intérieurs à la fondation Energy3D, ce qui casse la boucle fermée et empêche le toit de se créer.
      */
-    private static List<List<Wall>> filterToRoomBoundaryOnly(List<List<Wall>> wallGroups, Room terrainRoom, PrintWriter logWriter) {
+    static List<List<Wall>> filterToRoomBoundaryOnly(List<List<Wall>> wallGroups, Room terrainRoom,
+            SegmentClassification segments, PrintWriter logWriter) {
         if (terrainRoom == null) return wallGroups;
-        java.util.Set<String> boundaryKeys = roomBoundarySegmentKeys(terrainRoom);
         List<List<Wall>> filtered = new ArrayList<>();
         for (List<Wall> group : wallGroups) {
             if (group.isEmpty()) continue;
-            String key = segmentKey(group.get(0));
-            if (boundaryKeys.contains(key)) {
+            if (segments.isOnRoomBoundary(group.get(0))) {
                 filtered.add(group);
             }
         }
         if (logWriter != null && filtered.size() != wallGroups.size()) {
-            logWriter.println("  Murs périmètre uniquement (excl. intérieurs): " + filtered.size() + " / " + wallGroups.size() + " segments.");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Murs périmètre uniquement (excl. intérieurs): " + filtered.size() + " / " + wallGroups.size() + " segments.");
         }
         return filtered;
     }
@@ -1883,28 +1666,26 @@ public class PlanExporter {
      * Si aucun mur ne matche (pièce non alignée avec le convexe), on garde tous les murs du périmètre.
      */
     @SuppressWarnings("unused")
-    private static List<List<Wall>> filterToConvexHullOnly(List<List<Wall>> wallGroups, Room terrainRoom, PrintWriter logWriter) {
+    private static List<List<Wall>> filterToConvexHullOnly(List<List<Wall>> wallGroups, Room terrainRoom,
+            SegmentClassification segments, PrintWriter logWriter) {
         if (terrainRoom == null) return wallGroups;
-        java.util.Set<String> hullKeys = convexHullSegmentKeys(terrainRoom);
+        SegmentKeySet hullKeys = segments.getRoomHull();
         if (hullKeys.isEmpty()) return wallGroups;
         List<List<Wall>> filtered = new ArrayList<>();
         for (List<Wall> group : wallGroups) {
             if (group.isEmpty()) continue;
-            String key = segmentKey(group.get(0));
-            if (hullKeys.contains(key)) {
+            if (hullKeys.contains(group.get(0))) {
                 filtered.add(group);
             }
         }
         if (filtered.isEmpty()) {
             if (logWriter != null) {
-                logWriter.println("  Enveloppe convexe ne matche aucun mur (conservation de tous les segments périmètre).");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Enveloppe convexe ne matche aucun mur (conservation de tous les segments périmètre).");
             }
             return wallGroups;
         }
         if (logWriter != null && filtered.size() != wallGroups.size()) {
-            logWriter.println("  Murs enveloppe convexe uniquement (contour extérieur pour toit): " + filtered.size() + " / " + wallGroups.size() + " segments.");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Murs enveloppe convexe uniquement (contour extérieur pour toit): " + filtered.size() + " / " + wallGroups.size() + " segments.");
         }
         return filtered;
     }
@@ -1913,14 +1694,16 @@ public class PlanExporter {
      * Regroupe les murs par segment 2D (même trace au plan). Chaque groupe est trié par élévation du niveau (bas → haut).
      * Permet de fusionner les murs superposés sur plusieurs niveaux en un seul mur Energy3D avec hauteur cumulée.
      */
-    private static List<List<Wall>> groupWallsBySegment(Collection<Wall> walls, final Level terrainLevel, PrintWriter logWriter) {
-        java.util.Map<String, List<Wall>> byKey = new java.util.LinkedHashMap<>();
+    static List<List<Wall>> groupWallsBySegment(Collection<Wall> walls, final Level terrainLevel, PrintWriter logWriter) {
+        // Rang d'insertion du segment = indice du groupe (ordre de première apparition conservé)
+        SegmentKeySet segmentKeys = new SegmentKeySet(walls.size());
+        List<List<Wall>> groups = new ArrayList<>();
         for (Wall w : walls) {
-            String key = segmentKey(w);
-            byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(w);
+            int groupIndex = segmentKeys.add(w);
+            if (groupIndex == groups.size()) groups.add(new ArrayList<Wall>());
+            groups.get(groupIndex).add(w);
         }
-        List<List<Wall>> groups = new ArrayList<>();
-        for (List<Wall> group : byKey.values()) {
+        for (List<Wall> group : groups) {
             Collections.sort(group, new java.util.Comparator<Wall>() {
                 @Override
                 public int compare(Wall a, Wall b) {
@@ -1934,13 +1717,11 @@ public class PlanExporter {
                     return Float.compare(ea, eb);
                 }
             });
-            groups.add(group);
         }
         if (logWriter != null) {
             int merged = 0;
             for (List<Wall> g : groups) if (g.size() > 1) merged++;
-            logWriter.println("  Segments 2D uniques: " + groups.size() + " (dont " + merged + " avec murs fusionnés multi-niveaux)");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Segments 2D uniques: " + groups.size() + " (dont " + merged + " avec murs fusionnés multi-niveaux)");
         }
         return groups;
     }
@@ -1955,7 +1736,7 @@ public class PlanExporter {
             // 1) setTextureType(int) via getMethod (inclut les méthodes héritées publiques)
             java.lang.reflect.Method setTex = part.getClass().getMethod("setTextureType", int.class);
             setTex.invoke(part, textureTypeValue);
-            if (logWriter != null) logWriter.println("  Texture #" + textureTypeValue + " appliquée (" + label + ")");
+            if (logWriter != null) ExportLogger.info(logWriter, "  Texture #" + textureTypeValue + " appliquée (" + label + ")");
             try {
                 java.lang.reflect.Method updateTex = part.getClass().getMethod("updateTextureAndColor");
                 updateTex.invoke(part);
@@ -1974,7 +1755,7 @@ public class PlanExporter {
                 if (textureTypeField != null) {
                     textureTypeField.setAccessible(true);
                     textureTypeField.setInt(part, textureTypeValue);
-                    if (logWriter != null) logWriter.println("  Texture #" + textureTypeValue + " appliquée (" + label + ") via champ");
+                    if (logWriter != null) ExportLogger.info(logWriter, "  Texture #" + textureTypeValue + " appliquée (" + label + ") via champ");
                     try {
                         java.lang.reflect.Method updateTex = part.getClass().getMethod("updateTextureAndColor");
                         updateTex.invoke(part);
@@ -1982,12 +1763,31 @@ public class PlanExporter {
                     return;
                 }
             } catch (Exception e2) {
-                if (logWriter != null) logWriter.println("  ⚠ textureType " + label + ": " + e2.getMessage());
+                if (logWriter != null) ExportLogger.warn(logWriter, "  ⚠ textureType " + label + ": " + e2.getMessage());
                 return;
             }
-            if (logWriter != null) logWriter.println("  ⚠ Texture non appliquée pour " + label + ": setTextureType(int) et champ textureType absents du JAR");
+            if (logWriter != null) ExportLogger.warn(logWriter, "  ⚠ Texture non appliquée pour " + label + ": setTextureType(int) et champ textureType absents du JAR");
+        } catch (Exception e) {
+            if (logWriter != null) ExportLogger.warn(logWriter, "  ⚠ textureType " + textureTypeValue + " " + label + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fixe le type de texture d'un HousePart via le registre de handles (murs et buissons, appelé en boucle).
+     */
+    private static void setHousePartTextureType(Energy3DHandles handles, Object part, int textureTypeValue, PrintWriter logWriter, String label) {
+        if (part == null) return;
+        try {
+            if (handles.setTextureType(part, textureTypeValue)) {
+                if (logWriter != null) {
+                    ExportLogger.info(logWriter, "  Texture #" + textureTypeValue + " appliquée (" + label + ")"
+                            + (handles.isTextureTypeSetThroughField() ? " via champ" : ""));
+                }
+            } else if (logWriter != null) {
+                ExportLogger.warn(logWriter, "  ⚠ Texture non appliquée pour " + label + ": setTextureType(int) et champ textureType absents du JAR");
+            }
         } catch (Exception e) {
-            if (logWriter != null) logWriter.println("  ⚠ textureType " + textureTypeValue + " " + label + ": " + e.getMessage());
+            if (logWriter != null) ExportLogger.warn(logWriter, "  ⚠ textureType " + textureTypeValue + " " + label + ": " + e.getMessage());
         }
     }
 
@@ -1995,7 +1795,7 @@ public class PlanExporter {
      * Projette le point (px, py) sur le segment (ax,ay)-(bx,by) et retourne le facteur u tel que
      * projection = a + u*(b-a). Utilisé pour convertir coordonnées absolues en (u,v) relatives à la fondation.
      */
-    private static double projectPointOnLineScale(double px, double py, double ax, double ay, double bx, double by) {
+    static double projectPointOnLineScale(double px, double py, double ax, double ay, double bx, double by) {
         double dx = bx - ax, dy = by - ay;
         double lenSq = dx * dx + dy * dy;
         if (lenSq < 1e-20) return 0.5;
@@ -2020,97 +1820,21 @@ public class PlanExporter {
     }
 
     /** Marge (cm) pour considérer qu'une porte/fenêtre est sur un mur (containsPoint). */
-    private static final float DOOR_WINDOW_WALL_MARGIN_CM = 15f;
+    static final float DOOR_WINDOW_WALL_MARGIN_CM = 15f;
     /** Messages de log partagés pour homogénéiser les traces d'export. */
     private static final String LOG_TOTAL_FURNITURE = "  Nombre total de meubles dans le plan : ";
-    private static final String LOG_TREE_CLASS_NOT_FOUND = "  ERREUR: Classe Tree non trouvée dans Energy3D";
-    private static final String LOG_WALL_CLASS_NOT_FOUND = "  ERREUR: Classe Wall non trouvée dans Energy3D";
-
-    /**
-     * Retourne la liste de tous les meubles du plan, y compris ceux à l'intérieur des groupes.
-     * Permet de trouver les portes/fenêtres même si elles sont dans un groupe.
-     */
-    private static List<HomePieceOfFurniture> getAllFurnitureIncludingGroups(Home home) {
-        List<HomePieceOfFurniture> out = new ArrayList<>();
-        List<HomePieceOfFurniture> furniture = home.getFurniture();
-        if (furniture == null) return out;
-        for (HomePieceOfFurniture piece : furniture) {
-            if (piece instanceof HomeFurnitureGroup) {
-                out.addAll(((HomeFurnitureGroup) piece).getAllFurniture());
-            } else {
-                out.add(piece);
-            }
-        }
-        return out;
-    }
-
-    /**
-     * Retourne le mur SH3D sur lequel la porte/fenêtre est placée (centre dans le mur), ou null.
-     * Associe la pièce au mur qui la contient, au même niveau que la pièce (tous niveaux).
-     * Cherche un mur qui contient le point (containsPoint avec marge).
-     * Pas de fallback "mur le plus proche" pour éviter les ouvertures fantômes.
-     */
-    private static Wall findWallForDoorOrWindow(HomeDoorOrWindow piece, Collection<Wall> walls) {
-        if (walls == null) return null;
-        float x = (float) piece.getX();
-        float y = (float) piece.getY();
-        Level pieceLevel = piece.getLevel();
-        for (Wall wall : walls) {
-            if (pieceLevel != null && !wall.isAtLevel(pieceLevel)) continue;
-            try {
-                if (wall.containsPoint(x, y, false, DOOR_WINDOW_WALL_MARGIN_CM))
-                    return wall;
-            } catch (Exception ignored) { }
-        }
-        return null;
-    }
-
-    /**
-     * Retourne true si le nom évoque une fenêtre (fenêtre, window, etc.).
-     * Utilisé pour que "porte-fenêtre" soit traitée comme fenêtre (transparente) dans Energy3D.
-     */
-    private static boolean nameSuggestsWindow(String name) {
-        if (name == null) return false;
-        String lower = name.toLowerCase(java.util.Locale.ROOT);
-        return lower.contains("fenêtre") || lower.contains("fenetre") || lower.contains("window")
-                || lower.contains("finestra") || lower.contains("ventana") || lower.contains("janela")
-                || lower.contains("fenster") || lower.contains("raam");
-    }
-
-    /**
-     * Retourne true si la pièce SH3D (porte/fenêtre) est considérée comme une porte.
-     * Critère : nom contenant "door", "porte", "porta", "puerta" (insensible à la casse).
-     * Exception : si le nom contient aussi un mot évoquant la fenêtre (ex. "porte-fenêtre"),
-     * on traite comme fenêtre (transparente) dans Energy3D — le mot fenêtre domine.
-     */
-    private static boolean isLikelyDoor(HomeDoorOrWindow piece) {
-        String name = piece.getName();
-        if (name == null) return false;
-        String lower = name.toLowerCase(java.util.Locale.ROOT);
-        boolean hasDoor = lower.contains("door") || lower.contains("porte") || lower.contains("porta")
-                || lower.contains("puerta") || lower.contains("tür") || lower.contains("deur");
-        if (!hasDoor) return false;
-        if (nameSuggestsWindow(name)) return false;
-        return true;
-    }
-
-    /** Noms des plantes Energy3D (Tree.PLANTS) pour correspondance avec les meubles SH3D. */
-    private static final String[] ENERGY3D_PLANT_NAMES = new String[]{
-            "dogwood", "elm", "maple", "pine", "oak", "linden", "cottonwood"
-    };
 
     /**
      * Initialise un stub Heliodon minimal pour permettre la création de Tree en mode headless.
      * Heliodon.getInstance() est requis par Tree.isShedded() lors de l'initialisation.
      * Crée le stub via sun.misc.Unsafe sans appeler le constructeur Heliodon.
      */
-    private static void initializeHeliodonStub(PrintWriter logWriter) {
+    static void initializeHeliodonStub(PrintWriter logWriter) {
         try {
             Class<?> heliodonClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.shapes.Heliodon", logWriter);
             if (heliodonClass == null) {
                 if (logWriter != null) {
-                    logWriter.println("  AVERTISSEMENT: Classe Heliodon non trouvée, Tree.init() pourrait échouer");
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "  AVERTISSEMENT: Classe Heliodon non trouvée, Tree.init() pourrait échouer");
                 }
                 return;
             }
@@ -2120,8 +1844,7 @@ public class PlanExporter {
             Object existingInstance = instanceField.get(null);
             if (existingInstance != null) {
                 if (logWriter != null) {
-                    logWriter.println("  Heliodon.instance déjà défini");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  Heliodon.instance déjà défini");
                 }
                 return;
             }
@@ -2150,126 +1873,70 @@ public class PlanExporter {
             unsafe.putDouble(heliodonStub, latitudeOffset, 42.34396 / 180.0 * Math.PI); // DEFAULT_LATITUDE en radians
             
             if (logWriter != null) {
-                logWriter.println("  ✓ Heliodon stub créé avec Unsafe (sans constructeur)");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  ✓ Heliodon stub créé avec Unsafe (sans constructeur)");
             }
             
             // Définir Heliodon.instance avec le stub
             instanceField.set(null, heliodonStub);
             
             if (logWriter != null) {
-                logWriter.println("  ✓ Heliodon stub initialisé");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  ✓ Heliodon stub initialisé");
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  AVERTISSEMENT initializeHeliodonStub: " + e.getMessage());
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT initializeHeliodonStub: " + e.getMessage());
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
     
-    private static boolean isLikelyTree(HomePieceOfFurniture piece) {
-        if (piece == null || piece.isDoorOrWindow()) return false;
-        String name = piece.getName();
-        if (name == null) return false;
-        String lower = name.toLowerCase().trim();
-        if (lower.isEmpty()) return false;
-        // Mots-clés spécifiques aux arbres uniquement
-        if (lower.contains("tree") || lower.contains("arbre") || lower.contains("baum")
-                || lower.contains("arbor") || lower.contains("albero")) {
-            return true;
-        }
-        // Nom exact ou contenu correspondant à une plante Energy3D (qui sont toutes des arbres)
-        for (String plantName : ENERGY3D_PLANT_NAMES) {
-            if (lower.equals(plantName.toLowerCase()) || lower.contains(plantName.toLowerCase())) return true;
-        }
-        return false;
-    }
-    
-    /**
-     * Vérifie si un objet est probablement un buisson basé sur son nom.
-     */
-    private static boolean isLikelyBush(HomePieceOfFurniture piece) {
-        if (piece == null || piece.isDoorOrWindow()) return false;
-        String name = piece.getName();
-        if (name == null) return false;
-        String lower = name.toLowerCase().trim();
-        if (lower.isEmpty()) return false;
-        // Mots-clés pour les buissons depuis config.json (déjà en minuscules)
-        List<String> bushKeywords = ConfigReader.getKeywords("bushes");
-        for (String keyword : bushKeywords) {
-            // Comparaison insensible à la casse
-            if (lower.contains(keyword.toLowerCase())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Retourne l'index du type de plante Energy3D (0–6) si le nom du meuble SH3D correspond à une plante, sinon -1.
-     */
-    private static int getEnergy3DPlantTypeFromName(HomePieceOfFurniture piece) {
-        if (piece == null) return -1;
-        String name = piece.getName();
-        if (name == null) return -1;
-        String lower = name.toLowerCase(java.util.Locale.ROOT).trim();
-        for (int i = 0; i < ENERGY3D_PLANT_NAMES.length; i++) {
-            if (lower.contains(ENERGY3D_PLANT_NAMES[i])) return i;
-        }
-        return -1;
-    }
-
     /**
      * Exporte les arbres et buissons depuis les niveaux correspondants (config.json).
      * Les arbres sont exportés comme Tree Energy3D.
      * Les buissons sont exportés comme Wall avec texture buisson (TEXTURE_08).
      */
-    private static void exportTreesAndBushes(Home home, Object foundation, Class<?> foundationClass,
-            double originX, double originY, Object scene, PrintWriter logWriter) {
+    static void exportTreesAndBushes(Home home, FurnitureIndex furnitureIndex, Object foundation,
+            ExportGeometry.Frame frame, Object scene, Energy3DHandles handles, PrintWriter logWriter) {
         if (home == null || foundation == null || scene == null) {
             if (logWriter != null) {
-                logWriter.println("  exportTreesAndBushes ignoré : home=" + (home != null) + ", foundation=" + (foundation != null) + ", scene=" + (scene != null));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  exportTreesAndBushes ignoré : home=" + (home != null) + ", foundation=" + (foundation != null) + ", scene=" + (scene != null));
             }
             return;
         }
         
         if (logWriter != null) {
-            logWriter.println("  Début exportTreesAndBushes...");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Début exportTreesAndBushes...");
         }
         
         try {
-            Class<?> sceneClass = scene.getClass();
-            java.lang.reflect.Method addMethod = sceneClass.getMethod("add", 
-                    Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.HousePart", logWriter), boolean.class);
-            
             // Export des arbres : parcourir tous les niveaux et vérifier les mots-clés du JSON.
+            ExportMetrics.enterStage(ExportMetrics.Stage.TREES);
             if (logWriter != null) {
-                logWriter.println("  Recherche des niveaux catégorie \"trees\" (mots-clés JSON)...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Recherche des niveaux catégorie \"trees\" (mots-clés JSON)...");
             }
             List<String> treeKeywords = ConfigReader.getKeywords("trees");
             if (logWriter != null && !treeKeywords.isEmpty()) {
-                logWriter.println("  Mots-clés arbres: " + String.join(", ", treeKeywords));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Mots-clés arbres: " + String.join(", ", treeKeywords));
             }
             java.util.List<Level> allLevels = home.getLevels();
             Level foundationLevel = findLevelByCategory(home, "foundation", logWriter);
+            // Catégories de chaque niveau, calculées en une passe par nom pour les arbres et les buissons
+            Map<Level, List<String>> levelMatches = new IdentityHashMap<Level, List<String>>();
+            if (allLevels != null) {
+                for (Level level : allLevels) {
+                    if (level != null) levelMatches.put(level, ConfigReader.matchingCategories(level.getName()));
+                }
+            }
             int treesExported = 0;
             if (allLevels != null) {
                 for (Level level : allLevels) {
                     if (level == null) continue;
                     String levelName = level.getName();
-                    if (ConfigReader.matchesCategory(levelName, "trees")) {
+                    if (levelMatches.get(level).contains("trees")) {
                         if (logWriter != null) {
-                            logWriter.println("  Export des arbres depuis le niveau \"" + levelName + "\"...");
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Export des arbres depuis le niveau \"" + levelName + "\"...");
                         }
-                        exportTreesFromLevel(home, level, scene, addMethod, originX, originY, logWriter);
+                        exportTreesFromLevel(home, furnitureIndex, level, scene, handles, frame.originX, frame.originY, logWriter);
                         treesExported++;
                     }
                 }
@@ -2277,38 +1944,34 @@ public class PlanExporter {
             // Scanner aussi le niveau fondation pour les objets arbres (tree-like).
             if (foundationLevel != null) {
                 if (logWriter != null) {
-                    logWriter.println("  Scan complémentaire du niveau fondation \"" + foundationLevel.getName() + "\" pour les objets arbres...");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  Scan complémentaire du niveau fondation \"" + foundationLevel.getName() + "\" pour les objets arbres...");
                 }
-                exportTreesFromFoundationLevel(home, foundationLevel, scene, addMethod, originX, originY, logWriter);
+                exportTreesFromFoundationLevel(home, furnitureIndex, foundationLevel, scene, handles, frame.originX, frame.originY, logWriter);
                 treesExported++;
             }
             if (treesExported == 0 && logWriter != null) {
-                logWriter.println("  Aucun niveau trouvé pour la catégorie \"trees\".");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Aucun niveau trouvé pour la catégorie \"trees\".");
             }
             
             // Export des buissons : parcourir tous les niveaux et vérifier les mots-clés du JSON.
+            ExportMetrics.enterStage(ExportMetrics.Stage.BUSHES);
             if (logWriter != null) {
-                logWriter.println("  Recherche des niveaux catégorie \"bushes\" (mots-clés JSON)...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Recherche des niveaux catégorie \"bushes\" (mots-clés JSON)...");
             }
             List<String> bushKeywords = ConfigReader.getKeywords("bushes");
             if (logWriter != null && !bushKeywords.isEmpty()) {
-                logWriter.println("  Mots-clés buissons: " + String.join(", ", bushKeywords));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Mots-clés buissons: " + String.join(", ", bushKeywords));
             }
             int bushesExported = 0;
             if (allLevels != null) {
                 for (Level level : allLevels) {
                     if (level == null) continue;
                     String levelName = level.getName();
-                    if (ConfigReader.matchesCategory(levelName, "bushes")) {
+                    if (levelMatches.get(level).contains("bushes")) {
                         if (logWriter != null) {
-                            logWriter.println("  Export des buissons depuis le niveau \"" + levelName + "\"...");
-                            logWriter.flush();
+                            ExportLogger.info(logWriter, "  Export des buissons depuis le niveau \"" + levelName + "\"...");
                         }
-                        exportBushesFromLevel(home, level, foundation, foundationClass, originX, originY, logWriter);
+                        exportBushesFromLevel(home, furnitureIndex, level, foundation, handles, frame, logWriter);
                         bushesExported++;
                     }
                 }
@@ -2316,21 +1979,18 @@ public class PlanExporter {
             // Scanner aussi le niveau fondation pour les objets buissons.
             if (foundationLevel != null) {
                 if (logWriter != null) {
-                    logWriter.println("  Scan complémentaire du niveau fondation \"" + foundationLevel.getName() + "\" pour les objets buissons...");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  Scan complémentaire du niveau fondation \"" + foundationLevel.getName() + "\" pour les objets buissons...");
                 }
-                exportBushesFromFoundationLevel(home, foundationLevel, foundation, foundationClass, originX, originY, logWriter);
+                exportBushesFromFoundationLevel(home, furnitureIndex, foundationLevel, foundation, handles, frame, logWriter);
                 bushesExported++;
             }
             if (bushesExported == 0 && logWriter != null) {
-                logWriter.println("  Aucun niveau trouvé pour la catégorie \"bushes\".");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Aucun niveau trouvé pour la catégorie \"bushes\".");
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  AVERTISSEMENT exportTreesAndBushes: " + e.getMessage());
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT exportTreesAndBushes: " + e.getMessage());
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
@@ -2338,47 +1998,41 @@ public class PlanExporter {
     /**
      * Exporte les meubles d'un niveau comme arbres Energy3D.
      */
-    private static void exportTreesFromLevel(Home home, Level level, Object scene, 
-            java.lang.reflect.Method addMethod, double originX, double originY, PrintWriter logWriter) {
+    private static void exportTreesFromLevel(Home home, FurnitureIndex furnitureIndex, Level level, Object scene, 
+            Energy3DHandles handles, double originX, double originY, PrintWriter logWriter) {
         if (home == null || level == null || scene == null) {
             if (logWriter != null) {
-                logWriter.println("  exportTreesFromLevel ignoré : home=" + (home != null) + ", level=" + (level != null) + ", scene=" + (scene != null));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  exportTreesFromLevel ignoré : home=" + (home != null) + ", level=" + (level != null) + ", scene=" + (scene != null));
             }
             return;
         }
-        Class<?> sceneClass = scene.getClass();
         try {
-            exportTreesFromLevelInternal(home, level, "niveau \"" + level.getName() + "\"", scene, sceneClass, addMethod, originX, originY, true, logWriter);
+            exportTreesFromLevelInternal(home, furnitureIndex, level, "niveau \"" + level.getName() + "\"", scene, handles, originX, originY, true, logWriter);
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  AVERTISSEMENT exportTreesFromLevel: " + e.getMessage());
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT exportTreesFromLevel: " + e.getMessage());
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
     
     /**
-     * Exporte les objets arbres du niveau fondation (filtre avec isLikelyTree).
+     * Exporte les objets arbres du niveau fondation (meubles classés TREE par FurnitureIndex).
      */
-    private static void exportTreesFromFoundationLevel(Home home, Level foundationLevel, Object scene, 
-            java.lang.reflect.Method addMethod, double originX, double originY, PrintWriter logWriter) {
+    private static void exportTreesFromFoundationLevel(Home home, FurnitureIndex furnitureIndex, Level foundationLevel, Object scene, 
+            Energy3DHandles handles, double originX, double originY, PrintWriter logWriter) {
         if (home == null || foundationLevel == null || scene == null) {
             if (logWriter != null) {
-                logWriter.println("  exportTreesFromFoundationLevel ignoré : home=" + (home != null) + ", level=" + (foundationLevel != null) + ", scene=" + (scene != null));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  exportTreesFromFoundationLevel ignoré : home=" + (home != null) + ", level=" + (foundationLevel != null) + ", scene=" + (scene != null));
             }
             return;
         }
-        Class<?> sceneClass = scene.getClass();
         try {
-            exportTreesFromLevelInternal(home, foundationLevel, "niveau fondation", scene, sceneClass, addMethod, originX, originY, false, logWriter);
+            exportTreesFromLevelInternal(home, furnitureIndex, foundationLevel, "niveau fondation", scene, handles, originX, originY, false, logWriter);
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  AVERTISSEMENT exportTreesFromFoundationLevel: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT exportTreesFromFoundationLevel: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
@@ -2386,101 +2040,64 @@ public class PlanExporter {
     /**
      * Implémentation commune de l'export des arbres Energy3D.
      */
-    private static void exportTreesFromLevelInternal(Home home, Level level, String levelLabel, Object scene,
-            Class<?> sceneClass, java.lang.reflect.Method addMethod, double originX, double originY,
+    private static void exportTreesFromLevelInternal(Home home, FurnitureIndex furnitureIndex, Level level, String levelLabel, Object scene,
+            Energy3DHandles handles, double originX, double originY,
             boolean logFurnitureCount, PrintWriter logWriter) throws Exception {
         initializeHeliodonStub(logWriter);
 
-        java.lang.reflect.Field instanceField = sceneClass.getDeclaredField("instance");
-        instanceField.setAccessible(true);
-        Object previousInstance = instanceField.get(null);
+        Object previousInstance = handles.getSceneInstance();
         try {
-            instanceField.set(null, scene);
-
-            Class<?> treeClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Tree", logWriter);
-            if (treeClass == null) {
-                if (logWriter != null) {
-                    logWriter.println(LOG_TREE_CLASS_NOT_FOUND);
-                    logWriter.flush();
-                }
-                return;
-            }
-
-            ClassLoader loader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
-            Class<?> vector3Class = loader.loadClass("com.ardor3d.math.Vector3");
-            java.lang.reflect.Method vector3Set = vector3Class.getMethod("set", double.class, double.class, double.class);
-            java.lang.reflect.Method setLocationMethod = treeClass.getMethod("setLocation", vector3Class);
-            java.lang.reflect.Method setPlantTypeMethod = null;
-            try {
-                setPlantTypeMethod = treeClass.getMethod("setPlantType", int.class);
-            } catch (NoSuchMethodException ignored) { }
+            handles.setSceneInstance(scene);
 
-            List<HomePieceOfFurniture> furniture = getAllFurnitureIncludingGroups(home);
             if (logFurnitureCount && logWriter != null) {
-                logWriter.println(LOG_TOTAL_FURNITURE + furniture.size());
-                logWriter.flush();
+                ExportLogger.info(logWriter, LOG_TOTAL_FURNITURE + furnitureIndex.size());
             }
 
+            // Arbres du niveau (hors buissons et portes/fenêtres), déjà classés par l'index
+            List<HomePieceOfFurniture> trees = furnitureIndex.getFurniture(level, FurnitureIndex.Kind.TREE);
+            ExportGeometry.Plants plants = ExportGeometry.extractPlants(trees, furnitureIndex, level, originX, originY);
             int count = 0;
-            int skipped = 0;
-            for (HomePieceOfFurniture piece : furniture) {
-                if (piece.getLevel() != level) {
-                    skipped++;
-                    continue;
-                }
-                if (piece.isDoorOrWindow()) {
-                    skipped++;
-                    continue;
-                }
-                if (isLikelyBush(piece)) {
-                    skipped++;
-                    continue;
-                }
-                if (!isLikelyTree(piece)) {
-                    skipped++;
-                    continue;
-                }
-                double xCm = piece.getX();
-                double yCm = piece.getY();
-                double zCm = level.getElevation() + piece.getElevation();
-                double x = (xCm - originX) * SCALE_CM_TO_ENERGY3D;
-                double y = (yCm - originY) * SCALE_CM_TO_ENERGY3D;
-                double z = zCm * SCALE_CM_TO_ENERGY3D;
-                if (MIRROR_FLIP_X) x = -x;
-                if (ROTATE_180_Z) y = -y;
-
-                Object tree = treeClass.getDeclaredConstructor().newInstance();
-                int plantType = getEnergy3DPlantTypeFromName(piece);
-                if (plantType >= 0 && setPlantTypeMethod != null) {
-                    setPlantTypeMethod.invoke(tree, plantType);
-                }
-                Object pos = vector3Class.getDeclaredConstructor().newInstance();
-                vector3Set.invoke(pos, x, y, z);
-                setLocationMethod.invoke(tree, pos);
+            int skipped = furnitureIndex.size() - plants.count;
+            for (int i = 0; i < plants.count; i++) {
+                long partStart = ExportFlightRecorder.partStart();
+                double x = plants.positions[i * 3];
+                double y = plants.positions[i * 3 + 1];
+                double z = plants.positions[i * 3 + 2];
+                // Arbre inchangé depuis le dernier export : repris tel quel, comme dans addTreesFromHome
+                String treeFingerprint = ExportSession.isActive() ? plants.key(i) : null;
+                Object tree = ExportSession.reuse(treeFingerprint);
                 try {
-                    treeClass.getMethod("complete").invoke(tree);
-                    treeClass.getMethod("draw").invoke(tree);
-                    addMethod.invoke(scene, tree, true);
+                    if (tree == null) {
+                        tree = handles.newTree();
+                        if (plants.plantType[i] >= 0) {
+                            handles.setTreePlantType(tree, plants.plantType[i]);
+                        }
+                        handles.setTreeLocation(tree, handles.newVector3(x, y, z));
+                        handles.complete(tree);
+                        handles.draw(tree);
+                    }
+                    ExportSession.keep(treeFingerprint, tree);
+                    handles.addToScene(scene, tree, true);
+                    ExportMetrics.countPartCreated();
+                    ExportFlightRecorder.partConverted("Tree", plants.ids[i], partStart);
                     count++;
-                    if (logWriter != null && count <= 5) {
-                        logWriter.println("    Arbre #" + count + " créé depuis " + levelLabel + " à (" + xCm + ", " + yCm + ", " + zCm + ") cm");
-                        logWriter.flush();
+                    if (ExportLogger.isDebugEnabled(logWriter) && count <= 5) {
+                        ExportLogger.debug(logWriter, "    Arbre #" + count + " créé depuis " + levelLabel + " à (" + x + ", " + y + ", " + z + ") u");
                     }
                 } catch (Exception e) {
                     if (logWriter != null) {
-                        logWriter.println("    ERREUR création arbre à (" + xCm + ", " + yCm + ", " + zCm + ") cm: " + e.getMessage());
+                        ExportLogger.error(logWriter, "    ERREUR création arbre à (" + x + ", " + y + ", " + z + ") u: " + e.getMessage());
                         e.printStackTrace(new java.io.PrintWriter(logWriter));
-                        logWriter.flush();
                     }
+                    ExportMetrics.countPartSkipped();
                     skipped++;
                 }
             }
             if (logWriter != null) {
-                logWriter.println("  ✓ " + count + " arbre(s) exporté(s) depuis " + levelLabel + " (ignorés: " + skipped + ").");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  ✓ " + count + " arbre(s) exporté(s) depuis " + levelLabel + " (ignorés: " + skipped + ").");
             }
         } finally {
-            instanceField.set(null, previousInstance);
+            handles.setSceneInstance(previousInstance);
         }
     }
     
@@ -2488,22 +2105,20 @@ public class PlanExporter {
      * Exporte les objets buissons du niveau fondation comme Wall Energy3D avec texture buisson.
      * La hauteur du mur correspond à la hauteur du meuble SH3D.
      */
-    private static void exportBushesFromFoundationLevel(Home home, Level foundationLevel, Object foundation, Class<?> foundationClass,
-            double originX, double originY, PrintWriter logWriter) {
+    private static void exportBushesFromFoundationLevel(Home home, FurnitureIndex furnitureIndex, Level foundationLevel, Object foundation, Energy3DHandles handles,
+            ExportGeometry.Frame frame, PrintWriter logWriter) {
         if (home == null || foundationLevel == null || foundation == null) {
             if (logWriter != null) {
-                logWriter.println("  exportBushesFromFoundationLevel ignoré : home=" + (home != null) + ", level=" + (foundationLevel != null) + ", foundation=" + (foundation != null));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  exportBushesFromFoundationLevel ignoré : home=" + (home != null) + ", level=" + (foundationLevel != null) + ", foundation=" + (foundation != null));
             }
             return;
         }
         try {
-            exportBushesFromLevelInternal(home, foundationLevel, "niveau fondation", foundation, foundationClass, originX, originY, logWriter);
+            exportBushesFromLevelInternal(home, furnitureIndex, foundationLevel, "niveau fondation", foundation, handles, frame, logWriter);
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  AVERTISSEMENT exportBushesFromFoundationLevel: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT exportBushesFromFoundationLevel: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
@@ -2512,22 +2127,20 @@ public class PlanExporter {
      * Exporte les objets buissons d'un niveau comme Wall Energy3D avec texture buisson.
      * La hauteur du mur correspond à la hauteur du meuble SH3D.
      */
-    private static void exportBushesFromLevel(Home home, Level level, Object foundation, Class<?> foundationClass,
-            double originX, double originY, PrintWriter logWriter) {
+    private static void exportBushesFromLevel(Home home, FurnitureIndex furnitureIndex, Level level, Object foundation, Energy3DHandles handles,
+            ExportGeometry.Frame frame, PrintWriter logWriter) {
         if (home == null || level == null || foundation == null) {
             if (logWriter != null) {
-                logWriter.println("  exportBushesFromLevel ignoré : home=" + (home != null) + ", level=" + (level != null) + ", foundation=" + (foundation != null));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  exportBushesFromLevel ignoré : home=" + (home != null) + ", level=" + (level != null) + ", foundation=" + (foundation != null));
             }
             return;
         }
         try {
-            exportBushesFromLevelInternal(home, level, "niveau \"" + level.getName() + "\"", foundation, foundationClass, originX, originY, logWriter);
+            exportBushesFromLevelInternal(home, furnitureIndex, level, "niveau \"" + level.getName() + "\"", foundation, handles, frame, logWriter);
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  AVERTISSEMENT exportBushesFromLevel: " + e.getMessage());
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT exportBushesFromLevel: " + e.getMessage());
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
@@ -2535,295 +2148,133 @@ public class PlanExporter {
     /**
      * Implémentation commune de l'export des buissons en murs Energy3D.
      */
-    private static void exportBushesFromLevelInternal(Home home, Level level, String levelLabel, Object foundation,
-            Class<?> foundationClass, double originX, double originY, PrintWriter logWriter) throws Exception {
-        Class<?> wallClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Wall", logWriter);
-        if (wallClass == null) {
-            if (logWriter != null) {
-                logWriter.println(LOG_WALL_CLASS_NOT_FOUND);
-                logWriter.flush();
-            }
-            return;
-        }
-        Class<?> housePartClass = wallClass.getClassLoader().loadClass("org.concord.energy3d.model.HousePart");
-
-        java.lang.reflect.Method getAbsPoint = foundationClass.getMethod("getAbsPoint", int.class);
-        java.lang.reflect.Method getHeightMethod = foundationClass.getMethod("getHeight");
-        Object p0 = getAbsPoint.invoke(foundation, 0);
-        Object p1 = getAbsPoint.invoke(foundation, 1);
-        Object p2 = getAbsPoint.invoke(foundation, 2);
-
-        double p0x = ((Number) p0.getClass().getMethod("getX").invoke(p0)).doubleValue();
-        double p0y = ((Number) p0.getClass().getMethod("getY").invoke(p0)).doubleValue();
-        double p1x = ((Number) p1.getClass().getMethod("getX").invoke(p1)).doubleValue();
-        double p1y = ((Number) p1.getClass().getMethod("getY").invoke(p1)).doubleValue();
-        double p2x = ((Number) p2.getClass().getMethod("getX").invoke(p2)).doubleValue();
-        double p2y = ((Number) p2.getClass().getMethod("getY").invoke(p2)).doubleValue();
-
-        double edge0_1_dx = p1x - p0x;
-        double edge0_1_dy = p1y - p0y;
-        double edge0_2_dx = p2x - p0x;
-        double edge0_2_dy = p2y - p0y;
-        double edgeLength01 = Math.sqrt(edge0_1_dx * edge0_1_dx + edge0_1_dy * edge0_1_dy);
-        double edgeLength02 = Math.sqrt(edge0_2_dx * edge0_2_dx + edge0_2_dy * edge0_2_dy);
-        if (edgeLength01 <= 0) edgeLength01 = 1.0;
-        if (edgeLength02 <= 0) edgeLength02 = 1.0;
-
-        double foundationHeight = ((Number) getHeightMethod.invoke(foundation)).doubleValue();
-
-        ClassLoader loader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
-        Class<?> vector3Class = loader.loadClass("com.ardor3d.math.Vector3");
-        java.lang.reflect.Method vector3Set = vector3Class.getMethod("set", double.class, double.class, double.class);
-
-        List<HomePieceOfFurniture> furniture = getAllFurnitureIncludingGroups(home);
+    private static void exportBushesFromLevelInternal(Home home, FurnitureIndex furnitureIndex, Level level, String levelLabel, Object foundation,
+            Energy3DHandles handles, ExportGeometry.Frame frame, PrintWriter logWriter) throws Exception {
+        List<Object> foundationChildren = handles.getChildren(foundation);
+
+        List<HomePieceOfFurniture> furniture = furnitureIndex.getFurniture(level);
         if (logWriter != null) {
-            logWriter.println(LOG_TOTAL_FURNITURE + furniture.size());
+            ExportLogger.info(logWriter, LOG_TOTAL_FURNITURE + furnitureIndex.size());
             List<String> bushKeywords = ConfigReader.getKeywords("bushes");
             if (!bushKeywords.isEmpty()) {
-                logWriter.println("  Mots-clés buissons utilisés pour filtrage : " + String.join(", ", bushKeywords));
+                ExportLogger.info(logWriter, "  Mots-clés buissons utilisés pour filtrage : " + String.join(", ", bushKeywords));
             }
-            logWriter.flush();
         }
-
-        int count = 0;
-        int skipped = 0;
-        for (HomePieceOfFurniture piece : furniture) {
-            if (piece.getLevel() != level) {
-                skipped++;
-                continue;
-            }
-            if (piece.isDoorOrWindow()) {
-                skipped++;
-                continue;
-            }
-            String pieceName = piece.getName();
-            boolean isBush = isLikelyBush(piece);
-            if (logWriter != null && skipped < 10) {
-                logWriter.println("    Vérification objet : \"" + (pieceName != null ? pieceName : "(sans nom)") + "\" → " + (isBush ? "BUISSON" : "ignoré"));
-                logWriter.flush();
-            }
-            if (!isBush) {
-                skipped++;
-                continue;
-            }
-
-            Float pieceHeight = piece.getHeight();
-            Float pieceWidth = piece.getWidth();
-            Float pieceDepth = piece.getDepth();
-            double heightCm = pieceHeight != null ? pieceHeight.doubleValue() : 100.0;
-            double widthCm = pieceWidth != null ? pieceWidth.doubleValue() : 50.0;
-            double depthCm = pieceDepth != null ? pieceDepth.doubleValue() : 50.0;
-
-            double heightUnits = heightCm * SCALE_CM_TO_ENERGY3D;
-            boolean lengthUsesWidthAxis = widthCm >= depthCm;
-            double lengthUnits = Math.max(widthCm, depthCm) * SCALE_CM_TO_ENERGY3D;
-            double thicknessCm = Math.min(widthCm, depthCm);
-            double thicknessM = thicknessCm / 100.0;
-            double thicknessUnits = thicknessM * ENERGY3D_UNITS_PER_METER_EXPORT;
-
-            if (heightUnits < 2.5) heightUnits = 2.5;
-            if (lengthUnits < 2.5) lengthUnits = 2.5;
-            if (thicknessUnits < 0.75) thicknessUnits = 0.75;
-            if (heightUnits > 15.0) heightUnits = 15.0;
-            if (lengthUnits > 25.0) lengthUnits = 25.0;
-            if (thicknessUnits > 5.0) thicknessUnits = 5.0;
-
-            double xCm = piece.getX();
-            double yCm = piece.getY();
-            double zCm = level.getElevation() + piece.getElevation();
-            float pieceAngle = piece.getAngle();
-
-            double xAbs = (xCm - originX) * SCALE_CM_TO_ENERGY3D;
-            double yAbs = (yCm - originY) * SCALE_CM_TO_ENERGY3D;
-            if (MIRROR_FLIP_X) xAbs = -xAbs;
-            if (ROTATE_180_Z) yAbs = -yAbs;
-
-            // Si l'objet est hors fondation, ne pas le recaler à l'intérieur : on l'ignore.
-            double uCenter = projectPointOnLineScale(xAbs, yAbs, p0x, p0y, p2x, p2y);
-            double vCenter = projectPointOnLineScale(xAbs, yAbs, p0x, p0y, p1x, p1y);
-            if (uCenter < 0 || uCenter > 1 || vCenter < 0 || vCenter > 1) {
-                if (logWriter != null && skipped < 15) {
-                    logWriter.println("    Objet buisson hors fondation ignoré : \"" + (pieceName != null ? pieceName : "(sans nom)") + "\"");
-                    logWriter.flush();
-                }
-                skipped++;
-                continue;
+        // Si un buisson sort de la fondation, il n'est pas recalé à l'intérieur : il est ignoré
+        ExportGeometry.Hedges hedges = ExportGeometry.extractHedges(furniture, furnitureIndex, frame);
+        int skipped = furnitureIndex.size() - furniture.size() + hedges.ignored;
+        for (int i = 0; i < hedges.outside.length; i++) {
+            if (ExportLogger.isDebugEnabled(logWriter) && skipped < 15) {
+                ExportLogger.debug(logWriter, "    " + (hedges.partlyOutside[i] ? "Buisson partiellement hors fondation" : "Objet buisson hors fondation")
+                        + " ignoré : \"" + hedges.outside[i] + "\"");
             }
+            ExportMetrics.countPartSkipped();
+            skipped++;
+        }
 
-            // Orientation exacte depuis l'angle du meuble SH3D.
-            // Si la longueur provient de depth (et non width), l'axe principal est perpendiculaire à pieceAngle.
-            double orientedAngle = lengthUsesWidthAxis ? pieceAngle : (pieceAngle + Math.PI / 2.0);
-            double halfLenCm = (lengthUnits / SCALE_CM_TO_ENERGY3D) * 0.5;
-            double dxCm = Math.cos(orientedAngle) * halfLenCm;
-            double dyCm = Math.sin(orientedAngle) * halfLenCm;
-
-            double xStartAbs = ((xCm - dxCm) - originX) * SCALE_CM_TO_ENERGY3D;
-            double yStartAbs = ((yCm - dyCm) - originY) * SCALE_CM_TO_ENERGY3D;
-            double xEndAbs = ((xCm + dxCm) - originX) * SCALE_CM_TO_ENERGY3D;
-            double yEndAbs = ((yCm + dyCm) - originY) * SCALE_CM_TO_ENERGY3D;
-            if (MIRROR_FLIP_X) {
-                xStartAbs = -xStartAbs;
-                xEndAbs = -xEndAbs;
-            }
-            if (ROTATE_180_Z) {
-                yStartAbs = -yStartAbs;
-                yEndAbs = -yEndAbs;
-            }
-
-            double uStart = projectPointOnLineScale(xStartAbs, yStartAbs, p0x, p0y, p2x, p2y);
-            double vStart = projectPointOnLineScale(xStartAbs, yStartAbs, p0x, p0y, p1x, p1y);
-            double uEnd = projectPointOnLineScale(xEndAbs, yEndAbs, p0x, p0y, p2x, p2y);
-            double vEnd = projectPointOnLineScale(xEndAbs, yEndAbs, p0x, p0y, p1x, p1y);
-
-            // Si le segment sort de la fondation, ignorer l'objet (pas de clamp/recalage).
-            if (uStart < 0 || uStart > 1 || vStart < 0 || vStart > 1
-                    || uEnd < 0 || uEnd > 1 || vEnd < 0 || vEnd > 1) {
-                if (logWriter != null && skipped < 15) {
-                    logWriter.println("    Buisson partiellement hors fondation ignoré : \"" + (pieceName != null ? pieceName : "(sans nom)") + "\"");
-                    logWriter.flush();
-                }
-                skipped++;
-                continue;
-            }
-
-            final double SNAP_GRID = 1e-5;
-            uStart = Math.round(uStart / SNAP_GRID) * SNAP_GRID;
-            vStart = Math.round(vStart / SNAP_GRID) * SNAP_GRID;
-            uEnd = Math.round(uEnd / SNAP_GRID) * SNAP_GRID;
-            vEnd = Math.round(vEnd / SNAP_GRID) * SNAP_GRID;
-
-            double zBottom = foundationHeight;
-            double zTop = foundationHeight + heightUnits;
-
+        int count = 0;
+        for (int i = 0; i < hedges.count; i++) {
+            long partStart = ExportFlightRecorder.partStart();
             try {
-                Object bushWall = wallClass.getDeclaredConstructor().newInstance();
-                java.lang.reflect.Method setContainerMethod = wallClass.getMethod("setContainer", housePartClass);
-                setContainerMethod.invoke(bushWall, foundation);
-                java.lang.reflect.Method setThicknessMethod = wallClass.getMethod("setThickness", double.class);
-                setThicknessMethod.invoke(bushWall, thicknessUnits);
-
-                java.lang.reflect.Field pointsField = null;
-                for (Class<?> c = wallClass; c != null; c = c.getSuperclass()) {
-                    try {
-                        pointsField = c.getDeclaredField("points");
-                        break;
-                    } catch (NoSuchFieldException ignored) { }
+                String bushFingerprint = ExportSession.isActive() ? hedges.key(i) : null;
+                Object bushWall = ExportSession.reuse(bushFingerprint);
+                if (bushWall != null) {
+                    handles.setContainer(bushWall, foundation);
+                    foundationChildren.add(bushWall);
+                    ExportSession.keep(bushFingerprint, bushWall);
+                    ExportMetrics.countPartCreated();
+                    ExportFlightRecorder.partConverted("Bush", hedges.ids[i], partStart);
+                    count++;
+                    continue;
                 }
-                if (pointsField != null) {
-                    pointsField.setAccessible(true);
-                    @SuppressWarnings("unchecked")
-                    java.util.List<Object> pointsList = (java.util.List<Object>) pointsField.get(bushWall);
-                    while (pointsList.size() < 4) {
-                        pointsList.add(vector3Class.getConstructor(double.class, double.class, double.class).newInstance(0.0, 0.0, 0.0));
-                    }
-                    vector3Set.invoke(pointsList.get(0), uStart, vStart, zBottom);
-                    vector3Set.invoke(pointsList.get(1), uStart, vStart, zTop);
-                    vector3Set.invoke(pointsList.get(2), uEnd, vEnd, zBottom);
-                    vector3Set.invoke(pointsList.get(3), uEnd, vEnd, zTop);
+                bushWall = handles.newWall();
+                handles.setContainer(bushWall, foundation);
+                handles.setWallThickness(bushWall, hedges.thickness[i]);
 
-                    try {
-                        java.lang.reflect.Field firstPointField = wallClass.getSuperclass().getDeclaredField("firstPointInserted");
-                        firstPointField.setAccessible(true);
-                        firstPointField.set(bushWall, true);
-                    } catch (Exception ignored) { }
+                List<Object> pointsList = handles.getPoints(bushWall);
+                while (pointsList.size() < 4) {
+                    pointsList.add(handles.newVector3(0.0, 0.0, 0.0));
                 }
+                for (int k = 0; k < 4; k++) {
+                    int p = i * 12 + k * 3;
+                    handles.setVector3(pointsList.get(k), hedges.points[p], hedges.points[p + 1], hedges.points[p + 2]);
+                }
+                try {
+                    handles.setFirstPointInserted(bushWall, true);
+                } catch (Exception ignored) { }
 
-                java.lang.reflect.Method setHeightMethod = wallClass.getMethod("setHeight", double.class, boolean.class);
-                setHeightMethod.invoke(bushWall, heightUnits, true);
-                wallClass.getMethod("complete").invoke(bushWall);
-                setHousePartTextureType(bushWall, wallClass, 8, logWriter, "buisson (Wall)");
-                wallClass.getMethod("draw").invoke(bushWall);
+                handles.setWallHeight(bushWall, hedges.height[i], true);
+                handles.complete(bushWall);
+                setHousePartTextureType(handles, bushWall, 8, logWriter, "buisson (Wall)");
+                handles.draw(bushWall);
 
-                java.lang.reflect.Method getChildrenMethod = foundationClass.getMethod("getChildren");
-                @SuppressWarnings("unchecked")
-                java.util.List<Object> children = (java.util.List<Object>) getChildrenMethod.invoke(foundation);
-                children.add(bushWall);
+                foundationChildren.add(bushWall);
+                ExportSession.keep(bushFingerprint, bushWall);
 
+                ExportMetrics.countPartCreated();
+                ExportFlightRecorder.partConverted("Bush", hedges.ids[i], partStart);
                 count++;
-                if (logWriter != null && count <= 5) {
-                    logWriter.println("    Buisson (Wall) #" + count + " créé depuis " + levelLabel + " à (" + xCm + ", " + yCm + ", " + zCm + ") cm, dimensions=" + heightCm + "x" + widthCm + "x" + depthCm + " cm → " + heightUnits + "x" + lengthUnits + "x" + thicknessUnits + " unités Energy3D");
-                    logWriter.flush();
+                if (ExportLogger.isDebugEnabled(logWriter) && count <= 5) {
+                    ExportLogger.debug(logWriter, "    Buisson (Wall) #" + count + " créé depuis " + levelLabel + " : hauteur " + hedges.height[i]
+                            + " u, épaisseur " + hedges.thickness[i] + " u");
                 }
             } catch (Exception e) {
                 if (logWriter != null) {
-                    logWriter.println("    ERREUR création buisson (Wall) à (" + xCm + ", " + yCm + ", " + zCm + ") cm: " + e.getMessage());
+                    ExportLogger.error(logWriter, "    ERREUR création buisson (Wall) " + hedges.ids[i] + ": " + e.getMessage());
                     e.printStackTrace(new java.io.PrintWriter(logWriter));
-                    logWriter.flush();
                 }
+                ExportMetrics.countPartSkipped();
                 skipped++;
             }
         }
 
         if (logWriter != null) {
-            logWriter.println("  ✓ " + count + " buisson(s) (Wall) exporté(s) depuis " + levelLabel + " (ignorés: " + skipped + ").");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  ✓ " + count + " buisson(s) (Wall) exporté(s) depuis " + levelLabel + " (ignorés: " + skipped + ").");
         }
     }
 
     /**
      * Crée des arbres Energy3D à partir des meubles SH3D identifiés comme arbres/plantes et les ajoute à la scène.
      */
-    private static void addTreesFromHome(Home home, Object scene, double originX, double originY,
-            Class<?> sceneClass, PrintWriter logWriter) {
+    private static void addTreesFromHome(Home home, FurnitureIndex furnitureIndex, Object scene, double originX, double originY,
+            Energy3DHandles handles, PrintWriter logWriter) {
         if (home == null || scene == null) return;
-        Class<?> treeClass;
-        Class<?> housePartClass;
         try {
-            treeClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Tree", logWriter);
-            housePartClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.HousePart", logWriter);
-        } catch (ClassNotFoundException e) {
-            if (logWriter != null) logWriter.println("  AVERTISSEMENT: classes Tree/HousePart: " + e.getMessage());
-            return;
-        }
-        if (treeClass == null || housePartClass == null) return;
-        try {
-            java.lang.reflect.Field instanceField = sceneClass.getDeclaredField("instance");
-            instanceField.setAccessible(true);
-            Object previousInstance = instanceField.get(null);
+            Object previousInstance = handles.getSceneInstance();
             try {
-                instanceField.set(null, scene);
-                java.lang.reflect.Method addMethod = sceneClass.getMethod("add", housePartClass, boolean.class);
-                ClassLoader loader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
-                Class<?> vector3Class = loader.loadClass("com.ardor3d.math.Vector3");
-                java.lang.reflect.Method vector3Set = vector3Class.getMethod("set", double.class, double.class, double.class);
-                java.lang.reflect.Method setLocationMethod = treeClass.getMethod("setLocation", vector3Class);
-                java.lang.reflect.Method setPlantTypeMethod = null;
-                try {
-                    setPlantTypeMethod = treeClass.getMethod("setPlantType", int.class);
-                } catch (NoSuchMethodException ignored) { }
-                List<HomePieceOfFurniture> furniture = getAllFurnitureIncludingGroups(home);
+                handles.setSceneInstance(scene);
+                List<HomePieceOfFurniture> trees = new ArrayList<HomePieceOfFurniture>();
+                for (HomePieceOfFurniture piece : furnitureIndex.getAllFurniture()) {
+                    if (furnitureIndex.isLikelyTree(piece)) {
+                        trees.add(piece);
+                    }
+                }
+                ExportGeometry.Plants plants = ExportGeometry.extractPlants(trees, furnitureIndex, null, originX, originY);
                 int count = 0;
-                for (HomePieceOfFurniture piece : furniture) {
-                    if (!isLikelyTree(piece)) continue;
-                    Level level = piece.getLevel();
-                    if (level == null) continue;
-                    double xCm = piece.getX();
-                    double yCm = piece.getY();
-                    double zCm = level.getElevation() + piece.getElevation();
-                    double x = (xCm - originX) * SCALE_CM_TO_ENERGY3D;
-                    double y = (yCm - originY) * SCALE_CM_TO_ENERGY3D;
-                    double z = zCm * SCALE_CM_TO_ENERGY3D;
-                    if (MIRROR_FLIP_X) x = -x;
-                    if (ROTATE_180_Z) y = -y;
-                    Object tree = treeClass.getDeclaredConstructor().newInstance();
-                    int plantType = getEnergy3DPlantTypeFromName(piece);
-                    if (plantType >= 0 && setPlantTypeMethod != null) {
-                        setPlantTypeMethod.invoke(tree, plantType);
+                for (int i = 0; i < plants.count; i++) {
+                    long partStart = ExportFlightRecorder.partStart();
+                    String treeFingerprint = ExportSession.isActive() ? plants.key(i) : null;
+                    Object tree = ExportSession.reuse(treeFingerprint);
+                    if (tree == null) {
+                        tree = handles.newTree();
+                        if (plants.plantType[i] >= 0) {
+                            handles.setTreePlantType(tree, plants.plantType[i]);
+                        }
+                        handles.setTreeLocation(tree, handles.newVector3(plants.positions[i * 3], plants.positions[i * 3 + 1], plants.positions[i * 3 + 2]));
+                        handles.complete(tree);
+                        handles.draw(tree);
                     }
-                    Object pos = vector3Class.getDeclaredConstructor().newInstance();
-                    vector3Set.invoke(pos, x, y, z);
-                    setLocationMethod.invoke(tree, pos);
-                    treeClass.getMethod("complete").invoke(tree);
-                    treeClass.getMethod("draw").invoke(tree);
-                    addMethod.invoke(scene, tree, true);
+                    ExportSession.keep(treeFingerprint, tree);
+                    handles.addToScene(scene, tree, true);
+                    ExportMetrics.countPartCreated();
+                    ExportFlightRecorder.partConverted("Tree", plants.ids[i], partStart);
                     count++;
                 }
                 if (logWriter != null) {
-                    logWriter.println("  ✓ " + count + " arbre(s) exporté(s) depuis SH3D.");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  ✓ " + count + " arbre(s) exporté(s) depuis SH3D.");
                 }
             } finally {
-                instanceField.set(null, previousInstance);
+                handles.setSceneInstance(previousInstance);
             }
         } catch (Exception e) {
             if (logWriter != null) {
@@ -2831,444 +2282,219 @@ public class PlanExporter {
                 if (errorMsg == null) {
                     errorMsg = e.getClass().getSimpleName();
                 }
-                logWriter.println("  AVERTISSEMENT: export des arbres: " + errorMsg);
+                ExportLogger.warn(logWriter, "  AVERTISSEMENT: export des arbres: " + errorMsg);
                 e.printStackTrace(new java.io.PrintWriter(logWriter));
-                logWriter.flush();
             }
         }
     }
 
     /**
-     * Convertit les fenêtres/portes SH3D situées sur le mur donné en Window ou Door Energy3D et les ajoute aux enfants du mur.
-     * Porte vs fenêtre : selon le nom de la pièce (isLikelyDoor). Sinon traité comme fenêtre.
+     * Crée les fenêtres/portes Energy3D du segment i (ExportGeometry) et les ajoute aux enfants du mur Energy3D.
+     * Porte vs fenêtre : selon le nom de la pièce (FurnitureIndex.isDoor), décidé à l'extraction.
      */
-    private static void convertWindowsOnWall(Home home, Wall sh3dWall, Object energy3dWall, Object foundation,
-            double originX, double originY, Class<?> foundationClass, PrintWriter logWriter) {
-        if (home == null || energy3dWall == null || foundation == null) return;
-        List<HomePieceOfFurniture> furniture = getAllFurnitureIncludingGroups(home);
+    private static void assembleOpenings(ExportGeometry.Walls walls, int i, Object energy3dWall,
+            Energy3DHandles handles, PrintWriter logWriter) {
+        for (int k = 0; k < walls.openingsSkipped[i]; k++) {
+            ExportMetrics.countPartSkipped();
+        }
         int converted = 0;
-        for (HomePieceOfFurniture piece : furniture) {
-            if (!piece.isDoorOrWindow() || !(piece instanceof HomeDoorOrWindow)) continue;
-            Wall wallForPiece = findWallForDoorOrWindow((HomeDoorOrWindow) piece, home.getWalls());
-            if (wallForPiece != sh3dWall) continue;
-            boolean isDoor = isLikelyDoor((HomeDoorOrWindow) piece);
-            Class<?> partClass;
-            try {
-                partClass = isDoor
-                        ? Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Door", logWriter)
-                        : Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Window", logWriter);
-            } catch (ClassNotFoundException e) {
-                if (logWriter != null) logWriter.println("    ⚠ Classe " + (isDoor ? "Door" : "Window") + " Energy3D introuvable: " + e.getMessage());
-                continue;
-            }
-            if (partClass == null) continue;
+        for (int j = walls.openingStart[i]; j < walls.openingStart[i + 1]; j++) {
+            long partStart = ExportFlightRecorder.partStart();
+            boolean isDoor = walls.door[j];
+            Class<?> partClass = isDoor ? handles.doorClass : handles.windowClass;
             try {
-                Object part = convertDoorOrWindowToEnergy3D(home, (HomeDoorOrWindow) piece, sh3dWall, energy3dWall, foundation, foundationClass, partClass, logWriter);
+                Object part = assembleOpening(walls, j, energy3dWall, partClass, handles, logWriter);
                 if (part != null) {
-                    java.lang.reflect.Method getChildrenMethod = energy3dWall.getClass().getMethod("getChildren");
-                    @SuppressWarnings("unchecked")
-                    java.util.List<Object> children = (java.util.List<Object>) getChildrenMethod.invoke(energy3dWall);
-                    children.add(part);
+                    handles.getChildren(energy3dWall).add(part);
                     converted++;
-                    if (logWriter != null) logWriter.println("    ✓ " + (isDoor ? "Porte" : "Fenêtre") + " convertie sur ce mur");
+                    ExportMetrics.countPartCreated();
+                    ExportFlightRecorder.partConverted(isDoor ? "Door" : "Window", walls.openingIds[j], partStart);
+                    if (ExportLogger.isDebugEnabled(logWriter)) ExportLogger.debug(logWriter, "    ✓ " + (isDoor ? "Porte" : "Fenêtre") + " convertie sur ce mur");
+                } else {
+                    ExportMetrics.countPartSkipped();
                 }
             } catch (Throwable t) {
+                ExportMetrics.countPartSkipped();
                 if (logWriter != null) {
-                    logWriter.println("    ⚠ " + (isDoor ? "Porte" : "Fenêtre") + " non convertie: " + t.getMessage());
-                    logWriter.flush();
+                    ExportLogger.warn(logWriter, "    ⚠ " + (isDoor ? "Porte" : "Fenêtre") + " non convertie: " + t.getMessage());
                 }
             }
         }
         if (converted > 0) {
             try {
-                energy3dWall.getClass().getMethod("draw").invoke(energy3dWall);
+                handles.draw(energy3dWall);
             } catch (Exception ignored) { }
         }
-        if (logWriter != null && converted > 0) logWriter.println("  " + converted + " fenêtre(s)/porte(s) sur ce mur");
+        if (logWriter != null && converted > 0) ExportLogger.info(logWriter, "  " + converted + " fenêtre(s)/porte(s) sur ce mur");
     }
 
     /**
-     * Crée une fenêtre ou une porte Energy3D à partir d'une porte/fenêtre SH3D sur un mur.
+     * Crée la fenêtre ou la porte Energy3D j (ExportGeometry) sur un mur.
      * partClass = Window.class ou Door.class (Energy3D). Les points sont en (x, 0, z) relatifs au mur (fractions 0-1).
      */
-    private static Object convertDoorOrWindowToEnergy3D(Home home, HomeDoorOrWindow piece, Wall sh3dWall, Object energy3dWall,
-            Object foundation, Class<?> foundationClass, Class<?> partClass, PrintWriter logWriter) {
+    private static Object assembleOpening(ExportGeometry.Walls walls, int j, Object energy3dWall,
+            Class<?> partClass, Energy3DHandles handles, PrintWriter logWriter) {
         try {
             if (partClass == null) return null;
-            ClassLoader loader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
-            Class<?> housePartClass = loader.loadClass("org.concord.energy3d.model.HousePart");
-            Class<?> vector3Class = loader.loadClass("com.ardor3d.math.Vector3");
-            java.lang.reflect.Method vector3Set = vector3Class.getMethod("set", double.class, double.class, double.class);
-
-            // Mur SH3D : segment en cm
-            double xStartCm = sh3dWall.getXStart();
-            double yStartCm = sh3dWall.getYStart();
-            double xEndCm = sh3dWall.getXEnd();
-            double yEndCm = sh3dWall.getYEnd();
-            double wallLengthCm = Math.hypot(xEndCm - xStartCm, yEndCm - yStartCm);
-            if (wallLengthCm < 1e-6) return null;
-
-            // Centre porte/fenêtre en cm, projection sur le segment du mur → paramètre t ∈ [0,1]
-            double pxCm = piece.getX();
-            double pyCm = piece.getY();
-            double tCenter = projectPointOnLineScale(pxCm, pyCm, xStartCm, yStartCm, xEndCm, yEndCm);
-            tCenter = Math.max(0, Math.min(1, tCenter));
-
-            // Ouverture : dimensions cohérentes avec le mur (SH3D : getWidth/getHeight en cm ; getWallWidth/getWallHeight = fraction 0–1)
-            double wallHeightCm = sh3dWall.getHeight() != null ? sh3dWall.getHeight().doubleValue() : 250.0;
-            float ww = piece.getWallWidth();
-            float wh = piece.getWallHeight();
-            if (ww <= 0) ww = 1f;
-            if (wh <= 0) wh = 1f;
-            if (ww > 1f) ww = ww / 100f;
-            if (wh > 1f) wh = wh / 100f;
-            // Largeur = fraction du mur OU taille pièce, plafonnée à 80 % du mur pour éviter fenêtres démesurées
-            double openingWidthCm = ww * piece.getWidth();
-            if (openingWidthCm > wallLengthCm * 0.8) openingWidthCm = wallLengthCm * 0.8;
-            if (openingWidthCm < 20 && piece.getWidth() > 20) openingWidthCm = Math.min(piece.getWidth(), wallLengthCm * 0.8);
-            // Hauteur = fraction du mur OU taille pièce, plafonnée à 85 % du mur
-            double openingHeightCm = wh * piece.getHeight();
-            if (openingHeightCm > wallHeightCm * 0.85) openingHeightCm = wallHeightCm * 0.85;
-            if (openingHeightCm < 40 && piece.getHeight() > 40) openingHeightCm = Math.min(piece.getHeight(), wallHeightCm * 0.85);
-            double halfWidthParam = (openingWidthCm / 2.0) / wallLengthCm;
-            double tLeft = Math.max(0, tCenter - halfWidthParam);
-            double tRight = Math.min(1, tCenter + halfWidthParam);
-
-            // (u,v) du mur en coordonnées fondation : lire les points du mur Energy3D
-            java.lang.reflect.Field pointsField = null;
-            for (Class<?> c = energy3dWall.getClass(); c != null; c = c.getSuperclass()) {
-                try {
-                    pointsField = c.getDeclaredField("points");
-                    break;
-                } catch (NoSuchFieldException ignored) { }
-            }
-            if (pointsField == null) return null;
-            pointsField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            java.util.List<Object> wallPoints = (java.util.List<Object>) pointsField.get(energy3dWall);
-            if (wallPoints == null || wallPoints.size() < 4) return null;
-            Object p0 = wallPoints.get(0);
-
-            // Paramètre le long du mur (0-1) : Energy3D attend des coordonnées relatives au mur (HousePart.toAbsolute).
-            // x = fraction le long du mur, z = fraction de la hauteur du mur (0 = base, 1 = haut).
-            double sLeft = WALL_REVERSE_ORIENTATION ? (1 - tRight) : tLeft;
-            double sRight = WALL_REVERSE_ORIENTATION ? (1 - tLeft) : tRight;
-
-            // Hauteur du mur et base Z (pour convertir z absolu en fraction 0-1)
-            Object p1Wall = wallPoints.get(1);
-            double wallZBottom = ((Number) p0.getClass().getMethod("getZ").invoke(p0)).doubleValue();
-            double wallZTop = ((Number) p1Wall.getClass().getMethod("getZ").invoke(p1Wall)).doubleValue();
-            double wallHeight = wallZTop - wallZBottom;
-            if (wallHeight < 1e-6) return null;
-
-            // Z absolus de la fenêtre (base et haut)
-            double foundationHeight = ((Number) foundationClass.getMethod("getHeight").invoke(foundation)).doubleValue();
-            float groundElevCm = piece.getGroundElevation();
-            double zBottomAbs = foundationHeight + groundElevCm * SCALE_CM_TO_ENERGY3D;
-            double zTopAbs = zBottomAbs + openingHeightCm * SCALE_CM_TO_ENERGY3D;
-            // Fractions 0-1 le long de la hauteur du mur (comme dans plan_energy3d2.ng3 créé par Energy3D)
-            double zBottomFraction = Math.max(0, Math.min(1, (zBottomAbs - wallZBottom) / wallHeight));
-            double zTopFraction = Math.max(0, Math.min(1, (zTopAbs - wallZBottom) / wallHeight));
+            double sLeft = walls.openingFractions[j * 4];
+            double sRight = walls.openingFractions[j * 4 + 1];
+            double zBottomFraction = walls.openingFractions[j * 4 + 2];
+            double zTopFraction = walls.openingFractions[j * 4 + 3];
 
             // Créer la fenêtre/porte sans constructeur pour éviter init() → NPE en headless
             Object window = allocateInstanceWithoutConstructor(partClass);
             if (window == null) return null;
 
-            java.lang.reflect.Method setContainerMethod = partClass.getMethod("setContainer", housePartClass);
-            setContainerMethod.invoke(window, energy3dWall);
+            handles.setContainer(window, energy3dWall);
 
             // Points en coordonnées relatives au mur : (x = fraction longueur 0-1, y = 0, z = fraction hauteur 0-1)
-            Object winPointsList = loader.loadClass("java.util.ArrayList").getDeclaredConstructor().newInstance();
-            java.lang.reflect.Method listAdd = winPointsList.getClass().getMethod("add", Object.class);
-            java.lang.reflect.Method listGet = winPointsList.getClass().getMethod("get", int.class);
+            List<Object> winPointsList = new ArrayList<Object>(4);
             for (int i = 0; i < 4; i++) {
-                listAdd.invoke(winPointsList, vector3Class.getConstructor(double.class, double.class, double.class).newInstance(0, 0, 0));
+                winPointsList.add(handles.newVector3(0, 0, 0));
             }
-            vector3Set.invoke(listGet.invoke(winPointsList, 0), sLeft,  0, zBottomFraction);
-            vector3Set.invoke(listGet.invoke(winPointsList, 1), sLeft,  0, zTopFraction);
-            vector3Set.invoke(listGet.invoke(winPointsList, 2), sRight, 0, zBottomFraction);
-            vector3Set.invoke(listGet.invoke(winPointsList, 3), sRight, 0, zTopFraction);
-
-            java.lang.reflect.Field winPointsField = null;
-            for (Class<?> c = partClass; c != null; c = c.getSuperclass()) {
-                try {
-                    winPointsField = c.getDeclaredField("points");
-                    break;
-                } catch (NoSuchFieldException ignored) { }
-            }
-            if (winPointsField == null) return null;
-            winPointsField.setAccessible(true);
-            winPointsField.set(window, winPointsList);
+            handles.setVector3(winPointsList.get(0), sLeft,  0, zBottomFraction);
+            handles.setVector3(winPointsList.get(1), sLeft,  0, zTopFraction);
+            handles.setVector3(winPointsList.get(2), sRight, 0, zBottomFraction);
+            handles.setVector3(winPointsList.get(3), sRight, 0, zTopFraction);
+            handles.setPoints(window, winPointsList);
 
             // Champs HousePart requis pour sérialisation / ouverture Energy3D
             try {
-                java.lang.reflect.Field firstPointField = partClass.getSuperclass().getDeclaredField("firstPointInserted");
-                firstPointField.setAccessible(true);
-                firstPointField.set(window, true);
+                handles.setFirstPointInserted(window, true);
             } catch (Exception ignored) { }
             try {
-                java.lang.reflect.Field drawCompletedField = partClass.getSuperclass().getDeclaredField("drawCompleted");
-                drawCompletedField.setAccessible(true);
-                drawCompletedField.set(window, true);
+                handles.setDrawCompleted(window, true);
             } catch (Exception ignored) { }
             try {
-                java.lang.reflect.Field heightField = partClass.getSuperclass().getDeclaredField("height");
-                heightField.setAccessible(true);
-                heightField.setDouble(window, (zTopAbs - zBottomAbs));
+                handles.setHeightField(window, walls.openingHeight[j]);
             } catch (Exception ignored) { }
             try {
-                java.lang.reflect.Field idField = partClass.getSuperclass().getDeclaredField("id");
-                idField.setAccessible(true);
-                if (idField.getLong(window) == 0L)
-                    idField.setLong(window, System.nanoTime());
+                if (handles.getId(window) == 0L)
+                    handles.setId(window, System.nanoTime());
             } catch (Exception ignored) { }
 
             // Root non-null pour que Scene.add() → getRoot() ne déclenche pas init() (NPE en headless)
             try {
-                Class<?> nodeClass = loader.loadClass("com.ardor3d.scenegraph.Node");
+                Class<?> nodeClass = partClass.getClassLoader().loadClass("com.ardor3d.scenegraph.Node");
                 Object rootNode = nodeClass.getConstructor(String.class).newInstance(partClass.getSimpleName());
-                java.lang.reflect.Field rootField = partClass.getSuperclass().getDeclaredField("root");
-                rootField.setAccessible(true);
-                rootField.set(window, rootNode);
+                handles.setRoot(window, rootNode);
             } catch (Exception e) {
-                if (logWriter != null) logWriter.println("    root " + partClass.getSimpleName() + " non défini: " + e.getMessage());
+                if (ExportLogger.isDebugEnabled(logWriter)) ExportLogger.debug(logWriter, "    root " + partClass.getSimpleName() + " non défini: " + e.getMessage());
             }
             // children non-null pour que Scene.add() → part.getChildren() ne lance pas NPE (instance créée sans constructeur)
             try {
-                java.lang.reflect.Field childrenField = partClass.getSuperclass().getDeclaredField("children");
-                childrenField.setAccessible(true);
-                if (childrenField.get(window) == null) {
-                    Object emptyList = loader.loadClass("java.util.ArrayList").getDeclaredConstructor().newInstance();
-                    childrenField.set(window, emptyList);
+                if (handles.getChildrenField(window) == null) {
+                    handles.setChildrenField(window, new ArrayList<Object>());
                 }
             } catch (Exception e) {
-                if (logWriter != null) logWriter.println("    children " + partClass.getSimpleName() + " non défini: " + e.getMessage());
+                if (ExportLogger.isDebugEnabled(logWriter)) ExportLogger.debug(logWriter, "    children " + partClass.getSimpleName() + " non défini: " + e.getMessage());
             }
 
             // Propriétés thermiques : U-value (Window et Door), SHGC (Window uniquement)
             try {
-                partClass.getMethod("setUValue", double.class).invoke(window, 2.0);
+                handles.setOpeningUValue(window, 2.0);
             } catch (Exception ignored) { }
             try {
-                partClass.getMethod("setSolarHeatGainCoefficient", double.class).invoke(window, 0.5);
+                handles.setSolarHeatGainCoefficient(window, 0.5);
             } catch (Exception ignored) { }
             return window;
         } catch (Throwable t) {
             Throwable cause = t.getCause() != null ? t.getCause() : t;
-            if (logWriter != null) {
-                logWriter.println("    convertDoorOrWindowToEnergy3D: " + t.getClass().getSimpleName() + " - " + t.getMessage());
-                logWriter.println("      cause: " + cause.getClass().getSimpleName() + " - " + cause.getMessage());
-                logWriter.flush();
+            if (ExportLogger.isDebugEnabled(logWriter)) {
+                ExportLogger.debug(logWriter, "    assembleOpening: " + t.getClass().getSimpleName() + " - " + t.getMessage());
+                ExportLogger.debug(logWriter, "      cause: " + cause.getClass().getSimpleName() + " - " + cause.getMessage());
             }
             return null;
         }
     }
 
     /**
-     * Convertit un mur SH3D en mur Energy3D.
-     * @param isExterior true si le segment est sur l'enveloppe convexe (mur extérieur) : Energy3D ne connecte qu'exterior–exterior, le toit suit uniquement ces murs.
-     * @param overrideBaseZUnits base Z en unités (au-dessus de la fondation). Si &lt;= 0 et overrideHeightUnits &lt;= 0, calculée depuis le niveau du mur.
-     * @param overrideHeightUnits hauteur en unités. Si &gt; 0, utilisée (mur fusionné multi-niveaux) ; sinon hauteur du mur seul.
+     * Crée le mur Energy3D du segment i (ExportGeometry).
+     * Un segment extérieur est sur l'enveloppe convexe : Energy3D ne connecte qu'exterior–exterior, le toit suit uniquement ces murs.
      */
-    private static Object convertWallToEnergy3D(Wall sh3dWall, Object foundation, double originX, double originY,
-            Level foundationLevel, double overrideBaseZUnits, double overrideHeightUnits, boolean isExterior, PrintWriter logWriter) {
+    private static Object assembleWall(ExportGeometry.Walls walls, int i, Object foundation,
+            Energy3DHandles handles, PrintWriter logWriter) {
         try {
-            WallConverter.Energy3DWallData data = WallConverter.convertToEnergy3D(sh3dWall);
-            // Positions absolues en m (centre plan = origin)
-            double xStart = (sh3dWall.getXStart() - originX) * SCALE_CM_TO_ENERGY3D;
-            double yStart = (sh3dWall.getYStart() - originY) * SCALE_CM_TO_ENERGY3D;
-            double xEnd   = (sh3dWall.getXEnd()   - originX) * SCALE_CM_TO_ENERGY3D;
-            double yEnd   = (sh3dWall.getYEnd()   - originY) * SCALE_CM_TO_ENERGY3D;
-            if (MIRROR_FLIP_X) {
-                xStart = -xStart;
-                xEnd   = -xEnd;
-            }
-            if (ROTATE_180_Z) {
-                yStart = -yStart;
-                yEnd   = -yEnd;
-            }
-            // Aligner les extrémités sur une grille pour que les sommets partagés entre segments soient identiques (connectWithOtherWalls)
-            final double XY_SNAP = 1e-4; // unités Energy3D (~0.1 mm)
-            xStart = Math.round(xStart / XY_SNAP) * XY_SNAP;
-            yStart = Math.round(yStart / XY_SNAP) * XY_SNAP;
-            xEnd   = Math.round(xEnd / XY_SNAP) * XY_SNAP;
-            yEnd   = Math.round(yEnd / XY_SNAP) * XY_SNAP;
-            // Épaisseur : SH3D stocke en cm, Energy3D en m. Convertir cm → m → unités Energy3D
-            Float sh3dThickness = sh3dWall.getThickness();
-            double thicknessCm = sh3dThickness != null ? sh3dThickness.doubleValue() : 20.0; // SH3D stocke en cm (défaut 20 cm)
-            double thicknessM = thicknessCm / 100.0; // cm → m
-            double thickness = thicknessM * ENERGY3D_UNITS_PER_METER_EXPORT; // m → unités Energy3D
-
-            Class<?> foundationClass = foundation.getClass();
-            java.lang.reflect.Method getAbsPoint = foundationClass.getMethod("getAbsPoint", int.class);
-            java.lang.reflect.Method getHeightMethod = foundationClass.getMethod("getHeight");
-            Object p0 = getAbsPoint.invoke(foundation, 0);
-            Object p1 = getAbsPoint.invoke(foundation, 1);
-            Object p2 = getAbsPoint.invoke(foundation, 2);
-            double p0x = ((Number) p0.getClass().getMethod("getX").invoke(p0)).doubleValue();
-            double p0y = ((Number) p0.getClass().getMethod("getY").invoke(p0)).doubleValue();
-            double p1x = ((Number) p1.getClass().getMethod("getX").invoke(p1)).doubleValue();
-            double p1y = ((Number) p1.getClass().getMethod("getY").invoke(p1)).doubleValue();
-            double p2x = ((Number) p2.getClass().getMethod("getX").invoke(p2)).doubleValue();
-            double p2y = ((Number) p2.getClass().getMethod("getY").invoke(p2)).doubleValue();
-            double foundationHeight = ((Number) getHeightMethod.invoke(foundation)).doubleValue();
-
-            double wallHeight;
-            double zBottom;
-            if (overrideHeightUnits > 0) {
-                wallHeight = overrideHeightUnits;
-                zBottom = overrideBaseZUnits > 0 ? overrideBaseZUnits : foundationHeight;
-            } else {
-                wallHeight = sh3dWall.getHeight() != null
-                    ? sh3dWall.getHeight().doubleValue() * SCALE_CM_TO_ENERGY3D
-                    : (2.5 * ENERGY3D_UNITS_PER_METER_EXPORT);
-                Level level = sh3dWall.getLevel();
-                if (foundationLevel != null && level != null) {
-                    float levelElev = level.getElevation();
-                    float foundationElev = foundationLevel.getElevation();
-                    zBottom = foundationHeight + (levelElev - foundationElev) * SCALE_CM_TO_ENERGY3D;
-                } else {
-                    zBottom = foundationHeight;
-                }
-            }
-            double zTop = zBottom + wallHeight;
-
-            // Convertir (x,y) absolu en (u,v) relatif à la fondation (HousePart.toAbsolute : p0 + u*(p2-p0) + v*(p1-p0))
-            double uStart = projectPointOnLineScale(xStart, yStart, p0x, p0y, p2x, p2y);
-            double vStart = projectPointOnLineScale(xStart, yStart, p0x, p0y, p1x, p1y);
-            double uEnd   = projectPointOnLineScale(xEnd,   yEnd,   p0x, p0y, p2x, p2y);
-            double vEnd   = projectPointOnLineScale(xEnd,   yEnd,   p0x, p0y, p1x, p1y);
-            // Grille pour que les sommets partagés entre murs soient égaux (connectWithOtherWalls utilise Util.isEqual ~ 1e-7)
-            // 1e-5 absorbe les erreurs flottantes tout en restant précis pour un périmètre ~80u
-            final double SNAP_GRID = 1e-5;
-            uStart = Math.round(uStart / SNAP_GRID) * SNAP_GRID;
-            vStart = Math.round(vStart / SNAP_GRID) * SNAP_GRID;
-            uEnd   = Math.round(uEnd / SNAP_GRID) * SNAP_GRID;
-            vEnd   = Math.round(vEnd / SNAP_GRID) * SNAP_GRID;
-
-            Class<?> wallClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.model.Wall", logWriter);
-            if (logWriter != null) { logWriter.println("  Instanciation du Wall..."); logWriter.flush(); }
-            Object wall = wallClass.getDeclaredConstructor().newInstance();
-            Class<?> housePartClass = wallClass.getClassLoader().loadClass("org.concord.energy3d.model.HousePart");
-            java.lang.reflect.Method setContainerMethod = wallClass.getMethod("setContainer", housePartClass);
-            setContainerMethod.invoke(wall, foundation);
+            boolean isExterior = walls.exterior[i];
+            if (logWriter != null) { ExportLogger.info(logWriter, "  Instanciation du Wall..."); }
+            Object wall = handles.newWall();
+            handles.setContainer(wall, foundation);
             // Tagger intérieur/extérieur pour Energy3D : connectWithOtherWalls ne relie que murs de même type → le toit ne suit que les murs extérieurs
-            try {
-                java.lang.reflect.Method setInteriorMethod = wallClass.getMethod("setInterior", boolean.class);
-                setInteriorMethod.invoke(wall, !isExterior);
-            } catch (NoSuchMethodException e) {
-                if (logWriter != null) logWriter.println("  Wall.setInterior non disponible (Energy3D ancienne version ?).");
+            if (!handles.setWallInterior(wall, !isExterior)) {
+                if (logWriter != null) ExportLogger.info(logWriter, "  Wall.setInterior non disponible (Energy3D ancienne version ?).");
             }
 
-            java.lang.reflect.Method setThicknessMethod = wallClass.getMethod("setThickness", double.class);
-            setThicknessMethod.invoke(wall, thickness);
-            java.lang.reflect.Method setHeightMethod = wallClass.getMethod("setHeight", double.class, boolean.class);
-            setHeightMethod.invoke(wall, wallHeight, true);
+            handles.setWallThickness(wall, walls.thickness[i]);
+            handles.setWallHeight(wall, walls.height[i], true);
 
-            ClassLoader loader = Energy3DClassLoader.getEnergy3DClassLoader(logWriter);
-            Class<?> vector3Class = loader.loadClass("com.ardor3d.math.Vector3");
-            java.lang.reflect.Method vector3Set = vector3Class.getMethod("set", double.class, double.class, double.class);
-
-            java.lang.reflect.Field pointsField = null;
-            for (Class<?> c = wallClass; c != null; c = c.getSuperclass()) {
-                try {
-                    pointsField = c.getDeclaredField("points");
-                    break;
-                } catch (NoSuchFieldException ignored) { }
-            }
-            if (pointsField == null) {
-                if (logWriter != null) logWriter.println("  Champ 'points' introuvable sur Wall/HousePart");
+            List<Object> points;
+            try {
+                points = handles.getPoints(wall);
+            } catch (NoSuchFieldException e) {
+                if (logWriter != null) ExportLogger.info(logWriter, "  Champ 'points' introuvable sur Wall/HousePart");
                 return null;
             }
-            pointsField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            java.util.List<Object> points = (java.util.List<Object>) pointsField.get(wall);
 
             while (points.size() < 4) {
-                points.add(vector3Class.getConstructor(double.class, double.class, double.class).newInstance(0.0, 0.0, 0.0));
-            }
-            // Points en (u, v, z) relatifs à la fondation : 0=start bas, 1=start haut, 2=end bas, 3=end haut
-            // Si WALL_REVERSE_ORIENTATION : on inverse start/end pour que la face "avant" en Energy3D = extérieur SH3D (évite murs à l'envers)
-            if (WALL_REVERSE_ORIENTATION) {
-                vector3Set.invoke(points.get(0), uEnd,   vEnd,   zBottom);
-                vector3Set.invoke(points.get(1), uEnd,   vEnd,   zTop);
-                vector3Set.invoke(points.get(2), uStart, vStart, zBottom);
-                vector3Set.invoke(points.get(3), uStart, vStart, zTop);
-            } else {
-                vector3Set.invoke(points.get(0), uStart, vStart, zBottom);
-                vector3Set.invoke(points.get(1), uStart, vStart, zTop);
-                vector3Set.invoke(points.get(2), uEnd,   vEnd,   zBottom);
-                vector3Set.invoke(points.get(3), uEnd,   vEnd,   zTop);
+                points.add(handles.newVector3(0.0, 0.0, 0.0));
+            }
+            // Points en (u, v, z) relatifs à la fondation, orientation déjà appliquée à l'extraction
+            for (int k = 0; k < 4; k++) {
+                int p = i * 12 + k * 3;
+                handles.setVector3(points.get(k), walls.points[p], walls.points[p + 1], walls.points[p + 2]);
             }
 
             // Marquer comme "premier point inséré" pour que complete() et draw() fonctionnent
             try {
-                java.lang.reflect.Field firstPointField = wallClass.getSuperclass().getDeclaredField("firstPointInserted");
-                firstPointField.setAccessible(true);
-                firstPointField.set(wall, true);
+                handles.setFirstPointInserted(wall, true);
             } catch (Exception e) {
-                if (logWriter != null) logWriter.println("  firstPointInserted non défini: " + e.getMessage());
+                if (logWriter != null) ExportLogger.info(logWriter, "  firstPointInserted non défini: " + e.getMessage());
             }
 
             try {
-                java.lang.reflect.Method completeMethod = wallClass.getMethod("complete");
-                completeMethod.invoke(wall);
+                handles.complete(wall);
             } catch (Throwable e) {
                 // complete() peut échouer en headless (SceneManager, etc.) : forcer drawCompleted et draw() pour que le mur soit valide à l'ouverture
-                if (logWriter != null) logWriter.println("  complete() ignoré (" + e.getMessage() + "), utilisation de draw() direct");
+                if (logWriter != null) ExportLogger.info(logWriter, "  complete() ignoré (" + e.getMessage() + "), utilisation de draw() direct");
                 try {
-                    java.lang.reflect.Field drawCompletedField = wallClass.getSuperclass().getDeclaredField("drawCompleted");
-                    drawCompletedField.setAccessible(true);
-                    drawCompletedField.set(wall, true);
+                    handles.setDrawCompleted(wall, true);
                 } catch (Exception e2) {
-                    if (logWriter != null) logWriter.println("  drawCompleted non défini: " + e2.getMessage());
+                    if (logWriter != null) ExportLogger.info(logWriter, "  drawCompleted non défini: " + e2.getMessage());
                 }
             }
 
             // Couleur : albedo = 0,91 pour absorptance 0,09 (Energy3D utilise la clarté de la couleur comme albedo)
-            Class<?> colorClass = Energy3DClassLoader.loadEnergy3DClass("com.ardor3d.math.ColorRGBA", logWriter);
-            Object colorObj = colorClass.getConstructor(float.class, float.class, float.class, float.class)
-                .newInstance(DEFAULT_WALL_ALBEDO, DEFAULT_WALL_ALBEDO, DEFAULT_WALL_ALBEDO, 1.0f);
-            // HousePart.setColor(ReadOnlyColorRGBA) : il faut le type déclaré pour getMethod
-            Class<?> readOnlyColorClass = wallClass.getClassLoader().loadClass("com.ardor3d.math.type.ReadOnlyColorRGBA");
-            java.lang.reflect.Method setColorMethod = wallClass.getMethod("setColor", readOnlyColorClass);
-            setColorMethod.invoke(wall, colorObj);
+            handles.setColor(wall, DEFAULT_WALL_ALBEDO, DEFAULT_WALL_ALBEDO, DEFAULT_WALL_ALBEDO, 1.0f);
 
             // Texture du mur : appliquer automatiquement selon intérieur/extérieur
             // Murs extérieurs : texture #3, murs intérieurs : texture #0 (sans texture)
             int wallTextureType = isExterior ? 3 : 0;
-            setHousePartTextureType(wall, wallClass, wallTextureType, logWriter, isExterior ? "mur extérieur" : "mur intérieur");
+            setHousePartTextureType(handles, wall, wallTextureType, logWriter, isExterior ? "mur extérieur" : "mur intérieur");
 
-            java.lang.reflect.Method setUValueMethod = wallClass.getMethod("setUValue", double.class);
-            setUValueMethod.invoke(wall, data.uValue);
-            java.lang.reflect.Method setVolumetricHeatCapacityMethod = wallClass.getMethod("setVolumetricHeatCapacity", double.class);
-            setVolumetricHeatCapacityMethod.invoke(wall, data.volumetricHeatCapacity);
+            handles.setWallUValue(wall, walls.uValue[i]);
+            handles.setWallVolumetricHeatCapacity(wall, walls.heatCapacity[i]);
 
-            java.lang.reflect.Method drawMethod = wallClass.getMethod("draw");
-            drawMethod.invoke(wall);
+            handles.draw(wall);
 
             // Forcer drawCompleted pour que Energy3D ne supprime pas le mur au cleanup() à l'ouverture
             try {
-                java.lang.reflect.Field drawCompletedField = wallClass.getSuperclass().getDeclaredField("drawCompleted");
-                drawCompletedField.setAccessible(true);
-                drawCompletedField.set(wall, true);
+                handles.setDrawCompleted(wall, true);
             } catch (Exception e) {
-                if (logWriter != null) logWriter.println("  drawCompleted (post-draw) non défini: " + e.getMessage());
+                if (logWriter != null) ExportLogger.info(logWriter, "  drawCompleted (post-draw) non défini: " + e.getMessage());
             }
 
             return wall;
         } catch (Throwable t) {
             if (logWriter != null) {
-                logWriter.println("  Exception/Error lors de la conversion du mur: " + t.getClass().getName() + " - " + t.getMessage());
+                ExportLogger.info(logWriter, "  Exception/Error lors de la conversion du mur: " + t.getClass().getName() + " - " + t.getMessage());
                 t.printStackTrace(logWriter);
-                logWriter.flush();
             }
             t.printStackTrace();
             return null;
         }
     }
     
-    private static Object createNewSceneInstance(PrintWriter logWriter) {
+    static Object createNewSceneInstance(PrintWriter logWriter) {
         try {
             // Charger la classe Scene dynamiquement via le ClassLoader Energy3D
             Class<?> sceneClass = Energy3DClassLoader.loadEnergy3DClass("org.concord.energy3d.scene.Scene", logWriter);
@@ -3278,7 +2504,7 @@ public class PlanExporter {
             return scene;
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("Exception lors de la création de Scene: " + e.getMessage());
+                ExportLogger.info(logWriter, "Exception lors de la création de Scene: " + e.getMessage());
                 e.printStackTrace(logWriter);
             }
             e.printStackTrace();
@@ -3297,8 +2523,7 @@ public class PlanExporter {
         if (loader != null) {
             dumpNg3TextureTypes(ng3File, logWriter, loader);
         } else if (logWriter != null) {
-            logWriter.println("ClassLoader Energy3D non disponible (exporter d'abord un plan).");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "ClassLoader Energy3D non disponible (exporter d'abord un plan).");
         }
     }
 
@@ -3320,8 +2545,8 @@ public class PlanExporter {
                 partsField.setAccessible(true);
                 @SuppressWarnings("unchecked")
                 java.util.List<Object> parts = (java.util.List<Object>) partsField.get(scene);
-                logWriter.println("Vérification textureType dans " + ng3File.getName() + ":");
-                logWriter.println("  Nombre de parts (racine): " + parts.size());
+                ExportLogger.info(logWriter, "Vérification textureType dans " + ng3File.getName() + ":");
+                ExportLogger.info(logWriter, "  Nombre de parts (racine): " + parts.size());
                 java.lang.reflect.Field textureTypeField = null;
                 java.lang.reflect.Field childrenField = null;
                 for (int i = 0; i < parts.size(); i++) {
@@ -3340,9 +2565,10 @@ public class PlanExporter {
                     }
                     if (textureTypeField != null) {
                         int tt = textureTypeField.getInt(part);
-                        logWriter.println("  Part[" + i + "] " + partClassName + " → textureType = " + tt);
+                        ExportLogger.info(logWriter, "  Part[" + i + "] " + partClassName + " → textureType = " + tt);
                     }
-                    if (partClassName.contains("Foundation") && (childrenField == null || childrenField.getDeclaringClass().isAssignableFrom(partClass))) {
+                    // Textures des murs enfants : détail DEBUG uniquement (lecture réflexive de la liste des enfants)
+                    if (partClassName.contains("Foundation") && ExportLogger.isDebugEnabled(logWriter) && (childrenField == null || childrenField.getDeclaringClass().isAssignableFrom(partClass))) {
                         try {
                             if (childrenField == null) {
                                 for (Class<?> c = partClass; c != null; c = c.getSuperclass()) {
@@ -3357,27 +2583,25 @@ public class PlanExporter {
                                 @SuppressWarnings("unchecked")
                                 java.util.List<Object> children = (java.util.List<Object>) childrenField.get(part);
                                 if (children != null) {
-                                    logWriter.println("    Enfants (murs): " + children.size());
+                                    ExportLogger.debug(logWriter, "    Enfants (murs): " + children.size());
                                     for (int j = 0; j < children.size(); j++) {
                                         Object child = children.get(j);
                                         if (child != null && textureTypeField != null) {
                                             int ctt = textureTypeField.getInt(child);
-                                            logWriter.println("      Enfant[" + j + "] " + child.getClass().getName() + " → textureType = " + ctt);
+                                            ExportLogger.debug(logWriter, "      Enfant[" + j + "] " + child.getClass().getName() + " → textureType = " + ctt);
                                         }
                                     }
                                 }
                             }
                         } catch (Exception e) {
-                            logWriter.println("    (enfants: " + e.getMessage() + ")");
+                            ExportLogger.debug(logWriter, "    (enfants: " + e.getMessage() + ")");
                         }
                     }
                 }
-                logWriter.flush();
             }
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("  Impossible de relire le .ng3 pour vérification: " + e.getMessage());
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Impossible de relire le .ng3 pour vérification: " + e.getMessage());
             }
         } finally {
             thread.setContextClassLoader(savedLoader);
@@ -3385,75 +2609,31 @@ public class PlanExporter {
     }
 
     private static boolean serializeSceneToNG3(Object scene, File outputFile, PrintWriter logWriter) {
-        ObjectOutputStream out = null;
-        FileOutputStream fos = null;
-        
         try {
             // Vérifications finales avant l'écriture
-            logWriter.println("=== VERIFICATIONS PRE-ECRITURE ===");
-            logWriter.println("Fichier: " + outputFile.getAbsolutePath());
-            logWriter.println("  Existe: " + outputFile.exists());
+            ExportLogger.info(logWriter, "=== VERIFICATIONS PRE-ECRITURE ===");
+            ExportLogger.info(logWriter, "Fichier: " + outputFile.getAbsolutePath());
+            ExportLogger.info(logWriter, "  Existe: " + outputFile.exists());
             if (outputFile.exists()) {
-                logWriter.println("  Taille: " + outputFile.length() + " bytes");
-                logWriter.println("  Peut lire: " + outputFile.canRead());
-                logWriter.println("  Peut écrire: " + outputFile.canWrite());
+                ExportLogger.info(logWriter, "  Taille: " + outputFile.length() + " bytes");
+                ExportLogger.info(logWriter, "  Peut lire: " + outputFile.canRead());
+                ExportLogger.info(logWriter, "  Peut écrire: " + outputFile.canWrite());
             }
-            logWriter.println("  Répertoire parent existe: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().exists() : "N/A"));
-            logWriter.println("  Répertoire parent peut écrire: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().canWrite() : "N/A"));
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Répertoire parent existe: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().exists() : "N/A"));
+            ExportLogger.info(logWriter, "  Répertoire parent peut écrire: " + (outputFile.getParentFile() != null ? outputFile.getParentFile().canWrite() : "N/A"));
             
             // Vérifier les permissions une dernière fois
             if (outputFile.getParentFile() != null && !outputFile.getParentFile().canWrite()) {
-                logWriter.println("✗ ERREUR: Pas de permission d'écriture dans le répertoire parent!");
-                logWriter.flush();
+                ExportLogger.error(logWriter, "✗ ERREUR: Pas de permission d'écriture dans le répertoire parent!");
                 return false;
             }
             
             if (outputFile.exists() && !outputFile.canWrite()) {
-                logWriter.println("✗ ERREUR: Le fichier existe et est en lecture seule!");
-                logWriter.flush();
-                return false;
-            }
-            
-            logWriter.println("Création du FileOutputStream...");
-            logWriter.flush();
-            
-            try {
-                fos = new FileOutputStream(outputFile, false);
-                logWriter.println("✓ FileOutputStream créé avec succès");
-                logWriter.flush();
-            } catch (java.io.FileNotFoundException e) {
-                logWriter.println("✗ ERREUR FileNotFoundException: " + e.getMessage());
-                logWriter.println("  Cela peut indiquer:");
-                logWriter.println("  - Le répertoire parent n'existe pas");
-                logWriter.println("  - Pas de permission d'écriture");
-                logWriter.println("  - Le fichier est verrouillé par un autre programme");
-                e.printStackTrace(logWriter);
-                logWriter.flush();
+                ExportLogger.error(logWriter, "✗ ERREUR: Le fichier existe et est en lecture seule!");
                 return false;
             }
             
-            logWriter.println("Création de l'ObjectOutputStream...");
-            logWriter.flush();
-            
-            out = new ObjectOutputStream(fos);
-            
-            logWriter.println("Écriture de la Scene...");
-            logWriter.flush();
-            
-            out.writeObject(scene);
-            
-            logWriter.println("Flush...");
-            logWriter.flush();
-            
-            out.flush();
-            fos.getFD().sync();
-            
-            logWriter.println("Fermeture des flux...");
-            logWriter.flush();
-            
-            out.close();
-            fos.close();
+            long bytesWritten = Ng3Writer.write(scene, outputFile, logWriter);
             
             // Vérifier ce qui a été enregistré (textureType fondation/murs) en relisant le fichier
             ClassLoader energy3dLoader = Energy3DClassLoader.getEnergy3DClassLoader();
@@ -3461,56 +2641,27 @@ public class PlanExporter {
                 dumpNg3TextureTypes(outputFile, logWriter, energy3dLoader);
             }
             
-            // Vérifier le fichier
-            if (outputFile.exists() && outputFile.length() > 0) {
-                try (FileInputStream fis = new FileInputStream(outputFile)) {
-                    byte[] header = new byte[4];
-                    int read = fis.read(header);
-                    if (read == 4) {
-                        String headerStr = String.format("%02X %02X %02X %02X", header[0], header[1], header[2], header[3]);
-                        if (header[0] == (byte)0xAC && header[1] == (byte)0xED) {
-                            logWriter.println("✓ Fichier binaire valide: " + outputFile.length() + " bytes");
-                            logWriter.println("Header: " + headerStr);
-                            logWriter.flush();
-                            return true;
-                        } else {
-                            logWriter.println("✗ Fichier non binaire! Header: " + headerStr);
-                            logWriter.flush();
-                            return false;
-                        }
-                    }
-                }
-            }
-            
-            logWriter.println("✗ Fichier non créé ou vide");
-            logWriter.flush();
-            return false;
+            ExportLogger.info(logWriter, "✓ Fichier binaire valide: " + bytesWritten + " bytes");
+            return true;
             
         } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("✗ ERREUR lors de la sérialisation: " + e.getMessage());
-                logWriter.println("Type: " + e.getClass().getName());
+                ExportLogger.error(logWriter, "✗ ERREUR lors de la sérialisation: " + e.getMessage());
+                ExportLogger.error(logWriter, "Type: " + e.getClass().getName());
                 e.printStackTrace(logWriter);
-                logWriter.flush();
             }
             e.printStackTrace();
             return false;
-        } finally {
-            if (out != null) {
-                try { out.close(); } catch (IOException e) {}
-            }
-            if (fos != null) {
-                try { fos.close(); } catch (IOException e) {}
-            }
         }
     }
     
     /**
-     * Convertit un modèle 3D de meuble en fichier Collada (.dae).
+     * Convertit un modèle 3D de meuble en fichier Collada (.dae), via le cache des modèles convertis.
      * - Si le modèle est déjà en .dae: copie directe.
      * - Si le modèle est en .obj: conversion OBJ -> DAE (géométrie triangulée).
      */
-    private static File convertModelToCollada(HomePieceOfFurniture piece, Content model, File tempDir, PrintWriter logWriter) {
+    private static File convertModelToCollada(HomePieceOfFurniture piece, Content model, ModelConversionCache cache,
+            ModelConversionCache.Lease lease, PrintWriter logWriter) {
         try {
             URLContent urlContent;
             if (model instanceof URLContent) {
@@ -3521,30 +2672,17 @@ public class PlanExporter {
 
             URL modelURL = urlContent.getURL();
             String urlPath = modelURL.getPath().toLowerCase();
-            String baseName = piece.getName() != null
-                    ? piece.getName().replaceAll("[^a-zA-Z0-9._-]", "_")
-                    : "object_" + System.currentTimeMillis();
 
             if (urlPath.endsWith(".dae") || urlPath.endsWith(".dae/")) {
-                File colladaFile = new File(tempDir, baseName + ".dae");
-                try (InputStream is = model.openStream()) {
-                    Files.copy(is, colladaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                }
-                return colladaFile;
+                return cache.getCollada(urlContent, "dae", lease, logWriter);
             }
 
             if (urlPath.endsWith(".obj") || urlPath.endsWith(".obj/")) {
-                File objFile = new File(tempDir, baseName + ".obj");
-                try (InputStream is = model.openStream()) {
-                    Files.copy(is, objFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                }
-                File daeFile = new File(tempDir, baseName + ".dae");
-                return convertObjToCollada(objFile, daeFile, logWriter) ? daeFile : null;
+                return cache.getCollada(urlContent, "obj", lease, logWriter);
             }
 
             if (logWriter != null) {
-                logWriter.println("    AVERTISSEMENT : format modèle non pris en charge pour conversion Collada: " + urlPath);
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "    AVERTISSEMENT : format modèle non pris en charge pour conversion Collada: " + urlPath);
             }
             return null;
 
@@ -3552,9 +2690,8 @@ public class PlanExporter {
             if (logWriter != null) {
                 String errorMsg = e.getMessage();
                 if (errorMsg == null) errorMsg = e.getClass().getSimpleName();
-                logWriter.println("    ERREUR conversion modèle pour \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\": " + errorMsg);
+                ExportLogger.error(logWriter, "    ERREUR conversion modèle pour \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\": " + errorMsg);
                 e.printStackTrace(logWriter);
-                logWriter.flush();
             }
             return null;
         }
@@ -3562,159 +2699,49 @@ public class PlanExporter {
 
     /**
      * Conversion OBJ minimale vers Collada 1.4.1.
-     * Supporte les lignes v / f (triangulation en éventail), génère des UV planaires.
+     * Lecture en flux par ObjMesh (v / vt / vn / f, triangulation en éventail), écriture en flux par
+     * ColladaWriter (UV planaires) ; un nom en .dae.gz produit un fichier compressé.
      */
-    private static boolean convertObjToCollada(File objFile, File daeFile, PrintWriter logWriter) {
+    static boolean convertObjToCollada(File objFile, File daeFile, PrintWriter logWriter) {
         try {
-            List<double[]> vertices = new ArrayList<>();
-            List<int[]> triangles = new ArrayList<>();
-            List<String> lines = Files.readAllLines(objFile.toPath(), StandardCharsets.UTF_8);
-
-            for (String raw : lines) {
-                if (raw == null) continue;
-                String line = raw.trim();
-                if (line.isEmpty() || line.startsWith("#")) continue;
-
-                if (line.startsWith("v ")) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length >= 4) {
-                        vertices.add(new double[] {
-                                Double.parseDouble(parts[1]),
-                                Double.parseDouble(parts[2]),
-                                Double.parseDouble(parts[3])
-                        });
-                    }
-                    continue;
-                }
-
-                if (line.startsWith("f ")) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length < 4) continue;
-                    int[] face = new int[parts.length - 1];
-                    boolean valid = true;
-                    for (int i = 1; i < parts.length; i++) {
-                        String token = parts[i];
-                        String idxToken = token.split("/")[0];
-                        if (idxToken.isEmpty()) {
-                            valid = false;
-                            break;
-                        }
-                        int idx = Integer.parseInt(idxToken);
-                        int resolved = idx > 0 ? idx - 1 : vertices.size() + idx;
-                        if (resolved < 0 || resolved >= vertices.size()) {
-                            valid = false;
-                            break;
-                        }
-                        face[i - 1] = resolved;
-                    }
-                    if (!valid || face.length < 3) continue;
-                    for (int i = 1; i < face.length - 1; i++) {
-                        triangles.add(new int[] { face[0], face[i], face[i + 1] });
-                    }
-                }
-            }
-
-            if (vertices.isEmpty() || triangles.isEmpty()) {
-                if (logWriter != null) {
-                    logWriter.println("    AVERTISSEMENT : OBJ sans géométrie exploitable: " + objFile.getName());
-                    logWriter.flush();
-                }
-                return false;
-            }
-
-            StringBuilder pos = new StringBuilder(vertices.size() * 32);
-            double minX = Double.POSITIVE_INFINITY;
-            double minY = Double.POSITIVE_INFINITY;
-            double maxX = Double.NEGATIVE_INFINITY;
-            double maxY = Double.NEGATIVE_INFINITY;
-            for (double[] v : vertices) {
-                pos.append(v[0]).append(' ').append(v[1]).append(' ').append(v[2]).append(' ');
-                minX = Math.min(minX, v[0]);
-                minY = Math.min(minY, v[1]);
-                maxX = Math.max(maxX, v[0]);
-                maxY = Math.max(maxY, v[1]);
-            }
-            double dx = maxX - minX;
-            double dy = maxY - minY;
-            if (Math.abs(dx) < 1e-9) dx = 1.0;
-            if (Math.abs(dy) < 1e-9) dy = 1.0;
-
-            StringBuilder uv = new StringBuilder(vertices.size() * 24);
-            for (double[] v : vertices) {
-                double u = (v[0] - minX) / dx;
-                double vv = (v[1] - minY) / dy;
-                uv.append(u).append(' ').append(vv).append(' ');
-            }
-
-            StringBuilder p = new StringBuilder(triangles.size() * 24);
-            for (int[] t : triangles) {
-                // Interleave VERTEX index and TEXCOORD index
-                p.append(t[0]).append(' ').append(t[0]).append(' ')
-                 .append(t[1]).append(' ').append(t[1]).append(' ')
-                 .append(t[2]).append(' ').append(t[2]).append(' ');
-            }
-
-            String xml =
-                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-                    "<COLLADA xmlns=\"http://www.collada.org/2005/11/COLLADASchema\" version=\"1.4.1\">\n" +
-                    "  <asset><unit name=\"meter\" meter=\"1\"/><up_axis>Z_UP</up_axis></asset>\n" +
-                    "  <library_geometries>\n" +
-                    "    <geometry id=\"mesh\" name=\"mesh\">\n" +
-                    "      <mesh>\n" +
-                    "        <source id=\"mesh-positions\">\n" +
-                    "          <float_array id=\"mesh-positions-array\" count=\"" + (vertices.size() * 3) + "\">" + pos + "</float_array>\n" +
-                    "          <technique_common>\n" +
-                    "            <accessor source=\"#mesh-positions-array\" count=\"" + vertices.size() + "\" stride=\"3\">\n" +
-                    "              <param name=\"X\" type=\"float\"/>\n" +
-                    "              <param name=\"Y\" type=\"float\"/>\n" +
-                    "              <param name=\"Z\" type=\"float\"/>\n" +
-                    "            </accessor>\n" +
-                    "          </technique_common>\n" +
-                    "        </source>\n" +
-                    "        <source id=\"mesh-map-0\">\n" +
-                    "          <float_array id=\"mesh-map-0-array\" count=\"" + (vertices.size() * 2) + "\">" + uv + "</float_array>\n" +
-                    "          <technique_common>\n" +
-                    "            <accessor source=\"#mesh-map-0-array\" count=\"" + vertices.size() + "\" stride=\"2\">\n" +
-                    "              <param name=\"S\" type=\"float\"/>\n" +
-                    "              <param name=\"T\" type=\"float\"/>\n" +
-                    "            </accessor>\n" +
-                    "          </technique_common>\n" +
-                    "        </source>\n" +
-                    "        <vertices id=\"mesh-vertices\">\n" +
-                    "          <input semantic=\"POSITION\" source=\"#mesh-positions\"/>\n" +
-                    "        </vertices>\n" +
-                    "        <triangles count=\"" + triangles.size() + "\">\n" +
-                    "          <input semantic=\"VERTEX\" source=\"#mesh-vertices\" offset=\"0\"/>\n" +
-                    "          <input semantic=\"TEXCOORD\" source=\"#mesh-map-0\" offset=\"1\" set=\"0\"/>\n" +
-                    "          <p>" + p + "</p>\n" +
-                    "        </triangles>\n" +
-                    "      </mesh>\n" +
-                    "    </geometry>\n" +
-                    "  </library_geometries>\n" +
-                    "  <library_visual_scenes>\n" +
-                    "    <visual_scene id=\"Scene\" name=\"Scene\">\n" +
-                    "      <node id=\"mesh-node\" name=\"mesh-node\">\n" +
-                    "        <instance_geometry url=\"#mesh\"/>\n" +
-                    "      </node>\n" +
-                    "    </visual_scene>\n" +
-                    "  </library_visual_scenes>\n" +
-                    "  <scene><instance_visual_scene url=\"#Scene\"/></scene>\n" +
-                    "</COLLADA>\n";
-
-            Files.write(daeFile.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+            return writeCollada(ObjMesh.read(objFile), objFile.getName(), daeFile, logWriter);
+        } catch (Exception e) {
             if (logWriter != null) {
-                logWriter.println("    ✓ Conversion OBJ -> Collada: " + objFile.getName() + " -> " + daeFile.getName());
-                logWriter.flush();
+                String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                ExportLogger.error(logWriter, "    ERREUR conversion OBJ -> Collada: " + msg);
             }
-            return true;
+            return false;
+        }
+    }
+
+    /**
+     * Conversion d'un OBJ déjà en mémoire (voir convertObjToCollada) : aucun fichier source mappé,
+     * donc rien qui empêche de supprimer ou remplacer un fichier sous Windows.
+     */
+    static boolean convertObjToCollada(byte[] objBytes, String objName, File daeFile, PrintWriter logWriter) {
+        try {
+            return writeCollada(ObjMesh.read(java.nio.ByteBuffer.wrap(objBytes)), objName, daeFile, logWriter);
         } catch (Exception e) {
             if (logWriter != null) {
                 String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
-                logWriter.println("    ERREUR conversion OBJ -> Collada: " + msg);
-                logWriter.flush();
+                ExportLogger.error(logWriter, "    ERREUR conversion OBJ -> Collada: " + msg);
+            }
+            return false;
+        }
+    }
+
+    private static boolean writeCollada(ObjMesh mesh, String objName, File daeFile, PrintWriter logWriter) throws IOException {
+        if (mesh.getVertexCount() == 0 || mesh.getTriangleCount() == 0) {
+            if (logWriter != null) {
+                ExportLogger.warn(logWriter, "    AVERTISSEMENT : OBJ sans géométrie exploitable: " + objName);
             }
             return false;
         }
+        ColladaWriter.write(mesh, daeFile, daeFile.getName().endsWith(".gz"));
+        if (ExportLogger.isDebugEnabled(logWriter)) {
+            ExportLogger.debug(logWriter, "    ✓ Conversion OBJ -> Collada: " + objName + " -> " + daeFile.getName());
+        }
+        return true;
     }
 
     /**
@@ -3785,35 +2812,32 @@ public class PlanExporter {
                 }
             }
 
-            if (logWriter != null) {
-                logWriter.println("    ✓ Texture herbe appliquée à l'objet Collada importé");
-                logWriter.flush();
+            if (ExportLogger.isDebugEnabled(logWriter)) {
+                ExportLogger.debug(logWriter, "    ✓ Texture herbe appliquée à l'objet Collada importé");
             }
         } catch (Exception e) {
             if (logWriter != null) {
                 String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
-                logWriter.println("    AVERTISSEMENT texture herbe objet Collada: " + msg);
-                logWriter.flush();
+                ExportLogger.warn(logWriter, "    AVERTISSEMENT texture herbe objet Collada: " + msg);
             }
         }
     }
 
     /**
      * Exporte les objets 3D depuis le niveau terrain3d en Collada et les importe dans Energy3D.
+     * Les modèles sont convertis en parallèle (pool fork-join commun), puis importés un par un dans l'ordre des meubles.
      */
-    private static void export3DTerrainObjects(Home home, Object foundation, Class<?> foundationClass,
+    private static void export3DTerrainObjects(Home home, FurnitureIndex furnitureIndex, Object foundation, Class<?> foundationClass,
             double originX, double originY, Object scene, PrintWriter logWriter) {
         if (home == null || foundation == null || scene == null) {
             if (logWriter != null) {
-                logWriter.println("  export3DTerrainObjects ignoré : home=" + (home != null) + ", foundation=" + (foundation != null) + ", scene=" + (scene != null));
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  export3DTerrainObjects ignoré : home=" + (home != null) + ", foundation=" + (foundation != null) + ", scene=" + (scene != null));
             }
             return;
         }
         
         if (logWriter != null) {
-            logWriter.println("  Début export3DTerrainObjects...");
-            logWriter.flush();
+            ExportLogger.info(logWriter, "  Début export3DTerrainObjects...");
         }
         
         try {
@@ -3821,15 +2845,13 @@ public class PlanExporter {
             Level terrain3dLevel = findLevelByCategory(home, "terrain3d", logWriter);
             if (terrain3dLevel == null) {
                 if (logWriter != null) {
-                    logWriter.println("  Aucun niveau correspondant à la catégorie 'terrain3d'.");
-                    logWriter.flush();
+                    ExportLogger.info(logWriter, "  Aucun niveau correspondant à la catégorie 'terrain3d'.");
                 }
                 return;
             }
             
             if (logWriter != null) {
-                logWriter.println("  Export des objets 3D depuis le niveau \"" + terrain3dLevel.getName() + "\"...");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  Export des objets 3D depuis le niveau \"" + terrain3dLevel.getName() + "\"...");
             }
             
             // Charger les classes Energy3D nécessaires
@@ -3838,125 +2860,147 @@ public class PlanExporter {
             java.lang.reflect.Constructor<?> vector3Constructor = vector3Class.getConstructor(double.class, double.class, double.class);
             java.lang.reflect.Method importColladaMethod = foundationClass.getMethod("importCollada", URL.class, vector3Class);
             
-            // Obtenir les meubles du niveau terrain3d
-            List<HomePieceOfFurniture> furniture = getAllFurnitureIncludingGroups(home);
+            // Meubles du niveau terrain3d avec un modèle (hors portes/fenêtres)
+            List<HomePieceOfFurniture> furniture = furnitureIndex.getTerrain3DCandidates(terrain3dLevel);
             int count = 0;
-            int skipped = 0;
-            
-            // Créer un répertoire temporaire pour les fichiers Collada
-            File tempDir = new File(System.getProperty("java.io.tmpdir"), "sweetenergy3d_collada_" + System.currentTimeMillis());
-            tempDir.mkdirs();
-            
-            for (HomePieceOfFurniture piece : furniture) {
-                if (piece.getLevel() != terrain3dLevel) {
-                    skipped++;
-                    continue;
-                }
-                
-                if (piece.isDoorOrWindow()) {
-                    skipped++;
-                    continue;
+            int skipped = furnitureIndex.size() - furniture.size();
+            
+            // Modèles convertis partagés entre meubles et entre exports
+            ModelConversionCache modelCache = ModelConversionCache.open(logWriter);
+            // ~/.sweetenergy3d inutilisable : conversions dans un répertoire temporaire supprimé après les imports
+            final boolean temporaryCache = modelCache == null;
+            if (temporaryCache) {
+                modelCache = ModelConversionCache.openTemporary(logWriter);
+                if (modelCache == null) {
+                    ExportLogger.info(logWriter, "  ✓ 0 objet(s) 3D exporté(s) depuis le niveau terrain3d (ignorés: " + (skipped + furniture.size()) + ").");
+                    return;
                 }
-                
-                Content model = piece.getModel();
-                if (model == null) {
-                    skipped++;
-                    continue;
+            }
+            int cacheHits = modelCache.getHits();
+            int cacheConversions = modelCache.getConversions();
+            
+            // Phase 1 : conversions Collada en parallèle (fichiers et CPU seulement), une par modèle distinct
+            // Les .dae obtenus restent épinglés par le Lease jusqu'à la fin des imports
+            final ModelConversionCache conversionCache = modelCache;
+            final ModelConversionCache.Lease lease = modelCache.lease();
+            final PrintWriter conversionLog = logWriter;
+            Map<Content, ForkJoinTask<File>> conversions = new HashMap<Content, ForkJoinTask<File>>();
+            try {
+                for (final HomePieceOfFurniture piece : furniture) {
+                    final Content model = piece.getModel();
+                    if (!conversions.containsKey(model)) {
+                        conversions.put(model, ForkJoinPool.commonPool().submit(new Callable<File>() {
+                            public File call() {
+                                return convertModelToCollada(piece, model, conversionCache, lease, conversionLog);
+                            }
+                        }));
+                    }
                 }
+            
+                // Phase 2 : imports dans la scène Energy3D, séquentiels et dans l'ordre des meubles
+                for (HomePieceOfFurniture piece : furniture) {
+                    long partStart = ExportFlightRecorder.partStart();
+                    Content model = piece.getModel();
                 
-                try {
-                    // Convertir le modèle en Collada
-                    // Utiliser ModelManager pour charger le modèle 3D, puis OBJWriter pour l'exporter en OBJ,
-                    // puis convertir l'OBJ en Collada
-                    File colladaFile = convertModelToCollada(piece, model, tempDir, logWriter);
+                    try {
+                        // Attendre la conversion du modèle (déjà terminée le plus souvent)
+                        File colladaFile = conversions.get(model).join();
                     
-                    if (colladaFile == null || !colladaFile.exists()) {
-                        if (logWriter != null && skipped < 5) {
-                            logWriter.println("    Objet \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\" ignoré : échec conversion en Collada");
-                            logWriter.flush();
+                        if (colladaFile == null || !colladaFile.exists()) {
+                            if (ExportLogger.isDebugEnabled(logWriter) && skipped < 5) {
+                                ExportLogger.debug(logWriter, "    Objet \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\" ignoré : échec conversion en Collada");
+                            }
+                            ExportMetrics.countPartSkipped();
+                            skipped++;
+                            continue;
                         }
-                        skipped++;
-                        continue;
-                    }
                     
-                    File sourceFile = colladaFile;
+                        File sourceFile = colladaFile;
                     
-                    if (!sourceFile.exists()) {
-                        if (logWriter != null) {
-                            logWriter.println("    ERREUR : fichier Collada non trouvé : " + sourceFile.getAbsolutePath());
-                            logWriter.flush();
+                        if (!sourceFile.exists()) {
+                            if (logWriter != null) {
+                                ExportLogger.error(logWriter, "    ERREUR : fichier Collada non trouvé : " + sourceFile.getAbsolutePath());
+                            }
+                            ExportMetrics.countPartSkipped();
+                            skipped++;
+                            continue;
                         }
-                        skipped++;
-                        continue;
-                    }
                     
-                    // Calculer la position en unités Energy3D
-                    double xCm = piece.getX();
-                    double yCm = piece.getY();
-                    double zCm = terrain3dLevel.getElevation() + piece.getElevation();
+                        // Calculer la position en unités Energy3D
+                        double xCm = piece.getX();
+                        double yCm = piece.getY();
+                        double zCm = terrain3dLevel.getElevation() + piece.getElevation();
                     
-                    double xAbs = (xCm - originX) * SCALE_CM_TO_ENERGY3D;
-                    double yAbs = (yCm - originY) * SCALE_CM_TO_ENERGY3D;
-                    double zAbs = zCm * SCALE_CM_TO_ENERGY3D;
+                        double xAbs = (xCm - originX) * SCALE_CM_TO_ENERGY3D;
+                        double yAbs = (yCm - originY) * SCALE_CM_TO_ENERGY3D;
+                        double zAbs = zCm * SCALE_CM_TO_ENERGY3D;
                     
-                    if (MIRROR_FLIP_X) xAbs = -xAbs;
-                    if (ROTATE_180_Z) yAbs = -yAbs;
+                        if (MIRROR_FLIP_X) xAbs = -xAbs;
+                        if (ROTATE_180_Z) yAbs = -yAbs;
                     
-                    // Obtenir la hauteur de la fondation pour ajuster la position Z
-                    java.lang.reflect.Method getHeightMethod = foundationClass.getMethod("getHeight");
-                    double foundationHeight = ((Number) getHeightMethod.invoke(foundation)).doubleValue();
-                    zAbs += foundationHeight;
+                        // Obtenir la hauteur de la fondation pour ajuster la position Z
+                        java.lang.reflect.Method getHeightMethod = foundationClass.getMethod("getHeight");
+                        double foundationHeight = ((Number) getHeightMethod.invoke(foundation)).doubleValue();
+                        zAbs += foundationHeight;
                     
-                    // Créer le Vector3 pour la position
-                    Object position = vector3Constructor.newInstance(xAbs, yAbs, zAbs);
+                        // Créer le Vector3 pour la position
+                        Object position = vector3Constructor.newInstance(xAbs, yAbs, zAbs);
                     
-                    // Importer le fichier Collada dans Energy3D
-                    URL fileURL = sourceFile.toURI().toURL();
-                    Object importedNode = importColladaMethod.invoke(foundation, fileURL, position);
+                        // Importer le fichier Collada dans Energy3D
+                        URL fileURL = sourceFile.toURI().toURL();
+                        Object importedNode = importColladaMethod.invoke(foundation, fileURL, position);
                     
-                    if (importedNode != null) {
-                        applyGrassTextureToImportedNode(foundation, foundationClass, importedNode, logWriter);
-                        count++;
-                        if (logWriter != null && count <= 5) {
-                            logWriter.println("    Objet 3D #" + count + " importé depuis \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\" à (" + xCm + ", " + yCm + ", " + zCm + ") cm");
-                            logWriter.flush();
+                        if (importedNode != null) {
+                            applyGrassTextureToImportedNode(foundation, foundationClass, importedNode, logWriter);
+                            ExportMetrics.countPartCreated();
+                            ExportFlightRecorder.partConverted("Terrain3D", piece.getId(), partStart);
+                            count++;
+                            if (ExportLogger.isDebugEnabled(logWriter) && count <= 5) {
+                                ExportLogger.debug(logWriter, "    Objet 3D #" + count + " importé depuis \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\" à (" + xCm + ", " + yCm + ", " + zCm + ") cm");
+                            }
+                        } else {
+                            ExportMetrics.countPartSkipped();
+                            skipped++;
+                            if (logWriter != null) {
+                                ExportLogger.warn(logWriter, "    AVERTISSEMENT : import Collada retourné null pour \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\"");
+                            }
                         }
-                    } else {
+                    } catch (Exception e) {
+                        ExportMetrics.countPartSkipped();
                         skipped++;
                         if (logWriter != null) {
-                            logWriter.println("    AVERTISSEMENT : import Collada retourné null pour \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\"");
-                            logWriter.flush();
-                        }
-                    }
-                } catch (Exception e) {
-                    skipped++;
-                    if (logWriter != null) {
-                        String errorMsg = e.getMessage();
-                        if (errorMsg == null) errorMsg = e.getClass().getSimpleName();
-                        logWriter.println("    ERREUR import Collada pour \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\": " + errorMsg);
-                        if (count < 3) {
-                            e.printStackTrace(logWriter);
+                            String errorMsg = e.getMessage();
+                            if (errorMsg == null) errorMsg = e.getClass().getSimpleName();
+                            ExportLogger.error(logWriter, "    ERREUR import Collada pour \"" + (piece.getName() != null ? piece.getName() : "(sans nom)") + "\": " + errorMsg);
+                            if (count < 3) {
+                                e.printStackTrace(logWriter);
+                            }
                         }
-                        logWriter.flush();
                     }
                 }
+            } finally {
+                // Échec ou annulation : les conversions pas encore commencées sont abandonnées
+                for (ForkJoinTask<File> conversion : conversions.values()) {
+                    conversion.cancel(false);
+                }
+                lease.close();
+                if (temporaryCache) {
+                    modelCache.delete();
+                }
             }
             
             if (logWriter != null) {
-                logWriter.println("  ✓ " + count + " objet(s) 3D exporté(s) depuis le niveau terrain3d (ignorés: " + skipped + ").");
-                logWriter.flush();
+                ExportLogger.info(logWriter, "  ✓ " + count + " objet(s) 3D exporté(s) depuis le niveau terrain3d (ignorés: " + skipped + ").");
+                ExportLogger.info(logWriter, "  Cache des modèles: " + (modelCache.getHits() - cacheHits) + " réutilisé(s), "
+                        + (modelCache.getConversions() - cacheConversions) + " converti(s)");
             }
             
-            // Nettoyer le répertoire temporaire après un délai (optionnel)
-            // tempDir.deleteOnExit();
-            
         } catch (Exception e) {
             if (logWriter != null) {
                 String errorMsg = e.getMessage();
                 if (errorMsg == null) errorMsg = e.getClass().getSimpleName();
-                logWriter.println("  ERREUR export3DTerrainObjects: " + errorMsg);
+                ExportLogger.error(logWriter, "  ERREUR export3DTerrainObjects: " + errorMsg);
                 e.printStackTrace(logWriter);
-                logWriter.flush();
             }
         }
     }
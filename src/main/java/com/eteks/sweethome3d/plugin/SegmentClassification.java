@@ -0,0 +1,123 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Classement des segments de murs calculé une fois par export : périmètre de la pièce terrain,
+ * enveloppe convexe de la pièce et enveloppe convexe des murs exportés (fallback).
+ * Toutes les clés sont des SegmentKeySet (clés long, voir SegmentKeySet.pointKey).
+ */
+public class SegmentClassification {
+
+    private final float[][] roomPoints;
+    private final SegmentKeySet roomBoundary;
+    private SegmentKeySet roomHull;
+
+    /**
+     * @param terrainRoom pièce terrain (fondation), peut être null
+     */
+    public SegmentClassification(Room terrainRoom) {
+        float[][] points = terrainRoom != null ? terrainRoom.getPoints() : null;
+        this.roomPoints = points != null ? points : new float[0][];
+        this.roomBoundary = new SegmentKeySet(roomPoints.length);
+        if (roomPoints.length >= 2) {
+            for (int i = 0; i < roomPoints.length; i++) {
+                int next = (i + 1) % roomPoints.length;
+                roomBoundary.add(SegmentKeySet.pointKey(roomPoints[i][0], roomPoints[i][1]),
+                        SegmentKeySet.pointKey(roomPoints[next][0], roomPoints[next][1]));
+            }
+        }
+    }
+
+    /** true si le segment du mur est un côté du périmètre de la pièce terrain. */
+    public boolean isOnRoomBoundary(Wall wall) {
+        return roomBoundary.contains(wall);
+    }
+
+    /** Segments de l'enveloppe convexe de la pièce terrain (calculée au premier appel). */
+    public SegmentKeySet getRoomHull() {
+        if (roomHull == null) {
+            roomHull = new SegmentKeySet();
+            if (roomPoints.length >= 3) {
+                int[] hull = convexHullIndices(roomPoints);
+                for (int i = 0; i < hull.length; i++) {
+                    float[] p1 = roomPoints[hull[i]];
+                    float[] p2 = roomPoints[hull[(i + 1) % hull.length]];
+                    roomHull.add(SegmentKeySet.pointKey(p1[0], p1[1]), SegmentKeySet.pointKey(p2[0], p2[1]));
+                }
+            }
+        }
+        return roomHull;
+    }
+
+    /**
+     * Segments de l'enveloppe convexe construite à partir des extrémités (arrondies) des murs de chaque groupe.
+     * Utilisé en fallback quand le périmètre de la pièce terrain ne matche aucun segment (niveaux différents) :
+     * on tague extérieur/intérieur à partir du convexe des murs exportés pour que le toit puisse se créer.
+     */
+    public static SegmentKeySet wallGroupsHull(List<List<Wall>> wallGroups) {
+        SegmentKeySet keys = new SegmentKeySet();
+        if (wallGroups == null || wallGroups.isEmpty()) return keys;
+        long[] pointKeys = new long[wallGroups.size() * 2];
+        int count = 0;
+        for (List<Wall> group : wallGroups) {
+            if (group.isEmpty()) continue;
+            Wall w = group.get(0);
+            pointKeys[count++] = SegmentKeySet.pointKey(w.getXStart(), w.getYStart());
+            pointKeys[count++] = SegmentKeySet.pointKey(w.getXEnd(), w.getYEnd());
+        }
+        // Tri des clés = tri lexicographique (x, y) : points uniques directement dans l'ordre de la chaîne monotone
+        Arrays.sort(pointKeys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || pointKeys[i] != pointKeys[unique - 1]) pointKeys[unique++] = pointKeys[i];
+        }
+        if (unique < 3) return keys;
+        float[][] pts = new float[unique][];
+        for (int i = 0; i < unique; i++) {
+            pts[i] = new float[] {(float) SegmentKeySet.pointX(pointKeys[i]), (float) SegmentKeySet.pointY(pointKeys[i])};
+        }
+        int[] hull = convexHullIndices(pts);
+        for (int i = 0; i < hull.length; i++) {
+            keys.add(pointKeys[hull[i]], pointKeys[hull[(i + 1) % hull.length]]);
+        }
+        return keys;
+    }
+
+    /**
+     * Enveloppe convexe 2D (chaîne monotone d'Andrew, O(n log n)). Retourne les indices des points du contour,
+     * sans les points alignés sur une arête ni les doublons.
+     */
+    static int[] convexHullIndices(final float[][] pts) {
+        int n = pts.length;
+        if (n < 3) return new int[0];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Float.compare(pts[a][0], pts[b][0]);
+            return c != 0 ? c : Float.compare(pts[a][1], pts[b][1]);
+        });
+        int[] hull = new int[2 * n];
+        int k = 0;
+        // Chaîne inférieure
+        for (int i = 0; i < n; i++) {
+            while (k >= 2 && cross(pts[hull[k - 2]], pts[hull[k - 1]], pts[order[i]]) <= 0) k--;
+            hull[k++] = order[i];
+        }
+        // Chaîne supérieure
+        for (int i = n - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(pts[hull[k - 2]], pts[hull[k - 1]], pts[order[i]]) <= 0) k--;
+            hull[k++] = order[i];
+        }
+        // Le dernier point répète le premier
+        return k > 1 ? Arrays.copyOf(hull, k - 1) : new int[0];
+    }
+
+    private static double cross(float[] o, float[] a, float[] b) {
+        return ((double) a[0] - o[0]) * ((double) b[1] - o[1]) - ((double) a[1] - o[1]) * ((double) b[0] - o[0]);
+    }
+}
@@ -0,0 +1,125 @@
+package com.eteks.sweethome3d.plugin;
+
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Ensemble de segments 2D (tracés de murs) à clés primitives, sans chaîne ni boxing.
+ * Chaque extrémité est arrondie à la tolérance puis empaquetée dans un long (x sur 32 bits forts, y sur 32 bits faibles) ;
+ * un segment = deux longs ordonnés, donc même clé quel que soit le sens du mur.
+ * Table à adressage ouvert ; add() retourne le rang d'insertion du segment (utilisé pour regrouper les murs).
+ */
+public class SegmentKeySet {
+
+    /** Tolérance (cm) pour considérer deux segments comme le même mur (arrondi des extrémités). */
+    public static final double TOLERANCE_CM = 1.0;
+
+    private long[] keys;
+    private int[] ordinals;
+    private int size;
+
+    public SegmentKeySet() {
+        this(16);
+    }
+
+    public SegmentKeySet(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        keys = new long[capacity * 2];
+        ordinals = new int[capacity];
+    }
+
+    /**
+     * Clé d'un point (cm) arrondi à la tolérance. L'ordre des longs (signé) est l'ordre lexicographique (x, y),
+     * le bit de signe de y étant inversé dans les bits faibles.
+     */
+    public static long pointKey(double xCm, double yCm) {
+        return packPoint(Math.round(xCm / TOLERANCE_CM), Math.round(yCm / TOLERANCE_CM));
+    }
+
+    /** Empaquette des coordonnées déjà arrondies (en pas de tolérance). */
+    static long packPoint(long qx, long qy) {
+        return ((long) (int) qx << 32) | (((int) qy ^ 0x80000000) & 0xFFFFFFFFL);
+    }
+
+    /** Coordonnée x (cm) d'un point empaqueté. */
+    static double pointX(long point) {
+        return (point >> 32) * TOLERANCE_CM;
+    }
+
+    /** Coordonnée y (cm) d'un point empaqueté. */
+    static double pointY(long point) {
+        return ((int) point ^ 0x80000000) * TOLERANCE_CM;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Ajoute le segment du mur (toutes hauteurs confondues) et retourne son rang d'insertion. */
+    public int add(Wall wall) {
+        return add(pointKey(wall.getXStart(), wall.getYStart()), pointKey(wall.getXEnd(), wall.getYEnd()));
+    }
+
+    public boolean contains(Wall wall) {
+        return wall != null && contains(pointKey(wall.getXStart(), wall.getYStart()), pointKey(wall.getXEnd(), wall.getYEnd()));
+    }
+
+    /** Ajoute le segment [p1, p2] (clés pointKey) s'il est absent et retourne son rang d'insertion. */
+    public int add(long p1, long p2) {
+        long a = Math.min(p1, p2);
+        long b = Math.max(p1, p2);
+        int mask = ordinals.length - 1;
+        for (int slot = hash(a, b) & mask; ; slot = (slot + 1) & mask) {
+            if (ordinals[slot] == 0) {
+                keys[slot * 2] = a;
+                keys[slot * 2 + 1] = b;
+                ordinals[slot] = ++size;
+                if (size * 2 > ordinals.length) grow();
+                return size - 1;
+            }
+            if (keys[slot * 2] == a && keys[slot * 2 + 1] == b) {
+                return ordinals[slot] - 1;
+            }
+        }
+    }
+
+    public boolean contains(long p1, long p2) {
+        long a = Math.min(p1, p2);
+        long b = Math.max(p1, p2);
+        int mask = ordinals.length - 1;
+        for (int slot = hash(a, b) & mask; ordinals[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot * 2] == a && keys[slot * 2 + 1] == b) return true;
+        }
+        return false;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldOrdinals = ordinals;
+        keys = new long[oldKeys.length * 2];
+        ordinals = new int[oldOrdinals.length * 2];
+        int mask = ordinals.length - 1;
+        for (int i = 0; i < oldOrdinals.length; i++) {
+            if (oldOrdinals[i] == 0) continue;
+            long a = oldKeys[i * 2];
+            long b = oldKeys[i * 2 + 1];
+            int slot = hash(a, b) & mask;
+            while (ordinals[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot * 2] = a;
+            keys[slot * 2 + 1] = b;
+            ordinals[slot] = oldOrdinals[i];
+        }
+    }
+
+    private static int hash(long a, long b) {
+        long h = a * 0x9E3779B97F4A7C15L + b;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
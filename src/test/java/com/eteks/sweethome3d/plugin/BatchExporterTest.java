@@ -0,0 +1,65 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Développement des arguments de BatchExporter : "**&#47;" couvre aussi zéro dossier, comme dans un shell.
+ */
+public class BatchExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String plans;
+
+    @Before
+    public void setUp() throws IOException {
+        folder.newFolder("plans", "maisons", "anciennes");
+        folder.newFile("plans/direct.sh3d");
+        folder.newFile("plans/notes.txt");
+        folder.newFile("plans/maisons/maison.sh3d");
+        folder.newFile("plans/maisons/anciennes/ferme.sh3d");
+        plans = new File(folder.getRoot(), "plans").getPath().replace('\\', '/');
+    }
+
+    @Test
+    public void doubleStarMatchesFilesDirectlyInBase() throws IOException {
+        assertEquals(Arrays.asList("direct.sh3d", "ferme.sh3d", "maison.sh3d"),
+                names(BatchExporter.expandPattern(plans + "/**/*.sh3d")));
+    }
+
+    @Test
+    public void innerDoubleStarMatchesZeroDirectories() throws IOException {
+        assertEquals(Arrays.asList("ferme.sh3d", "maison.sh3d"),
+                names(BatchExporter.expandPattern(plans + "/maisons/**/*.sh3d")));
+        assertEquals(Arrays.asList("ferme.sh3d", "maison.sh3d"),
+                names(BatchExporter.expandPattern(plans + "/**/maisons/**/*.sh3d")));
+    }
+
+    @Test
+    public void singleStarStaysInOneDirectory() throws IOException {
+        assertEquals(Arrays.asList("direct.sh3d"), names(BatchExporter.expandPattern(plans + "/*.sh3d")));
+        assertEquals(Arrays.asList("direct.sh3d"), names(BatchExporter.expandPattern(plans)));
+    }
+
+    private static List<String> names(List<File> files) {
+        List<String> names = new ArrayList<String>();
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
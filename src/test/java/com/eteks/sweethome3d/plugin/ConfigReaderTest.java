@@ -0,0 +1,38 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Classement des noms de niveaux et de meubles par catégorie de config.json, en une passe par nom.
+ */
+public class ConfigReaderTest {
+
+    @Test
+    public void everyKeywordClassifiesItsCategory() {
+        for (String category : Arrays.asList("external_wall", "internal_wall", "foundation", "trees", "bushes")) {
+            for (String keyword : ConfigReader.getKeywords(category)) {
+                List<String> categories = ConfigReader.matchingCategories("Niveau " + keyword.toUpperCase() + " 2");
+                assertTrue(keyword + " → " + categories, categories.contains(category));
+            }
+        }
+    }
+
+    @Test
+    public void nameMatchingSeveralCategoriesListsThemInConfigOrder() {
+        assertEquals(Arrays.asList("external_wall", "trees", "bushes"),
+                ConfigReader.matchingCategories("Haie extérieure près des arbres"));
+    }
+
+    @Test
+    public void unknownOrMissingNameHasNoCategory() {
+        assertEquals(Collections.emptyList(), ConfigReader.matchingCategories("Étage 1"));
+        assertEquals(Collections.emptyList(), ConfigReader.matchingCategories(null));
+    }
+}
@@ -0,0 +1,108 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Journal d'export : niveaux explicites, garde DEBUG et fermeture (le fichier est complet une fois fermé hors EDT).
+ */
+public class ExportLoggerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty(ExportLogger.LEVEL_PROPERTY);
+    }
+
+    @Test
+    public void explicitLevelsAreFilteredByThreshold() throws IOException {
+        System.setProperty(ExportLogger.LEVEL_PROPERTY, "WARN");
+        File logFile = folder.newFile("plan.ng3.log");
+        PrintWriter writer = ExportLogger.open(logFile, false);
+        assertFalse(ExportLogger.isDebugEnabled(writer));
+        assertFalse(ExportLogger.isEnabled(writer, ExportLogger.Level.INFO));
+        ExportLogger.error(writer, "erreur");
+        ExportLogger.warn(writer, "avertissement");
+        ExportLogger.info(writer, "info");
+        ExportLogger.debug(writer, "detail");
+        writer.close();
+        assertEquals(Arrays.asList("erreur", "avertissement"), lines(logFile));
+    }
+
+    @Test
+    public void explicitLevelIsNotGuessedFromText() throws IOException {
+        System.setProperty(ExportLogger.LEVEL_PROPERTY, "INFO");
+        File logFile = folder.newFile("plan.ng3.log");
+        PrintWriter writer = ExportLogger.open(logFile, false);
+        assertTrue(ExportLogger.isEnabled(writer, ExportLogger.Level.INFO));
+        // Indenté : classé DEBUG par println, mais écrit au niveau INFO demandé
+        ExportLogger.info(writer, "    indenté");
+        ExportLogger.debug(writer, "ERREUR apparente");
+        writer.println("    détail classé DEBUG");
+        ExportLogger.warn(writer, "ligne 1\nligne 2");
+        writer.close();
+        assertEquals(Arrays.asList("    indenté", "ligne 1", "ligne 2"), lines(logFile));
+    }
+
+    @Test
+    public void reopeningAfterCloseTruncatesTheLog() throws IOException {
+        File logFile = folder.newFile("plan.ng3.log");
+        for (int export = 0; export < 3; export++) {
+            PrintWriter writer = ExportLogger.open(logFile, false);
+            for (int i = 0; i < 10000; i++) {
+                ExportLogger.info(writer, "export " + export + " ligne " + i);
+            }
+            writer.close();
+        }
+        List<String> lines = lines(logFile);
+        assertEquals(10000, lines.size());
+        assertEquals("export 2 ligne 0", lines.get(0));
+        assertEquals("export 2 ligne 9999", lines.get(9999));
+    }
+
+    @Test(timeout = 10000)
+    public void linesLoggedAfterCloseAreDropped() throws IOException {
+        File logFile = folder.newFile("plan.ng3.log");
+        PrintWriter writer = ExportLogger.open(logFile, false);
+        ExportLogger.info(writer, "avant fermeture");
+        writer.close();
+        // Plus de lignes que l'anneau n'en contient : sans thread d'écriture, rien ne doit attendre
+        for (int i = 0; i < 20000; i++) {
+            ExportLogger.info(writer, "après fermeture " + i);
+        }
+        assertEquals(Arrays.asList("avant fermeture"), lines(logFile));
+    }
+
+    @Test
+    public void otherWritersReceiveEveryLevel() {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        assertTrue(ExportLogger.isDebugEnabled(writer));
+        assertFalse(ExportLogger.isDebugEnabled(null));
+        ExportLogger.debug(writer, "detail");
+        ExportLogger.info(null, "ignoré");
+        writer.flush();
+        assertEquals("detail" + System.lineSeparator(), text.toString());
+    }
+
+    private static List<String> lines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
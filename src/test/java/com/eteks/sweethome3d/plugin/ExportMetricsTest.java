@@ -0,0 +1,39 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Mesures d'export : l'attente du préchauffage, faite avant PlanExporter, reste dans l'étape CLASSLOADER
+ * et dans la durée totale.
+ */
+public class ExportMetricsTest {
+
+    @Test
+    public void waitBeforeExportIsTimedInClassLoaderStage() throws InterruptedException {
+        ExportMetrics metrics = new ExportMetrics();
+        metrics.attach();
+        metrics.stage(ExportMetrics.Stage.CLASSLOADER);
+        Thread.sleep(50);
+        // Rattachement par PlanExporter.exportToEnergy3D : ne redémarre pas le chronomètre
+        metrics.attach();
+        metrics.stage(ExportMetrics.Stage.VALIDATION);
+        metrics.stage(ExportMetrics.Stage.CLASSLOADER);
+        metrics.detach("ok");
+
+        long waitNanos = 50000000L;
+        assertTrue(metrics.getStageNanos(ExportMetrics.Stage.CLASSLOADER) >= waitNanos);
+        assertTrue(metrics.getTotalNanos() >= waitNanos);
+        assertEquals("ok", metrics.getStatus());
+    }
+
+    @Test
+    public void reflectiveCallsAreCountedOnTheExportMetrics() {
+        ExportMetrics metrics = new ExportMetrics();
+        metrics.countReflectiveCalls(2);
+        metrics.countReflectiveCalls(1);
+        assertEquals(3, metrics.getReflectiveCalls());
+    }
+}
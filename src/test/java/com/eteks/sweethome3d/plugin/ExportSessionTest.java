@@ -0,0 +1,152 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.eteks.sweethome3d.model.Home;
+
+/**
+ * Session d'export incrémental : pièces gardées après un export réussi, rendues après un export annulé ou évité,
+ * oubliées après un échec ou un changement de fondation. Les pièces Energy3D sont ici de simples Object.
+ */
+public class ExportSessionTest {
+
+    private static final ClassLoader LOADER = ExportSessionTest.class.getClassLoader();
+
+    private ExportSession session;
+
+    @Before
+    public void setUp() {
+        session = ExportSession.forHome(new Home());
+        assertNotNull(session);
+    }
+
+    @After
+    public void tearDown() {
+        // Ne pas laisser la session rattachée au thread des tests suivants
+        if (ExportSession.isActive()) {
+            session.detach("failed");
+        }
+        System.clearProperty(ExportSession.INCREMENTAL_PROPERTY);
+    }
+
+    @Test
+    public void successfulExportKeepsPartsForTheNextOne() {
+        Object wall = new Object();
+        session.attach(LOADER, "fondation");
+        assertNull(ExportSession.reuse("Wall|1"));
+        ExportSession.keep("Wall|1", wall);
+        session.detach("ok");
+        assertEquals(1, session.getRebuiltCount());
+
+        session.attach(LOADER, "fondation");
+        assertSame(wall, ExportSession.reuse("Wall|1"));
+        assertNull("une pièce ne sert qu'une fois", ExportSession.reuse("Wall|1"));
+        session.detach("ok");
+        assertEquals(1, session.getReusedCount());
+        assertEquals(1, session.getRebuiltCount());
+    }
+
+    @Test
+    public void partsSharingAFingerprintAreReusedOnceEach() {
+        Object first = new Object();
+        Object second = new Object();
+        session.attach(LOADER, "fondation");
+        ExportSession.keep("Tree|0|0|0|1", first);
+        ExportSession.keep("Tree|0|0|0|1", second);
+        session.detach("ok");
+
+        session.attach(LOADER, "fondation");
+        Object a = ExportSession.reuse("Tree|0|0|0|1");
+        Object b = ExportSession.reuse("Tree|0|0|0|1");
+        assertNotNull(a);
+        assertNotNull(b);
+        assertTrue(a != b);
+        assertNull(ExportSession.reuse("Tree|0|0|0|1"));
+    }
+
+    @Test
+    public void cancelledExportGivesBackReusedPartsOnly() {
+        assertTakenPartsSurvive("cancelled");
+    }
+
+    @Test
+    public void unchangedExportGivesBackReusedPartsOnly() {
+        assertTakenPartsSurvive("unchanged");
+    }
+
+    private void assertTakenPartsSurvive(String status) {
+        Object wall = new Object();
+        session.attach(LOADER, "fondation");
+        ExportSession.keep("Wall|1", wall);
+        session.detach("ok");
+
+        session.attach(LOADER, "fondation");
+        assertSame(wall, ExportSession.reuse("Wall|1"));
+        ExportSession.keep("Wall|1", wall);
+        // Pièce neuve de l'export interrompu : peut-être incomplète, non gardée
+        ExportSession.keep("Wall|2", new Object());
+        session.detach(status);
+
+        session.attach(LOADER, "fondation");
+        assertSame(wall, ExportSession.reuse("Wall|1"));
+        assertNull(ExportSession.reuse("Wall|2"));
+    }
+
+    @Test
+    public void failedExportForgetsEverything() {
+        session.attach(LOADER, "fondation");
+        ExportSession.keep("Wall|1", new Object());
+        session.detach("ok");
+
+        session.attach(LOADER, "fondation");
+        assertNotNull(ExportSession.reuse("Wall|1"));
+        session.detach("failed");
+
+        session.attach(LOADER, "fondation");
+        assertNull(ExportSession.reuse("Wall|1"));
+    }
+
+    @Test
+    public void otherFoundationOrClassLoaderForgetsEverything() {
+        session.attach(LOADER, "fondation");
+        ExportSession.keep("Wall|1", new Object());
+        session.detach("ok");
+        session.attach(LOADER, "fondation déplacée");
+        assertNull(ExportSession.reuse("Wall|1"));
+        ExportSession.keep("Wall|1", new Object());
+        session.detach("ok");
+
+        session.attach(new ClassLoader(LOADER) { }, "fondation déplacée");
+        assertNull(ExportSession.reuse("Wall|1"));
+    }
+
+    @Test
+    public void nothingIsTrackedOutsideAnExport() {
+        assertFalse(ExportSession.isActive());
+        assertNull(ExportSession.fingerprint("Wall", 1, 2));
+        assertNull(ExportSession.reuse("Wall|1"));
+        ExportSession.keep("Wall|1", new Object());
+
+        session.attach(LOADER, "fondation");
+        assertTrue(ExportSession.isActive());
+        assertEquals("Wall|1|2", ExportSession.fingerprint("Wall", 1, 2));
+        assertNull(ExportSession.reuse("Wall|1"));
+        session.detach("ok");
+        assertFalse(ExportSession.isActive());
+    }
+
+    @Test
+    public void incrementalExportCanBeDisabled() {
+        System.setProperty(ExportSession.INCREMENTAL_PROPERTY, "false");
+        assertNull(ExportSession.forHome(new Home()));
+    }
+}
@@ -0,0 +1,138 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.eteks.sweethome3d.model.CatalogTexture;
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.HomeTexture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Le .ng3 n'est conservé (export "unchanged") que si rien de ce que lit l'export n'a changé
+ * et que le fichier n'a pas été modifié hors du plugin.
+ */
+public class HomeFingerprintTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Home home;
+    private Wall wall;
+    private HomeDoorOrWindow opening;
+    private HomePieceOfFurniture tree;
+    private HomePieceOfFurniture hedge;
+    private File ng3;
+
+    @Before
+    public void setUp() throws IOException {
+        home = new SyntheticHomeGenerator(3).walls(20).openingRatio(1).trees(1).hedges(1).generate();
+        wall = home.getWalls().iterator().next();
+        List<HomePieceOfFurniture> furniture = home.getFurniture();
+        for (HomePieceOfFurniture piece : furniture) {
+            if (opening == null && piece instanceof HomeDoorOrWindow) opening = (HomeDoorOrWindow) piece;
+            if (tree == null && piece.getName().contains("tree")) tree = piece;
+            if (hedge == null && (piece.getName().equals("Hedge") || piece.getName().equals("Bush"))) hedge = piece;
+        }
+        assertNotNull(opening);
+        assertNotNull(tree);
+        assertNotNull(hedge);
+        ng3 = folder.newFile("plan.ng3");
+        Files.write(ng3.toPath(), "ng3".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void unchangedPlanIsNotReexported() {
+        HomeFingerprint.writeKey(ng3, HomeFingerprint.compute(home));
+        assertTrue(HomeFingerprint.matches(ng3, HomeFingerprint.compute(home)));
+    }
+
+    @Test
+    public void everyExportedPropertyTriggersReexport() {
+        final Level level = home.getLevels().get(1);
+        final Room room = home.getRooms().get(0);
+        final HomeTexture brick = new HomeTexture(new CatalogTexture("Brique", null, 100, 100));
+        Map<String, Runnable> changes = new LinkedHashMap<String, Runnable>();
+        changes.put("couleur gauche du mur", () -> wall.setLeftSideColor(0xFF0000));
+        changes.put("couleur droite du mur", () -> wall.setRightSideColor(0x00FF00));
+        changes.put("texture gauche du mur", () -> wall.setLeftSideTexture(brick));
+        changes.put("texture droite du mur", () -> wall.setRightSideTexture(brick));
+        changes.put("début du mur", () -> wall.setXStart(wall.getXStart() + 10));
+        changes.put("fin du mur", () -> wall.setYEnd(wall.getYEnd() + 10));
+        changes.put("épaisseur du mur", () -> wall.setThickness(wall.getThickness() + 1));
+        changes.put("hauteur du mur", () -> wall.setHeight(wall.getHeight() + 1));
+        changes.put("niveau du mur", () -> wall.setLevel(home.getLevels().get(0)));
+        changes.put("position de l'ouverture", () -> opening.setX(opening.getX() + 5));
+        changes.put("élévation de l'ouverture", () -> opening.setElevation(opening.getElevation() + 5));
+        changes.put("largeur de l'ouverture", () -> opening.setWidth(opening.getWidth() + 5));
+        changes.put("hauteur de l'ouverture", () -> opening.setHeight(opening.getHeight() + 5));
+        changes.put("largeur dans le mur", () -> opening.setWallWidth(opening.getWallWidth() * 0.5f));
+        changes.put("hauteur dans le mur", () -> opening.setWallHeight(opening.getWallHeight() * 0.5f));
+        changes.put("nom de l'ouverture", () -> opening.setName("Window"));
+        changes.put("position de l'arbre", () -> tree.setY(tree.getY() + 5));
+        changes.put("élévation de l'arbre", () -> tree.setElevation(tree.getElevation() + 5));
+        changes.put("nom de l'arbre", () -> tree.setName("Pine tree"));
+        changes.put("angle du buisson", () -> hedge.setAngle(hedge.getAngle() + 0.5f));
+        changes.put("profondeur du buisson", () -> hedge.setDepth(hedge.getDepth() + 5));
+        changes.put("symétrie du buisson", () -> hedge.setModelMirrored(!hedge.isModelMirrored()));
+        changes.put("élévation du niveau", () -> level.setElevation(level.getElevation() + 10));
+        changes.put("nom du niveau", () -> level.setName(level.getName() + " bis"));
+        changes.put("points de la pièce fondation", () -> {
+            float[][] points = room.getPoints();
+            points[2][0] += 10;
+            room.setPoints(points);
+        });
+        changes.put("meuble ajouté", () -> home.addPieceOfFurniture(new HomePieceOfFurniture(tree)));
+
+        List<String> missed = new ArrayList<String>();
+        for (Map.Entry<String, Runnable> change : changes.entrySet()) {
+            HomeFingerprint.writeKey(ng3, HomeFingerprint.compute(home));
+            change.getValue().run();
+            if (HomeFingerprint.matches(ng3, HomeFingerprint.compute(home))) {
+                missed.add(change.getKey());
+            }
+        }
+        assertTrue("modifications sans réexport : " + missed, missed.isEmpty());
+    }
+
+    @Test
+    public void ng3ModifiedOutsideThePluginIsReexported() throws IOException {
+        String key = HomeFingerprint.compute(home);
+        HomeFingerprint.writeKey(ng3, key);
+        // Toit ajouté dans Energy3D : taille différente
+        Files.write(ng3.toPath(), "ng3 + toit".getBytes(StandardCharsets.US_ASCII));
+        assertFalse(HomeFingerprint.matches(ng3, key));
+
+        // Même taille, date différente
+        HomeFingerprint.writeKey(ng3, key);
+        assertTrue(ng3.setLastModified(ng3.lastModified() - 60000));
+        assertFalse(HomeFingerprint.matches(ng3, key));
+    }
+
+    @Test
+    public void keyIsDroppedWhenNg3IsRewritten() {
+        String key = HomeFingerprint.compute(home);
+        HomeFingerprint.writeKey(ng3, key);
+        HomeFingerprint.deleteKey(ng3);
+        assertFalse(HomeFingerprint.matches(ng3, key));
+    }
+}
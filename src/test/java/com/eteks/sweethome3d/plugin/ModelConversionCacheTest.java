@@ -0,0 +1,152 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.eteks.sweethome3d.model.Content;
+
+/**
+ * Cache des modèles convertis : les entrées d'un export ne sont pas évincées avant la fin de ses imports,
+ * même quand des conversions concurrentes font dépasser la taille maximale.
+ */
+public class ModelConversionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void leasedEntriesSurviveEvictionUntilClosed() throws Exception {
+        // Taille maximale d'un octet : toute conversion déclenche l'éviction
+        ModelConversionCache cache = new ModelConversionCache(folder.getRoot(), 1);
+        ModelConversionCache.Lease lease = cache.lease();
+        File first = cache.getCollada(cube(1), "obj", lease, null);
+        File second = cache.getCollada(cube(2), "obj", lease, null);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertTrue(first.isFile());
+        assertTrue(second.isFile());
+
+        lease.close();
+        assertFalse(first.isFile());
+        assertFalse(second.isFile());
+    }
+
+    @Test
+    public void entryOfAnotherExportIsEvictedOnlyOnceReleased() throws Exception {
+        ModelConversionCache cache = new ModelConversionCache(folder.getRoot(), 1);
+        ModelConversionCache.Lease importing = cache.lease();
+        File imported = cache.getCollada(cube(1), "obj", importing, null);
+
+        ModelConversionCache.Lease other = cache.lease();
+        cache.getCollada(cube(2), "obj", other, null);
+        other.close();
+        assertTrue("entrée d'un export en cours évincée", imported.isFile());
+
+        importing.close();
+        assertFalse(imported.isFile());
+    }
+
+    @Test
+    public void conversionFinishingAfterCloseIsNotPinned() throws Exception {
+        ModelConversionCache cache = new ModelConversionCache(folder.getRoot(), 1);
+        ModelConversionCache.Lease lease = cache.lease();
+        lease.close();
+        File late = cache.getCollada(cube(1), "obj", lease, null);
+        assertNotNull(late);
+
+        ModelConversionCache.Lease next = cache.lease();
+        cache.getCollada(cube(2), "obj", next, null);
+        assertFalse("conversion tardive restée épinglée", late.isFile());
+        next.close();
+    }
+
+    @Test
+    public void parallelConversionsAreAllAvailableForImport() throws Exception {
+        final ModelConversionCache cache = new ModelConversionCache(folder.getRoot(), 1);
+        final ModelConversionCache.Lease lease = cache.lease();
+        List<ForkJoinTask<File>> conversions = new ArrayList<ForkJoinTask<File>>();
+        for (int i = 0; i < 32; i++) {
+            final Content model = cube(i);
+            conversions.add(ForkJoinPool.commonPool().submit(new Callable<File>() {
+                public File call() throws Exception {
+                    return cache.getCollada(model, "obj", lease, null);
+                }
+            }));
+        }
+        try {
+            for (ForkJoinTask<File> conversion : conversions) {
+                File dae = conversion.join();
+                assertNotNull(dae);
+                assertTrue(dae.getName(), dae.isFile());
+            }
+            assertEquals(32, cache.getConversions());
+        } finally {
+            lease.close();
+        }
+    }
+
+    @Test
+    public void objConversionLeavesOnlyTheEntry() throws Exception {
+        ModelConversionCache cache = new ModelConversionCache(folder.getRoot(), 1024 * 1024);
+        ModelConversionCache.Lease lease = cache.lease();
+        File dae = cache.getCollada(cube(1), "obj", lease, null);
+        lease.close();
+        File[] files = folder.getRoot().listFiles();
+        assertEquals(1, files.length);
+        assertEquals(dae, files[0]);
+    }
+
+    @Test
+    public void leftoverTemporaryFilesDoNotCountAgainstTheCache() throws Exception {
+        File stale = new File(folder.getRoot(), "abandonne.obj");
+        File running = new File(folder.getRoot(), "en-cours.tmp");
+        Files.write(stale.toPath(), new byte[100000]);
+        Files.write(running.toPath(), new byte[100000]);
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+
+        ModelConversionCache cache = new ModelConversionCache(folder.getRoot(), 50000);
+        ModelConversionCache.Lease lease = cache.lease();
+        File dae = cache.getCollada(cube(1), "obj", lease, null);
+        lease.close();
+        assertTrue("entrée évincée à cause des fichiers temporaires", dae.isFile());
+        assertFalse("fichier temporaire abandonné conservé", stale.exists());
+        assertTrue("fichier d'une conversion en cours supprimé", running.exists());
+    }
+
+    @Test
+    public void temporaryCacheConvertsThenLeavesNothing() throws Exception {
+        ModelConversionCache cache = ModelConversionCache.openTemporary(null);
+        assertNotNull(cache);
+        ModelConversionCache.Lease lease = cache.lease();
+        File first = cache.getCollada(cube(1), "obj", lease, null);
+        File second = cache.getCollada(cube(2), "obj", lease, null);
+        assertTrue("entrée évincée avant l'import", first.isFile() && second.isFile());
+        lease.close();
+        cache.delete();
+        assertFalse(first.getParentFile().exists());
+    }
+
+    /** Cube OBJ décalé de offset (un contenu distinct par valeur). */
+    private static Content cube(final int offset) {
+        final byte[] obj = ("v " + offset + " 0 0\nv " + (offset + 1) + " 0 0\nv " + offset + " 1 0\nv " + (offset + 1) + " 1 0\n"
+                + "v " + offset + " 0 1\nv " + (offset + 1) + " 0 1\nv " + offset + " 1 1\nv " + (offset + 1) + " 1 1\n"
+                + "f 1 2 4 3\nf 5 7 8 6\nf 1 5 6 2\nf 3 4 8 7\nf 1 3 7 5\nf 2 6 8 4\n").getBytes(StandardCharsets.UTF_8);
+        return () -> new ByteArrayInputStream(obj);
+    }
+}
@@ -0,0 +1,232 @@
+package com.eteks.sweethome3d.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Tests d'échelle et de non-régression de PlanExporter sur des plans SyntheticHomeGenerator de 10 à 10 000 murs :
+ * invariants structurels de l'extraction (sans Energy3D), déterminisme, extraction parallèle identique à la
+ * séquentielle et croissance à peu près linéaire du temps. L'export complet n'est testé que si energy3d.jar est trouvé.
+ */
+public class PlanExporterScalingTest {
+
+    private static final int[] SIZES = {10, 100, 1000, 10000};
+    /** Rapport maximal entre temps par mur à 10 000 murs et à 100 murs (linéaire = 1, large marge pour la CI). */
+    private static final double MAX_PER_WALL_RATIO = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void extractionKeepsStructuralInvariants() {
+        for (int size : SIZES) {
+            Extraction extraction = new Extraction(new SyntheticHomeGenerator(42).walls(size).furnitureGroups(size / 100));
+            String label = size + " murs";
+
+            assertEquals(label, size, extraction.wallList.size());
+            // Chaque mur SH3D est dans un et un seul segment
+            Map<Wall, Boolean> seen = new IdentityHashMap<Wall, Boolean>();
+            int merged = 0;
+            for (List<Wall> group : extraction.groups) {
+                for (Wall wall : group) {
+                    assertTrue(label + " : mur dans deux segments", seen.put(wall, Boolean.TRUE) == null);
+                }
+            }
+            assertEquals(label, size, seen.size());
+
+            ExportGeometry.Walls walls = extraction.walls;
+            assertEquals(label, extraction.groups.size(), walls.count);
+            for (int i = 0; i < walls.count; i++) {
+                merged += walls.merged[i];
+                assertTrue(label + " : épaisseur", walls.thickness[i] > 0);
+                assertTrue(label + " : hauteur", walls.height[i] > 0);
+                // Murs dans l'emprise de la fondation : (u, v) entre 0 et 1
+                for (int p = 0; p < 4; p++) {
+                    assertInUnitRange(label + " : u", walls.points[i * 12 + p * 3]);
+                    assertInUnitRange(label + " : v", walls.points[i * 12 + p * 3 + 1]);
+                }
+            }
+            assertEquals(label, size, merged);
+
+            // Toutes les portes/fenêtres posées par le générateur sont rattachées à un mur et exportées ou comptées
+            int doorsAndWindows = extraction.furnitureIndex.getDoorsAndWindows().size();
+            int assigned = 0;
+            for (List<HomeDoorOrWindow> openings : extraction.openingsByWall.values()) {
+                assigned += openings.size();
+            }
+            assertEquals(label, doorsAndWindows, assigned);
+            int skipped = 0;
+            for (int i = 0; i < walls.count; i++) {
+                skipped += walls.openingsSkipped[i];
+            }
+            assertEquals(label, assigned, walls.getOpeningCount() + skipped);
+            for (double fraction : walls.openingFractions) {
+                assertInUnitRange(label + " : ouverture", fraction);
+            }
+
+            // Arbres (isolés et groupes de 3) et buissons
+            int expectedTrees = Math.max(1, size / 8) + 3 * (size / 100);
+            List<HomePieceOfFurniture> trees = extraction.furnitureIndex.getFurniture(FurnitureIndex.Kind.TREE);
+            assertEquals(label, expectedTrees, trees.size());
+            assertEquals(label, expectedTrees, ExportGeometry.extractPlants(trees, extraction.furnitureIndex, null, 0, 0).count);
+            List<HomePieceOfFurniture> bushLevel = extraction.furnitureIndex.getFurniture(extraction.levelNamed("bushes"));
+            ExportGeometry.Hedges hedges = ExportGeometry.extractHedges(bushLevel, extraction.furnitureIndex, extraction.frame);
+            assertEquals(label, Math.max(1, size / 8), hedges.count + hedges.outside.length);
+        }
+    }
+
+    @Test
+    public void sameSeedGivesSameExtraction() {
+        for (int size : new int[] {100, 1000}) {
+            SyntheticHomeGenerator generator = new SyntheticHomeGenerator(7).walls(size).storeys(2)
+                    .layout(SyntheticHomeGenerator.Layout.RANDOM);
+            ExportGeometry.Walls first = new Extraction(generator).walls;
+            ExportGeometry.Walls second = new Extraction(generator).walls;
+            assertSameWalls(size + " murs", first, second);
+        }
+    }
+
+    @Test
+    public void parallelExtractionMatchesSequential() {
+        Extraction extraction = new Extraction(new SyntheticHomeGenerator(42).walls(10000).storeys(3));
+        String previous = System.getProperty(ExportGeometry.PARALLEL_PROPERTY);
+        try {
+            System.setProperty(ExportGeometry.PARALLEL_PROPERTY, "false");
+            ExportGeometry.Walls sequential = extraction.extractWalls();
+            System.setProperty(ExportGeometry.PARALLEL_PROPERTY, "true");
+            assertSameWalls("parallèle", sequential, extraction.extractWalls());
+        } finally {
+            restoreProperty(ExportGeometry.PARALLEL_PROPERTY, previous);
+        }
+    }
+
+    @Test
+    public void extractionTimeGrowsRoughlyLinearly() {
+        double small = bestNanosPerWall(100);
+        double large = bestNanosPerWall(10000);
+        assertTrue("temps par mur : " + small + " ns à 100 murs, " + large + " ns à 10 000 murs",
+                large <= small * MAX_PER_WALL_RATIO);
+    }
+
+    @Test
+    public void fullExportTimeGrowsRoughlyLinearly() {
+        Assume.assumeTrue("energy3d.jar introuvable", Energy3DClassLoader.getEnergy3DClassLoader(null) != null);
+        String previous = System.getProperty(HomeFingerprint.CACHE_PROPERTY);
+        try {
+            System.setProperty(HomeFingerprint.CACHE_PROPERTY, "false");
+            // Premier export pour charger Energy3D hors mesure
+            exportNanos(10);
+            double small = exportNanos(100) / 100.0;
+            double large = exportNanos(10000) / 10000.0;
+            assertTrue("temps d'export par mur : " + small + " ns à 100 murs, " + large + " ns à 10 000 murs",
+                    large <= small * MAX_PER_WALL_RATIO);
+        } finally {
+            restoreProperty(HomeFingerprint.CACHE_PROPERTY, previous);
+        }
+    }
+
+    private long exportNanos(int size) {
+        Home home = new SyntheticHomeGenerator(42).walls(size).generate();
+        File output = new File(folder.getRoot(), "plan-" + size + ".ng3");
+        long start = System.nanoTime();
+        assertTrue("export de " + size + " murs", PlanExporter.exportToEnergy3D(home, output));
+        long elapsed = System.nanoTime() - start;
+        assertTrue(output.length() > 0);
+        return elapsed;
+    }
+
+    /** Meilleur de 5 mesures (regroupement, rattachement des ouvertures, extraction), après 2 tours de chauffe. */
+    private static double bestNanosPerWall(int size) {
+        SyntheticHomeGenerator generator = new SyntheticHomeGenerator(42).walls(size);
+        Home home = generator.generate();
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 7; run++) {
+            long start = System.nanoTime();
+            new Extraction(home, generator.getExtentCm());
+            long elapsed = System.nanoTime() - start;
+            if (run >= 2) best = Math.min(best, elapsed);
+        }
+        return best / (double) size;
+    }
+
+    private static void assertSameWalls(String label, ExportGeometry.Walls expected, ExportGeometry.Walls actual) {
+        assertEquals(label, expected.count, actual.count);
+        assertTrue(label + " : points", Arrays.equals(expected.points, actual.points));
+        assertTrue(label + " : ouvertures", Arrays.equals(expected.openingStart, actual.openingStart));
+        assertTrue(label + " : fractions", Arrays.equals(expected.openingFractions, actual.openingFractions));
+        assertTrue(label + " : portes", Arrays.equals(expected.door, actual.door));
+        assertTrue(label + " : murs fusionnés", Arrays.equals(expected.merged, actual.merged));
+    }
+
+    private static void assertInUnitRange(String label, double value) {
+        assertTrue(label + " = " + value, value >= -1e-6 && value <= 1 + 1e-6);
+    }
+
+    private static void restoreProperty(String name, String value) {
+        if (value != null) {
+            System.setProperty(name, value);
+        } else {
+            System.clearProperty(name);
+        }
+    }
+
+    /** Étapes de l'export indépendantes d'Energy3D, enchaînées comme dans PlanExporter. */
+    private static final class Extraction {
+        final Home home;
+        final List<Wall> wallList;
+        final FurnitureIndex furnitureIndex;
+        final List<List<Wall>> groups;
+        final Map<Wall, List<HomeDoorOrWindow>> openingsByWall;
+        final ExportGeometry.Frame frame;
+        final ExportGeometry.Walls walls;
+
+        Extraction(SyntheticHomeGenerator generator) {
+            this(generator.generate(), generator.getExtentCm());
+        }
+
+        Extraction(Home home, float extentCm) {
+            this.home = home;
+            Level foundationLevel = home.getLevels().get(0);
+            wallList = new ArrayList<Wall>(home.getWalls());
+            furnitureIndex = FurnitureIndex.build(home);
+            groups = PlanExporter.groupWallsBySegment(wallList, foundationLevel, null);
+            openingsByWall = OpeningWallIndex.assignOpenings(wallList, home.getFurniture(), PlanExporter.DOOR_WINDOW_WALL_MARGIN_CM);
+            // Repère d'une fondation carrée couvrant le plan, comme createSizedFoundation
+            double half = extentCm * 0.5 * PlanExporter.SCALE_CM_TO_ENERGY3D;
+            frame = new ExportGeometry.Frame(extentCm * 0.5, extentCm * 0.5, -half, -half, -half, half, half, -half, 1.0);
+            walls = extractWalls();
+        }
+
+        ExportGeometry.Walls extractWalls() {
+            boolean[] exterior = new boolean[groups.size()];
+            return ExportGeometry.extractWalls(groups, exterior, openingsByWall, furnitureIndex, home.getLevels().get(0), frame);
+        }
+
+        /** Niveau dont le nom est le premier mot-clé de la catégorie. */
+        Level levelNamed(String category) {
+            String keyword = ConfigReader.getKeywords(category).get(0);
+            for (Level level : home.getLevels()) {
+                if (keyword.equals(level.getName())) return level;
+            }
+            throw new AssertionError("niveau " + keyword + " absent");
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.eteks.sweethome3d.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.eteks.sweethome3d.model.Content;
+import com.eteks.sweethome3d.model.DoorOrWindow;
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.HomeDoorOrWindow;
+import com.eteks.sweethome3d.model.HomeFurnitureGroup;
+import com.eteks.sweethome3d.model.HomePieceOfFurniture;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.PieceOfFurniture;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Générateur de plans SweetHome3D synthétiques en mémoire (pas de .sh3d client), pour mesurer
+ * PlanExporter à grande échelle. Les niveaux sont nommés d'après les mots-clés de config.json :
+ * fondation (avec sa pièce), étages extérieur/intérieur aux murs superposés d'un étage à l'autre,
+ * arbres, buissons/haies et terrain3d. Portes et fenêtres sont posées au milieu des murs.
+ * Même graine, mêmes paramètres → même plan.
+ */
+public class SyntheticHomeGenerator {
+
+    /** Tracé des murs d'un étage. */
+    public enum Layout {
+        /** Grille de cellules carrées : périmètre extérieur, cloisons intérieures. */
+        GRID,
+        /** Segments aléatoires (extrémités sur une trame de 50 cm) à l'intérieur de la fondation. */
+        RANDOM
+    }
+
+    private static final float CELL_CM = 400f;
+    private static final float STOREY_HEIGHT_CM = 250f;
+    private static final float WALL_THICKNESS_CM = 20f;
+    /** Cube unité au format OBJ, modèle des objets terrain3d. */
+    private static final byte[] CUBE_OBJ = ("v 0 0 0\nv 1 0 0\nv 0 1 0\nv 1 1 0\nv 0 0 1\nv 1 0 1\nv 0 1 1\nv 1 1 1\n"
+            + "f 1 2 4 3\nf 5 7 8 6\nf 1 5 6 2\nf 3 4 8 7\nf 1 3 7 5\nf 2 6 8 4\n").getBytes(StandardCharsets.UTF_8);
+
+    private final long seed;
+    private int walls = 100;
+    private int storeys = 1;
+    private Layout layout = Layout.GRID;
+    private double openingRatio = 0.25;
+    private int trees = -1;
+    private int hedges = -1;
+    private int furnitureGroups = 0;
+    private int terrain3dPieces = 0;
+    private float extentCm;
+
+    public SyntheticHomeGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Nombre total de murs, répartis entre les étages (défaut 100). */
+    public SyntheticHomeGenerator walls(int walls) {
+        this.walls = walls;
+        return this;
+    }
+
+    /** Nombre d'étages ; chaque étage a un niveau extérieur et un niveau intérieur (défaut 1). */
+    public SyntheticHomeGenerator storeys(int storeys) {
+        this.storeys = Math.max(1, storeys);
+        return this;
+    }
+
+    public SyntheticHomeGenerator layout(Layout layout) {
+        this.layout = layout;
+        return this;
+    }
+
+    /** Proportion de murs portant une ouverture, alternativement porte et fenêtre (défaut 0,25). */
+    public SyntheticHomeGenerator openingRatio(double openingRatio) {
+        this.openingRatio = openingRatio;
+        return this;
+    }
+
+    /** Nombre d'arbres (défaut : un pour 8 murs). */
+    public SyntheticHomeGenerator trees(int trees) {
+        this.trees = trees;
+        return this;
+    }
+
+    /** Nombre de haies/buissons (défaut : un pour 8 murs). */
+    public SyntheticHomeGenerator hedges(int hedges) {
+        this.hedges = hedges;
+        return this;
+    }
+
+    /** Nombre de groupes de meubles (3 arbres chacun, sur le niveau arbres). */
+    public SyntheticHomeGenerator furnitureGroups(int furnitureGroups) {
+        this.furnitureGroups = furnitureGroups;
+        return this;
+    }
+
+    /** Nombre d'objets 3D (cube OBJ) sur le niveau terrain3d. */
+    public SyntheticHomeGenerator terrain3dPieces(int terrain3dPieces) {
+        this.terrain3dPieces = terrain3dPieces;
+        return this;
+    }
+
+    /** Côté (cm) de la fondation carrée du dernier plan généré. */
+    public float getExtentCm() {
+        return extentCm;
+    }
+
+    /**
+     * Construit le plan. Le premier niveau est la fondation et la première pièce est la pièce fondation.
+     */
+    public Home generate() {
+        Random random = new Random(seed);
+        int wallsPerStorey = Math.max(1, (walls + storeys - 1) / storeys);
+        int side = 1;
+        while (2 * side * (side + 1) < wallsPerStorey) side++;
+        extentCm = side * CELL_CM;
+
+        Home home = new Home();
+        Level foundationLevel = addLevel(home, keyword("foundation"), 0);
+        Room room = new Room(new float[][] {{0, 0}, {extentCm, 0}, {extentCm, extentCm}, {0, extentCm}});
+        room.setName(keyword("foundation"));
+        home.addRoom(room);
+
+        // Même tracé à chaque étage : les murs superposés sont fusionnés par groupWallsBySegment
+        List<float[]> segments = layout == Layout.GRID
+                ? gridSegments(side, wallsPerStorey)
+                : randomSegments(random, side, wallsPerStorey);
+        int created = 0;
+        int openings = 0;
+        for (int storey = 0; storey < storeys && created < walls; storey++) {
+            float elevation = storey * STOREY_HEIGHT_CM;
+            Level exterior = addLevel(home, keyword("external_wall") + " " + (storey + 1), elevation);
+            Level interior = addLevel(home, keyword("internal_wall") + " " + (storey + 1), elevation);
+            for (int i = 0; i < segments.size() && created < walls; i++, created++) {
+                float[] s = segments.get(i);
+                boolean onPerimeter = isOnPerimeter(s);
+                home.setSelectedLevel(onPerimeter ? exterior : interior);
+                Wall wall = new Wall(s[0], s[1], s[2], s[3], WALL_THICKNESS_CM, STOREY_HEIGHT_CM);
+                home.addWall(wall);
+                if (random.nextDouble() < openingRatio) {
+                    boolean door = openings++ % 2 == 0;
+                    HomePieceOfFurniture opening = piece(door ? "Door" : "Window", (s[0] + s[2]) / 2, (s[1] + s[3]) / 2,
+                            door ? 90 : 120, WALL_THICKNESS_CM, door ? 210 : 120, true, null);
+                    opening.setElevation(door ? 0 : 90);
+                    opening.setAngle((float) Math.atan2(s[3] - s[1], s[2] - s[0]));
+                    home.addPieceOfFurniture(opening);
+                }
+            }
+        }
+
+        int treeCount = trees >= 0 ? trees : Math.max(1, walls / 8);
+        int hedgeCount = hedges >= 0 ? hedges : Math.max(1, walls / 8);
+        home.setSelectedLevel(addLevel(home, keyword("trees"), 0));
+        for (int i = 0; i < treeCount; i++) {
+            home.addPieceOfFurniture(piece("Oak tree", randomCoordinate(random), randomCoordinate(random), 300, 300, 600, false, null));
+        }
+        for (int g = 0; g < furnitureGroups; g++) {
+            List<HomePieceOfFurniture> members = new ArrayList<HomePieceOfFurniture>();
+            float x = randomCoordinate(random);
+            float y = randomCoordinate(random);
+            for (int i = 0; i < 3; i++) {
+                members.add(piece("Pine tree", x + i * 150, y, 200, 200, 500, false, null));
+            }
+            home.addPieceOfFurniture(new HomeFurnitureGroup(members, "Bosquet " + (g + 1)));
+        }
+        home.setSelectedLevel(addLevel(home, keyword("bushes"), 0));
+        for (int i = 0; i < hedgeCount; i++) {
+            home.addPieceOfFurniture(piece(i % 2 == 0 ? "Hedge" : "Bush", randomCoordinate(random), randomCoordinate(random),
+                    200, 60, 120, false, null));
+        }
+        if (terrain3dPieces > 0) {
+            home.setSelectedLevel(addLevel(home, keyword("terrain3d"), 0));
+            Content cube = () -> new ByteArrayInputStream(CUBE_OBJ);
+            for (int i = 0; i < terrain3dPieces; i++) {
+                home.addPieceOfFurniture(piece("Rocher " + (i + 1), randomCoordinate(random), randomCoordinate(random),
+                        150, 150, 100, false, cube));
+            }
+        }
+        home.setSelectedLevel(foundationLevel);
+        return home;
+    }
+
+    private static Level addLevel(Home home, String name, float elevation) {
+        Level level = new Level(name, elevation, 12, STOREY_HEIGHT_CM);
+        home.addLevel(level);
+        home.setSelectedLevel(level);
+        return level;
+    }
+
+    /** Premier mot-clé de la catégorie dans config.json. */
+    private static String keyword(String category) {
+        List<String> keywords = ConfigReader.getKeywords(category);
+        return keywords.isEmpty() ? category : keywords.get(0);
+    }
+
+    private boolean isOnPerimeter(float[] s) {
+        return (s[0] == s[2] && (s[0] == 0 || s[0] == extentCm))
+                || (s[1] == s[3] && (s[1] == 0 || s[1] == extentCm));
+    }
+
+    private float randomCoordinate(Random random) {
+        return random.nextFloat() * extentCm;
+    }
+
+    /** Arêtes de la grille side × side : lignes horizontales puis verticales, au plus count. */
+    private static List<float[]> gridSegments(int side, int count) {
+        List<float[]> segments = new ArrayList<float[]>(count);
+        for (int row = 0; row <= side && segments.size() < count; row++) {
+            for (int col = 0; col < side && segments.size() < count; col++) {
+                segments.add(new float[] {col * CELL_CM, row * CELL_CM, (col + 1) * CELL_CM, row * CELL_CM});
+            }
+        }
+        for (int col = 0; col <= side && segments.size() < count; col++) {
+            for (int row = 0; row < side && segments.size() < count; row++) {
+                segments.add(new float[] {col * CELL_CM, row * CELL_CM, col * CELL_CM, (row + 1) * CELL_CM});
+            }
+        }
+        return segments;
+    }
+
+    /** Périmètre de la fondation (4 murs) puis segments aléatoires de 1 à 6 m sur une trame de 50 cm. */
+    private static List<float[]> randomSegments(Random random, int side, int count) {
+        float extent = side * CELL_CM;
+        List<float[]> segments = new ArrayList<float[]>(count);
+        float[][] corners = {{0, 0}, {extent, 0}, {extent, extent}, {0, extent}};
+        for (int i = 0; i < 4 && segments.size() < count; i++) {
+            float[] a = corners[i];
+            float[] b = corners[(i + 1) % 4];
+            segments.add(new float[] {a[0], a[1], b[0], b[1]});
+        }
+        int steps = (int) (extent / 50);
+        while (segments.size() < count) {
+            float x1 = random.nextInt(steps + 1) * 50f;
+            float y1 = random.nextInt(steps + 1) * 50f;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double length = 100 + random.nextDouble() * 500;
+            float x2 = Math.max(0, Math.min(extent, Math.round((x1 + length * Math.cos(angle)) / 50) * 50f));
+            float y2 = Math.max(0, Math.min(extent, Math.round((y1 + length * Math.sin(angle)) / 50) * 50f));
+            if (x1 != x2 || y1 != y2) {
+                segments.add(new float[] {x1, y1, x2, y2});
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Meuble posé en (x, y) sur le niveau sélectionné, créé à partir d'un proxy de PieceOfFurniture
+     * (ou DoorOrWindow) : pas de dépendance au catalogue ni aux constructeurs propres à une version de SH3D.
+     */
+    private static HomePieceOfFurniture piece(String name, float x, float y, float width, float depth, float height,
+                                              boolean doorOrWindow, Content model) {
+        InvocationHandler handler = new CatalogPiece(name, width, depth, height, doorOrWindow, model);
+        HomePieceOfFurniture piece;
+        if (doorOrWindow) {
+            piece = new HomeDoorOrWindow((DoorOrWindow) Proxy.newProxyInstance(DoorOrWindow.class.getClassLoader(),
+                    new Class<?>[] {DoorOrWindow.class}, handler));
+        } else {
+            piece = new HomePieceOfFurniture((PieceOfFurniture) Proxy.newProxyInstance(PieceOfFurniture.class.getClassLoader(),
+                    new Class<?>[] {PieceOfFurniture.class}, handler));
+        }
+        piece.setX(x);
+        piece.setY(y);
+        return piece;
+    }
+
+    /** Valeurs de catalogue d'un meuble synthétique ; les autres propriétés prennent une valeur neutre. */
+    private static final class CatalogPiece implements InvocationHandler {
+        private final String name;
+        private final float width;
+        private final float depth;
+        private final float height;
+        private final boolean doorOrWindow;
+        private final Content model;
+
+        CatalogPiece(String name, float width, float depth, float height, boolean doorOrWindow, Content model) {
+            this.name = name;
+            this.width = width;
+            this.depth = depth;
+            this.height = height;
+            this.doorOrWindow = doorOrWindow;
+            this.model = model;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "getName": return name;
+                case "getWidth": return width;
+                case "getDepth": return depth;
+                case "getHeight": return height;
+                case "isDoorOrWindow": return doorOrWindow;
+                case "getModel": return model;
+                case "getModelRotation": return new float[][] {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+                case "getWallThickness": return 1f;
+                case "getWallWidth": return 1f;
+                case "getWallHeight": return 1f;
+                case "isMovable":
+                case "isResizable":
+                case "isDeformable":
+                case "isTexturable":
+                case "isVisible":
+                case "isWidthDepthDeformable":
+                    return true;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return name;
+                default:
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) return false;
+                    if (type == float.class) return 0f;
+                    if (type == int.class) return 0;
+                    if (type == long.class) return 0L;
+                    if (type == double.class) return 0d;
+                    if (type.isArray()) return Array.newInstance(type.getComponentType(), 0);
+                    return null;
+            }
+        }
+    }
+}